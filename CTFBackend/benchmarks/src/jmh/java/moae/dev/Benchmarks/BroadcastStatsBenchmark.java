@@ -0,0 +1,158 @@
+package moae.dev.Benchmarks;
+
+import moae.dev.Game.Game;
+import moae.dev.Sockets.Frame;
+import moae.dev.Sockets.SessionOutbox;
+import moae.dev.Sockets.SocketConnectionHandler;
+import moae.dev.Utils.ChatMessage;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketExtension;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.security.Principal;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost the broadcast counters add to queueing a frame for {@code sessions} sessions. {@code
+ * counted} goes through a channel handler, which times the loop and counts the sessions it reached
+ * for the metrics; {@code bare} is the same loop over the same kind of outboxes with nothing
+ * counted. Sessions discard what they are sent, so only the queueing is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class BroadcastStatsBenchmark {
+  @Param({"counted", "bare"})
+  public String mode;
+
+  @Param({"10", "1000"})
+  public int sessions;
+
+  private final List<SessionOutbox> outboxes = new ArrayList<>();
+  private Game game;
+  private SocketConnectionHandler handler;
+  private Frame frame;
+
+  @Setup(Level.Trial)
+  public void setup() throws Exception {
+    game = Fixtures.populatedGame(2, 2);
+    handler = new SocketConnectionHandler(game);
+    frame =
+        Frame.of(
+            new ChatMessage(
+                "Flag spotted by the old oak, north side", game.getPlayers().getFirst(), 42,
+                new Date(), UUID.randomUUID()),
+            true);
+    for (int i = 0; i < sessions; i++) {
+      if (mode.equals("counted")) handler.afterConnectionEstablished(new NullSession());
+      else outboxes.add(game.sockets().outbox(new NullSession()));
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    outboxes.forEach(SessionOutbox::shutdown);
+    game.shutdown();
+  }
+
+  @Benchmark
+  public void broadcast() {
+    if (mode.equals("counted")) {
+      handler.send(frame);
+    } else {
+      for (SessionOutbox outbox : outboxes) outbox.offer(frame);
+    }
+  }
+
+  /** A session that drops everything it is sent. */
+  private static final class NullSession implements WebSocketSession {
+    private final String id = UUID.randomUUID().toString();
+
+    @Override
+    public void sendMessage(WebSocketMessage<?> message) {}
+
+    @Override
+    public String getId() {
+      return id;
+    }
+
+    @Override
+    public boolean isOpen() {
+      return true;
+    }
+
+    @Override
+    public void close() {}
+
+    @Override
+    public void close(CloseStatus status) {}
+
+    @Override
+    public URI getUri() {
+      return null;
+    }
+
+    @Override
+    public HttpHeaders getHandshakeHeaders() {
+      return null;
+    }
+
+    @Override
+    public Map<String, Object> getAttributes() {
+      return Map.of();
+    }
+
+    @Override
+    public Principal getPrincipal() {
+      return null;
+    }
+
+    @Override
+    public InetSocketAddress getLocalAddress() {
+      return null;
+    }
+
+    @Override
+    public InetSocketAddress getRemoteAddress() {
+      return null;
+    }
+
+    @Override
+    public String getAcceptedProtocol() {
+      return null;
+    }
+
+    @Override
+    public void setTextMessageSizeLimit(int messageSizeLimit) {}
+
+    @Override
+    public int getTextMessageSizeLimit() {
+      return 0;
+    }
+
+    @Override
+    public void setBinaryMessageSizeLimit(int messageSizeLimit) {}
+
+    @Override
+    public int getBinaryMessageSizeLimit() {
+      return 0;
+    }
+
+    @Override
+    public List<WebSocketExtension> getExtensions() {
+      return List.of();
+    }
+  }
+}
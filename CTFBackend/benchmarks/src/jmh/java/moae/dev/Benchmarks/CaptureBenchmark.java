@@ -0,0 +1,114 @@
+package moae.dev.Benchmarks;
+
+import moae.dev.Game.CaptureEngine;
+import moae.dev.Game.Game;
+import moae.dev.Game.LocationIndex;
+import moae.dev.Game.Player;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Players walking around a scouting game whose teams have all hidden their flags, each step
+ * checked for flags reached. Every player keeps a heading and a pace and turns a little each step,
+ * bouncing off the edges, so they wander in and out of the flags' zones the way people do.
+ *
+ * <p>{@code check} is one capture check; it should take the same time for 2 teams or 400 and for
+ * 100 players or 2,000, since a position is only compared with the flags in the cells around it.
+ * {@code report} is the whole report a socket thread takes in, position and capture check
+ * together. The flags are scattered at random, with the same seed every run.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class CaptureBenchmark {
+  @Param({"2", "100", "400"})
+  public int teams;
+
+  @Param({"100", "2000"})
+  public int players;
+
+  private Game game;
+  private CaptureEngine engine;
+  private UUID[] ids;
+  private UUID[] teamIds;
+  private int[] slots;
+  private float[] xs;
+  private float[] ys;
+  private float[] headings;
+  private float[] paces;
+  private final Random random = new Random(7);
+  private int next;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    game = Fixtures.populatedGame(teams, players);
+    game.goTo(Game.State.GRACE_PERIOD, 600_000);
+    for (int i = 0; i < teams; i++) {
+      UUID team = game.getTeams().get(i).getID();
+      game.registerFlag(team, random.nextInt(101), random.nextInt(101));
+    }
+    game.goTo(Game.State.SCOUT_PERIOD, 600_000);
+    engine = game.captures();
+
+    List<Player> all = game.getPlayers();
+    ids = new UUID[players];
+    teamIds = new UUID[players];
+    slots = new int[players];
+    xs = new float[players];
+    ys = new float[players];
+    headings = new float[players];
+    paces = new float[players];
+    long now = System.currentTimeMillis();
+    for (int i = 0; i < players; i++) {
+      ids[i] = all.get(i).getID();
+      teamIds[i] = all.get(i).getTeam();
+      xs[i] = random.nextFloat() * LocationIndex.MAP_SIZE;
+      ys[i] = random.nextFloat() * LocationIndex.MAP_SIZE;
+      headings[i] = random.nextFloat() * 2 * (float) Math.PI;
+      // A walk to a jog, at 2 reports a second on a map a few hundred metres across
+      paces[i] = 0.1f + random.nextFloat() * 0.4f;
+      slots[i] = game.locations().update(ids[i], teamIds[i], xs[i], ys[i], now);
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    game.shutdown();
+  }
+
+  /** Moves the next player a step, and returns who it was. */
+  private int step() {
+    int player = next;
+    next = next + 1 == players ? 0 : next + 1;
+
+    headings[player] += (random.nextFloat() - 0.5f) * 0.6f;
+    float x = xs[player] + paces[player] * (float) Math.cos(headings[player]);
+    float y = ys[player] + paces[player] * (float) Math.sin(headings[player]);
+    if (x < 0 || x > LocationIndex.MAP_SIZE || y < 0 || y > LocationIndex.MAP_SIZE) {
+      headings[player] += (float) Math.PI;
+      return player;
+    }
+    xs[player] = x;
+    ys[player] = y;
+    return player;
+  }
+
+  @Benchmark
+  public int check() {
+    int player = step();
+    engine.check(slots[player], ids[player], teamIds[player], xs[player], ys[player]);
+    return player;
+  }
+
+  @Benchmark
+  public boolean report() {
+    int player = step();
+    return game.sockets().locations().report(ids[player], xs[player], ys[player]);
+  }
+}
@@ -0,0 +1,107 @@
+package moae.dev.Benchmarks;
+
+import moae.dev.Game.Game;
+import moae.dev.Game.Player;
+import moae.dev.Utils.ChatJournal;
+import moae.dev.Utils.ChatLog;
+import moae.dev.Utils.ChatMessage;
+import moae.dev.Utils.MessagePage;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Date;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading one page of a team's chat from {@code depth} messages back in a log of {@code messages},
+ * the way a player scrolling up through history does. Every message on the page is read, since
+ * pages are views and a journaled message is only decoded when it is. Paging should cost the same
+ * at any depth: the page is found by binary search over the ids.
+ *
+ * <p>{@code heap} keeps every message in memory. {@code journal} keeps the newest {@code
+ * retention} and reads the rest back from a {@link ChatJournal}, so only the deeper pages come off
+ * disk.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ChatPagingBenchmark {
+  @Param({"heap", "journal"})
+  public String storage;
+
+  @Param({"0", "10000", "190000"})
+  public int depth;
+
+  @Param({"200000"})
+  public int messages;
+
+  @Param({"50"})
+  public int pageSize;
+
+  @Param({"2000"})
+  public int retention;
+
+  private Path directory;
+  private ChatLog log;
+  private int maxId;
+  private int minId;
+
+  @Setup(Level.Trial)
+  public void setup() throws IOException {
+    if (depth + pageSize > messages)
+      throw new IllegalArgumentException("A page that deep is past the oldest message");
+    directory = Files.createTempDirectory("chat-bench");
+    log =
+        storage.equals("heap")
+            ? new ChatLog()
+            : new ChatLog(retention, () -> ChatJournal.create(directory, "bench"));
+
+    Game game = Fixtures.populatedGame(2, 1);
+    Player player = game.getPlayers().getFirst();
+    game.shutdown();
+    UUID team = player.getTeam();
+    Date time = new Date();
+    for (int i = 0; i < messages; i++) {
+      // Ids skip now and then, as they do when other teams' messages are interleaved
+      int id = i * 2 + (i % 7 == 0 ? 1 : 0);
+      String text = "Heading for the fountain, cover me " + i;
+      log.append(new ChatMessage(text, player, id, time, team));
+    }
+
+    int newest = messages - 1 - depth;
+    maxId = newest * 2 + (newest % 7 == 0 ? 1 : 0);
+    int oldest = newest - pageSize;
+    minId = oldest * 2 + (oldest % 7 == 0 ? 1 : 0);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    log.clear();
+    try (var files = Files.list(directory)) {
+      for (Path file : files.toList()) Files.deleteIfExists(file);
+    }
+    Files.deleteIfExists(directory);
+  }
+
+  private static void read(MessagePage page, Blackhole blackhole) {
+    for (ChatMessage message : page.messages()) blackhole.consume(message);
+  }
+
+  /** The page a client asks for when scrolling up: the messages up to an id. */
+  @Benchmark
+  public void before(Blackhole blackhole) {
+    read(log.pageBefore(maxId, pageSize), blackhole);
+  }
+
+  /** The page a reconnecting client asks for: the messages after the last one it saw. */
+  @Benchmark
+  public void after(Blackhole blackhole) {
+    read(log.pageAfter(minId, pageSize), blackhole);
+  }
+}
@@ -0,0 +1,78 @@
+package moae.dev.Benchmarks;
+
+import moae.dev.Game.CommandLoop;
+import moae.dev.Game.Game;
+import moae.dev.Server.AppConfig;
+import moae.dev.Utils.WriteAheadLog;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time the command loop spends on a command that takes a checkpoint, in a journaled game that has
+ * {@code messages} chat messages behind it. Every journaled event checkpoints here, so each
+ * invocation is one emergency toggle and the image it writes; the cost should not depend on how
+ * long the chat is.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class CheckpointBenchmark {
+  private static final int PLAYERS = 300;
+
+  @Param({"0", "100000"})
+  public int messages;
+
+  private Path dir;
+  private Game game;
+  private boolean emergency;
+
+  @Setup(Level.Trial)
+  public void setup() throws IOException {
+    AppConfig config = Fixtures.config(2);
+    AppConfig.PersistenceConfig persistence = new AppConfig.PersistenceConfig();
+    persistence.setCheckpointEvery(1);
+    config.setPersistence(persistence);
+    dir = Files.createTempDirectory("checkpoint-benchmark");
+
+    game =
+        new Game(
+            Game.DEFAULT_ID,
+            config,
+            null,
+            null,
+            publish -> CommandLoop.virtual("game-loop", publish),
+            dir);
+    List<UUID> players = new ArrayList<>(PLAYERS);
+    for (int i = 0; i < PLAYERS; i++) {
+      players.add(game.addPlayer("Player " + i, game.getTeams().get(i % 2).getID(), false));
+    }
+    CompletableFuture<Integer> last = null;
+    for (int i = 0; i < messages; i++) {
+      last = game.sendMessageAsync(players.get(i % PLAYERS), "Message " + i);
+    }
+    if (last != null) last.join();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    game.shutdown();
+    WriteAheadLog.delete(dir);
+  }
+
+  @Benchmark
+  public void checkpoint() {
+    if (emergency) game.releaseEmergency();
+    else game.declareEmergency();
+    emergency = !emergency;
+  }
+}
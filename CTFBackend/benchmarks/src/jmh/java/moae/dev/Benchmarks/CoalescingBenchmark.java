@@ -0,0 +1,229 @@
+package moae.dev.Benchmarks;
+
+import moae.dev.Game.Game;
+import moae.dev.Game.Player;
+import moae.dev.Sockets.Frame;
+import moae.dev.Sockets.OutboundStats;
+import moae.dev.Sockets.SessionOutbox;
+import moae.dev.Utils.AnnouncementMessage;
+import moae.dev.Utils.ChatMessage;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketExtension;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.Principal;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.zip.Deflater;
+
+/**
+ * A burst like the one after a victory, 40 chat and announcement frames, broadcast to {@code
+ * sessions} sessions and waited for until every session has taken it. {@code window} is the
+ * coalescing window in milliseconds, 0 sending every frame on its own; {@code deflate} compresses
+ * each message the way permessage-deflate does, keeping the window between messages.
+ *
+ * <p>The counters are per second: {@code frames} taken by sessions, {@code messages} written, and
+ * {@code wireBytes}, the payloads plus WebSocket frame headers. The send latency of the frames,
+ * which includes the window, is printed at the end of each iteration.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class CoalescingBenchmark {
+  private static final int BURST = 40;
+
+  @Param({"0", "25", "50"})
+  public int window;
+
+  @Param({"false", "true"})
+  public boolean deflate;
+
+  @Param({"200"})
+  public int sessions;
+
+  private final List<SessionOutbox> outboxes = new ArrayList<>();
+  private final LongAdder messages = new LongAdder();
+  private final LongAdder bytes = new LongAdder();
+  private OutboundStats stats;
+  private Game game;
+  private Player player;
+
+  @AuxCounters(AuxCounters.Type.OPERATIONS)
+  @State(Scope.Thread)
+  public static class Wire {
+    public long frames;
+    public long messages;
+    public long wireBytes;
+  }
+
+  @Setup(Level.Trial)
+  public void setup() {
+    game = Fixtures.populatedGame(2, 2);
+    player = game.getPlayers().getFirst();
+  }
+
+  @Setup(Level.Iteration)
+  public void connect() {
+    stats = new OutboundStats();
+    for (int i = 0; i < sessions; i++) {
+      WireSession session = new WireSession(deflate, messages, bytes);
+      outboxes.add(new SessionOutbox(session, 256, 3, window, stats));
+    }
+  }
+
+  @TearDown(Level.Iteration)
+  public void disconnect() {
+    var latency = stats.sendLatency();
+    System.out.printf(
+        "%nsend latency: mean %.2f ms, p99 %d ms%n", latency.meanMillis(), latency.p99Millis());
+    outboxes.forEach(SessionOutbox::shutdown);
+    outboxes.clear();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    game.shutdown();
+  }
+
+  @Benchmark
+  public void burst(Wire wire) throws Exception {
+    long target = stats.sent() + stats.dropped() + (long) BURST * sessions;
+    long messagesBefore = messages.sum();
+    long bytesBefore = bytes.sum();
+
+    for (int i = 0; i < BURST; i++) {
+      Frame frame =
+          i % 8 == 0
+              ? Frame.of(new AnnouncementMessage("info", "Team " + i + " has won the game"), false)
+              : Frame.of(
+                  new ChatMessage("gg " + i, player, i, new Date(), UUID.randomUUID()), true);
+      for (SessionOutbox outbox : outboxes) outbox.offer(frame);
+    }
+    while (stats.sent() + stats.dropped() < target) LockSupport.parkNanos(50_000);
+
+    wire.frames += (long) BURST * sessions;
+    wire.messages += messages.sum() - messagesBefore;
+    wire.wireBytes += bytes.sum() - bytesBefore;
+  }
+
+  /** A session that counts what it would put on the wire. */
+  private static final class WireSession implements WebSocketSession {
+    private final String id = UUID.randomUUID().toString();
+    private final Deflater deflater;
+    private final LongAdder messages;
+    private final LongAdder bytes;
+    private final byte[] buffer = new byte[64 * 1024];
+
+    WireSession(boolean deflate, LongAdder messages, LongAdder bytes) {
+      this.deflater = deflate ? new Deflater(Deflater.DEFAULT_COMPRESSION, true) : null;
+      this.messages = messages;
+      this.bytes = bytes;
+    }
+
+    @Override
+    public void sendMessage(WebSocketMessage<?> message) {
+      byte[] payload = ((String) message.getPayload()).getBytes(StandardCharsets.UTF_8);
+      int length = payload.length;
+      if (deflater != null) {
+        deflater.setInput(payload);
+        length = 0;
+        int written;
+        do {
+          written = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+          length += written;
+        } while (written == buffer.length);
+        // The empty block that ends a sync flush isn't sent
+        length -= 4;
+      }
+      int header = length < 126 ? 2 : length < 0x10000 ? 4 : 10;
+      messages.increment();
+      bytes.add(header + length);
+    }
+
+    @Override
+    public String getId() {
+      return id;
+    }
+
+    @Override
+    public boolean isOpen() {
+      return true;
+    }
+
+    @Override
+    public void close() {}
+
+    @Override
+    public void close(CloseStatus status) {}
+
+    @Override
+    public URI getUri() {
+      return null;
+    }
+
+    @Override
+    public HttpHeaders getHandshakeHeaders() {
+      return null;
+    }
+
+    @Override
+    public Map<String, Object> getAttributes() {
+      return Map.of();
+    }
+
+    @Override
+    public Principal getPrincipal() {
+      return null;
+    }
+
+    @Override
+    public InetSocketAddress getLocalAddress() {
+      return null;
+    }
+
+    @Override
+    public InetSocketAddress getRemoteAddress() {
+      return null;
+    }
+
+    @Override
+    public String getAcceptedProtocol() {
+      return null;
+    }
+
+    @Override
+    public void setTextMessageSizeLimit(int messageSizeLimit) {}
+
+    @Override
+    public int getTextMessageSizeLimit() {
+      return 0;
+    }
+
+    @Override
+    public void setBinaryMessageSizeLimit(int messageSizeLimit) {}
+
+    @Override
+    public int getBinaryMessageSizeLimit() {
+      return 0;
+    }
+
+    @Override
+    public List<WebSocketExtension> getExtensions() {
+      return List.of();
+    }
+  }
+}
@@ -0,0 +1,70 @@
+package moae.dev.Benchmarks;
+
+import moae.dev.Game.CommandLoop;
+import moae.dev.Game.Game;
+import moae.dev.Server.AppConfig;
+import moae.dev.Services.PushNotificationService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of a running game with 64 threads issuing commands at once: most send global chat
+ * messages while the rest pause and resume the game. {@code loop} applies commands in batches on
+ * the game's command loop; {@code monitor} runs each command on the caller under the game's
+ * monitor, as games did before the command loop.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class CommandLoopBenchmark {
+  @Param({"loop", "monitor"})
+  public String mode;
+
+  private Game game;
+  private UUID player;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    AppConfig config = Fixtures.config(2);
+    // Keeps the heap flat while millions of messages are sent
+    config.getChat().setRetention(500);
+
+    game =
+        "monitor".equals(mode)
+            ? new Game(config, new PushNotificationService(), CommandLoop::monitor)
+            : new Game(config, new PushNotificationService());
+  }
+
+  @Setup(Level.Iteration)
+  public void startGame() {
+    game.reset(true);
+    player = game.addPlayer("Admin", game.getTeams().getFirst().getID(), true);
+    game.start();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    game.shutdown();
+  }
+
+  @Benchmark
+  @Group("commands")
+  @GroupThreads(56)
+  public Integer chat() {
+    return game.sendMessageAsync(player, "Hello, team").join();
+  }
+
+  @Benchmark
+  @Group("commands")
+  @GroupThreads(8)
+  public Void control() {
+    CompletableFuture<Void> command = game.isPaused() ? game.resumeAsync() : game.pauseAsync();
+    // Another control thread may have got there first
+    return command.exceptionally(e -> null).join();
+  }
+}
@@ -0,0 +1,165 @@
+package moae.dev.Benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import moae.dev.Game.Game;
+import moae.dev.Sockets.Frame;
+import moae.dev.Utils.ChatMessage;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketExtension;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.security.Principal;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of handing one chat message to {@code sessions} sessions, not counting the network. {@code
+ * perSession} is how broadcasts used to work: a new mapper, a serialization and a message for
+ * every session. {@code sharedMapper} keeps that loop but reuses one plain mapper. {@code frame}
+ * encodes a {@link Frame} once with the shared Blackbird mapper and gives every session the same
+ * message.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class FanOutBenchmark {
+  @Param({"perSession", "sharedMapper", "frame"})
+  public String mode;
+
+  @Param({"1000"})
+  public int sessions;
+
+  private final ObjectMapper plainMapper = new ObjectMapper();
+  private final List<WebSocketSession> open = new ArrayList<>();
+  private ChatMessage message;
+
+  @Setup(Level.Trial)
+  public void setup(Blackhole blackhole) {
+    Game game = Fixtures.populatedGame(2, 2);
+    message =
+        new ChatMessage(
+            "Flag spotted by the old oak, north side", game.getPlayers().getFirst(), 42,
+            new Date(), UUID.randomUUID());
+    for (int i = 0; i < sessions; i++) open.add(new NoopSession(blackhole));
+  }
+
+  @Benchmark
+  public void broadcast() throws Exception {
+    switch (mode) {
+      case "perSession" -> {
+        for (WebSocketSession session : open) {
+          session.sendMessage(new TextMessage(new ObjectMapper().writeValueAsString(message)));
+        }
+      }
+      case "sharedMapper" -> {
+        for (WebSocketSession session : open) {
+          session.sendMessage(new TextMessage(plainMapper.writeValueAsString(message)));
+        }
+      }
+      default -> {
+        Frame frame = Frame.of(message, true);
+        for (WebSocketSession session : open) session.sendMessage(frame.message());
+      }
+    }
+  }
+
+  /** A session that takes the payload and does nothing else with it. */
+  private static final class NoopSession implements WebSocketSession {
+    private final Blackhole blackhole;
+    private final String id = UUID.randomUUID().toString();
+
+    NoopSession(Blackhole blackhole) {
+      this.blackhole = blackhole;
+    }
+
+    @Override
+    public void sendMessage(WebSocketMessage<?> message) {
+      blackhole.consume(message.getPayload());
+    }
+
+    @Override
+    public String getId() {
+      return id;
+    }
+
+    @Override
+    public boolean isOpen() {
+      return true;
+    }
+
+    @Override
+    public void close() {}
+
+    @Override
+    public void close(CloseStatus status) {}
+
+    @Override
+    public URI getUri() {
+      return null;
+    }
+
+    @Override
+    public HttpHeaders getHandshakeHeaders() {
+      return null;
+    }
+
+    @Override
+    public Map<String, Object> getAttributes() {
+      return Map.of();
+    }
+
+    @Override
+    public Principal getPrincipal() {
+      return null;
+    }
+
+    @Override
+    public InetSocketAddress getLocalAddress() {
+      return null;
+    }
+
+    @Override
+    public InetSocketAddress getRemoteAddress() {
+      return null;
+    }
+
+    @Override
+    public String getAcceptedProtocol() {
+      return null;
+    }
+
+    @Override
+    public void setTextMessageSizeLimit(int messageSizeLimit) {}
+
+    @Override
+    public int getTextMessageSizeLimit() {
+      return 0;
+    }
+
+    @Override
+    public void setBinaryMessageSizeLimit(int messageSizeLimit) {}
+
+    @Override
+    public int getBinaryMessageSizeLimit() {
+      return 0;
+    }
+
+    @Override
+    public List<WebSocketExtension> getExtensions() {
+      return List.of();
+    }
+  }
+}
@@ -0,0 +1,50 @@
+package moae.dev.Benchmarks;
+
+import moae.dev.Game.Game;
+import moae.dev.Server.AppConfig;
+import moae.dev.Services.PushNotificationService;
+
+import java.util.ArrayList;
+import java.util.List;
+
+final class Fixtures {
+  private Fixtures() {}
+
+  static AppConfig config(int teams) {
+    AppConfig.GameConfig gameConfig = new AppConfig.GameConfig();
+    gameConfig.setMaxPlayers(-1);
+    gameConfig.setMinPlayers(2);
+    gameConfig.setMinPlayersPerTeam(1);
+    gameConfig.setMaxPlayersPerTeam(-1);
+    gameConfig.setMaxTeams(teams);
+    gameConfig.setGraceTime(600);
+    gameConfig.setScoutTime(1800);
+    gameConfig.setFfaTime(1200);
+
+    List<AppConfig.TeamConfig> teamConfigs = new ArrayList<>();
+    for (int i = 0; i < teams; i++) {
+      AppConfig.TeamConfig team = new AppConfig.TeamConfig();
+      team.setName("Team " + i);
+      team.setColor("#00000" + i);
+      teamConfigs.add(team);
+    }
+
+    AppConfig config = new AppConfig();
+    config.setGame(gameConfig);
+    config.setTeams(teamConfigs);
+    return config;
+  }
+
+  static Game game(int teams) {
+    return new Game(config(teams), new PushNotificationService());
+  }
+
+  /** A game in the lobby with {@code players} players spread across its teams. */
+  static Game populatedGame(int teams, int players) {
+    Game game = game(teams);
+    for (int i = 0; i < players; i++) {
+      game.addPlayer("Player " + i, game.getTeams().get(i % teams).getID(), false);
+    }
+    return game;
+  }
+}
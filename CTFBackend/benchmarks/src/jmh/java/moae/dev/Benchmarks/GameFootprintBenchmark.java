@@ -0,0 +1,88 @@
+package moae.dev.Benchmarks;
+
+import moae.dev.Game.Game;
+import moae.dev.Game.GameRegistry;
+import moae.dev.Server.AppConfig;
+import moae.dev.Services.PushNotificationService;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What each idle game costs the JVM: retained heap and live platform threads, reported as the
+ * {@code heapBytesPerGame} and {@code threadsPerGame} counters. {@code registry} hosts the games
+ * in a {@link GameRegistry}, sharing one timer thread and running loops on virtual threads; {@code
+ * standalone} builds each game on its own, as the server did before the registry.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+public class GameFootprintBenchmark {
+  @Param({"registry", "standalone"})
+  public String mode;
+
+  @Param({"200"})
+  public int games;
+
+  private AppConfig config;
+  private GameRegistry registry;
+  private final List<Game> standalone = new ArrayList<>();
+
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  public static class Footprint {
+    public double heapBytesPerGame;
+    public double threadsPerGame;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+      heapBytesPerGame = 0;
+      threadsPerGame = 0;
+    }
+  }
+
+  @Setup(Level.Iteration)
+  public void setup() {
+    config = Fixtures.config(4);
+    config.getLeague().setMaxGames(games + 1);
+    if ("registry".equals(mode)) registry = new GameRegistry(config, new PushNotificationService());
+  }
+
+  @TearDown(Level.Iteration)
+  public void tearDown() {
+    if (registry != null) registry.shutdown();
+    registry = null;
+    standalone.forEach(Game::shutdown);
+    standalone.clear();
+  }
+
+  @Benchmark
+  public int hostIdleGames(Footprint footprint) {
+    long heapBefore = usedHeap();
+    int threadsBefore = ManagementFactory.getThreadMXBean().getThreadCount();
+
+    for (int i = 0; i < games; i++) {
+      if (registry != null) {
+        registry.create();
+      } else {
+        standalone.add(new Game(config.copy(), new PushNotificationService()));
+      }
+    }
+
+    footprint.heapBytesPerGame = (double) (usedHeap() - heapBefore) / games;
+    footprint.threadsPerGame =
+        (double) (ManagementFactory.getThreadMXBean().getThreadCount() - threadsBefore) / games;
+    return registry != null ? registry.size() : standalone.size();
+  }
+
+  private static long usedHeap() {
+    Runtime runtime = Runtime.getRuntime();
+    for (int i = 0; i < 3; i++) System.gc();
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+}
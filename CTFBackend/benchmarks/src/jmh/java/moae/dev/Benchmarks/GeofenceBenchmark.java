@@ -0,0 +1,81 @@
+package moae.dev.Benchmarks;
+
+import moae.dev.Game.Polygon;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A million points checked against a play area with {@code vertices} vertices, a wavy ring like a
+ * park boundary traced on a map. {@code grid} uses the prepared {@link Polygon}; {@code scan} is
+ * the usual ray cast over every edge, for comparison. Both are reported per check, so {@code grid}
+ * should stay flat as the boundary grows while {@code scan} grows with it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class GeofenceBenchmark {
+  private static final int CHECKS = 1_000_000;
+
+  @Param({"4", "1000", "10000"})
+  public int vertices;
+
+  private float[] xs;
+  private float[] ys;
+  private Polygon polygon;
+  private final float[] pointXs = new float[CHECKS];
+  private final float[] pointYs = new float[CHECKS];
+
+  @Setup(Level.Trial)
+  public void setup() {
+    Random random = new Random(3);
+    xs = new float[vertices];
+    ys = new float[vertices];
+    for (int i = 0; i < vertices; i++) {
+      double angle = 2 * Math.PI * i / vertices;
+      // Wide bays and headlands, with a little noise from one vertex to the next
+      double radius =
+          35 + 6 * Math.sin(3 * angle) + 3 * Math.sin(11 * angle + 1) + random.nextDouble() * 0.5;
+      xs[i] = (float) (50 + radius * Math.cos(angle));
+      ys[i] = (float) (50 + radius * Math.sin(angle));
+    }
+    polygon = new Polygon(xs, ys);
+
+    for (int i = 0; i < CHECKS; i++) {
+      pointXs[i] = random.nextFloat() * 100;
+      pointYs[i] = random.nextFloat() * 100;
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(CHECKS)
+  public int grid() {
+    int inside = 0;
+    for (int i = 0; i < CHECKS; i++) {
+      if (polygon.contains(pointXs[i], pointYs[i])) inside++;
+    }
+    return inside;
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(CHECKS)
+  public int scan() {
+    int inside = 0;
+    for (int i = 0; i < CHECKS; i++) {
+      if (scan(pointXs[i], pointYs[i])) inside++;
+    }
+    return inside;
+  }
+
+  private boolean scan(float x, float y) {
+    boolean inside = false;
+    for (int a = 0, b = xs.length - 1; a < xs.length; b = a++) {
+      if ((ys[a] > y) == (ys[b] > y)) continue;
+      if (x < xs[a] + (y - ys[a]) * (xs[b] - xs[a]) / (ys[b] - ys[a])) inside = !inside;
+    }
+    return inside;
+  }
+}
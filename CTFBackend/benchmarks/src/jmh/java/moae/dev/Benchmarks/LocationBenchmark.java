@@ -0,0 +1,101 @@
+package moae.dev.Benchmarks;
+
+import moae.dev.Game.Game;
+import moae.dev.Game.LocationIndex;
+import moae.dev.Game.Player;
+import moae.dev.Sockets.Frame;
+import moae.dev.Sockets.LocationFeed;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 1,000 players across 4 teams walking around the map and reporting where they are at 2 Hz.
+ * {@code report} is one report as a socket thread takes it in; run it with {@code -prof gc} to see
+ * that it allocates nothing. {@code second} is a whole second of the game: 2,000 reports, then the
+ * flush that encodes each team's changed positions, so its time is the share of one core that
+ * location tracking costs. {@code near} finds a team's players within 5% of a point, as a capture
+ * check would.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class LocationBenchmark {
+  private static final int PLAYERS = 1000;
+  private static final int TEAMS = 4;
+  private static final int REPORTS_PER_SECOND = 2 * PLAYERS;
+
+  private Game game;
+  private LocationFeed feed;
+  private UUID[] players;
+  private UUID[] teams;
+  private final UUID[] found = new UUID[PLAYERS];
+
+  @State(Scope.Thread)
+  public static class Walk {
+    int next;
+    int step;
+
+    float x(int player) {
+      return (player * 7.3f + step * 0.05f) % LocationIndex.MAP_SIZE;
+    }
+
+    float y(int player) {
+      return (player * 3.1f + step * 0.03f) % LocationIndex.MAP_SIZE;
+    }
+  }
+
+  @Setup(Level.Trial)
+  public void setup() {
+    game = Fixtures.populatedGame(TEAMS, PLAYERS);
+    feed = game.sockets().locations();
+    List<Player> all = game.getPlayers();
+    players = new UUID[PLAYERS];
+    teams = new UUID[PLAYERS];
+    for (int i = 0; i < PLAYERS; i++) {
+      players[i] = all.get(i).getID();
+      teams[i] = all.get(i).getTeam();
+      feed.report(players[i], 50, 50);
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    game.shutdown();
+  }
+
+  @Benchmark
+  @Threads(4)
+  public boolean report(Walk walk) {
+    int player = walk.next++ % PLAYERS;
+    if (player == 0) walk.step++;
+    return feed.report(players[player], walk.x(player), walk.y(player));
+  }
+
+  @Benchmark
+  @OutputTimeUnit(TimeUnit.MICROSECONDS)
+  public void second(Walk walk, Blackhole blackhole) throws Exception {
+    LocationIndex index = game.locations();
+    long now = System.currentTimeMillis();
+    for (int i = 0; i < REPORTS_PER_SECOND; i++) {
+      int player = i % PLAYERS;
+      if (player == 0) walk.step++;
+      index.update(players[player], teams[player], walk.x(player), walk.y(player), now);
+    }
+    for (Map.Entry<UUID, List<LocationIndex.Position>> team : index.drain().entrySet()) {
+      blackhole.consume(Frame.of(Map.of("positions", team.getValue()), false));
+    }
+  }
+
+  @Benchmark
+  public int near(Walk walk) {
+    int player = walk.next++ % PLAYERS;
+    return game.locations().near(teams[player], walk.x(player), walk.y(player), 5, found);
+  }
+}
@@ -0,0 +1,83 @@
+package moae.dev.Benchmarks;
+
+import moae.dev.Utils.HashedWheelTimer;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the timer operations a stage change makes (schedule a timer and cancel the previous
+ * one) while {@code pending} other stage timers are waiting, as with that many games in one JVM.
+ * {@code wheel} is the shared {@link HashedWheelTimer}; {@code executor} is a single-threaded
+ * {@link ScheduledThreadPoolExecutor}, whose queue is a heap.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class PhaseTimerBenchmark {
+  private static final Runnable NOOP = () -> {};
+
+  @Param({"wheel", "executor"})
+  public String mode;
+
+  @Param({"1000", "50000"})
+  public int pending;
+
+  private HashedWheelTimer wheel;
+  private ScheduledThreadPoolExecutor executor;
+
+  private final List<HashedWheelTimer.Timeout> timeouts = new ArrayList<>();
+  private final List<ScheduledFuture<?>> futures = new ArrayList<>();
+
+  @Setup(Level.Trial)
+  public void setup() {
+    if ("wheel".equals(mode)) {
+      wheel = new HashedWheelTimer("bench-timer");
+      for (int i = 0; i < pending; i++) {
+        timeouts.add(wheel.schedule(NOOP, 10 + i % 3600, TimeUnit.MINUTES));
+      }
+    } else {
+      executor = new ScheduledThreadPoolExecutor(1);
+      executor.setRemoveOnCancelPolicy(true);
+      for (int i = 0; i < pending; i++) {
+        futures.add(executor.schedule(NOOP, 10 + i % 3600, TimeUnit.MINUTES));
+      }
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    if (wheel != null) wheel.stop();
+    if (executor != null) executor.shutdownNow();
+    timeouts.clear();
+    futures.clear();
+  }
+
+  @Benchmark
+  public boolean scheduleAndCancel() {
+    if (wheel != null) {
+      return wheel.schedule(NOOP, 20, TimeUnit.MINUTES).cancel();
+    }
+    return executor.schedule(NOOP, 20, TimeUnit.MINUTES).cancel(false);
+  }
+
+  @Benchmark
+  public boolean pauseAndResume() {
+    if (wheel != null) {
+      HashedWheelTimer.Timeout timeout = timeouts.get(pending / 2);
+      return timeout.pause() && timeout.resume();
+    }
+    // Without pause, an executor has to cancel the task and schedule a new one
+    ScheduledFuture<?> future = futures.get(pending / 2);
+    long left = future.getDelay(TimeUnit.NANOSECONDS);
+    future.cancel(false);
+    futures.set(pending / 2, executor.schedule(NOOP, left, TimeUnit.NANOSECONDS));
+    return true;
+  }
+}
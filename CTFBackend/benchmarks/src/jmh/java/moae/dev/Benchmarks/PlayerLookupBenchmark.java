@@ -0,0 +1,71 @@
+package moae.dev.Benchmarks;
+
+import moae.dev.Game.Game;
+import moae.dev.Game.Player;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the lookups every authenticated request makes. With the hash-indexed registry these
+ * should stay flat as the roster grows.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PlayerLookupBenchmark {
+  @Param({"10", "100", "1000", "10000"})
+  public int players;
+
+  private Game game;
+  private UUID[] ids;
+  private UUID[] teams;
+  private UUID missing;
+
+  @Setup
+  public void setup() {
+    game = Fixtures.populatedGame(4, players);
+    List<Player> roster = game.getPlayers();
+    ids = roster.stream().map(Player::getID).toArray(UUID[]::new);
+    teams = roster.stream().map(Player::getTeam).toArray(UUID[]::new);
+    missing = UUID.randomUUID();
+  }
+
+  private int next() {
+    return ThreadLocalRandom.current().nextInt(ids.length);
+  }
+
+  @Benchmark
+  public boolean isValidPlayer() {
+    return game.isValidPlayer(ids[next()]);
+  }
+
+  @Benchmark
+  public Player getPlayer() {
+    return game.getPlayer(ids[next()]);
+  }
+
+  @Benchmark
+  public boolean isPlayerOnTeam() {
+    int i = next();
+    return game.isPlayerOnTeam(ids[i], teams[i]);
+  }
+
+  @Benchmark
+  public void authenticatedRequest(Blackhole bh) {
+    // JwtValidator, then a controller checking team membership and loading the team
+    int i = next();
+    bh.consume(game.isValidPlayer(ids[i]));
+    bh.consume(game.isPlayerOnTeam(ids[i], teams[i]));
+    bh.consume(game.getTeam(teams[i]));
+  }
+
+  @Benchmark
+  public boolean missingPlayer() {
+    return game.isValidPlayer(missing);
+  }
+}
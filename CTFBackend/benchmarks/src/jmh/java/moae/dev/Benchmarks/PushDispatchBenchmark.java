@@ -0,0 +1,132 @@
+package moae.dev.Benchmarks;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import moae.dev.Server.AppConfig;
+import moae.dev.Services.PushDispatcher;
+import moae.dev.Utils.HashedWheelTimer;
+import nl.martijndwars.webpush.Subscription;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One broadcast to {@code subscribers} subscriptions, against a local HTTP server that answers
+ * like a push service after {@code latencyMillis}. {@code returned} is how long the caller is held
+ * up, which for a game is how long it stays frozen; {@code delivered} is how long until every
+ * push has been answered. {@code sequential} sends one at a time on the caller's thread, as {@code
+ * notifyAll} used to; {@code dispatcher} hands the broadcast to a {@link PushDispatcher}.
+ *
+ * <p>Payloads are sent unencrypted, so this measures scheduling and transport, not Web Push
+ * encryption.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+public class PushDispatchBenchmark {
+  private static final String PAYLOAD = "{\"title\":\"Scout\",\"body\":\"Scouting has begun\"}";
+
+  @Param({"dispatcher", "sequential"})
+  public String mode;
+
+  @Param({"300"})
+  public int subscribers;
+
+  @Param({"20"})
+  public int latencyMillis;
+
+  @Param({"32"})
+  public int maxConcurrent;
+
+  private HttpServer server;
+  private HttpClient client;
+  private HashedWheelTimer timer;
+  private PushDispatcher dispatcher;
+  private final Map<String, Subscription> subscriptions = new LinkedHashMap<>();
+  private CompletableFuture<Void> inFlight;
+
+  @Setup(Level.Trial)
+  public void setup() throws IOException {
+    server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 1024);
+    server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+    server.createContext("/", this::handle);
+    server.start();
+
+    for (int i = 0; i < subscribers; i++) {
+      String endpoint = "http://127.0.0.1:" + server.getAddress().getPort() + "/push/" + i;
+      subscriptions.put(endpoint, new Subscription(endpoint, new Subscription.Keys("", "")));
+    }
+
+    AppConfig.PushConfig config = new AppConfig.PushConfig();
+    config.setMaxConcurrent(maxConcurrent);
+    timer = new HashedWheelTimer("bench-timer");
+    dispatcher = new PushDispatcher(config, PushDispatchBenchmark::encode, endpoint -> {}, timer);
+    client = HttpClient.newHttpClient();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    dispatcher.shutdown();
+    client.shutdownNow();
+    timer.stop();
+    server.stop(0);
+  }
+
+  private void handle(HttpExchange exchange) throws IOException {
+    try {
+      exchange.getRequestBody().readAllBytes();
+      Thread.sleep(latencyMillis);
+      exchange.sendResponseHeaders(201, -1);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      exchange.close();
+    }
+  }
+
+  private static HttpRequest.Builder encode(Subscription subscription, String payload) {
+    return HttpRequest.newBuilder(URI.create(subscription.endpoint))
+        .POST(HttpRequest.BodyPublishers.ofString(payload));
+  }
+
+  @TearDown(Level.Invocation)
+  public void settle() throws Exception {
+    // Let the last broadcast finish outside the measurement, so broadcasts don't overlap
+    if (inFlight != null) inFlight.get(1, TimeUnit.MINUTES);
+    inFlight = null;
+  }
+
+  @Benchmark
+  public Object returned() throws Exception {
+    if ("dispatcher".equals(mode)) return inFlight = dispatcher.dispatch(subscriptions, PAYLOAD);
+    return sendSequentially();
+  }
+
+  @Benchmark
+  public Object delivered() throws Exception {
+    if ("dispatcher".equals(mode)) return dispatcher.dispatch(subscriptions, PAYLOAD).get();
+    return sendSequentially();
+  }
+
+  private int sendSequentially() throws Exception {
+    int delivered = 0;
+    for (Subscription subscription : subscriptions.values()) {
+      HttpRequest request = encode(subscription, PAYLOAD).build();
+      HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+      if (response.statusCode() == 201) delivered++;
+    }
+    return delivered;
+  }
+}
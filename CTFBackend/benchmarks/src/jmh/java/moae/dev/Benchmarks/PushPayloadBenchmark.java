@@ -0,0 +1,110 @@
+package moae.dev.Benchmarks;
+
+import moae.dev.Services.PushNotificationService;
+import nl.martijndwars.webpush.Encoding;
+import nl.martijndwars.webpush.Notification;
+import nl.martijndwars.webpush.PushService;
+import nl.martijndwars.webpush.Subscription;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.util.EntityUtils;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.math.BigInteger;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.SecureRandom;
+import java.security.Security;
+import java.security.interfaces.ECPrivateKey;
+import java.security.interfaces.ECPublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of building one subscriber's push request, not counting the network. {@code payload} is the
+ * JSON {@link PushNotificationService#notifyAll} builds once per broadcast. {@code encrypt} is what
+ * the service then does for every subscriber: encrypting the payload to the browser's key, which
+ * takes a fresh key agreement each time, and signing the VAPID header, as {@code
+ * PushNotificationService.encode} does before handing the request to java.net.http.
+ *
+ * <p>The keys are generated in setup, so nothing here talks to a push service.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class PushPayloadBenchmark {
+  private static final String TITLE = "Scout";
+  private static final String BODY = "Scouting has begun, the flags are hidden";
+
+  private PushService pushService;
+  private Subscription subscription;
+
+  @Setup(Level.Trial)
+  public void setup() throws Exception {
+    if (Security.getProvider(BouncyCastleProvider.PROVIDER_NAME) == null) {
+      Security.addProvider(new BouncyCastleProvider());
+    }
+    KeyPair vapid = keyPair();
+    pushService =
+        new PushService(publicKey(vapid), privateKey(vapid), "mailto:bench@example.com");
+
+    byte[] auth = new byte[16];
+    new SecureRandom().nextBytes(auth);
+    subscription =
+        new Subscription(
+            "https://fcm.googleapis.com/fcm/send/bench",
+            new Subscription.Keys(publicKey(keyPair()), base64(auth)));
+  }
+
+  private static KeyPair keyPair() throws Exception {
+    KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+    generator.initialize(new ECGenParameterSpec("secp256r1"));
+    return generator.generateKeyPair();
+  }
+
+  /** The key as an uncompressed point, the way browsers hand it over. */
+  private static String publicKey(KeyPair pair) {
+    ECPublicKey key = (ECPublicKey) pair.getPublic();
+    byte[] point = new byte[65];
+    point[0] = 4;
+    unsigned(key.getW().getAffineX(), point, 1);
+    unsigned(key.getW().getAffineY(), point, 33);
+    return base64(point);
+  }
+
+  private static String privateKey(KeyPair pair) {
+    byte[] scalar = new byte[32];
+    unsigned(((ECPrivateKey) pair.getPrivate()).getS(), scalar, 0);
+    return base64(scalar);
+  }
+
+  /** Writes {@code value} as 32 big-endian bytes at {@code offset}. */
+  private static void unsigned(BigInteger value, byte[] into, int offset) {
+    byte[] bytes = value.toByteArray();
+    int length = Math.min(bytes.length, 32);
+    System.arraycopy(bytes, bytes.length - length, into, offset + 32 - length, length);
+  }
+
+  private static String base64(byte[] bytes) {
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+  }
+
+  @Benchmark
+  public String payload() {
+    return PushNotificationService.payload(TITLE, BODY);
+  }
+
+  @Benchmark
+  public void encrypt(Blackhole blackhole) throws Exception {
+    HttpPost post =
+        pushService.preparePost(
+            new Notification(subscription, PushNotificationService.payload(TITLE, BODY)),
+            Encoding.AES128GCM);
+    blackhole.consume(post.getAllHeaders());
+    blackhole.consume(EntityUtils.toByteArray(post.getEntity()));
+  }
+}
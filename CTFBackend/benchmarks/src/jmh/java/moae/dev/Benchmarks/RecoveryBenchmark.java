@@ -0,0 +1,84 @@
+package moae.dev.Benchmarks;
+
+import moae.dev.Game.CommandLoop;
+import moae.dev.Game.Game;
+import moae.dev.Server.AppConfig;
+import moae.dev.Utils.WriteAheadLog;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to bring a game back from a journal of 100k events: 300 players joining and then chatting.
+ * {@code log} replays every event from the start; {@code checkpoint} restores the checkpoint taken
+ * once the players had joined. Chat has a log of its own that is replayed in full either way.
+ * Recovery writes nothing, so every invocation reads the same journal.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 20)
+public class RecoveryBenchmark {
+  private static final int EVENTS = 100_000;
+  private static final int PLAYERS = 300;
+
+  @Param({"log", "checkpoint"})
+  public String mode;
+
+  private AppConfig config;
+  private Path dir;
+
+  @Setup(Level.Trial)
+  public void setup() throws IOException {
+    config = Fixtures.config(2);
+    AppConfig.PersistenceConfig persistence = new AppConfig.PersistenceConfig();
+    persistence.setCheckpointEvery("checkpoint".equals(mode) ? PLAYERS : Integer.MAX_VALUE);
+    config.setPersistence(persistence);
+    dir = Files.createTempDirectory("recovery-benchmark");
+
+    Game game = open();
+    List<UUID> players = new ArrayList<>(PLAYERS);
+    for (int i = 0; i < PLAYERS; i++) {
+      players.add(game.addPlayer("Player " + i, game.getTeams().get(i % 2).getID(), false));
+    }
+    // Teams registered when the game was created count towards the total too
+    int messages = EVENTS - PLAYERS - game.getTeams().size();
+    CompletableFuture<Integer> last = null;
+    for (int i = 0; i < messages; i++) {
+      last = game.sendMessageAsync(players.get(i % PLAYERS), "Message " + i);
+    }
+    if (last != null) last.join();
+    game.shutdown();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    WriteAheadLog.delete(dir);
+  }
+
+  private Game open() {
+    return new Game(
+        Game.DEFAULT_ID,
+        config.copy(),
+        null,
+        null,
+        publish -> CommandLoop.virtual("game-loop", publish),
+        dir);
+  }
+
+  @Benchmark
+  public int recover() {
+    Game game = open();
+    int players = game.getPlayers().size();
+    game.shutdown();
+    return players;
+  }
+}
@@ -0,0 +1,115 @@
+package moae.dev.Benchmarks;
+
+import moae.dev.Game.Flag;
+import moae.dev.Game.Game;
+import moae.dev.Game.Player;
+import moae.dev.Game.Team;
+import moae.dev.Server.StatusCache;
+import moae.dev.Utils.Json;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The body of a {@code /game/status} response for a game in free for all, with its flags shown.
+ * Run it with {@code -prof gc}: {@code gc.alloc.rate.norm} is the bytes allocated per response.
+ *
+ * <p>{@code cached} is a response while nothing has changed, the cached document with the time left
+ * spliced in. {@code written} is the first response after a change, the status written out by the
+ * streaming serializers. {@code maps} writes the same document the way it used to be built, a map
+ * per player and team for Jackson to walk, for comparison.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class StatusBenchmark {
+  @Param({"40", "400"})
+  public int players;
+
+  private Game game;
+  private StatusCache cache;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    game = Fixtures.populatedGame(4, players);
+    game.goTo(Game.State.GRACE_PERIOD, 600_000);
+    for (Team team : game.getTeams()) game.registerFlag(team.getID(), 40, 60);
+    game.goTo(Game.State.FFA_PERIOD, 600_000);
+    cache = new StatusCache(game, Json.mapper());
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    game.shutdown();
+  }
+
+  @Benchmark
+  public byte[] cached() {
+    return cache.current().render(game.getTimeRemaining());
+  }
+
+  @Benchmark
+  public byte[] written() throws Exception {
+    return Json.mapper().writeValueAsBytes(game.status());
+  }
+
+  @Benchmark
+  public byte[] maps() throws Exception {
+    boolean revealed = game.flagsRevealed();
+    List<Map<String, Object>> playerList = new ArrayList<>();
+    List<Map<String, Object>> teamList = new ArrayList<>();
+    game.getPlayers().forEach(p -> playerList.add(map(p)));
+    game.getTeams().forEach(t -> teamList.add(map(t, revealed)));
+
+    var snapshot = game.snapshot();
+    Map<String, Object> state = new HashMap<>();
+    state.put("state", snapshot.state().toString());
+    state.put("duration", game.getTimeRemaining());
+    state.put("paused", snapshot.paused());
+    state.put("emergency", snapshot.emergency());
+    state.put("frozen", snapshot.frozen());
+    state.put("winner", null);
+
+    var settings = game.status().settings();
+    Map<String, Object> config =
+        Map.of(
+            "maxPlayers", settings.getMaxPlayers(),
+            "minPlayers", settings.getMinPlayers(),
+            "minPlayersPerTeam", settings.getMinPlayersPerTeam(),
+            "maxPlayersPerTeam", settings.getMaxPlayersPerTeam(),
+            "maxTeams", settings.getMaxTeams(),
+            "graceTime", settings.getGraceTime(),
+            "scoutTime", settings.getScoutTime(),
+            "FFATime", settings.getFfaTime());
+
+    return Json.mapper()
+        .writeValueAsBytes(
+            Map.of("players", playerList, "teams", teamList, "state", state, "game", config));
+  }
+
+  private static Map<String, Object> map(Player player) {
+    return Map.of(
+        "id", player.getID(),
+        "name", player.getName(),
+        "team", player.getTeam(),
+        "auth", player.isAuth());
+  }
+
+  private static Map<String, Object> map(Team team, boolean revealed) {
+    Flag flag = team.getFlag();
+    Map<String, Object> result = new HashMap<>();
+    result.put("id", team.getID());
+    result.put("name", team.getName());
+    result.put("color", team.getColor());
+    boolean shown = flag != null && revealed;
+    result.put("flag", shown ? Map.of("x", flag.getX(), "y", flag.getY()) : null);
+    result.put("registered", flag != null);
+    return result;
+  }
+}
@@ -0,0 +1,94 @@
+package moae.dev.Benchmarks;
+
+import com.nimbusds.jose.jwk.source.ImmutableSecret;
+import com.nimbusds.jose.proc.SecurityContext;
+import moae.dev.Game.Game;
+import moae.dev.Game.GameRegistry;
+import moae.dev.Server.CachingJwtDecoder;
+import moae.dev.Server.GameArgumentResolver;
+import moae.dev.Services.PushNotificationService;
+import moae.dev.Utils.JwtValidator;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.oauth2.core.DelegatingOAuth2TokenValidator;
+import org.springframework.security.oauth2.jose.jws.MacAlgorithm;
+import org.springframework.security.oauth2.jwt.*;
+
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Authentication throughput with 8 threads presenting the tokens of 256 players in turn, as
+ * clients polling the API and opening sockets do. {@code nimbus} verifies every token in full, as
+ * the decoder configured in {@code SecurityConfig} does without a cache; {@code cached} puts a
+ * {@link CachingJwtDecoder} in front of it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(8)
+public class TokenCacheBenchmark {
+  private static final int PLAYERS = 256;
+
+  @Param({"nimbus", "cached"})
+  public String mode;
+
+  private GameRegistry games;
+  private JwtDecoder decoder;
+  private String[] tokens;
+
+  @State(Scope.Thread)
+  public static class Cursor {
+    int next;
+  }
+
+  @Setup(Level.Trial)
+  public void setup() {
+    games = new GameRegistry(Fixtures.config(2), new PushNotificationService());
+    Game game = games.getDefault();
+
+    var key =
+        new SecretKeySpec(
+            "benchmark-secret-benchmark-secret".getBytes(StandardCharsets.UTF_8), "HmacSHA256");
+    NimbusJwtDecoder nimbus = NimbusJwtDecoder.withSecretKey(key).build();
+    nimbus.setJwtValidator(
+        new DelegatingOAuth2TokenValidator<>(
+            JwtValidators.createDefault(), new JwtValidator(games)));
+    decoder = "cached".equals(mode) ? new CachingJwtDecoder(nimbus, games, 10_000) : nimbus;
+
+    // Signed the way PlayerController signs them
+    JwtEncoder encoder = new NimbusJwtEncoder(new ImmutableSecret<SecurityContext>(key));
+    JwsHeader header = JwsHeader.with(MacAlgorithm.HS256).build();
+    Instant now = Instant.now();
+    tokens = new String[PLAYERS];
+    for (int i = 0; i < PLAYERS; i++) {
+      UUID player = game.addPlayer("Player " + i, game.getTeams().get(i % 2).getID(), false);
+      JwtClaimsSet claims =
+          JwtClaimsSet.builder()
+              .issuer("CTF-Backend")
+              .issuedAt(now)
+              .expiresAt(now.plusSeconds(3600))
+              .id(UUID.randomUUID().toString())
+              .subject(player.toString())
+              .claim("scope", "api.read api.write")
+              .claim(GameArgumentResolver.GAME_CLAIM, game.getId())
+              .build();
+      tokens[i] = encoder.encode(JwtEncoderParameters.from(header, claims)).getTokenValue();
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    games.shutdown();
+  }
+
+  @Benchmark
+  public Jwt authenticate(Cursor cursor) {
+    String token = tokens[cursor.next++ % PLAYERS];
+    return decoder.decode(token);
+  }
+}
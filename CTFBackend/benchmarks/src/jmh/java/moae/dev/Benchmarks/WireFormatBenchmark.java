@@ -0,0 +1,94 @@
+package moae.dev.Benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import moae.dev.Game.Game;
+import moae.dev.Game.Player;
+import moae.dev.Utils.AnnouncementMessage;
+import moae.dev.Utils.Cbor;
+import moae.dev.Utils.ChatMessage;
+import moae.dev.Utils.Json;
+import moae.dev.Utils.StateMessage;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encode time of each kind of socket message as JSON and as CBOR, the two encodings a session can
+ * negotiate. Each message is the value a handler hands to {@code Frame}, wrapped in the {@code
+ * /socket/v2} envelope; {@code snapshot} is the state a resuming client is sent for a game of 40
+ * players. The encoded size of each is printed at the start of the trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class WireFormatBenchmark {
+  @Param({"chat", "phase", "flag", "joined", "announcement", "player", "snapshot"})
+  public String message;
+
+  @Param({"json", "cbor"})
+  public String format;
+
+  private ObjectMapper mapper;
+  private Object value;
+
+  @Setup(Level.Trial)
+  public void setup() throws Exception {
+    Game game = Fixtures.populatedGame(2, 40);
+    Player player = game.getPlayers().getFirst();
+    ObjectNode delta = Json.mapper().createObjectNode().put("seq", 1234);
+
+    Object data =
+        switch (message) {
+          case "chat" ->
+              new ChatMessage(
+                  "Flag spotted by the old oak, north side", player, 42, new Date(),
+                  UUID.randomUUID());
+          case "phase" -> {
+            delta.put("type", "phase");
+            StateMessage state = new StateMessage(Game.State.SCOUT_PERIOD, 1_800_000, false);
+            yield delta.setAll((ObjectNode) Json.mapper().valueToTree(state));
+          }
+          case "flag" -> delta.put("type", "flag").put("team", UUID.randomUUID().toString());
+          case "joined" -> {
+            delta.put("type", "joined");
+            yield delta.set("player", Json.mapper().valueToTree(player));
+          }
+          case "announcement" ->
+              new AnnouncementMessage("info", "Ten minutes left in the scout period");
+          case "player" -> {
+            Map<String, Object> change = new LinkedHashMap<>();
+            change.put("type", "joined");
+            change.put("name", player.getName());
+            change.put("team", player.getTeam().toString());
+            change.put("auth", false);
+            change.put("id", player.getID().toString());
+            yield change;
+          }
+          default -> {
+            ObjectNode snapshot = delta.put("type", "snapshot");
+            yield snapshot.set("status", Json.mapper().valueToTree(game.status()));
+          }
+        };
+    Map<String, Object> envelope = new LinkedHashMap<>();
+    envelope.put("topic", "state");
+    envelope.put("data", data);
+    value = envelope;
+
+    mapper = "cbor".equals(format) ? Cbor.mapper() : Json.mapper();
+    System.out.printf(
+        "%n%s as %s: %d bytes%n", message, format, mapper.writeValueAsBytes(value).length);
+    game.shutdown();
+  }
+
+  @Benchmark
+  public byte[] encode() throws Exception {
+    return mapper.writeValueAsBytes(value);
+  }
+}
@@ -0,0 +1,154 @@
+package moae.dev.LoadTest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import moae.dev.Utils.Json;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.WebSocket;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * One simulated player: joins a team over REST, holds the state, global and team sockets open the
+ * way the frontend does, and posts chat. Each message carries the {@link System#nanoTime} it was
+ * posted at, and every socket that receives it records how long it took to arrive.
+ */
+final class Client {
+  private final int number;
+  private final HttpClient http;
+  private final URI base;
+  private final UUID team;
+  private final Results results;
+  private final List<WebSocket> sockets = new CopyOnWriteArrayList<>();
+  private String token;
+
+  Client(int number, HttpClient http, URI base, UUID team, Results results) {
+    this.number = number;
+    this.http = http;
+    this.base = base;
+    this.team = team;
+    this.results = results;
+  }
+
+  UUID team() {
+    return team;
+  }
+
+  void join() throws Exception {
+    String body =
+        Json.mapper()
+            .createObjectNode()
+            .put("name", "load-" + number)
+            .put("team", team.toString())
+            .put("auth", false)
+            .toString();
+    HttpResponse<String> response =
+        http.send(
+            HttpRequest.newBuilder(base.resolve("/player/join"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build(),
+            HttpResponse.BodyHandlers.ofString());
+    if (response.statusCode() != 200)
+      throw new IllegalStateException("Join failed with " + response.statusCode());
+    JsonNode joined = Json.mapper().readTree(response.body());
+    token = joined.get("access_token").asText();
+  }
+
+  /** Opens the three sockets, asking for batched frames if {@code batch} is set. */
+  CompletableFuture<Void> connect(boolean batch) {
+    String query = batch ? "?batch=true" : "";
+    return CompletableFuture.allOf(
+        open("/socket/state" + query),
+        open("/socket/global" + query),
+        open("/socket/team/" + team + query));
+  }
+
+  private CompletableFuture<WebSocket> open(String path) {
+    URI uri = URI.create(base.toString().replaceFirst("^http", "ws")).resolve(path);
+    return http.newWebSocketBuilder()
+        .header("Authorization", "Bearer " + token)
+        .buildAsync(uri, new Listener())
+        .thenApply(
+            socket -> {
+              sockets.add(socket);
+              return socket;
+            });
+  }
+
+  /**
+   * Posts {@code rate} messages a second until {@code deadline}, {@code teamShare} of them to the
+   * team. Posts are scheduled at fixed times from a random start, so a slow response makes the
+   * next ones catch up rather than go unsent.
+   */
+  void chat(double rate, double teamShare, long deadline, int globalReceivers, int teamReceivers) {
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    long interval = (long) (1e9 / rate);
+    long next = System.nanoTime() + random.nextLong(interval);
+    while (next < deadline) {
+      LockSupport.parkNanos(next - System.nanoTime());
+      boolean toTeam = random.nextDouble() < teamShare;
+      post(toTeam, toTeam ? teamReceivers : globalReceivers);
+      next += interval;
+    }
+  }
+
+  private void post(boolean toTeam, int receivers) {
+    String path = toTeam ? "/team/message/" + team : "/game/message/global";
+    long sent = System.nanoTime();
+    String body =
+        Json.mapper().createObjectNode().put("content", Results.MARKER + sent).toString();
+    HttpRequest request =
+        HttpRequest.newBuilder(base.resolve(path))
+            .header("Authorization", "Bearer " + token)
+            .header("Content-Type", "application/json")
+            .POST(HttpRequest.BodyPublishers.ofString(body))
+            .build();
+    try {
+      HttpResponse<Void> response = http.send(request, HttpResponse.BodyHandlers.discarding());
+      results.posted(sent, System.nanoTime(), response.statusCode() == 200, receivers);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (Exception e) {
+      results.posted(sent, System.nanoTime(), false, receivers);
+    }
+  }
+
+  void close() {
+    for (WebSocket socket : sockets) socket.abort();
+    sockets.clear();
+  }
+
+  /** Collects each message's fragments and hands the whole message to the results. */
+  private final class Listener implements WebSocket.Listener {
+    private final StringBuilder partial = new StringBuilder();
+
+    @Override
+    public CompletionStage<?> onText(WebSocket socket, CharSequence data, boolean last) {
+      if (last && partial.isEmpty()) {
+        results.received(data.toString(), System.nanoTime());
+      } else {
+        partial.append(data);
+        if (last) {
+          results.received(partial.toString(), System.nanoTime());
+          partial.setLength(0);
+        }
+      }
+      socket.request(1);
+      return null;
+    }
+
+    @Override
+    public void onError(WebSocket socket, Throwable error) {
+      results.socketFailed();
+    }
+  }
+}
@@ -0,0 +1,183 @@
+package moae.dev.LoadTest;
+
+import moae.dev.App;
+import moae.dev.Game.Game;
+import moae.dev.Game.GameRegistry;
+import moae.dev.Game.Team;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.security.SecureRandom;
+import java.security.Security;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Boots the backend on a free local port and puts it under the load of {@code --clients} players
+ * chatting, to find how many one instance can take before chat lags. Every client joins through
+ * {@code /player/join}, opens the state, global and team sockets, and posts {@code --rate}
+ * messages a second, {@code --team-share} of them to its team. Each message is timed from the
+ * post to its arrival on every socket it is sent to, and the p50, p99 and p999 are reported with
+ * the throughput once the run is over.
+ *
+ * <p>Clients are virtual threads and share one HTTP client per {@code --clients-per-connection}
+ * of them, so thousands fit in one process. The clients run in the same JVM as the server, so
+ * their CPU counts against it; the numbers are a floor for what a dedicated machine would see.
+ *
+ * <p>Any other {@code --name=value} argument is passed to Spring, so the server can be configured
+ * the same way as in production, e.g. {@code --sockets.coalesceMillis=0}, or {@code
+ * --threads.virtual=false} to compare against platform threads.
+ */
+public final class LoadTest {
+  private record Options(
+      int clients,
+      double rate,
+      double teamShare,
+      int seconds,
+      int warmup,
+      boolean batch,
+      int clientsPerConnection,
+      List<String> spring) {
+
+    static Options parse(String[] args) {
+      Map<String, String> values = new HashMap<>();
+      List<String> spring = new ArrayList<>();
+      for (int i = 0; i < args.length; i++) {
+        String arg = args[i];
+        if (arg.startsWith("--") && arg.contains("=")) {
+          spring.add(arg);
+        } else if (arg.equals("--batch")) {
+          values.put("batch", "true");
+        } else if (arg.startsWith("--") && i + 1 < args.length) {
+          values.put(arg.substring(2), args[++i]);
+        } else {
+          throw new IllegalArgumentException("Unexpected argument " + arg);
+        }
+      }
+
+      Options options =
+          new Options(
+              Integer.parseInt(values.getOrDefault("clients", "200")),
+              Double.parseDouble(values.getOrDefault("rate", "0.2")),
+              Double.parseDouble(values.getOrDefault("team-share", "0.5")),
+              Integer.parseInt(values.getOrDefault("seconds", "30")),
+              Integer.parseInt(values.getOrDefault("warmup", "5")),
+              Boolean.parseBoolean(values.getOrDefault("batch", "false")),
+              Integer.parseInt(values.getOrDefault("clients-per-connection", "50")),
+              spring);
+      if (options.clients < 1 || options.rate <= 0 || options.seconds < 1)
+        throw new IllegalArgumentException("Clients, rate and seconds must be positive");
+      if (options.teamShare < 0 || options.teamShare > 1)
+        throw new IllegalArgumentException("The team share must be between 0 and 1");
+      return options;
+    }
+  }
+
+  public static void main(String[] args) throws Exception {
+    Options options = Options.parse(args);
+    Security.addProvider(new BouncyCastleProvider());
+
+    ConfigurableApplicationContext context = boot(options);
+    int port = context.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+    URI base = URI.create("http://localhost:" + port);
+    Game game = context.getBean(GameRegistry.class).getDefault();
+    List<UUID> teams = game.getTeams().stream().map(Team::getID).toList();
+
+    ExecutorService threads = Executors.newVirtualThreadPerTaskExecutor();
+    List<HttpClient> connections = new ArrayList<>();
+    Results results = new Results();
+
+    // Players are dealt out to the teams in turn
+    List<Client> clients = new ArrayList<>();
+    Map<UUID, Integer> teamSizes = new HashMap<>();
+    for (int i = 0; i < options.clients; i++) {
+      if (i % options.clientsPerConnection == 0) {
+        connections.add(
+            HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .executor(threads)
+                .build());
+      }
+      UUID team = teams.get(i % teams.size());
+      teamSizes.merge(team, 1, Integer::sum);
+      clients.add(new Client(i, connections.getLast(), base, team, results));
+    }
+
+    boolean virtual = context.getEnvironment().getProperty("threads.virtual", Boolean.class, true);
+    System.out.printf(
+        "Joining %,d clients to %d teams on port %d, with %s threads%n",
+        options.clients, teams.size(), port, virtual ? "virtual" : "platform");
+    List<CompletableFuture<Void>> connected = new ArrayList<>();
+    for (Client client : clients) {
+      connected.add(
+          CompletableFuture.runAsync(
+                  () -> {
+                    try {
+                      client.join();
+                    } catch (Exception e) {
+                      throw new IllegalStateException("Client failed to join", e);
+                    }
+                  },
+                  threads)
+              .thenCompose(joined -> client.connect(options.batch)));
+    }
+    CompletableFuture.allOf(connected.toArray(CompletableFuture[]::new)).join();
+
+    System.out.printf(
+        "Chatting at %.2f messages a second each, %.0f%% to teams, for %d s after a %d s warm-up%n",
+        options.rate, options.teamShare * 100, options.seconds, options.warmup);
+    long measureFrom = System.nanoTime() + TimeUnit.SECONDS.toNanos(options.warmup);
+    results.measureFrom(measureFrom);
+    long deadline = measureFrom + TimeUnit.SECONDS.toNanos(options.seconds);
+    List<CompletableFuture<Void>> chatting = new ArrayList<>();
+    for (Client client : clients) {
+      int teamSize = teamSizes.get(client.team());
+      chatting.add(
+          CompletableFuture.runAsync(
+              () ->
+                  client.chat(options.rate, options.teamShare, deadline, options.clients, teamSize),
+              threads));
+    }
+    CompletableFuture.allOf(chatting.toArray(CompletableFuture[]::new)).join();
+    // Let the last messages arrive
+    Thread.sleep(2000);
+
+    System.out.println();
+    results.print(System.out, options.seconds);
+
+    for (Client client : clients) client.close();
+    threads.shutdownNow();
+    context.close();
+    System.exit(0);
+  }
+
+  private static ConfigurableApplicationContext boot(Options options) {
+    byte[] secret = new byte[32];
+    new SecureRandom().nextBytes(secret);
+
+    List<String> args = new ArrayList<>();
+    args.add("--server.port=0");
+    args.add("--server.ssl.enabled=false");
+    args.add("--app.jwt.secret=" + HexFormat.of().formatHex(secret));
+    // Games are kept in memory, so runs don't leave a journal behind
+    args.add("--persistence.dir=");
+    args.add("--spring.main.banner-mode=off");
+    args.add("--logging.level.root=WARN");
+    args.add("--logging.level.org.springframework.security=WARN");
+    args.addAll(options.spring);
+    return new SpringApplicationBuilder(App.class).run(args.toArray(String[]::new));
+  }
+}
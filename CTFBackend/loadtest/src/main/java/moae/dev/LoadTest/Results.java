@@ -0,0 +1,84 @@
+package moae.dev.LoadTest;
+
+import java.io.PrintStream;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * What every client saw. Only messages posted after the warm-up are counted, so the JIT and
+ * connection setup don't show up in the percentiles.
+ */
+final class Results {
+  /** Starts the content of every posted message, followed by the time it was posted. */
+  static final String MARKER = "load-test:";
+
+  // Nothing is counted until the clients start chatting
+  private volatile long measureFrom = Long.MAX_VALUE;
+  private final Histogram posts = new Histogram();
+  private final Histogram deliveries = new Histogram();
+  private final LongAdder failedPosts = new LongAdder();
+  private final LongAdder expected = new LongAdder();
+  private final LongAdder frames = new LongAdder();
+  private final LongAdder socketErrors = new LongAdder();
+
+  /** Counts the messages posted from {@code nanos} on. */
+  void measureFrom(long nanos) {
+    measureFrom = nanos;
+  }
+
+  /** A post made at {@code sent} and answered at {@code answered}, for {@code receivers}. */
+  void posted(long sent, long answered, boolean ok, int receivers) {
+    if (sent < measureFrom) return;
+    if (!ok) {
+      failedPosts.increment();
+      return;
+    }
+    posts.record(answered - sent);
+    expected.add(receivers);
+  }
+
+  /** A socket message, which may hold several chat messages if it is a batch. */
+  void received(String text, long now) {
+    frames.increment();
+    int at = text.indexOf(MARKER);
+    while (at >= 0) {
+      int from = at + MARKER.length();
+      int to = from;
+      while (to < text.length() && Character.isDigit(text.charAt(to))) to++;
+      if (to > from) {
+        long sent = Long.parseLong(text, from, to, 10);
+        if (sent >= measureFrom) deliveries.record(now - sent);
+      }
+      at = text.indexOf(MARKER, to);
+    }
+  }
+
+  void socketFailed() {
+    socketErrors.increment();
+  }
+
+  void print(PrintStream out, double seconds) {
+    long posted = posts.count();
+    long delivered = deliveries.count();
+    out.printf(
+        "posts       %,d (%,.1f/s), %,d failed%n", posted, posted / seconds, failedPosts.sum());
+    out.println("            " + percentiles(posts));
+    out.printf(
+        "deliveries  %,d of %,d expected (%,.1f/s)%n",
+        delivered, expected.sum(), delivered / seconds);
+    out.println("            " + percentiles(deliveries));
+    out.printf("frames      %,d received, %,d socket errors%n", frames.sum(), socketErrors.sum());
+  }
+
+  private static String percentiles(Histogram histogram) {
+    return String.format(
+        "p50 %s  p99 %s  p999 %s  max %s",
+        millis(histogram.percentile(0.5)),
+        millis(histogram.percentile(0.99)),
+        millis(histogram.percentile(0.999)),
+        millis(histogram.max()));
+  }
+
+  private static String millis(long micros) {
+    return String.format("%.2f ms", micros / 1000.0);
+  }
+}
@@ -0,0 +1,243 @@
+package moae.dev.Game;
+
+import moae.dev.Server.AppConfig;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Watches reported positions for players reaching another team's flag. Coming within {@code
+ * proximityRadius} of an enemy flag is announced as {@link GameEvent.FlagApproached}, and within
+ * {@code captureRadius} as {@link GameEvent.FlagCaptured}. Both are in map percent, like positions.
+ *
+ * <p>The registered flags are kept in a spatial hash whose cells are at least as wide as the
+ * proximity zone, so a position is only compared with the flags in its own cell and the eight
+ * around it. The hash is rebuilt from the teams when flags change, which only happens in the grace
+ * period, and is otherwise read as is; a check is a fixed number of array reads however many
+ * players and teams there are, and allocates nothing unless it reports an event.
+ *
+ * <p>Each player, by their {@link LocationIndex} slot, remembers the flag they are near and how
+ * near, so an event is reported once when they get there rather than on every report. They have
+ * to move a tenth beyond a zone's radius to leave it, so a position jittering on its edge doesn't
+ * report it over and over.
+ */
+public final class CaptureEngine {
+  private static final float EXIT_MARGIN = 1.1f;
+  private static final int NONE = -1;
+  private static final byte OUTSIDE = 0;
+  private static final byte NEAR = 1;
+  private static final byte CAPTURED = 2;
+  private static final int INITIAL_CAPACITY = 64;
+
+  /**
+   * The flags at one moment, bucketed by cell. Cell c holds members[start[c]..start[c + 1]), and
+   * members holds every flag once.
+   */
+  private record Flags(
+      int cells, int[] start, int[] members, float[] xs, float[] ys, UUID[] teams) {
+    static final Flags EMPTY = new Flags(1, new int[2], new int[0], null, null, null);
+  }
+
+  private final Game game;
+  private final float captureSquared;
+  private final float proximitySquared;
+  private final float captureExitSquared;
+  private final float proximityExitSquared;
+  private final int cells;
+
+  private final ReentrantLock lock = new ReentrantLock();
+  private volatile boolean stale = true;
+  // Set by a reset, after which every flag counts as new
+  private volatile boolean forget = false;
+  private Flags flags = Flags.EMPTY;
+
+  // Per LocationIndex slot
+  private UUID[] owners = new UUID[INITIAL_CAPACITY];
+  private int[] zone = new int[INITIAL_CAPACITY];
+  private byte[] level = new byte[INITIAL_CAPACITY];
+
+  public CaptureEngine(Game game, AppConfig.LocationConfig config) {
+    float capture = config.getCaptureRadius();
+    float proximity = Math.max(capture, config.getProximityRadius());
+    if (capture <= 0) throw new IllegalArgumentException("The capture radius must be positive");
+
+    this.game = game;
+    captureSquared = capture * capture;
+    proximitySquared = proximity * proximity;
+    captureExitSquared = captureSquared * EXIT_MARGIN * EXIT_MARGIN;
+    proximityExitSquared = proximitySquared * EXIT_MARGIN * EXIT_MARGIN;
+    // Cells at least as wide as the widest zone, so only neighbouring cells can hold a flag in it
+    cells = Math.max(1, (int) (LocationIndex.MAP_SIZE / (proximity * EXIT_MARGIN)));
+    Arrays.fill(zone, NONE);
+  }
+
+  /**
+   * Checks the position {@code player}, of {@code team}, just reported from {@code slot} of the
+   * game's {@link LocationIndex}, and reports any flag they have just reached.
+   */
+  public void check(int slot, UUID player, UUID team, float x, float y) {
+    if (!game.snapshot().capturing()) return;
+    x = LocationIndex.clamp(x);
+    y = LocationIndex.clamp(y);
+
+    GameEvent event = null;
+    lock.lock();
+    try {
+      if (stale) rebuild();
+      if (slot >= owners.length) grow(slot);
+      if (!player.equals(owners[slot])) {
+        // A new player, or a slot handed on by one who left
+        owners[slot] = player;
+        zone[slot] = NONE;
+        level[slot] = OUTSIDE;
+      }
+
+      Flags current = flags;
+      int flag = zone[slot];
+      byte was = level[slot];
+      byte now = OUTSIDE;
+      if (flag != NONE) now = levelOf(distance(current, flag, x, y), was);
+      if (now == OUTSIDE) {
+        flag = nearest(current, team, x, y);
+        if (flag != NONE) now = levelOf(distance(current, flag, x, y), OUTSIDE);
+        was = OUTSIDE;
+      }
+
+      zone[slot] = now == OUTSIDE ? NONE : flag;
+      level[slot] = now;
+      if (now > was) {
+        UUID owner = current.teams[flag];
+        event =
+            now == CAPTURED
+                ? new GameEvent.FlagCaptured(owner, player, team)
+                : new GameEvent.FlagApproached(owner, player, team);
+      }
+    } finally {
+      lock.unlock();
+    }
+
+    if (event != null) game.flagReached(event);
+  }
+
+  /** How close a player {@code squared} away from a flag is, given how close they were. */
+  private byte levelOf(float squared, byte was) {
+    if (squared <= captureSquared || (was == CAPTURED && squared <= captureExitSquared))
+      return CAPTURED;
+    if (squared <= proximitySquared || (was != OUTSIDE && squared <= proximityExitSquared))
+      return NEAR;
+    return OUTSIDE;
+  }
+
+  private static float distance(Flags flags, int flag, float x, float y) {
+    float dx = flags.xs[flag] - x;
+    float dy = flags.ys[flag] - y;
+    return dx * dx + dy * dy;
+  }
+
+  /** The closest flag, other than {@code team}'s, in the cells around ({@code x}, {@code y}). */
+  private static int nearest(Flags flags, UUID team, float x, float y) {
+    int cx = cell(flags.cells, x);
+    int cy = cell(flags.cells, y);
+    int best = NONE;
+    float bestSquared = Float.MAX_VALUE;
+    for (int ny = Math.max(0, cy - 1); ny <= Math.min(flags.cells - 1, cy + 1); ny++) {
+      for (int nx = Math.max(0, cx - 1); nx <= Math.min(flags.cells - 1, cx + 1); nx++) {
+        int c = ny * flags.cells + nx;
+        for (int i = flags.start[c]; i < flags.start[c + 1]; i++) {
+          int flag = flags.members[i];
+          if (flags.teams[flag].equals(team)) continue;
+          float squared = distance(flags, flag, x, y);
+          if (squared < bestSquared) {
+            bestSquared = squared;
+            best = flag;
+          }
+        }
+      }
+    }
+    return best;
+  }
+
+  private static int cell(int cells, float coordinate) {
+    return Math.min(cells - 1, (int) (coordinate * cells / LocationIndex.MAP_SIZE));
+  }
+
+  /**
+   * Buckets the flags registered now. Players stay in the zone of a flag that hasn't moved, so
+   * they aren't told about it again; zones of flags that moved or went away, and every zone after
+   * a reset, are forgotten.
+   */
+  private void rebuild() {
+    stale = false;
+    boolean reset = forget;
+    forget = false;
+    List<Team> teams = game.getTeams();
+    int count = 0;
+    UUID[] flagTeams = new UUID[teams.size()];
+    float[] xs = new float[teams.size()];
+    float[] ys = new float[teams.size()];
+    for (Team team : teams) {
+      Flag flag = team.getFlag();
+      if (flag == null || count == flagTeams.length) continue;
+      flagTeams[count] = team.getID();
+      xs[count] = flag.getX();
+      ys[count] = flag.getY();
+      count++;
+    }
+
+    int[] start = new int[cells * cells + 1];
+    int[] cellOf = new int[count];
+    for (int i = 0; i < count; i++) {
+      cellOf[i] =
+          cell(cells, LocationIndex.clamp(ys[i])) * cells + cell(cells, LocationIndex.clamp(xs[i]));
+      start[cellOf[i] + 1]++;
+    }
+    for (int c = 0; c < cells * cells; c++) start[c + 1] += start[c];
+    int[] members = new int[count];
+    int[] filled = Arrays.copyOf(start, cells * cells);
+    for (int i = 0; i < count; i++) members[filled[cellOf[i]]++] = i;
+
+    Flags old = flags;
+    flags = new Flags(cells, start, members, xs, ys, flagTeams);
+    // Where each old flag is now, if it hasn't moved
+    int[] kept = new int[old.members.length];
+    Arrays.fill(kept, NONE);
+    for (int i = 0; !reset && i < kept.length; i++) {
+      for (int j = 0; j < count; j++) {
+        if (old.teams[i].equals(flagTeams[j]) && old.xs[i] == xs[j] && old.ys[i] == ys[j])
+          kept[i] = j;
+      }
+    }
+    for (int slot = 0; slot < zone.length; slot++) {
+      if (zone[slot] != NONE) zone[slot] = kept[zone[slot]];
+      if (zone[slot] == NONE) level[slot] = OUTSIDE;
+    }
+  }
+
+  private void grow(int slot) {
+    int capacity = Math.max(owners.length * 2, slot + 1);
+    owners = Arrays.copyOf(owners, capacity);
+    int from = zone.length;
+    zone = Arrays.copyOf(zone, capacity);
+    Arrays.fill(zone, from, capacity, NONE);
+    level = Arrays.copyOf(level, capacity);
+  }
+
+  /** Marks the flags to be bucketed again when they have changed. */
+  void apply(List<GameEvent> events) {
+    for (GameEvent event : events) {
+      switch (event) {
+        case GameEvent.FlagRegistered ignored -> stale = true;
+        case GameEvent.GameReset ignored -> {
+          forget = true;
+          stale = true;
+        }
+        case GameEvent.TeamRegistered ignored -> stale = true;
+        default -> {
+          // Flags stay where they are
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,182 @@
+package moae.dev.Game;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Supplier;
+
+/**
+ * Applies every mutation of a {@link Game} on one thread. Callers submit commands and get a future
+ * back instead of contending for a lock; the loop drains queued commands in batches, runs {@code
+ * afterBatch} once per batch to publish the new state, and only then completes the batch's futures,
+ * so anyone waiting on a command sees its effects in the published state.
+ *
+ * <p>Commands submitted from the loop thread itself run immediately, so a command may freely call
+ * other commands.
+ */
+public class CommandLoop {
+  private static final Logger logger = LoggerFactory.getLogger(CommandLoop.class);
+  static final int MAX_BATCH = 256;
+
+  private final Runnable afterBatch;
+  private final BlockingQueue<Command<?>> queue;
+  private final Thread thread;
+  private volatile boolean running = true;
+
+  private CommandLoop(Runnable afterBatch, Thread.Builder threads) {
+    this.afterBatch = afterBatch;
+    if (threads != null) {
+      this.queue = new LinkedBlockingQueue<>();
+      this.thread = threads.start(this::run);
+    } else {
+      this.queue = null;
+      this.thread = null;
+    }
+  }
+
+  /** A loop with its own dedicated writer thread. */
+  public static CommandLoop threaded(String name, Runnable afterBatch) {
+    return new CommandLoop(afterBatch, Thread.ofPlatform().name(name).daemon(true));
+  }
+
+  /**
+   * A loop on a virtual thread, which only holds a carrier thread while it is applying commands.
+   * Used when many games share one JVM.
+   */
+  public static CommandLoop virtual(String name, Runnable afterBatch) {
+    return new CommandLoop(afterBatch, Thread.ofVirtual().name(name));
+  }
+
+  /**
+   * Runs each command on the calling thread while holding the loop's monitor, publishing after
+   * every command. This is how games were driven before the command loop and is kept for
+   * comparison.
+   */
+  public static CommandLoop monitor(Runnable afterBatch) {
+    return new CommandLoop(afterBatch, null);
+  }
+
+  private static final class Command<T> {
+    private final Supplier<T> action;
+    private final CompletableFuture<T> future = new CompletableFuture<>();
+    private T result;
+    private Throwable failure;
+
+    Command(Supplier<T> action) {
+      this.action = action;
+    }
+
+    void apply() {
+      try {
+        result = action.get();
+      } catch (Throwable t) {
+        failure = t;
+      }
+    }
+
+    void complete(Throwable batchFailure) {
+      Throwable error = failure != null ? failure : batchFailure;
+      if (error != null) {
+        future.completeExceptionally(error);
+      } else {
+        future.complete(result);
+      }
+    }
+  }
+
+  public boolean inLoop() {
+    return thread == null ? Thread.holdsLock(this) : Thread.currentThread() == thread;
+  }
+
+  public <T> CompletableFuture<T> submit(Supplier<T> action) {
+    if (!running)
+      return CompletableFuture.failedFuture(new IllegalStateException("Game loop has been shut down"));
+
+    if (inLoop()) return runNow(action);
+    if (thread == null) return runMonitored(action);
+
+    Command<T> command = new Command<>(action);
+    queue.add(command);
+    // Raced with shutdown after the loop's final drain
+    if (!running && queue.remove(command))
+      command.future.completeExceptionally(new IllegalStateException("Game loop has been shut down"));
+    return command.future;
+  }
+
+  public CompletableFuture<Void> execute(Runnable action) {
+    return submit(
+        () -> {
+          action.run();
+          return null;
+        });
+  }
+
+  private static <T> CompletableFuture<T> runNow(Supplier<T> action) {
+    try {
+      return CompletableFuture.completedFuture(action.get());
+    } catch (Throwable t) {
+      return CompletableFuture.failedFuture(t);
+    }
+  }
+
+  private synchronized <T> CompletableFuture<T> runMonitored(Supplier<T> action) {
+    CompletableFuture<T> result = runNow(action);
+    afterBatch.run();
+    return result;
+  }
+
+  /**
+   * Waits for a command and rethrows its failure unchanged, so synchronous callers see the same
+   * exceptions the command threw.
+   */
+  public static <T> T await(CompletableFuture<T> future) {
+    try {
+      return future.join();
+    } catch (CompletionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException runtime) throw runtime;
+      if (cause instanceof Error error) throw error;
+      throw e;
+    }
+  }
+
+  private void run() {
+    List<Command<?>> batch = new ArrayList<>(MAX_BATCH);
+    while (running) {
+      try {
+        batch.add(queue.take());
+      } catch (InterruptedException e) {
+        break;
+      }
+      queue.drainTo(batch, MAX_BATCH - 1);
+
+      for (Command<?> command : batch) command.apply();
+
+      Throwable publishFailure = null;
+      try {
+        afterBatch.run();
+      } catch (Throwable t) {
+        logger.error("Failed to publish game state", t);
+        publishFailure = t;
+      }
+
+      for (Command<?> command : batch) command.complete(publishFailure);
+      batch.clear();
+    }
+
+    IllegalStateException stopped = new IllegalStateException("Game loop has been shut down");
+    Command<?> pending;
+    while ((pending = queue.poll()) != null) pending.future.completeExceptionally(stopped);
+  }
+
+  public void shutdown() {
+    running = false;
+    if (thread != null) thread.interrupt();
+  }
+}
@@ -0,0 +1,123 @@
+package moae.dev.Game;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Hands a game's committed events to its consumers off the command loop. Each consumer has its own
+ * lane, drained by a virtual thread started on demand, so a consumer sees every event in the order
+ * it was committed, in batches of whatever has queued up since its last call, and a slow consumer
+ * only holds up itself.
+ *
+ * <p>A consumer that throws loses that batch but keeps receiving later ones.
+ */
+public class EventOutbox {
+  private static final Logger logger = LoggerFactory.getLogger(EventOutbox.class);
+  static final int MAX_BATCH = 256;
+
+  private final String name;
+  private final List<Lane> lanes = new CopyOnWriteArrayList<>();
+  private volatile boolean open = true;
+
+  public EventOutbox(String name) {
+    this.name = name;
+  }
+
+  public void subscribe(String consumer, Consumer<List<GameEvent>> handler) {
+    lanes.add(new Lane(name + "-" + consumer, handler));
+  }
+
+  /** Queues {@code events} for every consumer and returns without waiting for any of them. */
+  public void publish(List<GameEvent> events) {
+    if (events.isEmpty() || !open) return;
+    for (Lane lane : lanes) lane.offer(events);
+  }
+
+  /** Events queued for the slowest consumer. */
+  public int depth() {
+    int depth = 0;
+    for (Lane lane : lanes) depth = Math.max(depth, lane.size());
+    return depth;
+  }
+
+  /** Stops delivering. Events that have not been handed to a consumer yet are dropped. */
+  public void shutdown() {
+    open = false;
+    for (Lane lane : lanes) lane.clear();
+  }
+
+  private final class Lane {
+    private final String name;
+    private final Consumer<List<GameEvent>> handler;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final ArrayDeque<GameEvent> queue = new ArrayDeque<>();
+    private boolean draining = false;
+
+    Lane(String name, Consumer<List<GameEvent>> handler) {
+      this.name = name;
+      this.handler = handler;
+    }
+
+    void offer(List<GameEvent> events) {
+      boolean startDrain;
+      lock.lock();
+      try {
+        queue.addAll(events);
+        startDrain = !draining;
+        draining = true;
+      } finally {
+        lock.unlock();
+      }
+
+      if (startDrain) Thread.ofVirtual().name(name).start(this::drain);
+    }
+
+    private void drain() {
+      while (open) {
+        List<GameEvent> batch;
+        lock.lock();
+        try {
+          if (queue.isEmpty()) {
+            draining = false;
+            return;
+          }
+          batch = new ArrayList<>(Math.min(queue.size(), MAX_BATCH));
+          while (!queue.isEmpty() && batch.size() < MAX_BATCH) batch.add(queue.poll());
+        } finally {
+          lock.unlock();
+        }
+
+        try {
+          handler.accept(batch);
+        } catch (Throwable t) {
+          logger.error("Event consumer {} failed", name, t);
+        }
+      }
+    }
+
+    int size() {
+      lock.lock();
+      try {
+        return queue.size();
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    void clear() {
+      lock.lock();
+      try {
+        queue.clear();
+      } finally {
+        lock.unlock();
+      }
+    }
+  }
+}
@@ -1,30 +1,26 @@
 package moae.dev.Game;
 
-import java.util.Map;
 import java.util.UUID;
-import java.util.Vector;
 
 public class Flag {
-  private final Vector<Number> location;
+  private final int x;
+  private final int y;
   private final UUID id = UUID.randomUUID();
 
-  public Flag(Integer x, Integer y) {
-    location = new Vector<>();
-    location.add(x);
-    location.add(y);
+  public Flag(int x, int y) {
+    this.x = x;
+    this.y = y;
   }
 
   public UUID getId() {
     return id;
   }
 
-  public Vector<Number> getLocation() {
-    return location;
+  public int getX() {
+    return x;
   }
 
-  public Map<String, Object> toMap() {
-    return Map.of(
-        "x", this.location.getFirst(),
-        "y", this.location.getLast());
+  public int getY() {
+    return y;
   }
 }
@@ -4,48 +4,96 @@ import com.fasterxml.jackson.annotation.JsonValue;
 import jakarta.validation.Valid;
 import moae.dev.Requests.SettingsRequest;
 import moae.dev.Server.AppConfig;
+import moae.dev.Services.GameNotifications;
 import moae.dev.Services.PushNotificationService;
-import moae.dev.Sockets.AnnouncementSocketConnectionHandler;
+import moae.dev.Sockets.GameSockets;
+import moae.dev.Sockets.MultiplexSocketConnectionHandler;
 import moae.dev.Sockets.SocketConnectionHandler;
-import moae.dev.Sockets.StateSocketConnectionHandler;
 import moae.dev.Utils.*;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.nio.file.Path;
 import java.util.*;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
-
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * A single game. Every mutation is a command applied on the game's {@link CommandLoop}: the
+ * {@code *Async} methods return as soon as the command is queued, and the plain methods wait for
+ * it. Reads come from the {@link GameSnapshot} the loop publishes after each batch, so they never
+ * wait for a writer.
+ *
+ * <p>Non-async continuations on the returned futures run on the loop thread, so anything slow
+ * should be chained with an {@code *Async} stage.
+ *
+ * <p>Commands never talk to sockets or push services themselves. They record {@link GameEvent}s,
+ * which are handed to the game's {@link EventOutbox} once the command has succeeded and its state
+ * has been published; a command that throws takes its events with it.
+ *
+ * <p>A game given a journal directory also writes those events to a {@link WriteAheadLog}, with a
+ * checkpoint of the game every {@code persistence.checkpointEvery} events, and is rebuilt from it
+ * when constructed again, with its stage timer picking up the time it had left. Chat goes to a
+ * second log under {@code chat/} that only a hard reset truncates, so a checkpoint costs the same
+ * however much has been said. The loop waits for each batch's records to reach the disk before it
+ * hands the batch's events to the outbox or completes its commands, so a player is never told a
+ * join succeeded that a crash could undo; commands queued meanwhile share the next flush.
+ */
 public class Game {
+  public static final String DEFAULT_ID = "default";
+
+  private final String id;
   private final AppConfig config;
-    private final PushNotificationService pushService;
 
-  private final List<Team> teams;
-  private final List<Player> players;
+  private final PlayerRegistry registry = new PlayerRegistry();
 
   private final AtomicInteger counter = new AtomicInteger(0);
-  private final List<ChatMessage> messages = new ArrayList<>();
+  private final AtomicLong version = new AtomicLong(0);
+  private final ChatLog messages;
 
+  private final GameSockets sockets;
   private SocketConnectionHandler webSocketHandler;
+  private final LocationIndex locations;
+  private final CaptureEngine captures;
+  private final PlayArea area;
 
   private static final long REWIND_TOLERANCE_MS = 5000;
-  private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
-  private ScheduledFuture<?> scheduled = null;
+  private final HashedWheelTimer timer;
+  private HashedWheelTimer.Timeout scheduled = null;
+  private long timerGeneration = 0;
+  // System.nanoTime the scheduled stage change is due at
+  private long stageDeadline = 0;
+  private final LatencyRecorder phaseLag = new LatencyRecorder();
   private long remaining = -1;
   private long stageDuration = -1;
   private long stageStartEpoch = 0;
 
   private final boolean locked;
 
+  // Only touched on the loop; everyone else reads the snapshot
   private State state;
   private boolean paused = false;
   private boolean emergencyDeclared = false;
-
   private Team winner;
 
+  private final CommandLoop loop;
+  private volatile GameSnapshot snapshot;
+
+  // Recorded by commands on the loop, handed to the outbox with the next published snapshot
+  private final List<GameEvent> events = new ArrayList<>();
+  private final EventOutbox outbox;
+
+  // Null when the game is only kept in memory
+  private final WriteAheadLog journal;
+  private final WriteAheadLog chatJournal;
+  private int sinceCheckpoint = 0;
+  // Hard resets so far; the chat journal is only replayed if it saw the last of them
+  private long chatGeneration = 0;
+
   public enum State {
     WAITING_TO_START("ready"),
     GRACE_PERIOD("grace"),
@@ -71,18 +119,95 @@ public class Game {
   }
 
   public Game(AppConfig initConfig, PushNotificationService pushService) {
-    this.pushService = pushService;
-    teams = new ArrayList<Team>();
-    players = new ArrayList<Player>();
+    this(initConfig, pushService, publish -> CommandLoop.threaded("game-loop", publish));
+  }
+
+  /** {@code loops} builds the command loop from the callback that publishes each snapshot. */
+  public Game(
+      AppConfig initConfig,
+      PushNotificationService pushService,
+      Function<Runnable, CommandLoop> loops) {
+    this(DEFAULT_ID, initConfig, pushService, null, loops);
+  }
+
+  public Game(
+      String id,
+      AppConfig initConfig,
+      PushNotificationService pushService,
+      HashedWheelTimer timer,
+      Function<Runnable, CommandLoop> loops) {
+    this(id, initConfig, pushService, timer, loops, null);
+  }
+
+  /**
+   * A game whose stage timers run on {@code timer}. Without one, the game uses the process-wide
+   * {@link HashedWheelTimer#shared()} timer. With a {@code journalDir}, the game is restored from
+   * the journal there, if it holds anything, and journals everything that happens to it.
+   */
+  public Game(
+      String id,
+      AppConfig initConfig,
+      PushNotificationService pushService,
+      HashedWheelTimer timer,
+      Function<Runnable, CommandLoop> loops,
+      Path journalDir) {
+    this.id = id;
+    this.timer = timer != null ? timer : HashedWheelTimer.shared();
     state = State.WAITING_TO_START;
     paused = false;
     config = initConfig;
     locked = false;
     winner = null;
-
-    if (!registerNTeams(initConfig.getGame().getMaxTeams(), initConfig.getTeams())) {
+    messages = newChatLog("global");
+    AppConfig.LocationConfig locationConfig = initConfig.getLocations();
+    if (locationConfig == null) locationConfig = new AppConfig.LocationConfig();
+    locations = new LocationIndex(locationConfig.getGridCells(), registry::containsPlayer);
+    captures = new CaptureEngine(this, locationConfig);
+    area = PlayArea.of(initConfig.getArea());
+    sockets = new GameSockets(this, initConfig, this.timer);
+    webSocketHandler = new SocketConnectionHandler(this, GameSockets.GLOBAL);
+
+    outbox = new EventOutbox("game-events-" + id);
+    outbox.subscribe("sockets", sockets::deliver);
+    outbox.subscribe("locations", locations::apply);
+    outbox.subscribe("captures", captures::apply);
+    if (pushService != null)
+      outbox.subscribe("push", new GameNotifications(pushService, initConfig));
+
+    journal = journalDir == null ? null : WriteAheadLog.open(journalDir, new Recovery());
+    // Replayed second, once the teams its messages were posted to are back
+    chatJournal =
+        journalDir == null
+            ? null
+            : WriteAheadLog.open(journalDir.resolve("chat"), new ChatRecovery());
+    boolean recovered = journal != null && journal.lastSequence() > 0;
+
+    if (recovered) {
+      // Versions handed out before the restart must not match the recovered state
+      version.set(System.currentTimeMillis());
+    } else if (!registerNTeams(initConfig.getGame().getMaxTeams(), initConfig.getTeams())) {
       throw new RuntimeException("Failed to register teams. Check the configuration and retry");
     }
+
+    publish();
+    loop = loops.apply(this::publish);
+    if (recovered) execute(this::resumeStage);
+  }
+
+  public String getId() {
+    return id;
+  }
+
+  public GameSockets sockets() {
+    return sockets;
+  }
+
+  /**
+   * How late timed stage changes have happened compared with when they were due, counting both
+   * the timer's tick and the wait for the command loop.
+   */
+  public LatencyRecorder.Snapshot phaseLag() {
+    return phaseLag.snapshot();
   }
 
   public void setWebSocketHandler(SocketConnectionHandler handler) {
@@ -93,41 +218,157 @@ public class Game {
     return this.webSocketHandler;
   }
 
+  public EventOutbox outbox() {
+    return outbox;
+  }
+
+  /** Where the players last reported being. */
+  public LocationIndex locations() {
+    return locations;
+  }
+
+  /** Where flags can be hidden and players can be. */
+  public PlayArea area() {
+    return area;
+  }
+
+  /** Notices players reaching other teams' flags. */
+  public CaptureEngine captures() {
+    return captures;
+  }
+
+  public void shutdown() {
+    // The timer is shared with other games, so it has to be cancelled rather than dropped
+    execute(this::cancelTimer).exceptionally(e -> null).join();
+    loop.shutdown();
+    outbox.shutdown();
+    sockets.close();
+    if (journal != null) journal.close();
+    if (chatJournal != null) chatJournal.close();
+    messages.close();
+    registry.getTeams().forEach(Team::close);
+  }
+
+  /** The directory the game is journaled to, or {@code null} if it is only kept in memory. */
+  public Path getJournalDir() {
+    return journal == null ? null : journal.getDirectory();
+  }
+
+  // ----- Commands -----
+  private <T> CompletableFuture<T> submit(Supplier<T> command) {
+    return loop.submit(
+        () -> {
+          // Commands can run inside other commands, so only drop what this one recorded
+          int mark = events.size();
+          try {
+            return command.get();
+          } catch (RuntimeException | Error e) {
+            events.subList(mark, events.size()).clear();
+            throw e;
+          }
+        });
+  }
+
+  private CompletableFuture<Void> execute(Runnable command) {
+    return submit(
+        () -> {
+          command.run();
+          return null;
+        });
+  }
+
+  private void emit(GameEvent event) {
+    events.add(event);
+  }
+
+  private static <T> T await(CompletableFuture<T> future) {
+    return CommandLoop.await(future);
+  }
+
+  private void publish() {
+    snapshot =
+        new GameSnapshot(
+            version.get(),
+            state,
+            paused,
+            emergencyDeclared,
+            remaining,
+            stageDuration,
+            stageStartEpoch,
+            winner == null ? null : winner.getID());
+
+    if (!events.isEmpty()) {
+      List<GameEvent> committed = List.copyOf(events);
+      events.clear();
+      // Write-ahead: nothing is announced and no command completes until its records are on disk
+      if (journal != null) journal(committed).join();
+      outbox.publish(committed);
+    }
+  }
+
+  public GameSnapshot snapshot() {
+    return snapshot;
+  }
+
   // ----- Game Controls -----
-  public synchronized void start() {
+  public CompletableFuture<Void> startAsync() {
+    return execute(this::doStart);
+  }
+
+  public void start() {
+    await(startAsync());
+  }
+
+  private void doStart() {
     if (state != State.WAITING_TO_START && state != State.ENDED)
       throw new IllegalStateException("Cannot start game in this state: " + state.readableName);
 
-    goTo(State.GRACE_PERIOD, config.getGame().getGraceTime() * 1000L);
+    doGoTo(State.GRACE_PERIOD, config.getGame().getGraceTime() * 1000L);
+  }
+
+  public CompletableFuture<Void> pauseAsync() {
+    return execute(() -> doPause(true));
   }
 
   public void pause(boolean announce) {
-    if (!isGameRunning()) throw new IllegalStateException("Cannot pause a game that isn't running");
+    await(execute(() -> doPause(announce)));
+  }
+
+  public void pause() {
+    await(pauseAsync());
+  }
+
+  private void doPause(boolean announce) {
+    if (!running()) throw new IllegalStateException("Cannot pause a game that isn't running");
     if (paused) return;
-    if (scheduled != null) scheduled.cancel(false);
+    // Resuming picks the same timer back up with the time it had left
+    if (scheduled != null) scheduled.pause();
 
     long elapsed = System.currentTimeMillis() - stageStartEpoch;
     remaining = Math.max(0, stageDuration - elapsed);
 
     paused = true;
-    if (announce)
-      pushService.notifyAll(
-          "The game has been paused", "Check the global chat for more information");
-    stateBroadcast(state, remaining, paused);
+    touch();
+    if (announce) emit(new GameEvent.GamePaused());
+    emit(new GameEvent.PhaseChanged(state, remaining, paused));
   }
 
-  public synchronized void pause() {
-    pause(true);
+  public CompletableFuture<Void> resumeAsync() {
+    return execute(this::doResume);
   }
 
   public void resume() {
+    await(resumeAsync());
+  }
+
+  private void doResume() {
     if (!paused) throw new IllegalStateException("Cannot resume a unpaused game");
 
     if (state == State.GRACE_PERIOD && !allFlagsRegistered() && remaining <= 0)
       throw new IllegalStateException("Cannot resume until all flags are registered");
 
     if (state == State.GRACE_PERIOD && allFlagsRegistered() && remaining <= 0) {
-      goTo(State.SCOUT_PERIOD, config.getGame().getScoutTime() * 1000L);
+      doGoTo(State.SCOUT_PERIOD, config.getGame().getScoutTime() * 1000L);
       return;
     }
 
@@ -135,31 +376,48 @@ public class Game {
     goToWithRemaining(state, remaining);
   }
 
+  public CompletableFuture<Void> skipAsync() {
+    return execute(this::doSkip);
+  }
+
   public void skip() {
-    if (!isGameRunning() && !paused)
+    await(skipAsync());
+  }
+
+  private void doSkip() {
+    if (!running() && !paused)
       throw new IllegalStateException("Cannot skip a game that isn't running");
 
     if (paused && state == State.GRACE_PERIOD && !allFlagsRegistered() && remaining <= 0)
       throw new IllegalStateException("Cannot skip until all flags are registered");
 
-    if (scheduled != null) scheduled.cancel(false);
+    cancelTimer();
 
     if (paused) {
       state = getNextState(state);
     } else {
-      advance();
+      doAdvance();
     }
     remaining = getDurationForState(state);
 
     if (state == State.WAITING_TO_START || state == State.ENDED) paused = false;
+    touch();
 
-    stateBroadcast(state, remaining, paused);
+    emit(new GameEvent.PhaseChanged(state, remaining, paused));
+  }
+
+  public CompletableFuture<Void> rewindAsync() {
+    return execute(this::doRewind);
   }
 
   public void rewind() {
-    if (!isGameRunning() && !paused && state != State.ENDED)
+    await(rewindAsync());
+  }
+
+  private void doRewind() {
+    if (!running() && !paused && state != State.ENDED)
       throw new IllegalStateException("Cannot rewind a game that isn't running or ended");
-    if (scheduled != null) scheduled.cancel(false);
+    cancelTimer();
 
     if (paused) {
       long elapsed = stageDuration - remaining;
@@ -170,9 +428,9 @@ public class Game {
       long elapsed = System.currentTimeMillis() - stageStartEpoch;
       if (elapsed <= REWIND_TOLERANCE_MS) {
         State previousState = getPreviousState(state);
-        goTo(previousState, getDurationForState(previousState));
+        doGoTo(previousState, getDurationForState(previousState));
       } else {
-        goTo(state, getDurationForState(state));
+        doGoTo(state, getDurationForState(state));
       }
     }
 
@@ -183,29 +441,52 @@ public class Game {
     }
 
     if (state == State.WAITING_TO_START || state == State.ENDED) paused = false;
+    touch();
 
-    stateBroadcast(state, remaining, paused);
+    emit(new GameEvent.PhaseChanged(state, remaining, paused));
+  }
+
+  public CompletableFuture<Void> endAsync() {
+    return execute(this::doEnd);
   }
 
   public void end() {
-    if (!isGameRunning()) throw new IllegalStateException("Cannot end a game that isn't running");
-    if (scheduled != null) scheduled.cancel(false);
+    await(endAsync());
+  }
+
+  private void doEnd() {
+    if (!running()) throw new IllegalStateException("Cannot end a game that isn't running");
+    cancelTimer();
     remaining = -1;
     paused = false;
     state = State.ENDED;
-    stateBroadcast(state, 0, paused);
+    touch();
+    emit(new GameEvent.PhaseChanged(state, 0, paused));
   }
 
-  public synchronized void reset() {
+  public void reset() {
     reset(false);
   }
 
-  public synchronized void reset(boolean hard) {
-    if (scheduled != null) {
-      scheduled.cancel(false);
-      scheduled = null;
-    }
+  public CompletableFuture<Void> resetAsync(boolean hard) {
+    return execute(() -> doReset(hard));
+  }
 
+  public void reset(boolean hard) {
+    await(resetAsync(hard));
+  }
+
+  private void doReset(boolean hard) {
+    cancelTimer();
+    clear(hard);
+    emit(new GameEvent.GameReset(hard));
+
+    touch();
+    emit(new GameEvent.PhaseChanged(state, config.getGame().getGraceTime() * 1000L, paused));
+  }
+
+  /** Puts the game back before its start; a hard reset also drops the players and chat. */
+  private void clear(boolean hard) {
     state = State.WAITING_TO_START;
     paused = false;
     remaining = -1;
@@ -213,46 +494,55 @@ public class Game {
     stageStartEpoch = 0;
     winner = null;
 
-    teams.forEach(Team::reset);
+    registry.getTeams().forEach(Team::reset);
 
     if (hard) {
-      players.clear();
+      registry.clearPlayers();
       messages.clear();
       counter.set(0);
-
-      AnnouncementSocketConnectionHandler.broadcast(new AnnouncementMessage("reset", null));
+      chatGeneration++;
     }
-
-    stateBroadcast(state, config.getGame().getGraceTime() * 1000L, paused);
   }
 
   // ----- State Handling -----
   public void goTo(State newState, long duration) {
-    setState(newState);
+    await(execute(() -> doGoTo(newState, duration)));
+  }
+
+  private void doGoTo(State newState, long duration) {
+    state = newState;
     paused = false;
     stageDuration = duration;
     stageStartEpoch = System.currentTimeMillis();
     remaining = -1;
 
     if (state == State.WAITING_TO_START) paused = false;
+    touch();
 
-    stateBroadcast(newState, duration, paused);
+    emit(new GameEvent.PhaseChanged(newState, duration, paused));
 
     if (duration > 0) {
-      scheduled = scheduler.schedule(this::advance, duration, TimeUnit.MILLISECONDS);
+      schedule(duration);
+    } else {
+      cancelTimer();
     }
   }
 
-  public synchronized void setState(State state) {
-    this.state = state;
+  public void setState(State state) {
+    await(
+        execute(
+            () -> {
+              this.state = state;
+              touch();
+            }));
   }
 
-  public synchronized State getState() {
-    return state;
+  public State getState() {
+    return snapshot.state();
   }
 
-  public synchronized boolean isPaused() {
-    return paused;
+  public boolean isPaused() {
+    return snapshot.paused();
   }
 
   private void goToWithRemaining(State restoredState, long dur) {
@@ -262,40 +552,81 @@ public class Game {
     state = restoredState;
     stageDuration = dur;
     stageStartEpoch = System.currentTimeMillis();
-    scheduled = scheduler.schedule(this::advance, dur, TimeUnit.MILLISECONDS);
-    stateBroadcast(state, dur, paused);
+    stageDeadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(dur);
+    if (scheduled == null || !scheduled.resume()) schedule(dur);
+    touch();
+    emit(new GameEvent.PhaseChanged(state, dur, paused));
+  }
+
+  /**
+   * Advances the stage when {@code delay} has passed. The timer only queues a command, and a
+   * generation check drops it if the stage was changed or the timer cancelled in the meantime.
+   */
+  private void schedule(long delay) {
+    if (scheduled != null) scheduled.cancel();
+
+    long generation = ++timerGeneration;
+    stageDeadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delay);
+    scheduled =
+        timer.schedule(
+            () ->
+                execute(
+                    () -> {
+                      if (generation != timerGeneration) return;
+                      phaseLag.record(System.nanoTime() - stageDeadline);
+                      doAdvance();
+                    }),
+            delay,
+            TimeUnit.MILLISECONDS);
+  }
+
+  private void cancelTimer() {
+    timerGeneration++;
+    if (scheduled != null) {
+      scheduled.cancel();
+      scheduled = null;
+    }
   }
 
   public void advance() {
-    synchronized (this) {
-      switch (state) {
-        case GRACE_PERIOD -> {
-          if (!allFlagsRegistered()) {
-            pause(false);
-            pushService.notifyAll(
-                "Waiting for all flags to be registered",
-                "The game will resume once all teams have registered their flags");
-            AnnouncementSocketConnectionHandler.broadcast(new AnnouncementMessage("frozen", null));
-          } else {
-            goTo(State.SCOUT_PERIOD, config.getGame().getScoutTime() * 1000L);
-          }
+    await(execute(this::doAdvance));
+  }
+
+  private void doAdvance() {
+    switch (state) {
+      case GRACE_PERIOD -> {
+        if (!allFlagsRegistered()) {
+          doPause(false);
+          emit(new GameEvent.FlagsPending());
+        } else {
+          doGoTo(State.SCOUT_PERIOD, config.getGame().getScoutTime() * 1000L);
         }
-        case SCOUT_PERIOD -> goTo(State.FFA_PERIOD, config.getGame().getFfaTime() * 1000L);
-        case FFA_PERIOD -> goTo(State.ENDED, 0);
       }
+      case SCOUT_PERIOD -> doGoTo(State.FFA_PERIOD, config.getGame().getFfaTime() * 1000L);
+      case FFA_PERIOD -> doGoTo(State.ENDED, 0);
     }
   }
 
   public void back() {
-    switch (state) {
-      case SCOUT_PERIOD -> goTo(State.GRACE_PERIOD, config.getGame().getGraceTime() * 1000L);
-      case FFA_PERIOD -> goTo(State.SCOUT_PERIOD, config.getGame().getScoutTime() * 1000L);
-      case ENDED -> goTo(State.FFA_PERIOD, config.getGame().getFfaTime() * 1000L);
-      default -> goTo(State.WAITING_TO_START, 0);
-    }
+    await(
+        execute(
+            () -> {
+              switch (state) {
+                case SCOUT_PERIOD ->
+                    doGoTo(State.GRACE_PERIOD, config.getGame().getGraceTime() * 1000L);
+                case FFA_PERIOD ->
+                    doGoTo(State.SCOUT_PERIOD, config.getGame().getScoutTime() * 1000L);
+                case ENDED -> doGoTo(State.FFA_PERIOD, config.getGame().getFfaTime() * 1000L);
+                default -> doGoTo(State.WAITING_TO_START, 0);
+              }
+            }));
   }
 
   public boolean isGameRunning() {
+    return snapshot.running();
+  }
+
+  private boolean running() {
     return state == State.GRACE_PERIOD || state == State.SCOUT_PERIOD || state == State.FFA_PERIOD;
   }
 
@@ -327,199 +658,190 @@ public class Game {
   }
 
   // ----- Utilities -----
-  public Map<String, Object> status() {
-    List<Map<String, Object>> playerList = new ArrayList<>();
-    List<Map<String, Object>> teamList = new ArrayList<>();
-
-    long now = System.currentTimeMillis();
-    Map<String, Object> currState = getCurrentState(now);
-
-    players.forEach(p -> playerList.add(p.toMap()));
-    teams.forEach(t -> teamList.add(t.toMap(state == State.FFA_PERIOD || state == State.ENDED)));
-
-    return Map.of(
-        "players", playerList,
-        "teams", teamList,
-        "state", currState,
-        "game", config.getMap());
-  }
-
-  private Map<String, Object> getCurrentState(long now) {
-    long timeLeft =
-        switch (state) {
-          case WAITING_TO_START -> config.getGame().getGraceTime() * 1000L;
-          case ENDED -> 0L;
-          default -> {
-            if (paused) {
-              yield Math.max(0L, remaining);
-            } else {
-              yield Math.max(0L, stageDuration - (now - stageStartEpoch));
-            }
-          }
-        };
-
-    Map<String, Object> result = new HashMap<>();
-    result.put("state", state.toString());
-    result.put("duration", timeLeft);
-    result.put("paused", paused);
-    result.put("emergency", emergencyDeclared);
-    result.put("frozen", paused && state == State.GRACE_PERIOD && remaining <= 0);
-    if (winner == null || state != State.ENDED) {
-      result.put("winner", null);
-    } else {
-      result.put("winner", winner.getID());
-    }
 
-    return result;
+  /**
+   * Monotonically increasing counter bumped after every mutation that is visible in {@link
+   * #status()}. The time remaining in the current stage is the only part of the status that changes
+   * without a version bump.
+   */
+  public long getVersion() {
+    return snapshot.version();
   }
 
-  private long getTimeRemaining() {
-    long now = System.currentTimeMillis();
-    if (paused) {
-      return Math.max(0L, remaining);
-    } else if (state == State.WAITING_TO_START) {
-      return config.getGame().getGraceTime() * 1000L;
-    } else if (state == State.ENDED) {
-      return 0L;
-    } else {
-      return Math.max(0L, stageDuration - (now - stageStartEpoch));
-    }
+  private void touch() {
+    version.incrementAndGet();
   }
 
-  public void merge(@Valid SettingsRequest settings) {
-    if (state != State.WAITING_TO_START)
-      throw new ResponseStatusException(
-          HttpStatus.LOCKED, "Settings can only be changed before the game.");
+  public boolean flagsRevealed() {
+    return snapshot.flagsRevealed();
+  }
 
-    config.merge(settings);
+  public GameStatus status() {
+    return status(getTimeRemaining());
   }
 
-  public Integer sendMessage(UUID sender, String content) {
-    Player player = getPlayer(sender);
-    Integer newId = counter.incrementAndGet();
-    ChatMessage msg = new ChatMessage(content, player, newId, new Date(), player.getTeam());
-    messages.add(msg);
+  /** The status with {@code timeLeft} as the stage's remaining time. */
+  public GameStatus status(long timeLeft) {
+    return new GameStatus(
+        snapshot, timeLeft, registry.getPlayers(), registry.getTeams(), config.getGame());
+  }
 
-    if (webSocketHandler != null) {
-      webSocketHandler.broadcastMessage(msg);
-    }
+  public long getTimeRemaining() {
+    return snapshot.timeRemaining(
+        System.currentTimeMillis(), config.getGame().getGraceTime() * 1000L);
+  }
 
-    return newId;
+  private long timeRemaining() {
+    if (paused) return Math.max(0L, remaining);
+    return Math.max(0L, stageDuration - (System.currentTimeMillis() - stageStartEpoch));
+  }
+
+  public CompletableFuture<Void> mergeAsync(@Valid SettingsRequest settings) {
+    return execute(
+        () -> {
+          if (state != State.WAITING_TO_START)
+            throw new ResponseStatusException(
+                HttpStatus.LOCKED, "Settings can only be changed before the game.");
+
+          config.merge(settings);
+          touch();
+          emit(new GameEvent.SettingsChanged(config.getGame().copy()));
+        });
+  }
+
+  public void merge(@Valid SettingsRequest settings) {
+    await(mergeAsync(settings));
+  }
+
+  public CompletableFuture<Integer> sendMessageAsync(UUID sender, String content) {
+    return submit(
+        () -> {
+          Player player = getPlayer(sender);
+          ChatMessage msg =
+              messages.append(
+                  id -> new ChatMessage(content, player, id, new Date(), player.getTeam()),
+                  counter::incrementAndGet);
+
+          emit(new GameEvent.ChatPosted(msg, null));
+          return msg.messageId();
+        });
+  }
+
+  public Integer sendMessage(UUID sender, String content) {
+    return await(sendMessageAsync(sender, content));
   }
 
   public MessagePage getMessages(Integer start, Integer count) {
-    return MessageUtils.getMessages(start, count, messages);
+    return messages.pageBefore(start, count);
+  }
+
+  public MessagePage getMessagesAfter(Integer after, Integer count) {
+    return messages.pageAfter(after, count);
   }
 
   public void lockCheck() {
     if (locked) throw new IllegalStateException("Game process is currently locked");
   }
 
-  public void stateBroadcast(State newState, long duration, boolean isPaused) {
-    String title = "Capture the Flag";
-    String body =
-        switch (newState) {
-          case State.WAITING_TO_START -> {
-            title = "this is a title";
-            yield "this is a body";
+  public CompletableFuture<Void> declareEmergencyAsync() {
+    return execute(
+        () -> {
+          emergencyDeclared = true;
+          touch();
+          try {
+            doPause(false);
+          } catch (Exception ignored) {
           }
-          case State.GRACE_PERIOD -> {
-            title = "The game has begun";
-            yield "The grace period has started. You have "
-                + Math.round((float) config.getGame().getGraceTime() / 60)
-                + " minutes to hide and register your flag.";
-          }
-          case State.SCOUT_PERIOD -> {
-            title = "The scouting period has commenced";
-            yield "Flags can now be stolen. You have "
-                + Math.round((float) config.getGame().getScoutTime() / 60)
-                + " minutes until the flag locations are revealed";
-          }
-          case State.FFA_PERIOD -> {
-            title = "Flags have been revealed!";
-            yield "Check the map on the website to see where the flags are located. You have "
-                + Math.round((float) config.getGame().getFfaTime() / 60)
-                + " minutes until the game finishes.";
-          }
-          case State.ENDED -> {
-            title = "The game has ended";
-            yield "Return to the rendezvous point.";
-          }
-        };
 
-    pushService.notifyAll(title, body);
-    StateSocketConnectionHandler.broadcast(new StateMessage(newState, duration, isPaused));
+          emit(new GameEvent.EmergencyDeclared());
+        });
   }
 
   public void declareEmergency() {
-    emergencyDeclared = true;
-    try {
-      pause(false);
-    } catch (Exception ignored) {
-    }
+    await(declareEmergencyAsync());
+  }
 
-    pushService.notifyAll(
-        "EMERGENCY DECLARED",
-        "An emergency has been declared. Return to the rendezvous point immediately");
+  public CompletableFuture<Void> releaseEmergencyAsync() {
+    return execute(
+        () -> {
+          emergencyDeclared = false;
+          touch();
+          emit(new GameEvent.EmergencyReleased());
+        });
   }
 
   public void releaseEmergency() {
-    emergencyDeclared = false;
-    pushService.notifyAll(
-        "Emergency state has been lifted",
-        "Check the global chat for further information if needed.");
+    await(releaseEmergencyAsync());
   }
 
   public boolean emergencyDeclared() {
-    return emergencyDeclared;
+    return snapshot.emergency();
   }
 
   // ----- Players -----
   public Player getPlayer(UUID id) {
-    Player player = players.stream().filter(p -> p.getID().equals(id)).findFirst().orElse(null);
+    Player player = registry.getPlayer(id);
     if (player == null) throw new NoSuchElementException("Cannot find player");
 
     return player;
   }
 
   public List<Player> getPlayers() {
-    return players;
+    return registry.getPlayers();
   }
 
-  public UUID addPlayer(String name, UUID team, boolean auth) {
-    if (state != State.WAITING_TO_START && !auth)
-      throw new IllegalStateException("Cannot join game at this time");
+  public int playerCount() {
+    return registry.playerCount();
+  }
 
-    if (players.stream().anyMatch(p -> p.getName().equals(name)))
-      throw new IllegalArgumentException(
-          "A player with the name " + name + " already exists in the game");
+  public CompletableFuture<UUID> addPlayerAsync(String name, UUID team, boolean auth) {
+    return submit(
+        () -> {
+          if (state != State.WAITING_TO_START && !auth)
+            throw new IllegalStateException("Cannot join game at this time");
+
+          Player newPlayer = new Player(name, team, auth);
+          registry.addPlayer(newPlayer);
+          touch();
+          emit(new GameEvent.PlayerJoined(newPlayer));
+          return newPlayer.getID();
+        });
+  }
 
-    if (teams.stream().noneMatch(t -> t.getID().equals(team))) {
-      throw new IllegalArgumentException("Invalid team choice");
-    }
+  public UUID addPlayer(String name, UUID team, boolean auth) {
+    return await(addPlayerAsync(name, team, auth));
+  }
 
-    Player newPlayer = new Player(name, team, auth);
-    players.add(newPlayer);
-    return newPlayer.getID();
+  public CompletableFuture<Boolean> removePlayerAsync(UUID id) {
+    return removePlayerAsync(id, false);
   }
 
-  public boolean removePlayer(UUID id) {
-    if (!isValidPlayer(id)) throw new NoSuchElementException("Player not found");
+  /** {@code kicked} tells listeners an organiser removed the player, rather than them leaving. */
+  public CompletableFuture<Boolean> removePlayerAsync(UUID id, boolean kicked) {
+    return submit(
+        () -> {
+          if (!isValidPlayer(id)) throw new NoSuchElementException("Player not found");
+
+          Player player = registry.removePlayer(id);
+          boolean removed = player != null;
+          touch();
+          if (removed) emit(new GameEvent.PlayerLeft(player, kicked));
 
-    boolean removed = players.removeIf(p -> id.equals(p.getID()));
+          if (registry.playerCount() == 0) doReset(false);
+          return removed;
+        });
+  }
 
-    if (players.isEmpty()) reset();
-    return removed;
+  public boolean removePlayer(UUID id) {
+    return await(removePlayerAsync(id));
   }
 
   public boolean isValidPlayer(UUID player) {
-    return players.stream().anyMatch(p -> p.getID().equals(player));
+    return registry.containsPlayer(player);
   }
 
   public boolean isPlayerOnTeam(UUID playerId, UUID teamId) {
-    return players.stream()
-        .filter(p -> p.getID().equals(playerId))
-        .anyMatch(p -> p.getTeam().equals(teamId));
+    return registry.isPlayerOnTeam(playerId, teamId);
   }
 
   public boolean isAuth(UUID player) {
@@ -528,11 +850,11 @@ public class Game {
 
   // ----- Teams -----
   public List<Team> getTeams() {
-    return teams;
+    return registry.getTeams();
   }
 
   public Team getTeam(UUID id) {
-    Team team = teams.stream().filter(t -> t.getID().equals(id)).findFirst().orElse(null);
+    Team team = registry.getTeam(id);
     if (team == null) throw new NoSuchElementException("Cannot find team");
 
     return team;
@@ -545,62 +867,292 @@ public class Game {
         .limit(n)
         .forEach(
             t -> {
-              success[0] = success[0] && registerTeam(t.getName(), t.getColor());
+              success[0] = success[0] && doRegisterTeam(t.getName(), t.getColor());
             });
 
     return success[0];
   }
 
   public boolean registerTeam(String name, String color) {
-    if (teams.stream().anyMatch(t -> t.getName().equals(name))) {
-      return false;
-    }
+    return await(submit(() -> doRegisterTeam(name, color)));
+  }
+
+  private boolean doRegisterTeam(String name, String color) {
+    Team team = new Team(name, color, newChatLog("team"));
+    if (!addTeam(team)) return false;
+
+    touch();
+    emit(new GameEvent.TeamRegistered(team.getID(), name, color));
+    return true;
+  }
+
+  private boolean addTeam(Team team) {
+    if (!registry.addTeam(team)) return false;
+    String topic = MultiplexSocketConnectionHandler.teamTopic(team.getID());
+    team.setWebSocketHandler(new SocketConnectionHandler(this, topic, sockets.teamStats()));
+    return true;
+  }
+
+  /** Chat history for one channel, journaled to disk when a heap retention limit is configured. */
+  private ChatLog newChatLog(String channel) {
+    AppConfig.ChatConfig chat = config.getChat();
+    if (chat == null || chat.getRetention() < 0) return new ChatLog();
+
+    String dir = chat.getJournalDir();
+    Path journalDir =
+        dir == null || dir.isBlank()
+            ? Path.of(System.getProperty("java.io.tmpdir"), "ctf-chat")
+            : Path.of(dir);
+    return new ChatLog(chat.getRetention(), () -> ChatJournal.create(journalDir, channel));
+  }
 
-    return teams.add(new Team(name, color));
+  public CompletableFuture<Integer> sendTeamMessageAsync(UUID team, UUID sender, String content) {
+    return submit(
+        () -> {
+          Team target = getTeam(team);
+          ChatMessage msg =
+              target.appendMessage(getPlayer(sender), content, counter::incrementAndGet);
+          emit(new GameEvent.ChatPosted(msg, team));
+          return msg.messageId();
+        });
   }
 
   public Integer sendTeamMessage(UUID team, UUID sender, String content) {
-    Integer newId = counter.incrementAndGet();
-    getTeam(team).sendMessage(getPlayer(sender), content, newId);
-    return newId;
+    return await(sendTeamMessageAsync(team, sender, content));
   }
 
   public boolean isValidTeam(UUID team) {
-    return teams.stream().anyMatch(p -> p.getID().equals(team));
+    return registry.containsTeam(team);
   }
 
   public boolean allFlagsRegistered() {
-    return teams.stream().allMatch(Team::isRegistered);
+    return registry.getTeams().stream().allMatch(Team::isRegistered);
+  }
+
+  public CompletableFuture<Void> registerFlagAsync(UUID teamId, int x, int y) {
+    return execute(
+        () -> {
+          if (state != State.GRACE_PERIOD)
+            throw new IllegalStateException("Flags can only be registered during grace period");
+          if (!area.contains(x, y))
+            throw new ResponseStatusException(
+                HttpStatus.BAD_REQUEST, "Flags must be hidden inside the play area.");
+
+          Team team = getTeam(teamId);
+          team.registerFlag(x, y);
+          touch();
+
+          if (allFlagsRegistered() && paused && timeRemaining() <= 0) {
+            doResume();
+          }
+
+          emit(new GameEvent.FlagRegistered(teamId, x, y));
+        });
   }
 
   public void registerFlag(UUID teamId, int x, int y) {
-    if (state != State.GRACE_PERIOD)
-      throw new IllegalStateException("Flags can only be registered during grace period");
+    await(registerFlagAsync(teamId, x, y));
+  }
 
-    Team team = getTeam(teamId);
-    team.registerFlag(x, y);
+  /**
+   * Records that a player approached or reached another team's flag, found by the {@link
+   * CaptureEngine}. Dropped if the game stopped in the meantime; victory is still declared by the
+   * team.
+   */
+  void flagReached(GameEvent event) {
+    execute(
+        () -> {
+          if (state != State.SCOUT_PERIOD && state != State.FFA_PERIOD) return;
+          if (paused) return;
+          emit(event);
+        });
+  }
 
-    if (allFlagsRegistered() && paused && getTimeRemaining() <= 0) {
-      resume();
-    }
+  public CompletableFuture<Void> declareVictoryAsync(UUID team) {
+    return execute(
+        () -> {
+          if (state != State.SCOUT_PERIOD && state != State.FFA_PERIOD)
+            throw new IllegalStateException("Cannot declare victory in this state");
+
+          winner = getTeam(team);
+          touch();
 
-    AnnouncementSocketConnectionHandler.broadcast(
-        new AnnouncementMessage("register", teamId.toString()));
+          emit(new GameEvent.VictoryDeclared(team, winner.getName()));
+          doEnd();
+        });
   }
 
   public void declareVictory(UUID team) {
-    if (state != State.SCOUT_PERIOD && state != State.FFA_PERIOD)
-      throw new IllegalStateException("Cannot declare victory in this state");
+    await(declareVictoryAsync(team));
+  }
 
-    winner = getTeam(team);
+  // ----- Persistence -----
+  /**
+   * Queues the records for {@code committed}, and returns a future that completes once they are on
+   * disk. Every batch the loop runs shares the one flush.
+   */
+  private CompletableFuture<Void> journal(List<GameEvent> committed) {
+    boolean chatWritten = false;
+    boolean gameWritten = false;
+    for (GameEvent event : committed) {
+      switch (event) {
+        case GameEvent.ChatPosted chat -> {
+          chatJournal.append(GameJournal.encode(chat));
+          chatWritten = true;
+          continue;
+        }
+        case GameEvent.GameReset reset when reset.hard() -> {
+          chatJournal.checkpoint(GameJournal.encodeChat(chatGeneration));
+          chatWritten = true;
+        }
+        case GameEvent.GameReset reset -> {
+          chatJournal.append(GameJournal.encode(reset));
+          chatWritten = true;
+        }
+        default -> {
+          // Leaves the chat as it is
+        }
+      }
+
+      byte[] record = GameJournal.encode(event);
+      if (record == null) continue;
+      journal.append(record);
+      gameWritten = true;
+      sinceCheckpoint++;
+    }
+
+    // Taken on the loop, between commands, so the image is consistent
+    if (sinceCheckpoint >= config.getPersistence().getCheckpointEvery()) {
+      journal.checkpoint(GameJournal.encode(image()));
+      sinceCheckpoint = 0;
+    }
 
-    pushService.notifyAll(
-        "Team " + winner.getName() + " has declared victory!",
-        "The game has concluded. Please return to the rendezvous point.");
+    CompletableFuture<Void> chat = chatWritten ? chatJournal.flush() : null;
+    CompletableFuture<Void> game = gameWritten ? journal.flush() : null;
+    if (chat == null) return game == null ? CompletableFuture.completedFuture(null) : game;
+    return game == null ? chat : CompletableFuture.allOf(chat, game);
+  }
+
+  private GameJournal.Image image() {
+    List<GameJournal.TeamImage> teams = new ArrayList<>();
+    for (Team team : registry.getTeams()) {
+      Flag flag = team.getFlag();
+      int[] location = flag == null ? null : new int[] {flag.getX(), flag.getY()};
+      teams.add(new GameJournal.TeamImage(team.getID(), team.getName(), team.getColor(), location));
+    }
 
-    AnnouncementSocketConnectionHandler.broadcast(
-        new AnnouncementMessage("victory", team.toString()));
+    return new GameJournal.Image(
+        config.getGame().copy(),
+        state,
+        paused,
+        emergencyDeclared,
+        remaining,
+        stageDuration,
+        stageStartEpoch,
+        winner == null ? null : winner.getID(),
+        counter.get(),
+        chatGeneration,
+        teams,
+        List.copyOf(registry.getPlayers()));
+  }
+
+  /** Restarts the stage timer of a recovered game with the time its stage had left. */
+  private void resumeStage() {
+    if (!running() || paused) return;
+    // A stage that ran out while the process was down ends straight away
+    schedule(timeRemaining());
+  }
 
-    end();
+  /**
+   * Rebuilds the game from its journal while it is being constructed, before the loop exists.
+   * Nothing is emitted or scheduled.
+   */
+  private final class Recovery implements WriteAheadLog.Replay {
+    @Override
+    public void restore(byte[] checkpoint) {
+      GameJournal.Image image = GameJournal.decodeImage(checkpoint);
+      config.setGame(image.settings());
+      state = image.state();
+      paused = image.paused();
+      emergencyDeclared = image.emergency();
+      remaining = image.remaining();
+      stageDuration = image.stageDuration();
+      stageStartEpoch = image.stageStartEpoch();
+      counter.set(image.counter());
+      chatGeneration = image.chatGeneration();
+
+      for (GameJournal.TeamImage saved : image.teams()) {
+        Team team = new Team(saved.id(), saved.name(), saved.color(), newChatLog("team"));
+        if (saved.flag() != null) team.registerFlag(saved.flag()[0], saved.flag()[1]);
+        addTeam(team);
+      }
+      winner = registry.getTeam(image.winner());
+      image.players().forEach(registry::addPlayer);
+    }
+
+    @Override
+    public void apply(long time, byte[] record) {
+      sinceCheckpoint++;
+      switch (GameJournal.decode(record)) {
+        case GameEvent.PhaseChanged phase -> {
+          state = phase.state();
+          paused = phase.paused();
+          if (paused) {
+            remaining = phase.duration();
+          } else {
+            remaining = -1;
+            stageDuration = phase.duration();
+            stageStartEpoch = time;
+          }
+        }
+        case GameEvent.FlagRegistered flag ->
+            getTeam(flag.team()).registerFlag(flag.x(), flag.y());
+        case GameEvent.VictoryDeclared victory -> winner = getTeam(victory.team());
+        case GameEvent.PlayerJoined joined -> registry.addPlayer(joined.player());
+        case GameEvent.PlayerLeft left -> registry.removePlayer(left.player().getID());
+        case GameEvent.GameReset reset -> clear(reset.hard());
+        case GameEvent.EmergencyDeclared ignored -> emergencyDeclared = true;
+        case GameEvent.EmergencyReleased ignored -> emergencyDeclared = false;
+        case GameEvent.SettingsChanged settings -> config.setGame(settings.settings());
+        case GameEvent.TeamRegistered team ->
+            addTeam(new Team(team.team(), team.name(), team.color(), newChatLog("team")));
+        default -> {
+          // Not journaled
+        }
+      }
+    }
+  }
+
+  /**
+   * Rebuilds the chat from its journal, after {@link Recovery}. If the game's journal holds a hard
+   * reset this one doesn't, because the process stopped between writing the two, everything here
+   * was cleared by that reset and is skipped.
+   */
+  private final class ChatRecovery implements WriteAheadLog.Replay {
+    private long generation = 0;
+
+    @Override
+    public void restore(byte[] checkpoint) {
+      generation = GameJournal.decodeChat(checkpoint);
+    }
+
+    @Override
+    public void apply(long time, byte[] record) {
+      if (generation < chatGeneration) return;
+      switch (GameJournal.decode(record)) {
+        case GameEvent.ChatPosted chat -> {
+          if (chat.team() == null) {
+            messages.append(chat.message());
+          } else {
+            getTeam(chat.team()).appendMessage(chat.message());
+          }
+          counter.accumulateAndGet(chat.message().messageId(), Math::max);
+        }
+        case GameEvent.GameReset ignored -> registry.getTeams().forEach(Team::clearMessages);
+        default -> {
+          // Only chat is journaled here
+        }
+      }
+    }
   }
 }
@@ -0,0 +1,56 @@
+package moae.dev.Game;
+
+import moae.dev.Server.AppConfig;
+import moae.dev.Utils.ChatMessage;
+
+import java.util.UUID;
+
+/**
+ * Something that happened to a game that the outside world should hear about. Commands record
+ * events while they run; the events are only handed to the {@link EventOutbox} once the command
+ * has succeeded and the new state has been published, and are dropped if it fails.
+ *
+ * <p>Events that change state carry everything needed to apply them again, since a persisted game
+ * is rebuilt by replaying them ({@link GameJournal}).
+ */
+public sealed interface GameEvent {
+
+  /** The stage, its duration or the paused flag changed. */
+  record PhaseChanged(Game.State state, long duration, boolean paused) implements GameEvent {}
+
+  /** An organiser paused the game. */
+  record GamePaused() implements GameEvent {}
+
+  /** The grace period ran out before every team registered its flag, so the game froze. */
+  record FlagsPending() implements GameEvent {}
+
+  record FlagRegistered(UUID team, int x, int y) implements GameEvent {}
+
+  /** {@code player}, of {@code team}, came near the flag of {@code flagTeam}. */
+  record FlagApproached(UUID flagTeam, UUID player, UUID team) implements GameEvent {}
+
+  /** {@code player}, of {@code team}, reached the flag of {@code flagTeam}. */
+  record FlagCaptured(UUID flagTeam, UUID player, UUID team) implements GameEvent {}
+
+  record VictoryDeclared(UUID team, String teamName) implements GameEvent {}
+
+  record PlayerJoined(Player player) implements GameEvent {}
+
+  /** {@code kicked} when an organiser removed the player rather than the player leaving. */
+  record PlayerLeft(Player player, boolean kicked) implements GameEvent {}
+
+  /** Flags, team chat and the winner were cleared; a {@code hard} reset also cleared players. */
+  record GameReset(boolean hard) implements GameEvent {}
+
+  record EmergencyDeclared() implements GameEvent {}
+
+  record EmergencyReleased() implements GameEvent {}
+
+  /** An organiser changed the game's settings. */
+  record SettingsChanged(AppConfig.GameConfig settings) implements GameEvent {}
+
+  record TeamRegistered(UUID team, String name, String color) implements GameEvent {}
+
+  /** A chat message was stored. {@code team} is {@code null} for global chat. */
+  record ChatPosted(ChatMessage message, UUID team) implements GameEvent {}
+}
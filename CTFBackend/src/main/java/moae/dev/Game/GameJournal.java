@@ -0,0 +1,347 @@
+package moae.dev.Game;
+
+import moae.dev.Server.AppConfig;
+import moae.dev.Utils.ChatMessage;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Binary encoding of what a persisted game writes to its {@link moae.dev.Utils.WriteAheadLog}s: one
+ * record per event that changes state, and checkpoint images of the game. Events that only tell
+ * the outside world something ({@link GameEvent.GamePaused}, {@link GameEvent.FlagsPending}) are
+ * not journaled.
+ *
+ * <p>Chat is kept in a log of its own, so images hold neither chat nor anything that grows with
+ * it. That log's only checkpoints are taken by hard resets, and hold the chat generation they
+ * started.
+ */
+final class GameJournal {
+  private static final int IMAGE_VERSION = 2;
+
+  private static final byte PHASE = 1;
+  private static final byte FLAG = 2;
+  private static final byte VICTORY = 3;
+  private static final byte JOINED = 4;
+  private static final byte LEFT = 5;
+  private static final byte RESET = 6;
+  private static final byte EMERGENCY = 7;
+  private static final byte CHAT = 8;
+  private static final byte SETTINGS = 9;
+  private static final byte TEAM = 10;
+
+  /** Everything a game holds apart from its chat, as of one point in its log. */
+  record Image(
+      AppConfig.GameConfig settings,
+      Game.State state,
+      boolean paused,
+      boolean emergency,
+      long remaining,
+      long stageDuration,
+      long stageStartEpoch,
+      UUID winner,
+      int counter,
+      long chatGeneration,
+      List<TeamImage> teams,
+      List<Player> players) {}
+
+  /** A team; {@code flag} is {@code null} until it is registered. */
+  record TeamImage(UUID id, String name, String color, int[] flag) {}
+
+  private GameJournal() {}
+
+  // ----- Events -----
+
+  /** The record for {@code event}, or {@code null} if it isn't journaled. */
+  static byte[] encode(GameEvent event) {
+    return write(
+        out -> {
+          switch (event) {
+            case GameEvent.PhaseChanged phase -> {
+              out.writeByte(PHASE);
+              out.writeByte(phase.state().ordinal());
+              out.writeLong(phase.duration());
+              out.writeBoolean(phase.paused());
+            }
+            case GameEvent.FlagRegistered flag -> {
+              out.writeByte(FLAG);
+              writeUuid(out, flag.team());
+              out.writeInt(flag.x());
+              out.writeInt(flag.y());
+            }
+            case GameEvent.VictoryDeclared victory -> {
+              out.writeByte(VICTORY);
+              writeUuid(out, victory.team());
+              writeString(out, victory.teamName());
+            }
+            case GameEvent.PlayerJoined joined -> {
+              out.writeByte(JOINED);
+              writePlayer(out, joined.player());
+            }
+            case GameEvent.PlayerLeft left -> {
+              out.writeByte(LEFT);
+              writePlayer(out, left.player());
+              out.writeBoolean(left.kicked());
+            }
+            case GameEvent.GameReset reset -> {
+              out.writeByte(RESET);
+              out.writeBoolean(reset.hard());
+            }
+            case GameEvent.EmergencyDeclared ignored -> {
+              out.writeByte(EMERGENCY);
+              out.writeBoolean(true);
+            }
+            case GameEvent.EmergencyReleased ignored -> {
+              out.writeByte(EMERGENCY);
+              out.writeBoolean(false);
+            }
+            case GameEvent.ChatPosted chat -> {
+              out.writeByte(CHAT);
+              writeMessage(out, chat.message());
+              writeUuid(out, chat.team());
+            }
+            case GameEvent.SettingsChanged settings -> {
+              out.writeByte(SETTINGS);
+              writeSettings(out, settings.settings());
+            }
+            case GameEvent.TeamRegistered team -> {
+              out.writeByte(TEAM);
+              writeUuid(out, team.team());
+              writeString(out, team.name());
+              writeString(out, team.color());
+            }
+            default -> {
+              // Nothing to restore
+            }
+          }
+        });
+  }
+
+  static GameEvent decode(byte[] record) {
+    return read(
+        record,
+        in ->
+            switch (in.readByte()) {
+              case PHASE ->
+                  new GameEvent.PhaseChanged(
+                      Game.State.values()[in.readByte()], in.readLong(), in.readBoolean());
+              case FLAG -> new GameEvent.FlagRegistered(readUuid(in), in.readInt(), in.readInt());
+              case VICTORY -> new GameEvent.VictoryDeclared(readUuid(in), readString(in));
+              case JOINED -> new GameEvent.PlayerJoined(readPlayer(in));
+              case LEFT -> new GameEvent.PlayerLeft(readPlayer(in), in.readBoolean());
+              case RESET -> new GameEvent.GameReset(in.readBoolean());
+              case EMERGENCY ->
+                  in.readBoolean()
+                      ? new GameEvent.EmergencyDeclared()
+                      : new GameEvent.EmergencyReleased();
+              case CHAT -> new GameEvent.ChatPosted(readMessage(in), readUuid(in));
+              case SETTINGS -> new GameEvent.SettingsChanged(readSettings(in));
+              case TEAM ->
+                  new GameEvent.TeamRegistered(readUuid(in), readString(in), readString(in));
+              default -> throw new IOException("Unknown journal record");
+            });
+  }
+
+  // ----- Images -----
+  static byte[] encode(Image image) {
+    return write(
+        out -> {
+          out.writeInt(IMAGE_VERSION);
+          writeSettings(out, image.settings());
+          out.writeByte(image.state().ordinal());
+          out.writeBoolean(image.paused());
+          out.writeBoolean(image.emergency());
+          out.writeLong(image.remaining());
+          out.writeLong(image.stageDuration());
+          out.writeLong(image.stageStartEpoch());
+          writeUuid(out, image.winner());
+          out.writeInt(image.counter());
+          out.writeLong(image.chatGeneration());
+
+          out.writeInt(image.teams().size());
+          for (TeamImage team : image.teams()) {
+            writeUuid(out, team.id());
+            writeString(out, team.name());
+            writeString(out, team.color());
+            out.writeBoolean(team.flag() != null);
+            if (team.flag() != null) {
+              out.writeInt(team.flag()[0]);
+              out.writeInt(team.flag()[1]);
+            }
+          }
+
+          out.writeInt(image.players().size());
+          for (Player player : image.players()) writePlayer(out, player);
+        });
+  }
+
+  static Image decodeImage(byte[] bytes) {
+    return read(
+        bytes,
+        in -> {
+          if (in.readInt() != IMAGE_VERSION) throw new IOException("Unknown checkpoint version");
+          AppConfig.GameConfig settings = readSettings(in);
+          Game.State state = Game.State.values()[in.readByte()];
+          boolean paused = in.readBoolean();
+          boolean emergency = in.readBoolean();
+          long remaining = in.readLong();
+          long stageDuration = in.readLong();
+          long stageStartEpoch = in.readLong();
+          UUID winner = readUuid(in);
+          int counter = in.readInt();
+          long chatGeneration = in.readLong();
+
+          int teamCount = in.readInt();
+          List<TeamImage> teams = new ArrayList<>(teamCount);
+          for (int i = 0; i < teamCount; i++) {
+            UUID id = readUuid(in);
+            String name = readString(in);
+            String color = readString(in);
+            int[] flag = in.readBoolean() ? new int[] {in.readInt(), in.readInt()} : null;
+            teams.add(new TeamImage(id, name, color, flag));
+          }
+
+          int playerCount = in.readInt();
+          List<Player> players = new ArrayList<>(playerCount);
+          for (int i = 0; i < playerCount; i++) players.add(readPlayer(in));
+
+          return new Image(
+              settings,
+              state,
+              paused,
+              emergency,
+              remaining,
+              stageDuration,
+              stageStartEpoch,
+              winner,
+              counter,
+              chatGeneration,
+              teams,
+              players);
+        });
+  }
+
+  /** The image of a chat log cleared by the hard reset that started {@code generation}. */
+  static byte[] encodeChat(long generation) {
+    return write(out -> out.writeLong(generation));
+  }
+
+  static long decodeChat(byte[] bytes) {
+    return read(bytes, DataInputStream::readLong);
+  }
+
+  // ----- Fields -----
+  private interface Writer {
+    void write(DataOutputStream out) throws IOException;
+  }
+
+  private interface Reader<T> {
+    T read(DataInputStream in) throws IOException;
+  }
+
+  private static byte[] write(Writer writer) {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+    try (DataOutputStream out = new DataOutputStream(bytes)) {
+      writer.write(out);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return bytes.size() == 0 ? null : bytes.toByteArray();
+  }
+
+  private static <T> T read(byte[] bytes, Reader<T> reader) {
+    try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+      return reader.read(in);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to decode journal record", e);
+    }
+  }
+
+  private static void writeString(DataOutputStream out, String value) throws IOException {
+    if (value == null) {
+      out.writeInt(-1);
+      return;
+    }
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  private static String readString(DataInputStream in) throws IOException {
+    int length = in.readInt();
+    return length < 0 ? null : new String(in.readNBytes(length), StandardCharsets.UTF_8);
+  }
+
+  private static void writeUuid(DataOutputStream out, UUID uuid) throws IOException {
+    out.writeBoolean(uuid != null);
+    if (uuid == null) return;
+    out.writeLong(uuid.getMostSignificantBits());
+    out.writeLong(uuid.getLeastSignificantBits());
+  }
+
+  private static UUID readUuid(DataInputStream in) throws IOException {
+    return in.readBoolean() ? new UUID(in.readLong(), in.readLong()) : null;
+  }
+
+  private static void writePlayer(DataOutputStream out, Player player) throws IOException {
+    writeUuid(out, player.getID());
+    writeString(out, player.getName());
+    writeUuid(out, player.getTeam());
+    out.writeBoolean(player.isAuth());
+  }
+
+  private static Player readPlayer(DataInputStream in) throws IOException {
+    return new Player(readUuid(in), readString(in), readUuid(in), in.readBoolean());
+  }
+
+  private static void writeMessage(DataOutputStream out, ChatMessage message) throws IOException {
+    out.writeInt(message.messageId());
+    out.writeLong(message.time() == null ? 0 : message.time().getTime());
+    writeString(out, message.message());
+    out.writeBoolean(message.player() != null);
+    if (message.player() != null) writePlayer(out, message.player());
+    writeUuid(out, message.team());
+  }
+
+  private static ChatMessage readMessage(DataInputStream in) throws IOException {
+    int id = in.readInt();
+    Date time = new Date(in.readLong());
+    String content = readString(in);
+    Player player = in.readBoolean() ? readPlayer(in) : null;
+    return new ChatMessage(content, player, id, time, readUuid(in));
+  }
+
+  private static void writeSettings(DataOutputStream out, AppConfig.GameConfig settings)
+      throws IOException {
+    out.writeInt(settings.getMaxPlayers());
+    out.writeInt(settings.getMinPlayers());
+    out.writeInt(settings.getMinPlayersPerTeam());
+    out.writeInt(settings.getMaxPlayersPerTeam());
+    out.writeInt(settings.getMaxTeams());
+    out.writeInt(settings.getGraceTime());
+    out.writeInt(settings.getScoutTime());
+    out.writeInt(settings.getFfaTime());
+  }
+
+  private static AppConfig.GameConfig readSettings(DataInputStream in) throws IOException {
+    AppConfig.GameConfig settings = new AppConfig.GameConfig();
+    settings.setMaxPlayers(in.readInt());
+    settings.setMinPlayers(in.readInt());
+    settings.setMinPlayersPerTeam(in.readInt());
+    settings.setMaxPlayersPerTeam(in.readInt());
+    settings.setMaxTeams(in.readInt());
+    settings.setGraceTime(in.readInt());
+    settings.setScoutTime(in.readInt());
+    settings.setFfaTime(in.readInt());
+    return settings;
+  }
+}
@@ -0,0 +1,153 @@
+package moae.dev.Game;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import moae.dev.Server.AppConfig;
+
+import java.io.IOException;
+import java.util.UUID;
+
+/**
+ * Writes players, teams, flags and the game status field by field as the generator goes, rather
+ * than building a map per object for Jackson to walk. Registered with Spring's mapper and with the
+ * socket mappers, so REST responses and frames look the same.
+ */
+public final class GameModule extends SimpleModule {
+
+  public GameModule() {
+    super("GameModule");
+    addSerializer(Player.class, new PlayerSerializer());
+    addSerializer(Flag.class, new FlagSerializer());
+    addSerializer(Team.View.class, new TeamSerializer());
+    addSerializer(GameStatus.class, new StatusSerializer());
+  }
+
+  private static void writeUuid(JsonGenerator gen, String field, UUID id) throws IOException {
+    if (id == null) {
+      gen.writeNullField(field);
+    } else {
+      gen.writeStringField(field, id.toString());
+    }
+  }
+
+  private static void writePlayer(JsonGenerator gen, Player player) throws IOException {
+    gen.writeStartObject();
+    writeUuid(gen, "id", player.getID());
+    gen.writeStringField("name", player.getName());
+    writeUuid(gen, "team", player.getTeam());
+    gen.writeBooleanField("auth", player.isAuth());
+    gen.writeEndObject();
+  }
+
+  private static void writeFlag(JsonGenerator gen, Flag flag) throws IOException {
+    gen.writeStartObject();
+    gen.writeNumberField("x", flag.getX());
+    gen.writeNumberField("y", flag.getY());
+    gen.writeEndObject();
+  }
+
+  /** The flag is only written if {@code revealed}; whether there is one always is. */
+  private static void writeTeam(JsonGenerator gen, Team team, boolean revealed)
+      throws IOException {
+    Flag flag = team.getFlag();
+    gen.writeStartObject();
+    writeUuid(gen, "id", team.getID());
+    gen.writeStringField("name", team.getName());
+    gen.writeStringField("color", team.getColor());
+    if (flag == null || !revealed) {
+      gen.writeNullField("flag");
+    } else {
+      gen.writeFieldName("flag");
+      writeFlag(gen, flag);
+    }
+    gen.writeBooleanField("registered", flag != null);
+    gen.writeEndObject();
+  }
+
+  private static void writeStatus(JsonGenerator gen, GameStatus status) throws IOException {
+    GameSnapshot snapshot = status.snapshot();
+    boolean revealed = snapshot.flagsRevealed();
+    gen.writeStartObject();
+
+    gen.writeArrayFieldStart("players");
+    for (Player player : status.players()) writePlayer(gen, player);
+    gen.writeEndArray();
+
+    gen.writeArrayFieldStart("teams");
+    for (Team team : status.teams()) writeTeam(gen, team, revealed);
+    gen.writeEndArray();
+
+    gen.writeObjectFieldStart("state");
+    gen.writeStringField("state", snapshot.state().toString());
+    gen.writeNumberField("duration", status.duration());
+    gen.writeBooleanField("paused", snapshot.paused());
+    gen.writeBooleanField("emergency", snapshot.emergency());
+    gen.writeBooleanField("frozen", snapshot.frozen());
+    writeUuid(gen, "winner", snapshot.state() == Game.State.ENDED ? snapshot.winner() : null);
+    gen.writeEndObject();
+
+    AppConfig.GameConfig settings = status.settings();
+    gen.writeObjectFieldStart("game");
+    gen.writeNumberField("maxPlayers", settings.getMaxPlayers());
+    gen.writeNumberField("minPlayers", settings.getMinPlayers());
+    gen.writeNumberField("minPlayersPerTeam", settings.getMinPlayersPerTeam());
+    gen.writeNumberField("maxPlayersPerTeam", settings.getMaxPlayersPerTeam());
+    gen.writeNumberField("maxTeams", settings.getMaxTeams());
+    gen.writeNumberField("graceTime", settings.getGraceTime());
+    gen.writeNumberField("scoutTime", settings.getScoutTime());
+    gen.writeNumberField("FFATime", settings.getFfaTime());
+    gen.writeEndObject();
+
+    gen.writeEndObject();
+  }
+
+  private static final class PlayerSerializer extends StdSerializer<Player> {
+    PlayerSerializer() {
+      super(Player.class);
+    }
+
+    @Override
+    public void serialize(Player player, JsonGenerator gen, SerializerProvider provider)
+        throws IOException {
+      writePlayer(gen, player);
+    }
+  }
+
+  private static final class FlagSerializer extends StdSerializer<Flag> {
+    FlagSerializer() {
+      super(Flag.class);
+    }
+
+    @Override
+    public void serialize(Flag flag, JsonGenerator gen, SerializerProvider provider)
+        throws IOException {
+      writeFlag(gen, flag);
+    }
+  }
+
+  private static final class TeamSerializer extends StdSerializer<Team.View> {
+    TeamSerializer() {
+      super(Team.View.class);
+    }
+
+    @Override
+    public void serialize(Team.View view, JsonGenerator gen, SerializerProvider provider)
+        throws IOException {
+      writeTeam(gen, view.team(), view.revealed());
+    }
+  }
+
+  private static final class StatusSerializer extends StdSerializer<GameStatus> {
+    StatusSerializer() {
+      super(GameStatus.class);
+    }
+
+    @Override
+    public void serialize(GameStatus status, JsonGenerator gen, SerializerProvider provider)
+        throws IOException {
+      writeStatus(gen, status);
+    }
+  }
+}
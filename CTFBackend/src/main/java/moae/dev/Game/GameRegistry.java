@@ -0,0 +1,255 @@
+package moae.dev.Game;
+
+import moae.dev.Server.AppConfig;
+import moae.dev.Services.PushNotificationService;
+import moae.dev.Utils.HashedWheelTimer;
+import moae.dev.Utils.WriteAheadLog;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Every game hosted by this process, keyed by game id. There is always a default game, which
+ * serves the unscoped paths. Games share one {@link HashedWheelTimer} and run their command loops on
+ * virtual threads, so an idle game holds no platform thread of its own.
+ *
+ * <p>Games that have ended are evicted once they have stayed ended for {@code league.evictAfter}
+ * seconds. The default game is never evicted.
+ *
+ * <p>With {@code persistence.dir} set, every game is journaled to its own directory under {@code
+ * games/}, and the games found there are brought back when the registry is created. A journal that
+ * cannot be replayed is moved to {@code failed/} and its game is dropped, or started afresh for the
+ * default game.
+ */
+public class GameRegistry {
+  private static final Logger logger = LoggerFactory.getLogger(GameRegistry.class);
+  private static final long SWEEP_SECONDS = 10;
+
+  private final AppConfig template;
+  private final PushNotificationService pushService;
+  private final HashedWheelTimer timer;
+  private final Path dataDir;
+
+  private final Map<String, Game> games = new ConcurrentHashMap<>();
+  private final Map<String, Long> endedSince = new ConcurrentHashMap<>();
+  // Games hosted plus games being created, held to league.maxGames
+  private final AtomicInteger slots = new AtomicInteger();
+  private final List<Consumer<Game>> creationListeners = new CopyOnWriteArrayList<>();
+  private final List<Consumer<Game>> evictionListeners = new CopyOnWriteArrayList<>();
+  private final Game defaultGame;
+
+  public GameRegistry(AppConfig template, PushNotificationService pushService) {
+    this.template = template;
+    this.pushService = pushService;
+
+    AppConfig.TimerConfig timerConfig = template.getTimer();
+    this.timer =
+        new HashedWheelTimer(
+            "game-timers",
+            timerConfig.getTickMillis(),
+            TimeUnit.MILLISECONDS,
+            timerConfig.getWheelSize());
+
+    AppConfig.PersistenceConfig persistence = template.getPersistence();
+    this.dataDir =
+        persistence != null && persistence.isEnabled() ? Path.of(persistence.getDir()) : null;
+
+    Game recovered = recover(Game.DEFAULT_ID);
+    this.defaultGame = recovered != null ? recovered : newGame(Game.DEFAULT_ID);
+    games.put(Game.DEFAULT_ID, defaultGame);
+    slots.incrementAndGet();
+    recoverGames();
+
+    timer.schedule(this::sweep, SWEEP_SECONDS, TimeUnit.SECONDS);
+  }
+
+  private Game newGame(String id) {
+    return new Game(
+        id,
+        template.copy(),
+        pushService,
+        timer,
+        publish -> CommandLoop.virtual("game-loop-" + id, publish),
+        dataDir == null ? null : dataDir.resolve("games").resolve(id));
+  }
+
+  // ----- Recovery -----
+  private void recoverGames() {
+    Path gamesDir = dataDir == null ? null : dataDir.resolve("games");
+    if (gamesDir == null || !Files.isDirectory(gamesDir)) return;
+
+    try (DirectoryStream<Path> dirs = Files.newDirectoryStream(gamesDir, Files::isDirectory)) {
+      for (Path dir : dirs) {
+        String id = dir.getFileName().toString();
+        if (Game.DEFAULT_ID.equals(id)) continue;
+        if (!reserve()) {
+          logger.warn("Not recovering game {}, the maximum number of games are running", id);
+          continue;
+        }
+
+        Game game = recover(id);
+        if (game != null) games.put(id, game);
+        else slots.decrementAndGet();
+      }
+    } catch (IOException e) {
+      logger.error("Failed to list journaled games in {}", gamesDir, e);
+    }
+  }
+
+  /** The game journaled under {@code id}, or {@code null} if its journal can't be replayed. */
+  private Game recover(String id) {
+    try {
+      return newGame(id);
+    } catch (RuntimeException e) {
+      if (dataDir == null) throw e;
+      logger.error("Failed to recover game {}, moving its journal aside", id, e);
+
+      Path source = dataDir.resolve("games").resolve(id);
+      Path target = dataDir.resolve("failed").resolve(id + "-" + System.currentTimeMillis());
+      try {
+        Files.createDirectories(target.getParent());
+        Files.move(source, target);
+      } catch (IOException moveFailed) {
+        throw new IllegalStateException("Cannot move aside the journal of game " + id, moveFailed);
+      }
+      return null;
+    }
+  }
+
+  // ----- Games -----
+  public Game create() {
+    if (!reserve())
+      throw new IllegalStateException("The maximum number of games are already running");
+
+    String id = UUID.randomUUID().toString();
+    Game game;
+    try {
+      game = newGame(id);
+    } catch (RuntimeException e) {
+      slots.decrementAndGet();
+      throw e;
+    }
+    games.put(id, game);
+    creationListeners.forEach(listener -> listener.accept(game));
+    return game;
+  }
+
+  /** Takes a slot for a new game, or returns {@code false} if every slot is taken. */
+  private boolean reserve() {
+    int max = template.getLeague().getMaxGames();
+    while (true) {
+      int taken = slots.get();
+      if (taken >= max) return false;
+      if (slots.compareAndSet(taken, taken + 1)) return true;
+    }
+  }
+
+  public Game get(String id) {
+    return id == null ? null : games.get(id);
+  }
+
+  public Game getDefault() {
+    return defaultGame;
+  }
+
+  /**
+   * The game with {@code id}, or the default game when no id is given.
+   *
+   * @throws NoSuchElementException if there is no game with that id
+   */
+  public Game resolve(String id) {
+    if (id == null) return defaultGame;
+
+    Game game = games.get(id);
+    if (game == null) throw new NoSuchElementException("Cannot find game");
+    return game;
+  }
+
+  public Collection<Game> getGames() {
+    return Collections.unmodifiableCollection(games.values());
+  }
+
+  public int size() {
+    return games.size();
+  }
+
+  /** Calls {@code listener} with every game hosted now, and with each game created later. */
+  public void onGame(Consumer<Game> listener) {
+    creationListeners.add(listener);
+    games.values().forEach(listener);
+  }
+
+  // ----- Eviction -----
+  public void onEvict(Consumer<Game> listener) {
+    evictionListeners.add(listener);
+  }
+
+  public boolean evict(String id) {
+    if (Game.DEFAULT_ID.equals(id))
+      throw new IllegalArgumentException("Cannot evict the default game");
+
+    Game game = games.remove(id);
+    endedSince.remove(id);
+    if (game == null) return false;
+
+    slots.decrementAndGet();
+    game.shutdown();
+    if (game.getJournalDir() != null) WriteAheadLog.delete(game.getJournalDir());
+    evictionListeners.forEach(listener -> listener.accept(game));
+    return true;
+  }
+
+  public HashedWheelTimer getTimer() {
+    return timer;
+  }
+
+  private void sweep() {
+    // Shutting a game down waits on its loop, so keep that off the timer thread
+    Thread.ofVirtual()
+        .name("game-sweeper")
+        .start(
+            () -> {
+              try {
+                evictEnded();
+              } finally {
+                try {
+                  timer.schedule(this::sweep, SWEEP_SECONDS, TimeUnit.SECONDS);
+                } catch (IllegalStateException stopped) {
+                  // The registry has been shut down
+                }
+              }
+            });
+  }
+
+  void evictEnded() {
+    long now = System.currentTimeMillis();
+    long evictAfter = TimeUnit.SECONDS.toMillis(template.getLeague().getEvictAfter());
+
+    for (Game game : games.values()) {
+      if (game == defaultGame) continue;
+
+      if (game.getState() != Game.State.ENDED) {
+        endedSince.remove(game.getId());
+        continue;
+      }
+
+      long since = endedSince.computeIfAbsent(game.getId(), id -> now);
+      if (now - since >= evictAfter) evict(game.getId());
+    }
+  }
+
+  public void shutdown() {
+    timer.stop();
+    games.values().forEach(Game::shutdown);
+  }
+}
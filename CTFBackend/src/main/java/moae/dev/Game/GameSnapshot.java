@@ -0,0 +1,47 @@
+package moae.dev.Game;
+
+import java.util.UUID;
+
+/**
+ * Immutable view of a game's stage, published by the command loop after each batch of commands.
+ * Everything that reads the game from outside the loop reads one of these.
+ */
+public record GameSnapshot(
+    long version,
+    Game.State state,
+    boolean paused,
+    boolean emergency,
+    long remaining,
+    long stageDuration,
+    long stageStartEpoch,
+    UUID winner) {
+
+  public boolean running() {
+    return state == Game.State.GRACE_PERIOD
+        || state == Game.State.SCOUT_PERIOD
+        || state == Game.State.FFA_PERIOD;
+  }
+
+  /** Whether players can reach other teams' flags: scouting or free for all, and not paused. */
+  public boolean capturing() {
+    return !paused && (state == Game.State.SCOUT_PERIOD || state == Game.State.FFA_PERIOD);
+  }
+
+  public boolean frozen() {
+    return paused && state == Game.State.GRACE_PERIOD && remaining <= 0;
+  }
+
+  public boolean flagsRevealed() {
+    return state == Game.State.FFA_PERIOD || state == Game.State.ENDED;
+  }
+
+  /** Time left in the stage at {@code now}; {@code waiting} is reported before the game starts. */
+  public long timeRemaining(long now, long waiting) {
+    if (paused) return Math.max(0L, remaining);
+    return switch (state) {
+      case WAITING_TO_START -> waiting;
+      case ENDED -> 0L;
+      default -> Math.max(0L, stageDuration - (now - stageStartEpoch));
+    };
+  }
+}
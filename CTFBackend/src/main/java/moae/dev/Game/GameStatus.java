@@ -0,0 +1,17 @@
+package moae.dev.Game;
+
+import moae.dev.Server.AppConfig;
+
+import java.util.List;
+
+/**
+ * A game as {@code /game/status} and state snapshots show it: {@code duration} milliseconds left in
+ * the stage of {@code snapshot}. It refers to the game's players and teams rather than copying
+ * them; {@link GameModule} writes it straight to the output, hiding flags until they are revealed.
+ */
+public record GameStatus(
+    GameSnapshot snapshot,
+    long duration,
+    List<Player> players,
+    List<Team> teams,
+    AppConfig.GameConfig settings) {}
@@ -0,0 +1,334 @@
+package moae.dev.Game;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+
+/**
+ * The latest position of every player who has shared one. Positions are in map percent, like
+ * flags: 0 to 100 across and down the map.
+ *
+ * <p>Each team has a uniform grid of {@code cells} by {@code cells} buckets, and a player sits in
+ * the bucket their position falls in, so a search near a point only looks at the buckets it
+ * overlaps. All of it lives in parallel primitive arrays indexed by a slot a player is given when
+ * they first report. Buckets are doubly linked lists threaded through those arrays, so moving a
+ * player is a few array writes and an update allocates nothing; the arrays only grow when a new
+ * player reports.
+ *
+ * <p>Players whose position changed since the last {@link #drain()} are remembered, so their
+ * teammates can be sent them together.
+ *
+ * <p>Players leave the game before they leave the index, so a report that looked them up just
+ * before they left could otherwise give them a slot again after {@link #remove} ran. A player is
+ * only given a slot if {@code members} still counts them in the game, checked under the same lock
+ * {@link #remove} and {@link #clear} take.
+ */
+public final class LocationIndex {
+  /** A player's position, and when it was reported in epoch milliseconds. */
+  public record Position(UUID player, float x, float y, long time) {}
+
+  public static final float MAP_SIZE = 100f;
+  private static final int NONE = -1;
+  private static final int INITIAL_CAPACITY = 64;
+
+  private final ReentrantLock lock = new ReentrantLock();
+  private final int cells;
+  private final Predicate<UUID> members;
+  private final Map<UUID, Integer> slots = new HashMap<>();
+  private final Map<UUID, Integer> teams = new HashMap<>();
+  private UUID[] teamIds = new UUID[0];
+
+  // Per slot
+  private UUID[] players = new UUID[INITIAL_CAPACITY];
+  private int[] team = new int[INITIAL_CAPACITY];
+  private float[] xs = new float[INITIAL_CAPACITY];
+  private float[] ys = new float[INITIAL_CAPACITY];
+  private long[] times = new long[INITIAL_CAPACITY];
+  private int[] bucket = new int[INITIAL_CAPACITY];
+  private int[] next = new int[INITIAL_CAPACITY];
+  private int[] prev = new int[INITIAL_CAPACITY];
+  private boolean[] dirty = new boolean[INITIAL_CAPACITY];
+
+  // Slots given out, and those freed by players who left
+  private int used;
+  private int[] free = new int[INITIAL_CAPACITY];
+  private int freeCount;
+
+  // Slots changed since the last drain, in the order they first changed
+  private int[] changed = new int[INITIAL_CAPACITY];
+  private int changedCount;
+
+  // The first slot in each bucket; team t's buckets start at t * cells * cells
+  private int[] heads = new int[0];
+
+  /** An index that takes every player who reports. */
+  public LocationIndex(int cells) {
+    this(cells, player -> true);
+  }
+
+  /** An index that only takes players {@code members} counts in the game. */
+  public LocationIndex(int cells, Predicate<UUID> members) {
+    if (cells < 1) throw new IllegalArgumentException("The grid needs at least one cell");
+    this.cells = cells;
+    this.members = members;
+  }
+
+  /**
+   * Moves {@code player}, of {@code team}, to ({@code x}, {@code y}), clamped to the map. A player
+   * reporting for the first time is given a slot. Returns the player's slot, which they keep until
+   * they leave, or -1 if they are no longer in the game.
+   */
+  public int update(UUID player, UUID team, float x, float y, long time) {
+    x = clamp(x);
+    y = clamp(y);
+
+    lock.lock();
+    try {
+      Integer found = slots.get(player);
+      if (found == null && !members.test(player)) return NONE;
+      int slot = found != null ? found : add(player, team);
+
+      int target = bucketOf(this.team[slot], x, y);
+      if (target != bucket[slot]) {
+        unlink(slot);
+        link(slot, target);
+      }
+      xs[slot] = x;
+      ys[slot] = y;
+      times[slot] = time;
+
+      if (!dirty[slot]) {
+        dirty[slot] = true;
+        changed[changedCount++] = slot;
+      }
+      return slot;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private int add(UUID player, UUID teamId) {
+    Integer found = teams.get(teamId);
+    int teamSlot = found != null ? found : addTeam(teamId);
+
+    int slot;
+    if (freeCount > 0) {
+      slot = free[--freeCount];
+    } else {
+      if (used == players.length) grow();
+      slot = used++;
+    }
+    slots.put(player, slot);
+    players[slot] = player;
+    team[slot] = teamSlot;
+    bucket[slot] = NONE;
+    dirty[slot] = false;
+    return slot;
+  }
+
+  private int addTeam(UUID teamId) {
+    int teamSlot = teamIds.length;
+    teamIds = Arrays.copyOf(teamIds, teamSlot + 1);
+    teamIds[teamSlot] = teamId;
+    teams.put(teamId, teamSlot);
+
+    int start = heads.length;
+    heads = Arrays.copyOf(heads, start + cells * cells);
+    Arrays.fill(heads, start, heads.length, NONE);
+    return teamSlot;
+  }
+
+  private void grow() {
+    int capacity = players.length * 2;
+    players = Arrays.copyOf(players, capacity);
+    team = Arrays.copyOf(team, capacity);
+    xs = Arrays.copyOf(xs, capacity);
+    ys = Arrays.copyOf(ys, capacity);
+    times = Arrays.copyOf(times, capacity);
+    bucket = Arrays.copyOf(bucket, capacity);
+    next = Arrays.copyOf(next, capacity);
+    prev = Arrays.copyOf(prev, capacity);
+    dirty = Arrays.copyOf(dirty, capacity);
+    free = Arrays.copyOf(free, capacity);
+    changed = Arrays.copyOf(changed, capacity);
+  }
+
+  private void link(int slot, int target) {
+    int head = heads[target];
+    next[slot] = head;
+    prev[slot] = NONE;
+    if (head != NONE) prev[head] = slot;
+    heads[target] = slot;
+    bucket[slot] = target;
+  }
+
+  private void unlink(int slot) {
+    int from = bucket[slot];
+    if (from == NONE) return;
+    if (prev[slot] != NONE) {
+      next[prev[slot]] = next[slot];
+    } else {
+      heads[from] = next[slot];
+    }
+    if (next[slot] != NONE) prev[next[slot]] = prev[slot];
+    bucket[slot] = NONE;
+  }
+
+  private int cell(float coordinate) {
+    return Math.min(cells - 1, (int) (coordinate * cells / MAP_SIZE));
+  }
+
+  private int bucketOf(int teamSlot, float x, float y) {
+    return teamSlot * cells * cells + cell(y) * cells + cell(x);
+  }
+
+  static float clamp(float coordinate) {
+    // NaN compares false both ways, and ends up at 0
+    return coordinate > MAP_SIZE ? MAP_SIZE : coordinate >= 0 ? coordinate : 0;
+  }
+
+  /** Forgets {@code player}, who left the game. */
+  public void remove(UUID player) {
+    lock.lock();
+    try {
+      Integer slot = slots.remove(player);
+      if (slot == null) return;
+      unlink(slot);
+      players[slot] = null;
+      if (dirty[slot]) {
+        dirty[slot] = false;
+        for (int i = 0; i < changedCount; i++) {
+          if (changed[i] == slot) {
+            changed[i] = changed[--changedCount];
+            break;
+          }
+        }
+      }
+      free[freeCount++] = slot;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /** Forgets every position, as when the game is hard reset. */
+  public void clear() {
+    lock.lock();
+    try {
+      slots.clear();
+      Arrays.fill(players, 0, used, null);
+      Arrays.fill(dirty, 0, used, false);
+      Arrays.fill(heads, NONE);
+      used = 0;
+      freeCount = 0;
+      changedCount = 0;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Copies the players of {@code team} within {@code radius} of ({@code x}, {@code y}) into {@code
+   * into}, or of every team if {@code team} is null, and returns how many there were. Only as many
+   * as fit are copied.
+   */
+  public int near(UUID team, float x, float y, float radius, UUID[] into) {
+    float squared = radius * radius;
+    int fromX = cell(clamp(x - radius));
+    int toX = cell(clamp(x + radius));
+    int fromY = cell(clamp(y - radius));
+    int toY = cell(clamp(y + radius));
+
+    lock.lock();
+    try {
+      int found = 0;
+      int firstTeam = 0;
+      int lastTeam = teamIds.length - 1;
+      if (team != null) {
+        Integer teamSlot = teams.get(team);
+        if (teamSlot == null) return 0;
+        firstTeam = teamSlot;
+        lastTeam = teamSlot;
+      }
+
+      for (int t = firstTeam; t <= lastTeam; t++) {
+        for (int cy = fromY; cy <= toY; cy++) {
+          for (int cx = fromX; cx <= toX; cx++) {
+            for (int slot = heads[t * cells * cells + cy * cells + cx];
+                slot != NONE;
+                slot = next[slot]) {
+              float dx = xs[slot] - x;
+              float dy = ys[slot] - y;
+              if (dx * dx + dy * dy > squared) continue;
+              if (found < into.length) into[found] = players[slot];
+              found++;
+            }
+          }
+        }
+      }
+      return found;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /** The last position {@code player} reported, or {@code null} if they haven't. */
+  public Position get(UUID player) {
+    lock.lock();
+    try {
+      Integer slot = slots.get(player);
+      return slot == null ? null : position(slot);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private Position position(int slot) {
+    return new Position(players[slot], xs[slot], ys[slot], times[slot]);
+  }
+
+  /** The positions that changed since the last call, by team. */
+  public Map<UUID, List<Position>> drain() {
+    lock.lock();
+    try {
+      Map<UUID, List<Position>> changes = new LinkedHashMap<>();
+      for (int i = 0; i < changedCount; i++) {
+        int slot = changed[i];
+        dirty[slot] = false;
+        changes.computeIfAbsent(teamIds[team[slot]], t -> new ArrayList<>()).add(position(slot));
+      }
+      changedCount = 0;
+      return changes;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /** Keeps the index in step with the game: players who leave, or a hard reset, are forgotten. */
+  void apply(List<GameEvent> events) {
+    for (GameEvent event : events) {
+      switch (event) {
+        case GameEvent.PlayerLeft left -> remove(left.player().getID());
+        case GameEvent.GameReset reset when reset.hard() -> clear();
+        default -> {
+          // Nothing else moves anyone
+        }
+      }
+    }
+  }
+
+  /** Players with a known position. */
+  public int size() {
+    lock.lock();
+    try {
+      return slots.size();
+    } finally {
+      lock.unlock();
+    }
+  }
+}
@@ -0,0 +1,52 @@
+package moae.dev.Game;
+
+import moae.dev.Server.AppConfig;
+
+import java.util.List;
+
+/**
+ * Where flags can be hidden and players can be: inside the boundary, if one is configured, and
+ * outside every no-go zone. Without a boundary the whole map is allowed.
+ */
+public final class PlayArea {
+  private final Polygon boundary;
+  private final Polygon[] noGo;
+
+  public PlayArea(Polygon boundary, List<Polygon> noGo) {
+    this.boundary = boundary;
+    this.noGo = noGo.toArray(Polygon[]::new);
+  }
+
+  /** The area described by {@code config}, or the whole map if it is {@code null}. */
+  public static PlayArea of(AppConfig.AreaConfig config) {
+    if (config == null) return new PlayArea(null, List.of());
+    List<List<Float>> points = config.getBoundary();
+    Polygon boundary = points == null || points.isEmpty() ? null : polygon(points);
+    List<List<List<Float>>> zones = config.getNoGo() == null ? List.of() : config.getNoGo();
+    return new PlayArea(boundary, zones.stream().map(PlayArea::polygon).toList());
+  }
+
+  private static Polygon polygon(List<List<Float>> points) {
+    float[] xs = new float[points.size()];
+    float[] ys = new float[points.size()];
+    for (int i = 0; i < points.size(); i++) {
+      List<Float> point = points.get(i);
+      Float x = point == null || point.size() != 2 ? null : point.get(0);
+      Float y = x == null ? null : point.get(1);
+      if (y == null)
+        throw new IllegalArgumentException("Each point of the play area needs an x and a y");
+      xs[i] = x;
+      ys[i] = y;
+    }
+    return new Polygon(xs, ys);
+  }
+
+  /** Whether ({@code x}, {@code y}), in map percent, is in bounds. */
+  public boolean contains(float x, float y) {
+    if (boundary != null && !boundary.contains(x, y)) return false;
+    for (Polygon zone : noGo) {
+      if (zone.contains(x, y)) return false;
+    }
+    return true;
+  }
+}
@@ -1,6 +1,5 @@
 package moae.dev.Game;
 
-import java.util.Map;
 import java.util.UUID;
 
 public class Player {
@@ -10,7 +9,11 @@ public class Player {
   private final boolean auth;
 
   public Player(String name, UUID team, boolean auth) {
-    this.id = UUID.randomUUID();
+    this(UUID.randomUUID(), name, team, auth);
+  }
+
+  public Player(UUID id, String name, UUID team, boolean auth) {
+    this.id = id;
     this.name = name;
     this.team = team;
     this.auth = auth;
@@ -32,14 +35,6 @@ public class Player {
     return this.auth;
   }
 
-  public Map<String, Object> toMap() {
-    return Map.of(
-        "id", id,
-        "name", name,
-        "team", team,
-        "auth", auth);
-  }
-
   public boolean isOnTeam(UUID cTeam) {
     return this.team.equals(cTeam);
   }
@@ -0,0 +1,99 @@
+package moae.dev.Game;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Concurrent index of the players and teams in a game. Lookups by player id, player name and team
+ * are constant time; the ordered lists are only used for iteration and are exposed read-only.
+ */
+public class PlayerRegistry {
+  private final Map<UUID, Player> playersById = new ConcurrentHashMap<>();
+  private final Map<String, Player> playersByName = new ConcurrentHashMap<>();
+  private final Map<UUID, Team> teamsById = new ConcurrentHashMap<>();
+  private final Map<String, Team> teamsByName = new ConcurrentHashMap<>();
+
+  private final List<Player> players = new CopyOnWriteArrayList<>();
+  private final List<Team> teams = new CopyOnWriteArrayList<>();
+
+  private final List<Player> playersView = Collections.unmodifiableList(players);
+  private final List<Team> teamsView = Collections.unmodifiableList(teams);
+
+  // ----- Players -----
+  public Player getPlayer(UUID id) {
+    return id == null ? null : playersById.get(id);
+  }
+
+  public boolean containsPlayer(UUID id) {
+    return id != null && playersById.containsKey(id);
+  }
+
+  /**
+   * Adds a player, failing if a player with the same name (ignoring case) already exists or the
+   * player's team is unknown.
+   */
+  public void addPlayer(Player player) {
+    if (!teamsById.containsKey(player.getTeam()))
+      throw new IllegalArgumentException("Invalid team choice");
+
+    if (playersByName.putIfAbsent(nameKey(player.getName()), player) != null)
+      throw new IllegalArgumentException(
+          "A player with the name " + player.getName() + " already exists in the game");
+
+    playersById.put(player.getID(), player);
+    players.add(player);
+  }
+
+  public Player removePlayer(UUID id) {
+    Player removed = id == null ? null : playersById.remove(id);
+    if (removed == null) return null;
+
+    playersByName.remove(nameKey(removed.getName()), removed);
+    players.remove(removed);
+    return removed;
+  }
+
+  public void clearPlayers() {
+    playersById.clear();
+    playersByName.clear();
+    players.clear();
+  }
+
+  public boolean isPlayerOnTeam(UUID playerId, UUID teamId) {
+    Player player = getPlayer(playerId);
+    return player != null && player.isOnTeam(teamId);
+  }
+
+  public List<Player> getPlayers() {
+    return playersView;
+  }
+
+  public int playerCount() {
+    return playersById.size();
+  }
+
+  // ----- Teams -----
+  public Team getTeam(UUID id) {
+    return id == null ? null : teamsById.get(id);
+  }
+
+  public boolean containsTeam(UUID id) {
+    return id != null && teamsById.containsKey(id);
+  }
+
+  public boolean addTeam(Team team) {
+    if (teamsByName.putIfAbsent(team.getName(), team) != null) return false;
+
+    teamsById.put(team.getID(), team);
+    return teams.add(team);
+  }
+
+  public List<Team> getTeams() {
+    return teamsView;
+  }
+
+  private static String nameKey(String name) {
+    return name.toLowerCase(Locale.ROOT);
+  }
+}
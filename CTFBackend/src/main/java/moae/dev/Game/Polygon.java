@@ -0,0 +1,188 @@
+package moae.dev.Game;
+
+import java.util.Arrays;
+
+/**
+ * A simple polygon, such as a park boundary, prepared so that testing a point takes the same time
+ * however many vertices it has.
+ *
+ * <p>The polygon's bounding box is divided into a grid of cells, as many across as the polygon has
+ * vertices up to 512. Each cell records whether its centre is inside and which edges cross it.
+ * A point in a cell no edge crosses is inside exactly when the centre is; otherwise the edges
+ * between the point and the centre are counted, each one flipping the answer. Edges are short
+ * next to the polygon, so a cell holds a handful of them at most.
+ */
+public final class Polygon {
+  private static final byte INSIDE = 1;
+  private static final byte CROSSED = 2;
+  private static final int MIN_CELLS = 8;
+  private static final int MAX_CELLS = 512;
+
+  private final float[] xs;
+  private final float[] ys;
+  private final float minX;
+  private final float minY;
+  private final float maxX;
+  private final float maxY;
+  private final int cells;
+  private final float cellWidth;
+  private final float cellHeight;
+
+  // Per cell: INSIDE if its centre is, CROSSED if edges cross it
+  private final byte[] status;
+  // The edges crossing cell c are edges[start[c]..start[c + 1]); edge i runs from vertex i to i + 1
+  private final int[] start;
+  private final int[] edges;
+
+  /** The polygon through ({@code xs[i]}, {@code ys[i]}) in order, closed back to the first. */
+  public Polygon(float[] xs, float[] ys) {
+    if (xs.length != ys.length)
+      throw new IllegalArgumentException("Every point needs an x and a y");
+    if (xs.length < 3) throw new IllegalArgumentException("A polygon needs at least three points");
+    this.xs = xs.clone();
+    this.ys = ys.clone();
+
+    float left = Float.MAX_VALUE;
+    float top = Float.MAX_VALUE;
+    float right = -Float.MAX_VALUE;
+    float bottom = -Float.MAX_VALUE;
+    for (int i = 0; i < xs.length; i++) {
+      if (!Float.isFinite(xs[i]) || !Float.isFinite(ys[i]))
+        throw new IllegalArgumentException("Polygon points must be finite");
+      left = Math.min(left, xs[i]);
+      top = Math.min(top, ys[i]);
+      right = Math.max(right, xs[i]);
+      bottom = Math.max(bottom, ys[i]);
+    }
+    if (left == right || top == bottom)
+      throw new IllegalArgumentException("A polygon must enclose an area");
+    minX = left;
+    minY = top;
+    maxX = right;
+    maxY = bottom;
+
+    cells = Math.clamp(xs.length, MIN_CELLS, MAX_CELLS);
+    cellWidth = (maxX - minX) / cells;
+    cellHeight = (maxY - minY) / cells;
+    status = new byte[cells * cells];
+    start = new int[cells * cells + 1];
+    edges = bucketEdges();
+    classifyCentres();
+  }
+
+  /** Whether ({@code x}, {@code y}) is inside. Points on an edge may go either way. */
+  public boolean contains(float x, float y) {
+    if (!(x >= minX && x <= maxX && y >= minY && y <= maxY)) return false;
+    int cx = Math.min(cells - 1, (int) ((x - minX) / cellWidth));
+    int cy = Math.min(cells - 1, (int) ((y - minY) / cellHeight));
+    int cell = cy * cells + cx;
+
+    boolean inside = (status[cell] & INSIDE) != 0;
+    if ((status[cell] & CROSSED) == 0) return inside;
+
+    double centreX = minX + (cx + 0.5) * cellWidth;
+    double centreY = minY + (cy + 0.5) * cellHeight;
+    for (int i = start[cell]; i < start[cell + 1]; i++) {
+      int a = edges[i];
+      int b = a + 1 == xs.length ? 0 : a + 1;
+      if (crosses(x, y, centreX, centreY, xs[a], ys[a], xs[b], ys[b])) inside = !inside;
+    }
+    return inside;
+  }
+
+  /**
+   * Whether segment pq crosses segment ab. A point exactly on the other segment's line counts as
+   * being on its negative side, so a vertex the segment passes through is counted once for the two
+   * edges that share it when they are on opposite sides, and not at all when they touch.
+   */
+  private static boolean crosses(
+      double px, double py, double qx, double qy, double ax, double ay, double bx, double by) {
+    boolean a = side(px, py, qx, qy, ax, ay);
+    boolean b = side(px, py, qx, qy, bx, by);
+    if (a == b) return false;
+    return side(ax, ay, bx, by, px, py) != side(ax, ay, bx, by, qx, qy);
+  }
+
+  private static boolean side(double ax, double ay, double bx, double by, double px, double py) {
+    return (bx - ax) * (py - ay) - (by - ay) * (px - ax) > 0;
+  }
+
+  private int column(double x) {
+    return Math.clamp((int) Math.floor((x - minX) / cellWidth), 0, cells - 1);
+  }
+
+  private int row(double y) {
+    return Math.clamp((int) Math.floor((y - minY) / cellHeight), 0, cells - 1);
+  }
+
+  /** Fills in {@code start} and returns the edges crossing each cell, bucketed by cell. */
+  private int[] bucketEdges() {
+    int[] pairCells = new int[xs.length * 4];
+    int[] pairEdges = new int[xs.length * 4];
+    int pairs = 0;
+    // Slightly wider than the edge, so rounding can't leave out a cell it only just crosses
+    double slack = Math.min(cellWidth, cellHeight) * 1e-4;
+
+    for (int edge = 0; edge < xs.length; edge++) {
+      int next = edge + 1 == xs.length ? 0 : edge + 1;
+      double ax = xs[edge];
+      double ay = ys[edge];
+      double bx = xs[next];
+      double by = ys[next];
+      double top = Math.min(ay, by);
+      double bottom = Math.max(ay, by);
+
+      for (int r = row(top - slack); r <= row(bottom + slack); r++) {
+        // The part of the edge within this row
+        double from = Math.max(top, minY + (double) r * cellHeight);
+        double to = Math.min(bottom, minY + (r + 1.0) * cellHeight);
+        double x1 = ay == by ? ax : ax + (from - ay) * (bx - ax) / (by - ay);
+        double x2 = ay == by ? bx : ax + (to - ay) * (bx - ax) / (by - ay);
+        int first = column(Math.min(x1, x2) - slack);
+        int last = column(Math.max(x1, x2) + slack);
+
+        for (int c = first; c <= last; c++) {
+          if (pairs == pairCells.length) {
+            pairCells = Arrays.copyOf(pairCells, pairs * 2);
+            pairEdges = Arrays.copyOf(pairEdges, pairs * 2);
+          }
+          pairCells[pairs] = r * cells + c;
+          pairEdges[pairs] = edge;
+          pairs++;
+        }
+      }
+    }
+
+    for (int i = 0; i < pairs; i++) {
+      start[pairCells[i] + 1]++;
+      status[pairCells[i]] = CROSSED;
+    }
+    for (int c = 0; c < cells * cells; c++) start[c + 1] += start[c];
+    int[] bucketed = new int[pairs];
+    int[] filled = Arrays.copyOf(start, cells * cells);
+    for (int i = 0; i < pairs; i++) bucketed[filled[pairCells[i]]++] = pairEdges[i];
+    return bucketed;
+  }
+
+  /** Marks the cells whose centre is inside, casting a ray along the centres of each row. */
+  private void classifyCentres() {
+    double[] crossings = new double[xs.length];
+    for (int r = 0; r < cells; r++) {
+      double y = minY + (r + 0.5) * cellHeight;
+      int count = 0;
+      for (int a = 0; a < xs.length; a++) {
+        int b = a + 1 == xs.length ? 0 : a + 1;
+        if ((ys[a] > y) == (ys[b] > y)) continue;
+        crossings[count++] = xs[a] + (y - ys[a]) * (xs[b] - xs[a]) / (ys[b] - ys[a]);
+      }
+      Arrays.sort(crossings, 0, count);
+
+      int passed = 0;
+      for (int c = 0; c < cells; c++) {
+        double x = minX + (c + 0.5) * cellWidth;
+        while (passed < count && crossings[passed] < x) passed++;
+        if (passed % 2 == 1) status[r * cells + c] |= INSIDE;
+      }
+    }
+  }
+}
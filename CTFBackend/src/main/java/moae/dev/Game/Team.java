@@ -1,27 +1,38 @@
 package moae.dev.Game;
 
 import moae.dev.Sockets.SocketConnectionHandler;
+import moae.dev.Utils.ChatLog;
 import moae.dev.Utils.ChatMessage;
 import moae.dev.Utils.MessagePage;
-import moae.dev.Utils.MessageUtils;
 
 import java.util.*;
+import java.util.function.IntSupplier;
 
 public class Team {
+  /** The team as it is written out; the flag is only shown if {@code revealed}. */
+  public record View(Team team, boolean revealed) {}
+
   private final UUID id;
   private final String name;
   private final String color;
-  private Flag flag;
-  private final List<ChatMessage> messages;
+  private volatile Flag flag;
+  private final ChatLog messages;
   private SocketConnectionHandler webSocketHandler;
 
   public Team(String name, String color) {
+    this(name, color, new ChatLog());
+  }
+
+  public Team(String name, String color, ChatLog messages) {
+    this(UUID.randomUUID(), name, color, messages);
+  }
 
-    this.id = UUID.randomUUID();
+  public Team(UUID id, String name, String color, ChatLog messages) {
+    this.id = id;
     this.name = name;
     this.color = color;
     this.flag = null;
-    this.messages = new ArrayList<ChatMessage>();
+    this.messages = messages;
   }
 
   public UUID getID() {
@@ -36,21 +47,8 @@ public class Team {
     return this.color;
   }
 
-  public Map<String, Object> toMap(boolean revealed) {
-
-    Map<String, Object> result = new HashMap<>();
-    result.put("id", this.id);
-    result.put("name", this.name);
-    result.put("color", this.color);
-
-    if (flag == null || !revealed) {
-      result.put("flag", null);
-      result.put("registered", flag != null);
-    } else {
-      result.put("flag", flag.toMap());
-      result.put("registered", flag != null);
-    }
-    return result;
+  public View view(boolean revealed) {
+    return new View(this, revealed);
   }
 
   public void setWebSocketHandler(SocketConnectionHandler handler) {
@@ -63,26 +61,58 @@ public class Team {
 
   public void sendMessage(Player sender, String content, Integer id) {
     ChatMessage msg = new ChatMessage(content, sender, id, new Date(), this.getID());
-    messages.add(msg);
+    messages.append(msg);
+    broadcast(msg);
+  }
+
+  /** Stores a message, without sending it, whose id is drawn from {@code ids} as it is stored. */
+  public ChatMessage appendMessage(Player sender, String content, IntSupplier ids) {
+    return messages.append(
+        id -> new ChatMessage(content, sender, id, new Date(), this.getID()), ids);
+  }
+
+  /** Stores a message that already has its id, such as one restored from a journal. */
+  public void appendMessage(ChatMessage msg) {
+    messages.append(msg);
+  }
 
+  private void broadcast(ChatMessage msg) {
     if (webSocketHandler != null) {
       webSocketHandler.broadcastMessage(msg);
     }
   }
 
   public MessagePage getMessages(Integer start, Integer count) {
-    return MessageUtils.getMessages(start, count, messages);
+    return messages.pageBefore(start, count);
+  }
+
+  public MessagePage getMessagesAfter(Integer after, Integer count) {
+    return messages.pageAfter(after, count);
   }
 
   public void reset() {
-    messages.clear();
+    clearMessages();
     flag = null;
   }
 
+  /** Drops the team's chat, as a reset does, but keeps its flag. */
+  void clearMessages() {
+    messages.clear();
+  }
+
+  /** Releases the chat journal, once the team's game has shut down. */
+  void close() {
+    messages.close();
+  }
+
   public void registerFlag(int x, int y) {
     this.flag = new Flag(x, y);
   }
 
+  public Flag getFlag() {
+    return flag;
+  }
+
   public boolean isRegistered() {
     return flag != null;
   }
@@ -0,0 +1,22 @@
+package moae.dev.Requests;
+
+import jakarta.validation.constraints.NotNull;
+
+public class CreateGameRequest {
+  @NotNull(message = "password is required")
+  private String password;
+
+  public CreateGameRequest() {}
+
+  public CreateGameRequest(String password) {
+    this.password = password;
+  }
+
+  public String getPassword() {
+    return password;
+  }
+
+  public void setPassword(String password) {
+    this.password = password;
+  }
+}
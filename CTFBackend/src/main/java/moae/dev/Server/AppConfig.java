@@ -7,7 +7,6 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.PropertySource;
 
 import java.util.List;
-import java.util.Map;
 
 @Configuration
 @PropertySource(value = "classpath:config.yml")
@@ -15,6 +14,16 @@ import java.util.Map;
 public class AppConfig {
   private GameConfig game;
   private List<TeamConfig> teams;
+  private ChatConfig chat = new ChatConfig();
+  private LeagueConfig league = new LeagueConfig();
+  private TimerConfig timer = new TimerConfig();
+  private SocketConfig sockets = new SocketConfig();
+  private PushConfig push = new PushConfig();
+  private PersistenceConfig persistence = new PersistenceConfig();
+  private TokenConfig tokens = new TokenConfig();
+  private LocationConfig locations = new LocationConfig();
+  private AreaConfig area = new AreaConfig();
+  private ThreadConfig threads = new ThreadConfig();
 
   public GameConfig getGame() {
     return game;
@@ -32,6 +41,108 @@ public class AppConfig {
     this.teams = teams;
   }
 
+  public ChatConfig getChat() {
+    return chat;
+  }
+
+  public void setChat(ChatConfig chat) {
+    this.chat = chat;
+  }
+
+  public LeagueConfig getLeague() {
+    return league;
+  }
+
+  public void setLeague(LeagueConfig league) {
+    this.league = league;
+  }
+
+  public TimerConfig getTimer() {
+    return timer;
+  }
+
+  public void setTimer(TimerConfig timer) {
+    this.timer = timer;
+  }
+
+  public SocketConfig getSockets() {
+    return sockets;
+  }
+
+  public void setSockets(SocketConfig sockets) {
+    this.sockets = sockets;
+  }
+
+  public PushConfig getPush() {
+    return push;
+  }
+
+  public void setPush(PushConfig push) {
+    this.push = push;
+  }
+
+  public PersistenceConfig getPersistence() {
+    return persistence;
+  }
+
+  public void setPersistence(PersistenceConfig persistence) {
+    this.persistence = persistence;
+  }
+
+  public TokenConfig getTokens() {
+    return tokens;
+  }
+
+  public void setTokens(TokenConfig tokens) {
+    this.tokens = tokens;
+  }
+
+  public LocationConfig getLocations() {
+    return locations;
+  }
+
+  public void setLocations(LocationConfig locations) {
+    this.locations = locations;
+  }
+
+  public AreaConfig getArea() {
+    return area;
+  }
+
+  public void setArea(AreaConfig area) {
+    this.area = area;
+  }
+
+  public ThreadConfig getThreads() {
+    return threads;
+  }
+
+  public void setThreads(ThreadConfig threads) {
+    this.threads = threads;
+  }
+
+
+  /** An independent copy, so each hosted game can change its settings without affecting others. */
+  public AppConfig copy() {
+    AppConfig copy = new AppConfig();
+
+    copy.setGame(game.copy());
+
+    // Teams, chat, league, timer, socket, push, persistence, location, area and thread settings
+    // never change at runtime
+    copy.setTeams(teams);
+    copy.setChat(chat);
+    copy.setLeague(league);
+    copy.setTimer(timer);
+    copy.setSockets(sockets);
+    copy.setPush(push);
+    copy.setPersistence(persistence);
+    copy.setLocations(locations);
+    copy.setArea(area);
+    copy.setThreads(threads);
+    return copy;
+  }
+
   public static class GameConfig {
     private int maxPlayers;
     private int minPlayers;
@@ -42,6 +153,19 @@ public class AppConfig {
     private int scoutTime;
     private int ffaTime;
 
+    public GameConfig copy() {
+      GameConfig copy = new GameConfig();
+      copy.setMaxPlayers(maxPlayers);
+      copy.setMinPlayers(minPlayers);
+      copy.setMinPlayersPerTeam(minPlayersPerTeam);
+      copy.setMaxPlayersPerTeam(maxPlayersPerTeam);
+      copy.setMaxTeams(maxTeams);
+      copy.setGraceTime(graceTime);
+      copy.setScoutTime(scoutTime);
+      copy.setFfaTime(ffaTime);
+      return copy;
+    }
+
     public int getMinPlayers() {
       return minPlayers;
     }
@@ -107,6 +231,304 @@ public class AppConfig {
     }
   }
 
+  public static class ChatConfig {
+    private int retention = -1;
+    private String journalDir;
+
+    /** Messages kept on the heap per channel; older ones live only in the journal. */
+    public int getRetention() {
+      return retention;
+    }
+
+    public void setRetention(int retention) {
+      this.retention = retention;
+    }
+
+    public String getJournalDir() {
+      return journalDir;
+    }
+
+    public void setJournalDir(String journalDir) {
+      this.journalDir = journalDir;
+    }
+  }
+
+  public static class LeagueConfig {
+    private int maxGames = 200;
+    private int evictAfter = 300;
+
+    public int getMaxGames() {
+      return maxGames;
+    }
+
+    public void setMaxGames(int maxGames) {
+      this.maxGames = maxGames;
+    }
+
+    /** Seconds an ended game stays available before it is removed. */
+    public int getEvictAfter() {
+      return evictAfter;
+    }
+
+    public void setEvictAfter(int evictAfter) {
+      this.evictAfter = evictAfter;
+    }
+  }
+
+  public static class TimerConfig {
+    private int tickMillis = 100;
+    private int wheelSize = 512;
+
+    /** Resolution of stage timers; a stage can end up to one tick late. */
+    public int getTickMillis() {
+      return tickMillis;
+    }
+
+    public void setTickMillis(int tickMillis) {
+      this.tickMillis = tickMillis;
+    }
+
+    /** Buckets in the timer wheel. Timers further out than one rotation take extra rotations. */
+    public int getWheelSize() {
+      return wheelSize;
+    }
+
+    public void setWheelSize(int wheelSize) {
+      this.wheelSize = wheelSize;
+    }
+  }
+
+  public static class SocketConfig {
+    private int queueCapacity = 256;
+    private int maxOverflows = 3;
+    private int replayBuffer = 1024;
+    private int coalesceMillis = 0;
+    private boolean compression = true;
+
+    /** Frames waiting to be sent to one session before old chat starts being dropped. */
+    public int getQueueCapacity() {
+      return queueCapacity;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+      this.queueCapacity = queueCapacity;
+    }
+
+    /** Times a session may overflow its queue before it is disconnected. */
+    public int getMaxOverflows() {
+      return maxOverflows;
+    }
+
+    public void setMaxOverflows(int maxOverflows) {
+      this.maxOverflows = maxOverflows;
+    }
+
+    /** State deltas kept for clients that reconnect with {@code ?since=}. */
+    public int getReplayBuffer() {
+      return replayBuffer;
+    }
+
+    public void setReplayBuffer(int replayBuffer) {
+      this.replayBuffer = replayBuffer;
+    }
+
+    /**
+     * How long frames are collected before they are sent together, for sessions that ask for
+     * batches with {@code ?batch=true}; 0 sends every frame as it comes.
+     */
+    public int getCoalesceMillis() {
+      return coalesceMillis;
+    }
+
+    public void setCoalesceMillis(int coalesceMillis) {
+      this.coalesceMillis = coalesceMillis;
+    }
+
+    /** Whether permessage-deflate is accepted from clients that offer it. */
+    public boolean isCompression() {
+      return compression;
+    }
+
+    public void setCompression(boolean compression) {
+      this.compression = compression;
+    }
+  }
+
+  public static class PushConfig {
+    private int maxConcurrent = 32;
+    private int timeoutMillis = 5000;
+    private int maxAttempts = 3;
+    private int backoffMillis = 1000;
+
+    /** Push requests that may be in flight at once across all games. */
+    public int getMaxConcurrent() {
+      return maxConcurrent;
+    }
+
+    public void setMaxConcurrent(int maxConcurrent) {
+      this.maxConcurrent = maxConcurrent;
+    }
+
+    /** How long one push service gets to answer before the attempt counts as failed. */
+    public int getTimeoutMillis() {
+      return timeoutMillis;
+    }
+
+    public void setTimeoutMillis(int timeoutMillis) {
+      this.timeoutMillis = timeoutMillis;
+    }
+
+    /** Attempts per notification, including the first. */
+    public int getMaxAttempts() {
+      return maxAttempts;
+    }
+
+    public void setMaxAttempts(int maxAttempts) {
+      this.maxAttempts = maxAttempts;
+    }
+
+    /** Wait before the first retry; each later retry waits twice as long. */
+    public int getBackoffMillis() {
+      return backoffMillis;
+    }
+
+    public void setBackoffMillis(int backoffMillis) {
+      this.backoffMillis = backoffMillis;
+    }
+  }
+
+  public static class PersistenceConfig {
+    private String dir;
+    private int checkpointEvery = 10000;
+
+    /** Where games and push subscriptions are journaled; blank keeps everything in memory. */
+    public String getDir() {
+      return dir;
+    }
+
+    public void setDir(String dir) {
+      this.dir = dir;
+    }
+
+    public boolean isEnabled() {
+      return dir != null && !dir.isBlank();
+    }
+
+    /** Journaled events between checkpoints. Recovery replays at most this many. */
+    public int getCheckpointEvery() {
+      return checkpointEvery;
+    }
+
+    public void setCheckpointEvery(int checkpointEvery) {
+      this.checkpointEvery = checkpointEvery;
+    }
+  }
+
+  public static class TokenConfig {
+    private int cacheSize = 10000;
+
+    /** Verified tokens remembered until they expire; 0 verifies every request in full. */
+    public int getCacheSize() {
+      return cacheSize;
+    }
+
+    public void setCacheSize(int cacheSize) {
+      this.cacheSize = cacheSize;
+    }
+  }
+
+  public static class ThreadConfig {
+    private boolean virtual = true;
+    private int platformThreads = 200;
+
+    /**
+     * Whether requests, socket sends and push requests run on virtual threads. Turned off, each
+     * has a pool of platform threads instead, as before Java 21.
+     */
+    public boolean isVirtual() {
+      return virtual;
+    }
+
+    public void setVirtual(boolean virtual) {
+      this.virtual = virtual;
+    }
+
+    /** Platform threads sending socket frames for every game, when virtual threads are off. */
+    public int getPlatformThreads() {
+      return platformThreads;
+    }
+
+    public void setPlatformThreads(int platformThreads) {
+      this.platformThreads = platformThreads;
+    }
+  }
+
+  public static class LocationConfig {
+    private int gridCells = 20;
+    private int broadcastMillis = 1000;
+    private float captureRadius = 1;
+    private float proximityRadius = 5;
+
+    /** Cells along each side of the map in the location grid; each covers 100 / gridCells %. */
+    public int getGridCells() {
+      return gridCells;
+    }
+
+    public void setGridCells(int gridCells) {
+      this.gridCells = gridCells;
+    }
+
+    /** The shortest time between two location updates sent to a team. */
+    public int getBroadcastMillis() {
+      return broadcastMillis;
+    }
+
+    public void setBroadcastMillis(int broadcastMillis) {
+      this.broadcastMillis = broadcastMillis;
+    }
+
+    /** How close, in map percent, a player has to get to another team's flag to capture it. */
+    public float getCaptureRadius() {
+      return captureRadius;
+    }
+
+    public void setCaptureRadius(float captureRadius) {
+      this.captureRadius = captureRadius;
+    }
+
+    /** How close, in map percent, a player gets to another team's flag before it is announced. */
+    public float getProximityRadius() {
+      return proximityRadius;
+    }
+
+    public void setProximityRadius(float proximityRadius) {
+      this.proximityRadius = proximityRadius;
+    }
+  }
+
+  public static class AreaConfig {
+    private List<List<Float>> boundary = List.of();
+    private List<List<List<Float>>> noGo = List.of();
+
+    /** The edge of the play area as [x, y] points in map percent; empty allows the whole map. */
+    public List<List<Float>> getBoundary() {
+      return boundary;
+    }
+
+    public void setBoundary(List<List<Float>> boundary) {
+      this.boundary = boundary;
+    }
+
+    /** Areas inside the boundary where flags can't be hidden and players shouldn't be. */
+    public List<List<List<Float>>> getNoGo() {
+      return noGo;
+    }
+
+    public void setNoGo(List<List<List<Float>>> noGo) {
+      this.noGo = noGo;
+    }
+  }
+
   public static class TeamConfig {
     private String name;
     private String color;
@@ -128,18 +550,6 @@ public class AppConfig {
     }
   }
 
-  public Map<String, Object> getMap() {
-    return Map.of(
-        "maxPlayers", getGame().getMaxPlayers(),
-        "minPlayers", getGame().getMinPlayers(),
-        "minPlayersPerTeam", getGame().getMinPlayersPerTeam(),
-        "maxPlayersPerTeam", getGame().getMaxPlayersPerTeam(),
-        "maxTeams", getGame().getMaxTeams(),
-        "graceTime", getGame().getGraceTime(),
-        "scoutTime", getGame().getScoutTime(),
-        "FFATime", getGame().getFfaTime());
-  }
-
   public void merge(SettingsRequest req) {
     Integer maxPlayers = Validation.validateOptionalNumber(req.getMaxPlayers(), "maxPlayers");
     if (maxPlayers != null) this.getGame().setMaxPlayers(maxPlayers);
@@ -0,0 +1,205 @@
+package moae.dev.Server;
+
+import moae.dev.Game.Game;
+import moae.dev.Game.GameEvent;
+import moae.dev.Game.GameRegistry;
+import moae.dev.Utils.LatencyRecorder;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtException;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Remembers tokens that have passed verification, so a client polling the API or opening sockets
+ * with the same token is verified once rather than on every request. Tokens are keyed by their
+ * SHA-256 digest and kept until their {@code exp}, or until {@code maxEntries} are held.
+ *
+ * <p>A remembered token still has to belong to a player of a live game, which is checked on every
+ * hit, so a player who leaves or is kicked loses access at once. Their entries are also dropped
+ * when the game's events arrive, as are all the entries of a game that is hard reset or evicted.
+ *
+ * <p>With a {@code maxEntries} of 0 nothing is remembered, and every token is verified.
+ */
+public class CachingJwtDecoder implements JwtDecoder {
+  private static final MessageDigest SHA_256;
+
+  static {
+    try {
+      SHA_256 = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new ExceptionInInitializerError(e);
+    }
+  }
+
+  private record Key(long a, long b, long c, long d) {}
+
+  private record Entry(Jwt jwt, String game, UUID player, long expiresAt) {}
+
+  private final JwtDecoder delegate;
+  private final GameRegistry games;
+  private final int maxEntries;
+  private final Clock clock;
+  private final Map<Key, Entry> entries = new ConcurrentHashMap<>();
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder invalidations = new LongAdder();
+  private final LatencyRecorder verifyLatency = new LatencyRecorder();
+
+  public CachingJwtDecoder(JwtDecoder delegate, GameRegistry games, int maxEntries) {
+    this(delegate, games, maxEntries, Clock.systemUTC());
+  }
+
+  CachingJwtDecoder(JwtDecoder delegate, GameRegistry games, int maxEntries, Clock clock) {
+    this.delegate = delegate;
+    this.games = games;
+    this.maxEntries = maxEntries;
+    this.clock = clock;
+
+    games.onGame(game -> game.outbox().subscribe("tokens", events -> onEvents(game, events)));
+    games.onEvict(game -> invalidate(game.getId(), null));
+  }
+
+  @Override
+  public Jwt decode(String token) throws JwtException {
+    if (token == null) return delegate.decode(null);
+    if (maxEntries <= 0) {
+      misses.increment();
+      return verify(token);
+    }
+
+    Key key = digest(token);
+    long now = clock.millis();
+    Entry entry = entries.get(key);
+    if (entry != null) {
+      if (entry.expiresAt() > now && isLive(entry)) {
+        hits.increment();
+        return entry.jwt();
+      }
+      if (entries.remove(key, entry) && entry.expiresAt() > now) invalidations.increment();
+    }
+
+    misses.increment();
+    Jwt jwt = verify(token);
+    remember(key, jwt, now);
+    return jwt;
+  }
+
+  private Jwt verify(String token) {
+    long start = System.nanoTime();
+    try {
+      return delegate.decode(token);
+    } finally {
+      verifyLatency.record(System.nanoTime() - start);
+    }
+  }
+
+  private boolean isLive(Entry entry) {
+    Game game = games.get(entry.game());
+    return game != null && game.isValidPlayer(entry.player());
+  }
+
+  private void remember(Key key, Jwt jwt, long now) {
+    Instant expiresAt = jwt.getExpiresAt();
+    if (maxEntries <= 0 || expiresAt == null || expiresAt.toEpochMilli() <= now) return;
+    if (jwt.getSubject() == null) return;
+
+    UUID player;
+    try {
+      player = UUID.fromString(jwt.getSubject());
+    } catch (IllegalArgumentException e) {
+      return;
+    }
+
+    // Tokens issued before games were scoped belong to the default game
+    String claim = jwt.getClaimAsString(GameArgumentResolver.GAME_CLAIM);
+    String game = claim == null ? Game.DEFAULT_ID : claim;
+
+    if (entries.size() >= maxEntries) trim(now);
+    entries.put(key, new Entry(jwt, game, player, expiresAt.toEpochMilli()));
+  }
+
+  /** Drops expired entries, then arbitrary ones until a quarter of the cache is free. */
+  private void trim(long now) {
+    entries.values().removeIf(entry -> entry.expiresAt() <= now);
+
+    int target = maxEntries - Math.max(1, maxEntries / 4);
+    Iterator<Key> keys = entries.keySet().iterator();
+    while (entries.size() > target && keys.hasNext()) {
+      keys.next();
+      keys.remove();
+    }
+  }
+
+  private void onEvents(Game game, List<GameEvent> events) {
+    for (GameEvent event : events) {
+      switch (event) {
+        case GameEvent.PlayerLeft left -> invalidate(game.getId(), left.player().getID());
+        case GameEvent.GameReset reset when reset.hard() -> invalidate(game.getId(), null);
+        default -> {
+          // Leaves every token valid
+        }
+      }
+    }
+  }
+
+  /** Forgets the tokens of {@code player} in {@code game}, or of every player when it is null. */
+  void invalidate(String game, UUID player) {
+    entries
+        .values()
+        .removeIf(
+            entry -> {
+              boolean match =
+                  entry.game().equals(game) && (player == null || entry.player().equals(player));
+              if (match) invalidations.increment();
+              return match;
+            });
+  }
+
+  private static Key digest(String token) {
+    MessageDigest sha;
+    try {
+      sha = (MessageDigest) SHA_256.clone();
+    } catch (CloneNotSupportedException e) {
+      throw new IllegalStateException(e);
+    }
+    ByteBuffer hash = ByteBuffer.wrap(sha.digest(token.getBytes(StandardCharsets.UTF_8)));
+    return new Key(hash.getLong(), hash.getLong(), hash.getLong(), hash.getLong());
+  }
+
+  /** Tokens served from the cache. */
+  public long hits() {
+    return hits.sum();
+  }
+
+  /** Tokens that went through full verification. */
+  public long misses() {
+    return misses.sum();
+  }
+
+  /** Entries dropped before they expired, because their player or game went away. */
+  public long invalidations() {
+    return invalidations.sum();
+  }
+
+  public int size() {
+    return entries.size();
+  }
+
+  /** Time taken to verify each token that wasn't remembered, whether it passed or not. */
+  public LatencyRecorder.Snapshot verifyLatency() {
+    return verifyLatency.snapshot();
+  }
+}
@@ -4,10 +4,12 @@ import org.springframework.security.oauth2.server.resource.web.BearerTokenResolv
 import org.springframework.security.oauth2.server.resource.web.DefaultBearerTokenResolver;
 import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
 
 @Component
 public class ConditionalBearerTokenResolver implements BearerTokenResolver {
   private final DefaultBearerTokenResolver delegate = new DefaultBearerTokenResolver();
+  private final AntPathMatcher matcher = new AntPathMatcher();
   private final String[] publicPaths;
 
   public ConditionalBearerTokenResolver(AppSecurityProperties props) {
@@ -22,7 +24,8 @@ public class ConditionalBearerTokenResolver implements BearerTokenResolver {
 
     String servletPath = request.getServletPath();
     for (String p : publicPaths) {
-      if (servletPath.equals(p) || servletPath.startsWith(p)) {
+      // Public paths are patterns (/team/info/*, /games/*/game/status), as in SecurityConfig
+      if (matcher.match(p, servletPath)) {
         return null;
       }
     }
@@ -0,0 +1,73 @@
+package moae.dev.Server;
+
+import moae.dev.Game.Game;
+import moae.dev.Game.GameRegistry;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpStatus;
+import org.springframework.lang.NonNull;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.web.bind.support.WebDataBinderFactory;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.method.support.ModelAndViewContainer;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Supplies the {@link Game} a request is for: the {@code gameId} path variable on game-scoped
+ * paths, otherwise the game named in the caller's token, otherwise the default game.
+ */
+public class GameArgumentResolver implements HandlerMethodArgumentResolver {
+  public static final String GAME_CLAIM = "game";
+
+  private final GameRegistry games;
+
+  public GameArgumentResolver(GameRegistry games) {
+    this.games = games;
+  }
+
+  @Override
+  public boolean supportsParameter(@NonNull MethodParameter parameter) {
+    return Game.class.equals(parameter.getParameterType());
+  }
+
+  @Override
+  public Object resolveArgument(
+      @NonNull MethodParameter parameter,
+      ModelAndViewContainer mavContainer,
+      @NonNull NativeWebRequest webRequest,
+      WebDataBinderFactory binderFactory) {
+    String pathId = pathVariable(webRequest);
+    String claimId = tokenClaim();
+
+    if (pathId != null && claimId != null && !pathId.equals(claimId))
+      throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Token was issued for another game");
+
+    try {
+      return games.resolve(pathId != null ? pathId : claimId);
+    } catch (NoSuchElementException e) {
+      throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Game not found");
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private static String pathVariable(NativeWebRequest webRequest) {
+    Map<String, String> variables =
+        (Map<String, String>)
+            webRequest.getAttribute(
+                HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+    return variables == null ? null : variables.get("gameId");
+  }
+
+  private static String tokenClaim() {
+    Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+    if (auth == null || !(auth.getPrincipal() instanceof Jwt jwt)) return null;
+    return jwt.getClaimAsString(GAME_CLAIM);
+  }
+}
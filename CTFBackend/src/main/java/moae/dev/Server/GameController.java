@@ -1,31 +1,43 @@
 package moae.dev.Server;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import moae.dev.Game.Game;
+import moae.dev.Game.GameRegistry;
 import moae.dev.Requests.AnnouncementRequest;
 import moae.dev.Requests.MessageRequest;
 import moae.dev.Requests.ResetRequest;
 import moae.dev.Requests.SettingsRequest;
-import moae.dev.Sockets.AnnouncementSocketConnectionHandler;
 import moae.dev.Utils.AnnouncementMessage;
 import moae.dev.Utils.MessagePage;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.util.Map;
 import java.util.Objects;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 
 @RestController
-@RequestMapping("/game")
+@RequestMapping({"/game", "/games/{gameId}/game"})
 public class GameController {
-  private final Game game;
+  private static final Map<String, Object> SUCCESS = Map.of("message", "success");
 
-  public GameController(Game game) {
-    this.game = game;
+  private final ObjectMapper mapper;
+  private final Map<String, StatusCache> statusCaches = new ConcurrentHashMap<>();
+
+  public GameController(GameRegistry games, ObjectMapper mapper) {
+    this.mapper = mapper;
+    games.onEvict(game -> statusCaches.remove(game.getId()));
   }
 
   @GetMapping("/health")
@@ -34,31 +46,52 @@ public class GameController {
   }
 
   @GetMapping("/status")
-  public Map<String, Object> status() {
-    return game.status();
+  public ResponseEntity<byte[]> status(
+      Game game, WebRequest request, HttpServletResponse response) {
+    StatusCache statusCache =
+        statusCaches.computeIfAbsent(game.getId(), id -> new StatusCache(game, mapper));
+    StatusCache.Snapshot snapshot = statusCache.current();
+    long duration = game.getTimeRemaining();
+
+    // A revalidated copy still needs the live timer, so it is sent with every response
+    response.setHeader(StatusCache.DURATION_HEADER, Long.toString(duration));
+    if (request.checkNotModified(snapshot.etag())) return null;
+
+    return ResponseEntity.ok()
+        .cacheControl(CacheControl.noCache())
+        .contentType(MediaType.APPLICATION_JSON)
+        .body(snapshot.render(duration));
   }
 
   @RequirePlayerAuth
   @PatchMapping("/settings")
-  public Map<String, Object> editSettings(@Valid @RequestBody SettingsRequest settings) {
-    this.game.merge(settings);
-    return Map.of("message", "success");
+  public CompletableFuture<Map<String, Object>> editSettings(
+      Game game, @Valid @RequestBody SettingsRequest settings) {
+    return game.mergeAsync(settings).thenApply(done -> SUCCESS);
   }
 
   @PostMapping("/message/global")
-  public Map<String, Integer> messageGlobal(
-      @RequestBody MessageRequest req, @AuthenticationPrincipal Jwt jwt) {
-    Integer msgId = game.sendMessage(UUID.fromString(jwt.getSubject()), req.getContent());
-    return Map.of("id", msgId);
+  public CompletableFuture<Map<String, Integer>> messageGlobal(
+      @RequestBody MessageRequest req, @AuthenticationPrincipal Jwt jwt, Game game) {
+    return game.sendMessageAsync(UUID.fromString(jwt.getSubject()), req.getContent())
+        .thenApply(msgId -> Map.of("id", msgId));
   }
 
   @GetMapping("/message/global")
   public Map<String, Object> getMessages(
       @RequestParam(name = "start", defaultValue = "0") Integer start,
       @RequestParam(name = "count", defaultValue = "10") Integer count,
-      @AuthenticationPrincipal Jwt jwt) {
-
-    MessagePage page = game.getMessages(start, count);
+      @RequestParam(name = "before", required = false) Integer before,
+      @RequestParam(name = "after", required = false) Integer after,
+      @AuthenticationPrincipal Jwt jwt,
+      Game game) {
+
+    MessagePage page;
+    if (after != null) {
+      page = game.getMessagesAfter(after, count);
+    } else {
+      page = game.getMessages(before != null ? before - 1 : start, count);
+    }
 
     return Map.of(
         "messages", page.messages(),
@@ -67,89 +100,94 @@ public class GameController {
 
   @RequirePlayerAuth
   @PostMapping("/control/start")
-  public Map<String, Object> startGame(@AuthenticationPrincipal Jwt jwt) {
+  public CompletableFuture<Map<String, Object>> startGame(
+      @AuthenticationPrincipal Jwt jwt, Game game) {
     if (game.emergencyDeclared())
       throw new ResponseStatusException(HttpStatus.LOCKED, "Game in emergency state");
-
-    game.start();
-    return Map.of("message", "success");
+    return game.startAsync().thenApply(done -> SUCCESS);
   }
 
   @RequirePlayerAuth
   @PostMapping("/control/pause")
-  public Map<String, Object> pauseGame(@AuthenticationPrincipal Jwt jwt) {
+  public CompletableFuture<Map<String, Object>> pauseGame(
+      @AuthenticationPrincipal Jwt jwt, Game game) {
     if (game.emergencyDeclared())
       throw new ResponseStatusException(HttpStatus.LOCKED, "Game in emergency state");
-    game.pause();
-    return Map.of("message", "success");
+    return game.pauseAsync().thenApply(done -> SUCCESS);
   }
 
   @RequirePlayerAuth
   @PostMapping("/control/resume")
-  public Map<String, Object> resumeGame(@AuthenticationPrincipal Jwt jwt) {
+  public CompletableFuture<Map<String, Object>> resumeGame(
+      @AuthenticationPrincipal Jwt jwt, Game game) {
     if (game.emergencyDeclared())
       throw new ResponseStatusException(HttpStatus.LOCKED, "Game in emergency state");
-    game.resume();
-    return Map.of("message", "success");
+    return game.resumeAsync().thenApply(done -> SUCCESS);
   }
 
   @RequirePlayerAuth
   @PostMapping("/control/skip")
-  public Map<String, Object> skipGame(@AuthenticationPrincipal Jwt jwt) {
+  public CompletableFuture<Map<String, Object>> skipGame(
+      @AuthenticationPrincipal Jwt jwt, Game game) {
     if (game.emergencyDeclared())
       throw new ResponseStatusException(HttpStatus.LOCKED, "Game in emergency state");
-    game.skip();
-    return Map.of("message", "success");
+    return game.skipAsync().thenApply(done -> SUCCESS);
   }
 
   @RequirePlayerAuth
   @PostMapping("/control/rewind")
-  public Map<String, Object> rewindGame(@AuthenticationPrincipal Jwt jwt) {
+  public CompletableFuture<Map<String, Object>> rewindGame(
+      @AuthenticationPrincipal Jwt jwt, Game game) {
     if (game.emergencyDeclared())
       throw new ResponseStatusException(HttpStatus.LOCKED, "Game in emergency state");
-    game.rewind();
-    return Map.of("message", "success");
+    return game.rewindAsync().thenApply(done -> SUCCESS);
   }
 
   @RequirePlayerAuth
   @PostMapping("/control/end")
-  public Map<String, Object> endGame(@AuthenticationPrincipal Jwt jwt) {
+  public CompletableFuture<Map<String, Object>> endGame(
+      @AuthenticationPrincipal Jwt jwt, Game game) {
     if (game.emergencyDeclared())
       throw new ResponseStatusException(HttpStatus.LOCKED, "Game in emergency state");
-    game.end();
-    return Map.of("message", "success");
+    return game.endAsync().thenApply(done -> SUCCESS);
   }
 
   @RequirePlayerAuth
   @PostMapping("/control/reset")
-  public Map<String, Object> resetGame(
-      @RequestBody ResetRequest req, @AuthenticationPrincipal Jwt jwt) {
+  public CompletableFuture<Map<String, Object>> resetGame(
+      @RequestBody ResetRequest req, @AuthenticationPrincipal Jwt jwt, Game game) {
     if (game.emergencyDeclared())
       throw new ResponseStatusException(HttpStatus.LOCKED, "Game in emergency state");
     System.out.println(req.isHard() ? "RESET HARD" : "reset soft");
-    game.reset(req.isHard());
-    return Map.of("message", "success");
+    return game.resetAsync(req.isHard()).thenApply(done -> SUCCESS);
   }
 
   @RequirePlayerAuth
   @PostMapping("/announce")
-  public Map<String, Object> announce(@RequestBody AnnouncementRequest req) {
-
-    if (Objects.equals(req.getType(), "emergency")) game.declareEmergency();
-
-    AnnouncementSocketConnectionHandler.broadcast(
-        new AnnouncementMessage(req.getType(), req.getMessage()));
-
-    return Map.of("message", "success");
+  public CompletableFuture<Map<String, Object>> announce(
+      @RequestBody AnnouncementRequest req, Game game) {
+    CompletableFuture<Void> declared =
+        Objects.equals(req.getType(), "emergency")
+            ? game.declareEmergencyAsync()
+            : CompletableFuture.completedFuture(null);
+
+    return declared.thenApplyAsync(
+        done -> {
+          game.sockets().announcements().broadcast(
+              new AnnouncementMessage(req.getType(), req.getMessage()));
+          return SUCCESS;
+        });
   }
 
   @RequirePlayerAuth
   @PostMapping("/emergency/release")
-  public Map<String, Object> releaseEmergency() {
-    game.releaseEmergency();
-
-    AnnouncementSocketConnectionHandler.broadcast(new AnnouncementMessage("release", null));
-
-    return Map.of("message", "success");
+  public CompletableFuture<Map<String, Object>> releaseEmergency(Game game) {
+    return game.releaseEmergencyAsync()
+        .thenApplyAsync(
+            done -> {
+              game.sockets().announcements().broadcast(
+                  new AnnouncementMessage("release", null));
+              return SUCCESS;
+            });
   }
 }
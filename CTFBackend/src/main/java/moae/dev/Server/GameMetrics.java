@@ -0,0 +1,213 @@
+package moae.dev.Server;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import moae.dev.Game.Game;
+import moae.dev.Game.GameRegistry;
+import moae.dev.Services.PushDispatcher;
+import moae.dev.Services.PushNotificationService;
+import moae.dev.Services.PushOrigins;
+import moae.dev.Sockets.ChannelStats;
+import moae.dev.Sockets.GameSockets;
+import moae.dev.Sockets.OutboundStats;
+import moae.dev.Utils.LatencyRecorder;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * Publishes what games, sockets, push and token verification already count, for {@code
+ * /actuator/prometheus} on the management port. Every meter reads its value when scraped, from the
+ * counters and {@link LatencyRecorder}s the code keeps anyway, so nothing is recorded on a
+ * broadcast or a request on Micrometer's account.
+ *
+ * <p>Game meters are tagged with the game's id and removed when the game is evicted. Latencies are
+ * published as timers with a count and a total, so a scrape's rate gives the recent mean.
+ */
+@Component
+public class GameMetrics implements MeterBinder {
+  private final GameRegistry games;
+  private final PushNotificationService push;
+  private final JwtDecoder jwtDecoder;
+
+  public GameMetrics(GameRegistry games, PushNotificationService push, JwtDecoder jwtDecoder) {
+    this.games = games;
+    this.push = push;
+    this.jwtDecoder = jwtDecoder;
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    games.onGame(game -> bindGame(registry, game));
+    games.onEvict(game -> unbindGame(registry, game));
+    bindPush(registry);
+    if (jwtDecoder instanceof CachingJwtDecoder tokens) bindTokens(registry, tokens);
+  }
+
+  // ----- Games -----
+
+  private void bindGame(MeterRegistry registry, Game game) {
+    Tags tags = Tags.of("game", game.getId());
+    Gauge.builder("ctf.players", game, Game::playerCount)
+        .tags(tags)
+        .description("Players on the game's roster")
+        .register(registry);
+    timer("ctf.phase.lag", game, Game::phaseLag, tags)
+        .description("How late timed stage changes happened after they were due")
+        .register(registry);
+
+    OutboundStats outbound = game.sockets().stats();
+    counter("ctf.socket.frames.sent", outbound, OutboundStats::sent, tags)
+        .description("Frames handed to sessions")
+        .register(registry);
+    counter("ctf.socket.messages.written", outbound, OutboundStats::messages, tags)
+        .description("Socket messages written, fewer than frames when sessions take batches")
+        .register(registry);
+    counter("ctf.socket.frames.dropped", outbound, OutboundStats::dropped, tags)
+        .description("Frames never sent, because their session fell behind or went away")
+        .register(registry);
+    counter("ctf.socket.send.failures", outbound, OutboundStats::failed, tags)
+        .description("Socket messages the container failed to send")
+        .register(registry);
+    counter("ctf.socket.disconnects", outbound, OutboundStats::disconnected, tags)
+        .description("Sessions closed for falling behind too often")
+        .register(registry);
+    Gauge.builder("ctf.socket.queue.depth", outbound, OutboundStats::depth)
+        .tags(tags)
+        .description("Frames queued across every session and not yet sent")
+        .register(registry);
+    timer("ctf.socket.send.latency", outbound, OutboundStats::sendLatency, tags)
+        .description("Time from a frame being encoded until its session took it")
+        .register(registry);
+
+    for (String channel : GameSockets.CHANNELS) {
+      Tags channelTags = tags.and("channel", channel);
+      Gauge.builder("ctf.socket.sessions", game, g -> g.sockets().sessions(channel))
+          .tags(channelTags)
+          .description("Sessions connected to the channel")
+          .register(registry);
+      timer("ctf.socket.broadcast", game, g -> fanOut(g, channel), channelTags)
+          .description("Time taken to queue a broadcast for every session on the channel")
+          .register(registry);
+      counter("ctf.socket.broadcast.sessions", game, g -> reached(g, channel), channelTags)
+          .description("Sessions reached by broadcasts, one per session per broadcast")
+          .register(registry);
+      if (GameSockets.isChat(channel)) {
+        counter("ctf.chat.messages", game, g -> chat(g, channel), channelTags)
+            .description("Chat messages broadcast on the channel")
+            .register(registry);
+      }
+    }
+  }
+
+  private static LatencyRecorder.Snapshot fanOut(Game game, String channel) {
+    ChannelStats stats = game.sockets().channelStats(channel);
+    return stats == null ? new LatencyRecorder.Snapshot(0, 0, 0, 0) : stats.fanOut();
+  }
+
+  private static long reached(Game game, String channel) {
+    ChannelStats stats = game.sockets().channelStats(channel);
+    return stats == null ? 0 : stats.reached();
+  }
+
+  private static long chat(Game game, String channel) {
+    ChannelStats stats = game.sockets().channelStats(channel);
+    return stats == null ? 0 : stats.chat();
+  }
+
+  private static void unbindGame(MeterRegistry registry, Game game) {
+    for (Meter meter : registry.getMeters()) {
+      if (game.getId().equals(meter.getId().getTag("game"))) registry.remove(meter);
+    }
+  }
+
+  // ----- Push -----
+
+  private void bindPush(MeterRegistry registry) {
+    pushCounter("ctf.push.delivered", PushDispatcher::delivered)
+        .description("Push notifications accepted by their push service")
+        .register(registry);
+    pushCounter("ctf.push.retries", PushDispatcher::retries)
+        .description("Push requests sent again after a timeout, 429 or 5xx")
+        .register(registry);
+    pushCounter("ctf.push.gone", PushDispatcher::gone)
+        .description("Subscriptions dropped because their push service no longer knows them")
+        .register(registry);
+    Gauge.builder("ctf.push.pending", push, p -> dispatcher(p, PushDispatcher::pending))
+        .description("Push notifications not yet delivered or given up on")
+        .register(registry);
+
+    push.origins()
+        .onOrigin(
+            (host, origin) -> {
+              Tags tags = Tags.of("origin", host);
+              timer("ctf.push.requests", origin, PushOrigins.Origin::latency, tags)
+                  .description("Push requests to the push service, whatever their outcome")
+                  .register(registry);
+              counter("ctf.push.failures", origin, PushOrigins.Origin::failed, tags)
+                  .description("Push notifications given up on after every retry")
+                  .register(registry);
+            });
+  }
+
+  private FunctionCounter.Builder<PushNotificationService> pushCounter(
+      String name, ToLongFunction<PushDispatcher> stat) {
+    return counter(name, push, p -> dispatcher(p, stat), Tags.of());
+  }
+
+  private static long dispatcher(
+      PushNotificationService push, ToLongFunction<PushDispatcher> stat) {
+    PushDispatcher dispatcher = push.getDispatcher();
+    return dispatcher == null ? 0 : stat.applyAsLong(dispatcher);
+  }
+
+  // ----- Tokens -----
+
+  private static void bindTokens(MeterRegistry registry, CachingJwtDecoder tokens) {
+    Tags none = Tags.of();
+    timer("ctf.jwt.decode", tokens, CachingJwtDecoder::verifyLatency, none)
+        .description("Time taken to verify a token that wasn't remembered")
+        .register(registry);
+    counter("ctf.jwt.cache.hits", tokens, CachingJwtDecoder::hits, none)
+        .description("Tokens served from the cache")
+        .register(registry);
+    counter("ctf.jwt.cache.misses", tokens, CachingJwtDecoder::misses, none)
+        .description("Tokens that went through full verification")
+        .register(registry);
+    Gauge.builder("ctf.jwt.cache.size", tokens, CachingJwtDecoder::size)
+        .description("Tokens remembered")
+        .register(registry);
+  }
+
+  // ----- Builders -----
+
+  private static <T> FunctionCounter.Builder<T> counter(
+      String name, T source, ToLongFunction<T> count, Tags tags) {
+    ToDoubleFunction<T> value = s -> count.applyAsLong(s);
+    return FunctionCounter.builder(name, source, value).tags(tags);
+  }
+
+  /** A timer over a {@link LatencyRecorder}, read through {@code snapshot} when scraped. */
+  private static <T> FunctionTimer.Builder<T> timer(
+      String name, T source, Function<T, LatencyRecorder.Snapshot> snapshot, Tags tags) {
+    return FunctionTimer.builder(
+            name,
+            source,
+            s -> snapshot.apply(s).count(),
+            s -> {
+              LatencyRecorder.Snapshot current = snapshot.apply(s);
+              return current.meanMillis() * current.count();
+            },
+            TimeUnit.MILLISECONDS)
+        .tags(tags);
+  }
+}
@@ -0,0 +1,54 @@
+package moae.dev.Server;
+
+import jakarta.validation.Valid;
+import moae.dev.Game.Game;
+import moae.dev.Game.GameRegistry;
+import moae.dev.Requests.CreateGameRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/games")
+public class GamesController {
+  private final GameRegistry games;
+  private final AppSecurityProperties secProps;
+
+  public GamesController(GameRegistry games, AppSecurityProperties secProps) {
+    this.games = games;
+    this.secProps = secProps;
+  }
+
+  @GetMapping
+  public Map<String, Object> listGames() {
+    List<Map<String, Object>> list =
+        games.getGames().stream()
+            .map(
+                game ->
+                    Map.<String, Object>of(
+                        "id", game.getId(),
+                        "state", game.getState(),
+                        "players", game.getPlayers().size()))
+            .toList();
+
+    return Map.of("games", list);
+  }
+
+  @PostMapping
+  public Map<String, Object> createGame(@Valid @RequestBody CreateGameRequest body) {
+    if (!secProps.passCheck(body.getPassword()))
+      throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Incorrect auth password");
+
+    Game game;
+    try {
+      game = games.create();
+    } catch (IllegalStateException e) {
+      throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, e.getMessage());
+    }
+
+    return Map.of("message", "success", "id", game.getId());
+  }
+}
@@ -14,7 +14,7 @@ import java.util.UUID;
 @Component
 public class PlayerAuthAspect {
 
-  @Before("@annotation(RequirePlayerAuth) && args(jwt,..)")
+  @Before("@annotation(RequirePlayerAuth) && args(jwt, game, ..)")
   public void checkAuth(Jwt jwt, Game game) {
     UUID id = UUID.fromString(jwt.getSubject());
     if (!game.isAuth(id)) {
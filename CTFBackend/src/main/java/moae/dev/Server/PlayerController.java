@@ -5,7 +5,6 @@ import moae.dev.Game.Game;
 import moae.dev.Game.Player;
 import moae.dev.Requests.JoinRequest;
 import moae.dev.Requests.RemoveRequest;
-import moae.dev.Sockets.PlayerSocketConnectionHandler;
 import moae.dev.Utils.Validation;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
@@ -19,36 +18,38 @@ import java.time.Instant;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
-@RequestMapping("/player")
+@RequestMapping({"/player", "/games/{gameId}/player"})
 public class PlayerController {
   private final JwtEncoder encoder;
   private final long expiryMinutes;
   private final AppSecurityProperties secProps;
-  private final Game game;
   private final Validation validator;
 
   public PlayerController(
       JwtEncoder enc,
       AppSecurityProperties secProps,
-      Game game,
       Validation validation,
       @Value("${app.jwt.expiry-minutes}") long exp) {
     this.encoder = enc;
     this.expiryMinutes = exp;
     this.secProps = secProps;
-    this.game = game;
     this.validator = validation;
   }
 
   @PostMapping("/join")
-  public Map<String, Object> playerJoin(@Valid @RequestBody JoinRequest body) {
+  public CompletableFuture<Map<String, Object>> playerJoin(
+      @Valid @RequestBody JoinRequest body, Game game) {
     if (body.isAuth() && !secProps.passCheck(body.getPassword()))
       throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Incorrect auth password");
 
-    UUID joined = null;
-    joined = game.addPlayer(body.getName(), UUID.fromString(body.getTeam()), body.isAuth());
+    return game.addPlayerAsync(body.getName(), UUID.fromString(body.getTeam()), body.isAuth())
+        .thenApplyAsync(joined -> joined(game, body, joined));
+  }
+
+  private Map<String, Object> joined(Game game, JoinRequest body, UUID joined) {
     String jti = UUID.randomUUID().toString();
 
     var now = Instant.now();
@@ -60,46 +61,45 @@ public class PlayerController {
             .id(jti)
             .subject(joined.toString())
             .claim("scope", "api.read api.write")
+            .claim(GameArgumentResolver.GAME_CLAIM, game.getId())
             .build();
 
     var header = JwsHeader.with(MacAlgorithm.HS256).build();
     String token = encoder.encode(JwtEncoderParameters.from(header, claims)).getTokenValue();
 
-    PlayerSocketConnectionHandler.broadcast(
-        body.getName(), body.getTeam(), body.isAuth(), joined.toString(), "joined");
-
     return Map.of("message", "success", "access_token", token, "token_type", "Bearer");
   }
 
   @GetMapping("/me")
-  public Map<String, Object> playerInfo(@AuthenticationPrincipal Jwt jwt) {
-    return game.getPlayer(UUID.fromString(jwt.getSubject())).toMap();
+  public Player playerInfo(@AuthenticationPrincipal Jwt jwt, Game game) {
+    return game.getPlayer(UUID.fromString(jwt.getSubject()));
   }
 
   @DeleteMapping("/leave")
-  public Map<String, Object> playerLeave(@AuthenticationPrincipal Jwt jwt) {
+  public CompletableFuture<Map<String, Object>> playerLeave(
+      @AuthenticationPrincipal Jwt jwt, Game game) {
     UUID playerId = validator.ValidateUUID(jwt.getSubject(), "player");
-    Player p = game.getPlayer(playerId);
+    // Unknown players fail here, before anything is queued
+    game.getPlayer(playerId);
 
-    if (!game.removePlayer(playerId)) throw new ResponseStatusException(HttpStatus.CONFLICT, "Player not found");
+    return game.removePlayerAsync(playerId)
+        .thenApplyAsync(
+            removed -> {
+              if (!removed)
+                throw new ResponseStatusException(HttpStatus.CONFLICT, "Player not found");
 
-    PlayerSocketConnectionHandler.broadcast(
-        p.getName(), p.getTeam().toString(), p.isAuth(), p.getID().toString(), "left");
-
-    return Map.of("message", "success");
+              return Map.of("message", "success");
+            });
   }
 
   @RequirePlayerAuth
   @DeleteMapping("/remove")
-  public Map<String, Object> playerRemove(
-      @AuthenticationPrincipal Jwt jwt, @Valid @RequestBody RemoveRequest body) {
-    Player p = game.getPlayer(UUID.fromString(body.getId()));
-
-    game.removePlayer(validator.ValidateUUID(body.getId(), "player"));
-
-    PlayerSocketConnectionHandler.broadcast(
-        p.getName(), p.getTeam().toString(), p.isAuth(), p.getID().toString(), "removed");
+  public CompletableFuture<Map<String, Object>> playerRemove(
+      @AuthenticationPrincipal Jwt jwt, Game game, @Valid @RequestBody RemoveRequest body) {
+    // Unknown players fail here, before anything is queued
+    game.getPlayer(UUID.fromString(body.getId()));
 
-    return Map.of("message", "success");
+    return game.removePlayerAsync(validator.ValidateUUID(body.getId(), "player"), true)
+        .thenApply(removed -> Map.of("message", "success"));
   }
 }
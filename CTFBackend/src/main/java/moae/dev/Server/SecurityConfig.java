@@ -2,9 +2,13 @@ package moae.dev.Server;
 
 import com.nimbusds.jose.jwk.source.ImmutableSecret;
 import com.nimbusds.jose.proc.SecurityContext;
+import jakarta.servlet.DispatcherType;
+import moae.dev.Game.GameRegistry;
 import moae.dev.Utils.JwtValidator;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.autoconfigure.security.servlet.EndpointRequest;
 import org.springframework.context.annotation.*;
+import org.springframework.core.annotation.Order;
 import org.springframework.security.config.Customizer;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
@@ -16,6 +20,8 @@ import org.springframework.security.oauth2.core.OAuth2TokenValidator;
 import org.springframework.security.oauth2.jwt.*;
 import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationConverter;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.util.matcher.AndRequestMatcher;
+import org.springframework.security.web.util.matcher.RequestMatcher;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
@@ -33,7 +39,27 @@ public class SecurityConfig {
     this.props = props;
   }
 
+  /**
+   * Actuator endpoints on the management port, which {@code management.server.address} keeps off
+   * the public network, are open without a token. The same paths on the game's port fall through
+   * to {@link #api}, and are never served there anyway.
+   */
   @Bean
+  @Order(1)
+  SecurityFilterChain management(
+      HttpSecurity http, @Value("${management.server.port}") int managementPort) throws Exception {
+    RequestMatcher onManagementPort = request -> request.getLocalPort() == managementPort;
+
+    http.securityMatcher(new AndRequestMatcher(onManagementPort, EndpointRequest.toAnyEndpoint()))
+        .csrf(AbstractHttpConfigurer::disable)
+        .sessionManagement(sm -> sm.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+        .authorizeHttpRequests(auth -> auth.anyRequest().permitAll());
+
+    return http.build();
+  }
+
+  @Bean
+  @Order(2)
   SecurityFilterChain api(
       HttpSecurity http,
       JwtDecoder jwtDecoder,
@@ -46,7 +72,15 @@ public class SecurityConfig {
         .sessionManagement(sm -> sm.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
         .cors(cors -> cors.configurationSource(corsConfigurationSource))
         .authorizeHttpRequests(
-            auth -> auth.requestMatchers(publicPaths).permitAll().anyRequest().authenticated())
+            auth ->
+                auth
+                    // Game commands complete asynchronously; the original request was authorized
+                    .dispatcherTypeMatchers(DispatcherType.ASYNC)
+                    .permitAll()
+                    .requestMatchers(publicPaths)
+                    .permitAll()
+                    .anyRequest()
+                    .authenticated())
         .oauth2ResourceServer(
             oauth2 ->
                 oauth2
@@ -75,7 +109,8 @@ public class SecurityConfig {
     config.setAllowedHeaders(List.of("*"));
     
     // Expose these headers to the frontend JavaScript
-    config.setExposedHeaders(List.of("Authorization", "Content-Type"));
+    config.setExposedHeaders(
+        List.of("Authorization", "Content-Type", "ETag", StatusCache.DURATION_HEADER));
     
     // Allow credentials (cookies, authorization headers)
     config.setAllowCredentials(true);
@@ -100,7 +135,11 @@ public class SecurityConfig {
   }
 
   @Bean
-  JwtDecoder jwtDecoder(@Value("${app.jwt.secret}") String secret, JwtValidator jwtValidator) {
+  JwtDecoder jwtDecoder(
+      @Value("${app.jwt.secret}") String secret,
+      JwtValidator jwtValidator,
+      GameRegistry games,
+      AppConfig config) {
 
     var key = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256");
     NimbusJwtDecoder jwtDecoder =
@@ -113,6 +152,8 @@ public class SecurityConfig {
         new DelegatingOAuth2TokenValidator<>(withDefaults, jwtValidator);
 
     jwtDecoder.setJwtValidator(combinedValidator);
-    return jwtDecoder;
+
+    // Wrapped even without a cache, so verification is always counted and timed
+    return new CachingJwtDecoder(jwtDecoder, games, config.getTokens().getCacheSize());
   }
 }
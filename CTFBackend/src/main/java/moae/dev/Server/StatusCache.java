@@ -0,0 +1,95 @@
+package moae.dev.Server;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import moae.dev.Game.Game;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Pre-serialized {@code /game/status} documents keyed by {@link Game#getVersion()}, one slot per
+ * flag visibility. The stage time remaining is spliced into the cached bytes on every request, so a
+ * snapshot stays valid until the next mutation.
+ *
+ * <p>Versions only order the states of one game instance; a new game, or the same one after a
+ * restart, may count through the same numbers. ETags therefore also carry an id drawn at random for
+ * each cache, so a client can't revalidate a document it got from another instance.
+ */
+public class StatusCache {
+  public static final String DURATION_HEADER = "X-Game-Duration";
+
+  private static final long DURATION_PLACEHOLDER = Long.MIN_VALUE;
+  private static final byte[] PLACEHOLDER_BYTES =
+      Long.toString(DURATION_PLACEHOLDER).getBytes(StandardCharsets.US_ASCII);
+  // Quotes inside string values are escaped, so only the real field can match this
+  private static final byte[] PLACEHOLDER_FIELD =
+      ("\"duration\":" + DURATION_PLACEHOLDER).getBytes(StandardCharsets.US_ASCII);
+
+  private final Game game;
+  private final ObjectMapper mapper;
+  private final String instance =
+      Long.toUnsignedString(ThreadLocalRandom.current().nextLong(), Character.MAX_RADIX);
+  private final AtomicReferenceArray<Snapshot> snapshots = new AtomicReferenceArray<>(2);
+
+  public StatusCache(Game game, ObjectMapper mapper) {
+    this.game = game;
+    this.mapper = mapper;
+  }
+
+  public record Snapshot(
+      String instance, long version, boolean revealed, byte[] body, int durationOffset) {
+    public String etag() {
+      return "\"" + instance + "-" + version + (revealed ? "-r" : "-h") + "\"";
+    }
+
+    public byte[] render(long duration) {
+      byte[] value = Long.toString(duration).getBytes(StandardCharsets.US_ASCII);
+      int tail = durationOffset + PLACEHOLDER_BYTES.length;
+
+      byte[] out = new byte[body.length - PLACEHOLDER_BYTES.length + value.length];
+      System.arraycopy(body, 0, out, 0, durationOffset);
+      System.arraycopy(value, 0, out, durationOffset, value.length);
+      System.arraycopy(body, tail, out, durationOffset + value.length, body.length - tail);
+      return out;
+    }
+  }
+
+  public Snapshot current() {
+    long version = game.getVersion();
+    boolean revealed = game.flagsRevealed();
+    int slot = revealed ? 1 : 0;
+
+    Snapshot cached = snapshots.get(slot);
+    if (cached != null && cached.version() == version) return cached;
+
+    Snapshot fresh = build(version, revealed);
+    snapshots.set(slot, fresh);
+    return fresh;
+  }
+
+  private Snapshot build(long version, boolean revealed) {
+    byte[] body;
+    try {
+      body = mapper.writeValueAsBytes(game.status(DURATION_PLACEHOLDER));
+    } catch (JsonProcessingException e) {
+      throw new IllegalStateException("Failed to serialize game status", e);
+    }
+
+    int offset =
+        indexOf(body, PLACEHOLDER_FIELD) + PLACEHOLDER_FIELD.length - PLACEHOLDER_BYTES.length;
+    return new Snapshot(instance, version, revealed, body, offset);
+  }
+
+  private static int indexOf(byte[] haystack, byte[] needle) {
+    outer:
+    for (int i = 0; i <= haystack.length - needle.length; i++) {
+      for (int j = 0; j < needle.length; j++) {
+        if (haystack[i + j] != needle[j]) continue outer;
+      }
+      return i;
+    }
+    throw new IllegalStateException("Status document is missing its duration field");
+  }
+}
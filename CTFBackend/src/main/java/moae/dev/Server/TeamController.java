@@ -18,21 +18,21 @@ import org.springframework.web.server.ResponseStatusException;
 
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 @RestController
-@RequestMapping("/team")
+@RequestMapping({"/team", "/games/{gameId}/team"})
 public class TeamController {
-  private final Game game;
   private final Validation validator;
 
-  public TeamController(Game game, Validation validation) {
-    this.game = game;
+  public TeamController(Validation validation) {
     this.validator = validation;
   }
 
   @GetMapping("/info/{teamId}")
-  public Map<String, Object> getTeam(
-      @PathVariable("teamId") UUID teamId, @AuthenticationPrincipal Jwt jwt) {
+  public Team.View getTeam(
+      @PathVariable("teamId") UUID teamId, @AuthenticationPrincipal Jwt jwt, Game game) {
     Team team = game.getTeam(teamId);
 
     if (team == null)
@@ -42,42 +42,42 @@ public class TeamController {
     if (!game.isPlayerOnTeam(playerId, teamId))
       throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "You are not on this team.");
 
-    return team.toMap(true);
+    return team.view(true);
   }
 
   @PostMapping("/declare/victory")
-  public Map<String, String> declareVictory(
-      @Valid @RequestBody DeclareVictoryRequest req, @AuthenticationPrincipal Jwt jwt) {
+  public CompletableFuture<Map<String, String>> declareVictory(
+      @Valid @RequestBody DeclareVictoryRequest req, @AuthenticationPrincipal Jwt jwt, Game game) {
     UUID team = validator.ValidateUUID(req.getTeam(), "team");
 
     UUID playerId = validator.ValidateUUID(jwt.getSubject(), "player");
     if (!game.isPlayerOnTeam(playerId, team))
       throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "You are not on this team.");
 
-    game.declareVictory(team);
-
-    return Map.of("message", "success");
+    return game.declareVictoryAsync(team).thenApply(done -> Map.of("message", "success"));
   }
 
   @PostMapping("/flag/location")
-  public Map<String, String> registerFlag(
-      @AuthenticationPrincipal Jwt jwt, @Valid @RequestBody FlagRegisterationRequest req) {
+  public CompletableFuture<Map<String, String>> registerFlag(
+      @AuthenticationPrincipal Jwt jwt,
+      Game game,
+      @Valid @RequestBody FlagRegisterationRequest req) {
     UUID team = validator.ValidateUUID(req.getTeam(), "team");
     UUID playerId = validator.ValidateUUID(jwt.getSubject(), "player");
 
     if (!game.isPlayerOnTeam(playerId, team))
       throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "You are not on this team.");
 
-    game.registerFlag(team, req.getX(), req.getY());
-
-    return Map.of("message", "success");
+    return game.registerFlagAsync(team, req.getX(), req.getY())
+        .thenApply(done -> Map.of("message", "success"));
   }
 
   @PostMapping("/message/{teamId}")
-  public Map<String, Integer> sendMessage(
+  public CompletableFuture<Map<String, Integer>> sendMessage(
       @PathVariable("teamId") UUID teamId,
       @RequestBody MessageRequest req,
-      @AuthenticationPrincipal Jwt jwt) {
+      @AuthenticationPrincipal Jwt jwt,
+      Game game) {
 
     UUID playerId = UUID.fromString(jwt.getSubject());
 
@@ -89,14 +89,15 @@ public class TeamController {
       throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Sender is not in this team");
     }
 
-    Integer msgId;
-    try {
-      msgId = game.sendTeamMessage(teamId, playerId, req.getContent());
-    } catch (Exception e) {
-      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
-    }
-
-    return Map.of("id", msgId);
+    return game.sendTeamMessageAsync(teamId, playerId, req.getContent())
+        .handle(
+            (msgId, e) -> {
+              if (e != null) {
+                Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, cause.getMessage());
+              }
+              return Map.of("id", msgId);
+            });
   }
 
   @GetMapping("/message/{teamId}")
@@ -104,7 +105,10 @@ public class TeamController {
       @PathVariable("teamId") UUID teamId,
       @RequestParam(name = "start", defaultValue = "0") Integer start,
       @RequestParam(name = "count", defaultValue = "0") Integer count,
-      @AuthenticationPrincipal Jwt jwt) {
+      @RequestParam(name = "before", required = false) Integer before,
+      @RequestParam(name = "after", required = false) Integer after,
+      @AuthenticationPrincipal Jwt jwt,
+      Game game) {
     UUID playerId = UUID.fromString(jwt.getSubject());
 
     if (!game.isValidPlayer(playerId)) {
@@ -118,7 +122,12 @@ public class TeamController {
     game.isPlayerOnTeam(playerId, teamId);
 
     Team team = game.getTeam(teamId);
-    MessagePage page = team.getMessages(start, count);
+    MessagePage page;
+    if (after != null) {
+      page = team.getMessagesAfter(after, count);
+    } else {
+      page = team.getMessages(before != null ? before - 1 : start, count);
+    }
 
     return Map.of(
         "messages", page.messages(),
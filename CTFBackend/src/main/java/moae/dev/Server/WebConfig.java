@@ -0,0 +1,23 @@
+package moae.dev.Server;
+
+import moae.dev.Game.GameRegistry;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.lang.NonNull;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+  private final GameRegistry games;
+
+  public WebConfig(GameRegistry games) {
+    this.games = games;
+  }
+
+  @Override
+  public void addArgumentResolvers(@NonNull List<HandlerMethodArgumentResolver> resolvers) {
+    resolvers.add(new GameArgumentResolver(games));
+  }
+}
@@ -0,0 +1,101 @@
+package moae.dev.Services;
+
+import moae.dev.Game.Game;
+import moae.dev.Game.GameEvent;
+import moae.dev.Server.AppConfig;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Turns one game's committed events into push notifications. When a batch holds several stage
+ * changes, only the last is pushed, so skipping through stages doesn't buzz every phone once per
+ * stage.
+ */
+public class GameNotifications implements Consumer<List<GameEvent>> {
+  private final PushNotificationService pushService;
+  private final AppConfig config;
+
+  public GameNotifications(PushNotificationService pushService, AppConfig config) {
+    this.pushService = pushService;
+    this.config = config;
+  }
+
+  @Override
+  public void accept(List<GameEvent> events) {
+    int lastPhase = -1;
+    for (int i = 0; i < events.size(); i++) {
+      if (events.get(i) instanceof GameEvent.PhaseChanged) lastPhase = i;
+    }
+
+    for (int i = 0; i < events.size(); i++) {
+      GameEvent event = events.get(i);
+      if (event instanceof GameEvent.PhaseChanged && i != lastPhase) continue;
+      notify(event);
+    }
+  }
+
+  private void notify(GameEvent event) {
+    switch (event) {
+      case GameEvent.PhaseChanged phase -> phaseChanged(phase.state());
+      case GameEvent.GamePaused ignored ->
+          pushService.notifyAll(
+              "The game has been paused", "Check the global chat for more information");
+      case GameEvent.FlagsPending ignored ->
+          pushService.notifyAll(
+              "Waiting for all flags to be registered",
+              "The game will resume once all teams have registered their flags");
+      case GameEvent.VictoryDeclared victory ->
+          pushService.notifyAll(
+              "Team " + victory.teamName() + " has declared victory!",
+              "The game has concluded. Please return to the rendezvous point.");
+      case GameEvent.EmergencyDeclared ignored ->
+          pushService.notifyAll(
+              "EMERGENCY DECLARED",
+              "An emergency has been declared. Return to the rendezvous point immediately");
+      case GameEvent.EmergencyReleased ignored ->
+          pushService.notifyAll(
+              "Emergency state has been lifted",
+              "Check the global chat for further information if needed.");
+      default -> {
+        // Only sent over sockets
+      }
+    }
+  }
+
+  private void phaseChanged(Game.State state) {
+    AppConfig.GameConfig game = config.getGame();
+    String title = "Capture the Flag";
+    String body =
+        switch (state) {
+          case WAITING_TO_START -> {
+            title = "this is a title";
+            yield "this is a body";
+          }
+          case GRACE_PERIOD -> {
+            title = "The game has begun";
+            yield "The grace period has started. You have "
+                + Math.round((float) game.getGraceTime() / 60)
+                + " minutes to hide and register your flag.";
+          }
+          case SCOUT_PERIOD -> {
+            title = "The scouting period has commenced";
+            yield "Flags can now be stolen. You have "
+                + Math.round((float) game.getScoutTime() / 60)
+                + " minutes until the flag locations are revealed";
+          }
+          case FFA_PERIOD -> {
+            title = "Flags have been revealed!";
+            yield "Check the map on the website to see where the flags are located. You have "
+                + Math.round((float) game.getFfaTime() / 60)
+                + " minutes until the game finishes.";
+          }
+          case ENDED -> {
+            title = "The game has ended";
+            yield "Return to the rendezvous point.";
+          }
+        };
+
+    pushService.notifyAll(title, body);
+  }
+}
@@ -0,0 +1,305 @@
+package moae.dev.Services;
+
+import moae.dev.Server.AppConfig;
+import moae.dev.Utils.HashedWheelTimer;
+import moae.dev.Utils.LatencyRecorder;
+import nl.martijndwars.webpush.Subscription;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Delivers push notifications without holding up the caller. Every delivery runs on its own
+ * virtual thread, but only {@code maxConcurrent} requests are in flight at once, so a broadcast to
+ * hundreds of subscribers cannot flood the network or the push services. With virtual threads
+ * turned off, deliveries run on a pool of {@code maxConcurrent} platform threads instead.
+ *
+ * <p>A request that times out, fails to connect or is answered with 429 or a 5xx is retried after
+ * a backoff that doubles each time, or after the push service's {@code Retry-After} if that is
+ * longer. Retries wait on a {@link HashedWheelTimer} rather than holding a thread. Subscriptions
+ * the push service no longer knows (404 or 410), and ones that cannot be encoded, are reported to
+ * {@code onGone}.
+ */
+public class PushDispatcher {
+  private static final Logger logger = LoggerFactory.getLogger(PushDispatcher.class);
+
+  /** Builds the request a push service expects for one subscription. */
+  @FunctionalInterface
+  public interface Encoder {
+    HttpRequest.Builder encode(Subscription subscription, String payload) throws Exception;
+  }
+
+  private enum Outcome {
+    DELIVERED,
+    RETRY,
+    FAILED,
+    GONE
+  }
+
+  private final Encoder encoder;
+  private final Consumer<String> onGone;
+  private final HashedWheelTimer timer;
+  private final PushOrigins origins;
+  private final Duration timeout;
+  private final int maxAttempts;
+  private final long backoffMillis;
+
+  private final HttpClient client;
+  private final ExecutorService sends;
+  private final Semaphore permits;
+
+  private final AtomicInteger pending = new AtomicInteger();
+  private final LongAdder delivered = new LongAdder();
+  private final LongAdder failed = new LongAdder();
+  private final LongAdder retries = new LongAdder();
+  private final LongAdder gone = new LongAdder();
+  private final LatencyRecorder latency = new LatencyRecorder();
+
+  public PushDispatcher(
+      AppConfig.PushConfig config,
+      Encoder encoder,
+      Consumer<String> onGone,
+      HashedWheelTimer timer) {
+    this(config, encoder, onGone, timer, new PushOrigins());
+  }
+
+  /** A dispatcher that also counts its requests by push service in {@code origins}. */
+  public PushDispatcher(
+      AppConfig.PushConfig config,
+      Encoder encoder,
+      Consumer<String> onGone,
+      HashedWheelTimer timer,
+      PushOrigins origins) {
+    this(config, encoder, onGone, timer, origins, new AppConfig.ThreadConfig());
+  }
+
+  /** A dispatcher whose deliveries run on virtual threads unless {@code threads} turns them off. */
+  public PushDispatcher(
+      AppConfig.PushConfig config,
+      Encoder encoder,
+      Consumer<String> onGone,
+      HashedWheelTimer timer,
+      PushOrigins origins,
+      AppConfig.ThreadConfig threads) {
+    if (config.getMaxConcurrent() <= 0)
+      throw new IllegalArgumentException("maxConcurrent must be positive");
+
+    this.encoder = encoder;
+    this.onGone = onGone;
+    this.timer = timer;
+    this.origins = origins;
+    this.timeout = Duration.ofMillis(config.getTimeoutMillis());
+    this.maxAttempts = Math.max(1, config.getMaxAttempts());
+    this.backoffMillis = Math.max(0, config.getBackoffMillis());
+    this.permits = new Semaphore(config.getMaxConcurrent());
+    HttpClient.Builder client = HttpClient.newBuilder().connectTimeout(timeout);
+    if (threads.isVirtual()) {
+      this.sends = Executors.newVirtualThreadPerTaskExecutor();
+      client.executor(sends);
+    } else {
+      // The client keeps its own threads, so responses aren't stuck behind blocked deliveries
+      this.sends =
+          Executors.newFixedThreadPool(
+              config.getMaxConcurrent(),
+              Thread.ofPlatform().name("push-send-", 0).daemon(true).factory());
+    }
+    this.client = client.build();
+  }
+
+  /** One notification to one subscription. */
+  private record Delivery(
+      String endpoint, Subscription subscription, String payload, int attempt, Batch batch) {
+    Delivery retry() {
+      return new Delivery(endpoint, subscription, payload, attempt + 1, batch);
+    }
+  }
+
+  /** Completes once every delivery of one broadcast has been delivered or given up on. */
+  private static final class Batch {
+    final AtomicInteger remaining;
+    final CompletableFuture<Void> done = new CompletableFuture<>();
+
+    Batch(int deliveries) {
+      this.remaining = new AtomicInteger(deliveries);
+      if (deliveries == 0) done.complete(null);
+    }
+
+    void settle() {
+      if (remaining.decrementAndGet() == 0) done.complete(null);
+    }
+  }
+
+  // ----- Dispatch -----
+
+  /**
+   * Starts sending {@code payload} to every subscription, keyed by endpoint, and returns
+   * straight away. The future completes once every delivery has settled.
+   */
+  public CompletableFuture<Void> dispatch(Map<String, Subscription> targets, String payload) {
+    Batch batch = new Batch(targets.size());
+    for (Map.Entry<String, Subscription> target : targets.entrySet()) {
+      pending.incrementAndGet();
+      submit(new Delivery(target.getKey(), target.getValue(), payload, 1, batch));
+    }
+    return batch.done;
+  }
+
+  private void submit(Delivery delivery) {
+    try {
+      sends.execute(() -> attempt(delivery));
+    } catch (RejectedExecutionException e) {
+      // Shutting down
+      settle(delivery);
+    }
+  }
+
+  private void attempt(Delivery delivery) {
+    HttpRequest request;
+    try {
+      request =
+          encoder.encode(delivery.subscription(), delivery.payload()).timeout(timeout).build();
+    } catch (Exception e) {
+      logger.warn("Cannot encode push to {}: {}", delivery.endpoint(), e.getMessage());
+      finish(delivery, Outcome.GONE, null);
+      return;
+    }
+    PushOrigins.Origin origin = origins.of(request.uri());
+
+    try {
+      permits.acquire();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      settle(delivery);
+      return;
+    }
+
+    long retryAfterMillis = 0;
+    Outcome outcome;
+    long start = System.nanoTime();
+    try {
+      HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+      outcome = classify(response.statusCode());
+      retryAfterMillis = retryAfterMillis(response);
+    } catch (IOException e) {
+      outcome = Outcome.RETRY;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      settle(delivery);
+      return;
+    } finally {
+      permits.release();
+      long took = System.nanoTime() - start;
+      latency.record(took);
+      origin.onRequest(took);
+    }
+
+    if (outcome == Outcome.RETRY && delivery.attempt() < maxAttempts) {
+      retry(delivery, retryAfterMillis, origin);
+    } else {
+      finish(delivery, outcome == Outcome.RETRY ? Outcome.FAILED : outcome, origin);
+    }
+  }
+
+  private static Outcome classify(int status) {
+    if (status >= 200 && status < 300) return Outcome.DELIVERED;
+    if (status == 404 || status == 410) return Outcome.GONE;
+    if (status == 429 || status >= 500) return Outcome.RETRY;
+    return Outcome.FAILED;
+  }
+
+  /** The push service's {@code Retry-After} in milliseconds, or 0 if it didn't send seconds. */
+  private static long retryAfterMillis(HttpResponse<?> response) {
+    try {
+      return Math.max(0, response.headers().firstValueAsLong("Retry-After").orElse(0)) * 1000;
+    } catch (NumberFormatException e) {
+      // An HTTP date; the backoff will do
+      return 0;
+    }
+  }
+
+  private void retry(Delivery delivery, long retryAfterMillis, PushOrigins.Origin origin) {
+    retries.increment();
+    long backoff = backoffMillis << Math.min(delivery.attempt() - 1, 20);
+    // Jitter, so retries after a shared outage don't all land on the same tick
+    backoff += ThreadLocalRandom.current().nextLong(backoff / 4 + 1);
+    long delay = Math.max(backoff, retryAfterMillis);
+    try {
+      timer.schedule(() -> submit(delivery.retry()), delay, TimeUnit.MILLISECONDS);
+    } catch (IllegalStateException e) {
+      finish(delivery, Outcome.FAILED, origin);
+    }
+  }
+
+  /** Settles {@code delivery}; {@code origin} is null if it never reached a push service. */
+  private void finish(Delivery delivery, Outcome outcome, PushOrigins.Origin origin) {
+    switch (outcome) {
+      case DELIVERED -> delivered.increment();
+      case GONE -> {
+        gone.increment();
+        onGone.accept(delivery.endpoint());
+      }
+      default -> {
+        failed.increment();
+        if (origin != null) origin.onFailed();
+        logger.warn(
+            "Giving up on push to {} after {} attempts", delivery.endpoint(), delivery.attempt());
+      }
+    }
+    settle(delivery);
+  }
+
+  private void settle(Delivery delivery) {
+    pending.decrementAndGet();
+    delivery.batch().settle();
+  }
+
+  // ----- Stats -----
+
+  /** Deliveries not yet delivered or given up on, including ones waiting to retry. */
+  public int pending() {
+    return pending.get();
+  }
+
+  public long delivered() {
+    return delivered.sum();
+  }
+
+  public long failed() {
+    return failed.sum();
+  }
+
+  public long retries() {
+    return retries.sum();
+  }
+
+  public long gone() {
+    return gone.sum();
+  }
+
+  /** Time each request took, whatever its outcome. */
+  public LatencyRecorder.Snapshot requestLatency() {
+    return latency.snapshot();
+  }
+
+  /** Stops sending. Deliveries that have not gone out yet are dropped. */
+  public void shutdown() {
+    sends.shutdownNow();
+    client.shutdownNow();
+  }
+}
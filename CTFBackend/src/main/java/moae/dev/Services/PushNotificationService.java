@@ -1,22 +1,66 @@
 package moae.dev.Services;
 
+import moae.dev.Server.AppConfig;
+import moae.dev.Utils.HashedWheelTimer;
+import moae.dev.Utils.Json;
 import moae.dev.Utils.PushSubscription;
+import moae.dev.Utils.WriteAheadLog;
 
+import jakarta.annotation.PreDestroy;
 import nl.martijndwars.webpush.*;
+import org.apache.http.Header;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.util.EntityUtils;
 import org.bouncycastle.jce.provider.BouncyCastleProvider;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.http.HttpRequest;
+import java.nio.file.Path;
 import java.security.Security;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
 
+/**
+ * Web Push to every subscribed browser. {@link #notifyAll} only hands the notification to a
+ * {@link PushDispatcher} and returns, so games can call it while they hold their own locks.
+ *
+ * <p>With {@code persistence.dir} set, subscriptions are journaled under {@code push/} and survive
+ * a restart.
+ */
 @Service
 public class PushNotificationService {
   private static final Logger logger = LoggerFactory.getLogger(PushNotificationService.class);
 
+  // Headers java.net.http sets itself and refuses to take from callers
+  private static final Set<String> RESTRICTED_HEADERS =
+      Set.of("content-length", "connection", "host", "expect", "upgrade");
+
+  // A journal record is one subscription added or removed; a checkpoint is every subscription
+  private static final byte ADDED = 1;
+  private static final byte REMOVED = 2;
+
   private final Map<String, Subscription> subscriptions = new ConcurrentHashMap<>();
+  private final PushOrigins origins = new PushOrigins();
+  private final AppConfig.PushConfig config;
+  private final AppConfig.ThreadConfig threads;
+
+  // Null when subscriptions are only kept in memory
+  private final WriteAheadLog journal;
+  private final ReentrantLock journalLock = new ReentrantLock();
+  private final int checkpointEvery;
+  private int sinceCheckpoint = 0;
 
   @Value("${vapid.publicKey}")
   private String publicKey;
@@ -27,42 +71,223 @@ public class PushNotificationService {
   @Value("${vapid.subject}")
   private String subject;
 
+  // Built on first use, once the VAPID keys have been injected
+  private volatile PushService pushService;
+  private volatile PushDispatcher dispatcher;
+  private final ReentrantLock dispatcherLock = new ReentrantLock();
+
   public PushNotificationService() {
+    this(new AppConfig.PushConfig(), null, new AppConfig.ThreadConfig());
+  }
+
+  @Autowired
+  public PushNotificationService(AppConfig config) {
+    this(config.getPush(), config.getPersistence(), config.getThreads());
+  }
+
+  private PushNotificationService(
+      AppConfig.PushConfig config,
+      AppConfig.PersistenceConfig persistence,
+      AppConfig.ThreadConfig threads) {
+    this.config = config != null ? config : new AppConfig.PushConfig();
+    this.threads = threads != null ? threads : new AppConfig.ThreadConfig();
     if (Security.getProvider(BouncyCastleProvider.PROVIDER_NAME) == null) {
       Security.addProvider(new BouncyCastleProvider());
     }
+
+    if (persistence != null && persistence.isEnabled()) {
+      this.checkpointEvery = persistence.getCheckpointEvery();
+      this.journal = WriteAheadLog.open(Path.of(persistence.getDir(), "push"), new Recovery());
+    } else {
+      this.checkpointEvery = 0;
+      this.journal = null;
+    }
   }
 
   public void addSubscription(String endpoint, PushSubscription sub) {
     Subscription subscription =
         new Subscription(sub.endpoint, new Subscription.Keys(sub.keys.p256dh, sub.keys.auth));
-    subscriptions.put(endpoint, subscription);
+
+    // Journaled in the same order the map changes
+    journalLock.lock();
+    try {
+      subscriptions.put(endpoint, subscription);
+      journal(
+          encode(
+              out -> {
+                out.writeByte(ADDED);
+                writeSubscription(out, endpoint, subscription);
+              }));
+    } finally {
+      journalLock.unlock();
+    }
   }
 
   public void removeSubscription(String endpoint) {
-    subscriptions.remove(endpoint);
+    journalLock.lock();
+    try {
+      if (subscriptions.remove(endpoint) == null) return;
+      journal(
+          encode(
+              out -> {
+                out.writeByte(REMOVED);
+                out.writeUTF(endpoint);
+              }));
+    } finally {
+      journalLock.unlock();
+    }
   }
 
-  public void notifyAll(String title, String body) {
+  /**
+   * Queues a notification for every subscriber and returns straight away. The future completes
+   * once every delivery has been made or given up on.
+   */
+  public CompletableFuture<Void> notifyAll(String title, String body) {
+    if (subscriptions.isEmpty()) return CompletableFuture.completedFuture(null);
+
+    PushDispatcher dispatcher;
     try {
-      PushService pushService =
-          new PushService().setPublicKey(publicKey).setPrivateKey(privateKey).setSubject(subject);
-
-      String payload = String.format("{\"title\":\"%s\",\"body\":\"%s\"}", title, body);
-
-      Iterator<Map.Entry<String, Subscription>> iterator = subscriptions.entrySet().iterator();
-      while (iterator.hasNext()) {
-        Map.Entry<String, Subscription> entry = iterator.next();
-        try {
-          pushService.send(new Notification(entry.getValue(), payload));
-        } catch (Exception e) {
-          System.err.println("Failed to send to " + entry.getKey() + ": " + e.getMessage());
-          iterator.remove();
-        }
-      }
+      dispatcher = dispatcher();
     } catch (Exception e) {
-      System.err.println("Push service error: " + e.getMessage());
       logger.error("Push service error: {}", e.getMessage(), e);
+      return CompletableFuture.completedFuture(null);
+    }
+
+    return dispatcher.dispatch(Map.copyOf(subscriptions), payload(title, body));
+  }
+
+  /** The JSON the service worker receives for a notification. */
+  public static String payload(String title, String body) {
+    return Json.mapper().createObjectNode().put("title", title).put("body", body).toString();
+  }
+
+  private PushDispatcher dispatcher() throws Exception {
+    PushDispatcher current = dispatcher;
+    if (current != null) return current;
+
+    // A lock rather than a monitor, so virtual threads waiting on the first build don't pin
+    dispatcherLock.lock();
+    try {
+      current = dispatcher;
+      if (current == null) {
+        pushService =
+            new PushService().setPublicKey(publicKey).setPrivateKey(privateKey).setSubject(subject);
+        dispatcher =
+            current =
+                new PushDispatcher(
+                    config,
+                    this::encode,
+                    this::removeSubscription,
+                    HashedWheelTimer.shared(),
+                    origins,
+                    threads);
+      }
+    } finally {
+      dispatcherLock.unlock();
+    }
+    return current;
+  }
+
+  /** Encrypts and signs the notification, then copies the request over to java.net.http. */
+  private HttpRequest.Builder encode(Subscription subscription, String payload) throws Exception {
+    HttpPost post =
+        pushService.preparePost(new Notification(subscription, payload), Encoding.AES128GCM);
+
+    HttpRequest.Builder request = HttpRequest.newBuilder(post.getURI());
+    for (Header header : post.getAllHeaders()) {
+      if (!RESTRICTED_HEADERS.contains(header.getName().toLowerCase(Locale.ROOT)))
+        request.header(header.getName(), header.getValue());
+    }
+    byte[] body =
+        post.getEntity() == null ? new byte[0] : EntityUtils.toByteArray(post.getEntity());
+    return request.POST(HttpRequest.BodyPublishers.ofByteArray(body));
+  }
+
+  /** The dispatcher's counters, or {@code null} if nothing has been sent yet. */
+  public PushDispatcher getDispatcher() {
+    return dispatcher;
+  }
+
+  /** Requests by the push service they went to, kept for as long as the service runs. */
+  public PushOrigins origins() {
+    return origins;
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    PushDispatcher current = dispatcher;
+    if (current != null) current.shutdown();
+    if (journal != null) journal.close();
+  }
+
+  // ----- Persistence -----
+  private interface Writer {
+    void write(DataOutputStream out) throws IOException;
+  }
+
+  private void journal(byte[] record) {
+    if (journal == null) return;
+    journal.append(record);
+    if (++sinceCheckpoint < checkpointEvery) return;
+
+    journal.checkpoint(
+        encode(
+            out -> {
+              out.writeInt(subscriptions.size());
+              for (Map.Entry<String, Subscription> entry : subscriptions.entrySet())
+                writeSubscription(out, entry.getKey(), entry.getValue());
+            }));
+    sinceCheckpoint = 0;
+  }
+
+  private static byte[] encode(Writer writer) {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+    try (DataOutputStream out = new DataOutputStream(bytes)) {
+      writer.write(out);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return bytes.toByteArray();
+  }
+
+  private static void writeSubscription(
+      DataOutputStream out, String endpoint, Subscription subscription) throws IOException {
+    out.writeUTF(endpoint);
+    out.writeUTF(subscription.endpoint);
+    out.writeUTF(subscription.keys.p256dh);
+    out.writeUTF(subscription.keys.auth);
+  }
+
+  private void readSubscription(DataInputStream in) throws IOException {
+    String endpoint = in.readUTF();
+    subscriptions.put(
+        endpoint,
+        new Subscription(in.readUTF(), new Subscription.Keys(in.readUTF(), in.readUTF())));
+  }
+
+  private final class Recovery implements WriteAheadLog.Replay {
+    @Override
+    public void restore(byte[] checkpoint) {
+      try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(checkpoint))) {
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) readSubscription(in);
+      } catch (IOException e) {
+        throw new UncheckedIOException("Failed to restore push subscriptions", e);
+      }
+    }
+
+    @Override
+    public void apply(long time, byte[] record) {
+      sinceCheckpoint++;
+      try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(record))) {
+        switch (in.readByte()) {
+          case ADDED -> readSubscription(in);
+          case REMOVED -> subscriptions.remove(in.readUTF());
+          default -> throw new IOException("Unknown push journal record");
+        }
+      } catch (IOException e) {
+        throw new UncheckedIOException("Failed to replay push subscriptions", e);
+      }
     }
   }
 }
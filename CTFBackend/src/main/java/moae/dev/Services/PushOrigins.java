@@ -0,0 +1,64 @@
+package moae.dev.Services;
+
+import moae.dev.Utils.LatencyRecorder;
+
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+
+/**
+ * Push requests by the push service they went to, named by host, such as {@code
+ * fcm.googleapis.com}. Browsers each use their vendor's service, so a slow or failing one shows up
+ * here rather than being averaged away.
+ */
+public class PushOrigins {
+  /** Requests to one push service. */
+  public static final class Origin {
+    private final LatencyRecorder latency = new LatencyRecorder();
+    private final LongAdder failed = new LongAdder();
+
+    void onRequest(long nanos) {
+      latency.record(nanos);
+    }
+
+    void onFailed() {
+      failed.increment();
+    }
+
+    /** Time each request took, whatever its outcome. */
+    public LatencyRecorder.Snapshot latency() {
+      return latency.snapshot();
+    }
+
+    /** Deliveries given up on, after every retry. */
+    public long failed() {
+      return failed.sum();
+    }
+  }
+
+  private final Map<String, Origin> origins = new ConcurrentHashMap<>();
+  private final List<BiConsumer<String, Origin>> listeners = new CopyOnWriteArrayList<>();
+
+  /** The push service {@code endpoint} belongs to, counted from now on if it is new. */
+  Origin of(URI endpoint) {
+    String host = endpoint.getHost() == null ? "unknown" : endpoint.getHost();
+    Origin origin = origins.get(host);
+    if (origin != null) return origin;
+
+    Origin created = new Origin();
+    origin = origins.putIfAbsent(host, created);
+    if (origin != null) return origin;
+    listeners.forEach(listener -> listener.accept(host, created));
+    return created;
+  }
+
+  /** Calls {@code listener} with every push service seen so far, and with each one seen later. */
+  public void onOrigin(BiConsumer<String, Origin> listener) {
+    listeners.add(listener);
+    origins.forEach(listener);
+  }
+}
@@ -0,0 +1,40 @@
+package moae.dev.Sockets;
+
+import moae.dev.Utils.LatencyRecorder;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Broadcasts on one channel of a game. A broadcast is timed from its first session's queue to its
+ * last, which is all the caller waits for; sending happens later, on each session's outbox. Every
+ * team's chat channel shares one of these, so the teams of a game are counted together.
+ */
+public class ChannelStats {
+  private final LatencyRecorder fanOut = new LatencyRecorder();
+  private final LongAdder reached = new LongAdder();
+  private final LongAdder chat = new LongAdder();
+
+  void onBroadcast(int sessions, long nanos) {
+    fanOut.record(nanos);
+    reached.add(sessions);
+  }
+
+  void onChat() {
+    chat.increment();
+  }
+
+  /** Broadcasts that reached at least one session, and how long queueing them took. */
+  public LatencyRecorder.Snapshot fanOut() {
+    return fanOut.snapshot();
+  }
+
+  /** Sessions reached across every broadcast, one per session per broadcast. */
+  public long reached() {
+    return reached.sum();
+  }
+
+  /** Chat messages broadcast on the channel. */
+  public long chat() {
+    return chat.sum();
+  }
+}
@@ -0,0 +1,185 @@
+package moae.dev.Sockets;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import moae.dev.Utils.Cbor;
+import moae.dev.Utils.Json;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * A message encoded once for a broadcast. Every session is handed the same frame, so fanning out
+ * to N sessions costs one serialization rather than N.
+ *
+ * <p>Frames are encoded as JSON up front. The CBOR encoding is only made the first time a session
+ * that negotiated it is sent the frame, and is then shared in the same way. It is transcoded from
+ * the JSON rather than the value, which may have changed since, so both encodings always carry the
+ * same content. Frames whose text isn't JSON, such as the players channel's prefixed ones, go to
+ * those sessions as text.
+ *
+ * <p>A session that asked for batches is sent the frames of each window as one array of them; see
+ * {@link SessionOutbox}.
+ *
+ * <p>Droppable frames (chat) may be discarded for a session that falls behind; see {@link
+ * SessionOutbox}.
+ */
+public final class Frame {
+  private static final byte[] NOT_BINARY = new byte[0];
+
+  private final TextMessage message;
+  private final boolean droppable;
+  private final boolean json;
+  private final List<Frame> parts;
+  private final long createdAt = System.nanoTime();
+  private volatile byte[] binary;
+
+  private Frame(String payload, boolean droppable, boolean json, byte[] binary) {
+    this(payload, droppable, json, binary, null);
+  }
+
+  private Frame(
+      String payload, boolean droppable, boolean json, byte[] binary, List<Frame> parts) {
+    this.message = new TextMessage(payload);
+    this.droppable = droppable;
+    this.json = json;
+    this.binary = binary;
+    this.parts = parts;
+  }
+
+  /** A frame of JSON that is already encoded. */
+  public static Frame text(String payload, boolean droppable) {
+    return new Frame(payload, droppable, true, null);
+  }
+
+  public static Frame of(Object value, boolean droppable) throws JsonProcessingException {
+    return new Frame(Json.mapper().writeValueAsString(value), droppable, true, null);
+  }
+
+  /** {@code value} as JSON after a plain-text {@code prefix}, as the players channel sends them. */
+  public static Frame of(String prefix, Object value, boolean droppable)
+      throws JsonProcessingException {
+    return new Frame(
+        prefix + Json.mapper().writeValueAsString(value), droppable, false, NOT_BINARY);
+  }
+
+  /**
+   * {@code frame} as the {@code data} of an object that also has {@code topic}. The JSON is built
+   * around the frame's text, without encoding its value again.
+   */
+  public static Frame wrap(String topic, Frame frame) {
+    String payload = "{\"topic\":\"" + topic + "\",\"data\":" + frame.message.getPayload() + "}";
+    return new Frame(payload, frame.droppable, frame.json, frame.json ? null : NOT_BINARY);
+  }
+
+  /**
+   * {@code frames} as one array, for a session that asked for batches. Every frame must be {@link
+   * #batchable()}. Both encodings are built around the frames' own, without encoding their values
+   * again: CBOR items are self-delimiting, so the array is a header followed by the items.
+   */
+  static Frame batch(List<Frame> frames) {
+    StringBuilder payload = new StringBuilder("[");
+    for (Frame frame : frames) {
+      if (payload.length() > 1) payload.append(',');
+      payload.append(frame.message.getPayload());
+    }
+    payload.append(']');
+    return new Frame(payload.toString(), false, true, null, List.copyOf(frames));
+  }
+
+  /** Whether the frame is JSON, and so can be sent as part of a batch. */
+  boolean batchable() {
+    return json;
+  }
+
+  /** The same message as a new frame, so its send latency is measured from now. */
+  public Frame copy() {
+    return new Frame(message.getPayload(), droppable, json, binary);
+  }
+
+  public TextMessage message() {
+    return message;
+  }
+
+  /**
+   * The message for a session that negotiated {@code protocol}: the CBOR encoding for {@link
+   * GameSocketRouter#CBOR} if the frame has one, the text otherwise.
+   */
+  public WebSocketMessage<?> message(String protocol) {
+    if (!GameSocketRouter.CBOR.equals(protocol)) return message;
+    byte[] bytes = binary();
+    return bytes == null ? message : new BinaryMessage(bytes);
+  }
+
+  /** The CBOR encoding, or {@code null} if the frame can only be sent as text. */
+  public byte[] binary() {
+    byte[] bytes = binary;
+    if (bytes == null) {
+      // Two sessions may both encode a new frame; either result is the same
+      try {
+        if (!json) {
+          bytes = NOT_BINARY;
+        } else if (parts != null) {
+          bytes = array(parts);
+        } else {
+          bytes = transcode(message.getPayload());
+        }
+      } catch (Exception e) {
+        bytes = NOT_BINARY;
+      }
+      binary = bytes;
+    }
+    return bytes == NOT_BINARY ? null : bytes;
+  }
+
+  /** {@code payload}, which should be JSON, as CBOR, streamed token by token. */
+  private static byte[] transcode(String payload) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream(payload.length());
+    try (JsonParser parser = Json.mapper().createParser(payload);
+        JsonGenerator generator = Cbor.mapper().createGenerator(out)) {
+      if (parser.nextToken() == null) throw new IOException("No JSON to transcode");
+      generator.copyCurrentStructure(parser);
+      if (parser.nextToken() != null) throw new IOException("Trailing content after JSON");
+    }
+    return out.toByteArray();
+  }
+
+  private static byte[] array(List<Frame> parts) {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    int size = parts.size();
+    // Major type 4 (array), with the length in the initial byte or the bytes after it
+    if (size < 24) {
+      out.write(0x80 | size);
+    } else if (size < 0x100) {
+      out.write(0x98);
+      out.write(size);
+    } else if (size < 0x10000) {
+      out.write(0x99);
+      out.write(size >>> 8);
+      out.write(size);
+    } else {
+      out.write(0x9a);
+      for (int shift = 24; shift >= 0; shift -= 8) out.write(size >>> shift);
+    }
+    for (Frame part : parts) {
+      byte[] item = part.binary();
+      if (item == null) return NOT_BINARY;
+      out.writeBytes(item);
+    }
+    return out.toByteArray();
+  }
+
+  public boolean droppable() {
+    return droppable;
+  }
+
+  /** When the frame was encoded, in {@link System#nanoTime()} terms. */
+  public long createdAt() {
+    return createdAt;
+  }
+}
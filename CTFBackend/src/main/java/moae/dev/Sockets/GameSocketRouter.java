@@ -0,0 +1,63 @@
+package moae.dev.Sockets;
+
+import org.springframework.lang.NonNull;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.SubProtocolCapable;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.List;
+
+/**
+ * The single handler registered for every socket path. {@link JwtHandshakeInterceptor} works out
+ * which game and channel a connection is for and stores that channel's handler on the session,
+ * so sessions reach per-game handlers without a registration per game or team.
+ *
+ * <p>Clients pick the wire format with {@code Sec-WebSocket-Protocol}: {@value #CBOR} for CBOR,
+ * or {@value #JSON}. A client that asks for neither gets JSON text, as before.
+ */
+public class GameSocketRouter implements WebSocketHandler, SubProtocolCapable {
+  static final String HANDLER_ATTRIBUTE = "handler";
+  public static final String JSON = "json";
+  public static final String CBOR = "cbor";
+
+  private static WebSocketHandler target(WebSocketSession session) {
+    return (WebSocketHandler) session.getAttributes().get(HANDLER_ATTRIBUTE);
+  }
+
+  @Override
+  public void afterConnectionEstablished(@NonNull WebSocketSession session) throws Exception {
+    target(session).afterConnectionEstablished(session);
+  }
+
+  @Override
+  public void handleMessage(@NonNull WebSocketSession session, @NonNull WebSocketMessage<?> message)
+      throws Exception {
+    target(session).handleMessage(session, message);
+  }
+
+  @Override
+  public void handleTransportError(@NonNull WebSocketSession session, @NonNull Throwable exception)
+      throws Exception {
+    target(session).handleTransportError(session, exception);
+  }
+
+  @Override
+  public void afterConnectionClosed(@NonNull WebSocketSession session, @NonNull CloseStatus status)
+      throws Exception {
+    target(session).afterConnectionClosed(session, status);
+  }
+
+  /** A client that offers both gets the first one it listed. */
+  @Override
+  @NonNull
+  public List<String> getSubProtocols() {
+    return List.of(CBOR, JSON);
+  }
+
+  @Override
+  public boolean supportsPartialMessages() {
+    return false;
+  }
+}
@@ -0,0 +1,240 @@
+package moae.dev.Sockets;
+
+import moae.dev.Game.Game;
+import moae.dev.Game.GameEvent;
+import moae.dev.Game.Player;
+import moae.dev.Game.Team;
+import moae.dev.Server.AppConfig;
+import moae.dev.Utils.AnnouncementMessage;
+import moae.dev.Utils.HashedWheelTimer;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * The socket channels of one game. Each game owns its own handlers, so games never share sessions.
+ * Every channel, chat included, is also a topic of the multiplexed channel, which can carry all of
+ * them over one connection.
+ */
+public class GameSockets {
+  public static final String STATE = "state";
+  public static final String PLAYERS = "players";
+  public static final String ANNOUNCEMENTS = "announcements";
+  public static final String GLOBAL = "global";
+  public static final String TEAM = "team";
+  public static final String LOCATIONS = "locations";
+  public static final String MULTIPLEX = "v2";
+  /** Query parameter a client sets to {@code true} to be sent batches of frames. */
+  public static final String BATCH = "batch";
+  /** The channels a client can connect to, team chat counting as one. */
+  public static final List<String> CHANNELS =
+      List.of(STATE, PLAYERS, ANNOUNCEMENTS, GLOBAL, TEAM, MULTIPLEX);
+
+  // Every game's sessions share one pool when virtual threads are off, as they would Tomcat's
+  private static final AtomicReference<ExecutorService> platformSends = new AtomicReference<>();
+
+  private final Game game;
+  private final AppConfig.SocketConfig config;
+  private final Executor sends;
+  private final OutboundStats stats = new OutboundStats();
+  // Shared by every team's chat channel, so teams can come and go without losing counts
+  private final ChannelStats teamStats = new ChannelStats();
+  private final StateSocketConnectionHandler state;
+  private final PlayerSocketConnectionHandler players;
+  private final AnnouncementSocketConnectionHandler announcements;
+  private final MultiplexSocketConnectionHandler multiplex;
+  private final LocationFeed locations;
+
+  /** Channels for {@code game}, with location updates flushed on {@code timer}. */
+  public GameSockets(Game game, AppConfig config, HashedWheelTimer timer) {
+    this.game = game;
+    this.config = config.getSockets() != null ? config.getSockets() : new AppConfig.SocketConfig();
+    this.sends = sends(config.getThreads());
+    AppConfig.LocationConfig locationConfig =
+        config.getLocations() != null ? config.getLocations() : new AppConfig.LocationConfig();
+    this.state = new StateSocketConnectionHandler(game, this.config);
+    this.players = new PlayerSocketConnectionHandler(game);
+    this.announcements = new AnnouncementSocketConnectionHandler(game);
+    this.multiplex = new MultiplexSocketConnectionHandler(game);
+    this.locations = new LocationFeed(game, timer, locationConfig.getBroadcastMillis());
+  }
+
+  public StateSocketConnectionHandler state() {
+    return state;
+  }
+
+  public PlayerSocketConnectionHandler players() {
+    return players;
+  }
+
+  public AnnouncementSocketConnectionHandler announcements() {
+    return announcements;
+  }
+
+  public MultiplexSocketConnectionHandler multiplex() {
+    return multiplex;
+  }
+
+  public LocationFeed locations() {
+    return locations;
+  }
+
+  /**
+   * The outbound queue for a session that has just joined one of this game's channels. Sessions
+   * that asked for batches get the configured coalescing window.
+   */
+  public SessionOutbox outbox(WebSocketSession session) {
+    String batch = MultiplexSocketConnectionHandler.param(session.getUri(), BATCH);
+    boolean batched = "true".equals(batch);
+    return new SessionOutbox(
+        session,
+        config.getQueueCapacity(),
+        config.getMaxOverflows(),
+        batched ? config.getCoalesceMillis() : 0,
+        stats,
+        sends);
+  }
+
+  /** Null for a virtual thread per session, otherwise the shared platform pool. */
+  private static Executor sends(AppConfig.ThreadConfig threads) {
+    if (threads == null || threads.isVirtual()) return null;
+
+    ExecutorService pool = platformSends.get();
+    if (pool != null) return pool;
+    ThreadFactory factory = Thread.ofPlatform().name("socket-send-", 0).daemon(true).factory();
+    ExecutorService created =
+        Executors.newFixedThreadPool(Math.max(1, threads.getPlatformThreads()), factory);
+    if (platformSends.compareAndSet(null, created)) return created;
+    created.shutdown();
+    return platformSends.get();
+  }
+
+  public OutboundStats stats() {
+    return stats;
+  }
+
+  /** The stats team chat channels are created with. */
+  public ChannelStats teamStats() {
+    return teamStats;
+  }
+
+  /** Broadcasts on {@code channel}, one of {@link #CHANNELS}, or {@code null} if it has none. */
+  public ChannelStats channelStats(String channel) {
+    if (TEAM.equals(channel)) return teamStats;
+    SocketConnectionHandler handler = handler(channel, null);
+    return handler == null ? null : handler.stats();
+  }
+
+  /** Sessions connected to {@code channel}, with every team's chat counted as one channel. */
+  public int sessions(String channel) {
+    if (!TEAM.equals(channel)) {
+      SocketConnectionHandler handler = handler(channel, null);
+      return handler == null ? 0 : handler.getSessionCount();
+    }
+    int sessions = 0;
+    for (Team team : game.getTeams()) {
+      if (team.getWebSocketHandler() != null)
+        sessions += team.getWebSocketHandler().getSessionCount();
+    }
+    return sessions;
+  }
+
+  /**
+   * The handler serving {@code channel}, or {@code null} if there is no such channel. Team
+   * channels need the team's id.
+   */
+  public SocketConnectionHandler handler(String channel, UUID team) {
+    return switch (channel) {
+      case STATE -> state;
+      case PLAYERS -> players;
+      case ANNOUNCEMENTS -> announcements;
+      case MULTIPLEX -> multiplex;
+      case GLOBAL -> game.getWebSocketHandler();
+      case TEAM -> {
+        if (team == null || !game.isValidTeam(team)) yield null;
+        Team target = game.getTeam(team);
+        yield target.getWebSocketHandler();
+      }
+      default -> null;
+    };
+  }
+
+  /**
+   * Delivers committed game events to the channels that carry them, in order. Every state change
+   * goes out as a numbered delta on the state channel; some are also announced.
+   */
+  public void deliver(List<GameEvent> events) {
+    for (GameEvent event : events) {
+      state.publish(event);
+
+      switch (event) {
+        case GameEvent.PlayerJoined joined -> players(joined.player(), "joined");
+        case GameEvent.PlayerLeft left -> {
+          players(left.player(), left.kicked() ? "removed" : "left");
+          multiplex.revoke(left.player().getID());
+        }
+        case GameEvent.FlagsPending ignored ->
+            announcements.broadcast(new AnnouncementMessage("frozen", null));
+        case GameEvent.FlagRegistered flag ->
+            announcements.broadcast(new AnnouncementMessage("register", flag.team().toString()));
+        case GameEvent.FlagApproached approached ->
+            announcements.broadcast(
+                new AnnouncementMessage("proximity", approached.flagTeam().toString()));
+        case GameEvent.FlagCaptured captured ->
+            announcements.broadcast(
+                new AnnouncementMessage("capture", captured.flagTeam().toString()));
+        case GameEvent.VictoryDeclared victory ->
+            announcements.broadcast(new AnnouncementMessage("victory", victory.team().toString()));
+        case GameEvent.GameReset reset when reset.hard() -> {
+          announcements.broadcast(new AnnouncementMessage("reset", null));
+          multiplex.revoke(null);
+        }
+        case GameEvent.ChatPosted chat -> {
+          SocketConnectionHandler channel =
+              chat.team() == null ? game.getWebSocketHandler() : handler(TEAM, chat.team());
+          if (channel != null) channel.broadcastMessage(chat.message());
+        }
+        default -> {
+          // Only on the state channel, or only pushed
+        }
+      }
+    }
+  }
+
+  private void players(Player player, String type) {
+    players.broadcast(
+        player.getName(),
+        player.getTeam().toString(),
+        player.isAuth(),
+        player.getID().toString(),
+        type);
+  }
+
+  /** Disconnects everyone listening to this game, including its chat channels. */
+  public void close() {
+    CloseStatus status = CloseStatus.GOING_AWAY.withReason("Game has ended");
+    locations.close();
+    state.closeSessions(status);
+    players.closeSessions(status);
+    announcements.closeSessions(status);
+    multiplex.closeSessions(status);
+
+    SocketConnectionHandler global = game.getWebSocketHandler();
+    if (global != null) global.closeSessions(status);
+    for (Team team : game.getTeams()) {
+      if (team.getWebSocketHandler() != null) team.getWebSocketHandler().closeSessions(status);
+    }
+  }
+
+  /** Whether {@code channel} carries chat and so needs an authenticated player. */
+  public static boolean isChat(String channel) {
+    return GLOBAL.equals(channel) || TEAM.equals(channel);
+  }
+}
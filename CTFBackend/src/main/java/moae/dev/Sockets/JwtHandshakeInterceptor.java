@@ -3,7 +3,6 @@ package moae.dev.Sockets;
 import moae.dev.Game.Player;
 import org.springframework.http.server.ServerHttpRequest;
 import org.springframework.http.server.ServerHttpResponse;
-import org.springframework.http.server.ServletServerHttpRequest;
 import org.springframework.lang.NonNull;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.oauth2.jwt.Jwt;
@@ -11,26 +10,57 @@ import org.springframework.security.oauth2.jwt.JwtDecoder;
 import org.springframework.security.oauth2.jwt.JwtException;
 import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationConverter;
 import moae.dev.Game.Game;
+import moae.dev.Game.GameRegistry;
+import moae.dev.Server.GameArgumentResolver;
 import org.springframework.web.socket.WebSocketHandler;
 import org.springframework.web.socket.server.HandshakeInterceptor;
 
-import jakarta.servlet.http.HttpServletRequest;
-
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
+/**
+ * Routes a socket handshake to its game and channel. Paths are {@code /socket/<channel>}, {@code
+ * /socket/team/<teamId>}, or either of those under {@code /games/<gameId>}. Chat channels also
+ * need a token issued for the same game. The multiplexed channel, {@code /socket/v2}, takes a token
+ * if one is given and remembers the player it belongs to.
+ */
 public class JwtHandshakeInterceptor implements HandshakeInterceptor {
-  private final UUID team;
-  private final Game game;
+  private final GameRegistry games;
   private final JwtDecoder jwtDecoder;
   private final JwtAuthenticationConverter jwtAuthenticationConverter =
       new JwtAuthenticationConverter();
 
-  public JwtHandshakeInterceptor(JwtDecoder jwtDecoder, UUID team, Game game) {
+  public JwtHandshakeInterceptor(JwtDecoder jwtDecoder, GameRegistry games) {
     this.jwtDecoder = jwtDecoder;
-    this.team = team;
-    this.game = game;
+    this.games = games;
+  }
+
+  private record Route(String game, String channel, UUID team) {}
+
+  /** Splits a socket path into its game, channel and team, or {@code null} if it is malformed. */
+  private static Route route(String path) {
+    String[] parts = path.replaceAll("^/+|/+$", "").split("/");
+
+    String gameId = null;
+    int i = 0;
+    if (parts.length > 2 && "games".equals(parts[0])) {
+      gameId = parts[1];
+      i = 2;
+    }
+    if (i >= parts.length || !"socket".equals(parts[i])) return null;
+
+    int rest = parts.length - i - 1;
+    if (rest == 1 && !GameSockets.TEAM.equals(parts[i + 1]))
+      return new Route(gameId, parts[i + 1], null);
+    if (rest == 2 && GameSockets.TEAM.equals(parts[i + 1])) {
+      try {
+        return new Route(gameId, GameSockets.TEAM, UUID.fromString(parts[i + 2]));
+      } catch (IllegalArgumentException e) {
+        return null;
+      }
+    }
+    return null;
   }
 
   @Override
@@ -44,8 +74,22 @@ public class JwtHandshakeInterceptor implements HandshakeInterceptor {
       return true;
     }
 
+    Route route = route(request.getURI().getPath());
+    if (route == null) return false;
+
+    Game game = games.get(route.game() == null ? Game.DEFAULT_ID : route.game());
+    if (game == null) return false;
+
+    SocketConnectionHandler handler = game.sockets().handler(route.channel(), route.team());
+    if (handler == null) return false;
+    attributes.put(GameSocketRouter.HANDLER_ATTRIBUTE, handler);
+
+    // Without a token, the multiplexed channel only serves the topics anyone may read
+    boolean multiplexed = GameSockets.MULTIPLEX.equals(route.channel());
+    if (!multiplexed && !GameSockets.isChat(route.channel())) return true;
+
     String token = getToken(request);
-    if (token == null || token.isBlank()) return false;
+    if (token == null || token.isBlank()) return multiplexed;
 
     Jwt jwt;
     try {
@@ -58,8 +102,19 @@ public class JwtHandshakeInterceptor implements HandshakeInterceptor {
       return false;
     }
 
-    Player player = game.getPlayer(UUID.fromString(jwt.getSubject()));
-    return player.isAuth() || (team == null || player.isOnTeam(team));
+    String claim = jwt.getClaimAsString(GameArgumentResolver.GAME_CLAIM);
+    if (!game.getId().equals(claim == null ? Game.DEFAULT_ID : claim)) return false;
+
+    UUID playerId = UUID.fromString(jwt.getSubject());
+    if (!game.isValidPlayer(playerId)) return false;
+
+    if (multiplexed) {
+      attributes.put(MultiplexSocketConnectionHandler.PLAYER_ATTRIBUTE, playerId);
+      return true;
+    }
+
+    Player player = game.getPlayer(playerId);
+    return player.isAuth() || (route.team() == null || player.isOnTeam(route.team()));
   }
 
   private static String getToken(ServerHttpRequest request) {
@@ -0,0 +1,93 @@
+package moae.dev.Sockets;
+
+import moae.dev.Game.Game;
+import moae.dev.Game.LocationIndex;
+import moae.dev.Game.Player;
+import moae.dev.Utils.HashedWheelTimer;
+
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Takes the positions players report over {@code /socket/v2} into the game's {@link LocationIndex},
+ * and shares them with teammates. A flush is scheduled when the first position comes in after the
+ * last one, no sooner than {@code broadcastMillis} after it; it sends each team one frame with the
+ * positions that changed, on the team's location topic. However often players report, a team hears
+ * at most once per {@code broadcastMillis}, and a quiet game schedules nothing.
+ */
+public class LocationFeed {
+  /** The data of a location frame. */
+  private record Locations(List<LocationIndex.Position> positions) {}
+
+  private final Game game;
+  private final HashedWheelTimer timer;
+  private final long periodMillis;
+  private final AtomicBoolean scheduled = new AtomicBoolean();
+  private volatile long lastFlush;
+  private volatile boolean closed;
+
+  public LocationFeed(Game game, HashedWheelTimer timer, long periodMillis) {
+    this.game = game;
+    this.timer = timer;
+    this.periodMillis = periodMillis;
+  }
+
+  /**
+   * Records where {@code player} is, and checks whether they reached another team's flag. Returns
+   * false if they aren't in the game. Allocates nothing unless it is the player's first report, a
+   * flag was reached or a flush has to be scheduled.
+   */
+  public boolean report(UUID player, float x, float y) {
+    Player found;
+    try {
+      found = game.getPlayer(player);
+    } catch (NoSuchElementException e) {
+      return false;
+    }
+
+    long now = System.currentTimeMillis();
+    int slot = game.locations().update(player, found.getTeam(), x, y, now);
+    // They left since the lookup
+    if (slot < 0) return false;
+    game.captures().check(slot, player, found.getTeam(), x, y);
+
+    if (!scheduled.get() && !closed && scheduled.compareAndSet(false, true)) {
+      long delay = Math.max(0, lastFlush + periodMillis - now);
+      try {
+        timer.schedule(this::flush, delay, TimeUnit.MILLISECONDS);
+      } catch (IllegalStateException e) {
+        // The timer has stopped, so the game is shutting down
+        scheduled.set(false);
+      }
+    }
+    return true;
+  }
+
+  /** Sends each team the positions that changed since the last flush. */
+  void flush() {
+    lastFlush = System.currentTimeMillis();
+    // Reports from here on schedule the next flush
+    scheduled.set(false);
+    if (closed) return;
+
+    MultiplexSocketConnectionHandler multiplex = game.sockets().multiplex();
+    for (Map.Entry<UUID, List<LocationIndex.Position>> team :
+        game.locations().drain().entrySet()) {
+      String topic = MultiplexSocketConnectionHandler.locationTopic(team.getKey());
+      if (multiplex.getSubscriberCount(topic) == 0) continue;
+      try {
+        multiplex.publish(topic, Frame.of(new Locations(team.getValue()), false));
+      } catch (Exception ignored) {
+      }
+    }
+  }
+
+  /** Stops sharing positions. */
+  public void close() {
+    closed = true;
+  }
+}
@@ -0,0 +1,340 @@
+package moae.dev.Sockets;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import moae.dev.Game.Game;
+import moae.dev.Game.LocationIndex;
+import moae.dev.Game.Player;
+import moae.dev.Utils.Cbor;
+import moae.dev.Utils.Json;
+import org.springframework.lang.NonNull;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * The {@code /socket/v2} channel: one connection per client carrying every topic it subscribes to,
+ * instead of one connection per channel. A token, if given, is checked once at the handshake.
+ *
+ * <p>Clients subscribe with {@code {"subscribe":["state","players"],"since":41}} and unsubscribe
+ * with {@code {"unsubscribe":["players"]}}, or subscribe at connect time with {@code
+ * ?topics=state,players&since=41}. Topics are {@code state}, {@code players}, {@code
+ * announcements}, and, for players, {@code global} and {@code team} (their own team). Organisers
+ * may also subscribe to any team as {@code team:<id>}. Every answer is a control frame such as
+ * {@code {"type":"subscribed","topics":["state","team:<id>"]}}, with {@code rejected} listing the
+ * topics that were refused.
+ *
+ * <p>Events arrive as {@code {"topic":"state","data":{...}}}, where {@code data} is the frame the
+ * old channel sends. The state topic carries every kind of delta, like a state channel resumed
+ * with {@code ?since=}, and {@code since} works the same way. Players topic frames are JSON with
+ * the change in {@code type}.
+ *
+ * <p>Players share where they are by sending a 9-byte binary message: {@code 'L'} followed by x and
+ * y as big-endian 32-bit floats, in map percent like flags. Clients send one every second or two.
+ * Teammates hear about it on {@code locations} (their own team) or, for organisers, {@code
+ * locations:<id>}, as {@code {"positions":[{"player":...,"x":...,"y":...,"time":...}]}}; see
+ * {@link LocationFeed}.
+ */
+public class MultiplexSocketConnectionHandler extends SocketConnectionHandler {
+  static final String PLAYER_ATTRIBUTE = "player";
+  static final String TOPICS = "topics";
+  private static final String TEAM_PREFIX = GameSockets.TEAM + ":";
+  private static final String LOCATION_PREFIX = GameSockets.LOCATIONS + ":";
+  static final byte LOCATION = 'L';
+  private static final int LOCATION_LENGTH = 9;
+
+  private final SubscriptionTable table = new SubscriptionTable();
+
+  public MultiplexSocketConnectionHandler(Game game) {
+    super(game);
+  }
+
+  /** The topic a team's chat is published on. */
+  public static String teamTopic(UUID team) {
+    return TEAM_PREFIX + team;
+  }
+
+  /** The topic a team's positions are published on. */
+  public static String locationTopic(UUID team) {
+    return LOCATION_PREFIX + team;
+  }
+
+  @Override
+  public void afterConnectionEstablished(@NonNull WebSocketSession session) throws Exception {
+    super.afterConnectionEstablished(session);
+    SessionOutbox outbox = outbox(session);
+    if (outbox == null) return;
+    table.join(session.getId(), outbox, (UUID) session.getAttributes().get(PLAYER_ATTRIBUTE));
+
+    URI uri = session.getUri();
+    String topics = param(uri, TOPICS);
+    if (topics != null && !topics.isBlank()) {
+      subscribe(session, List.of(topics.split(",")), StateSocketConnectionHandler.since(uri));
+    }
+  }
+
+  @Override
+  public void afterConnectionClosed(@NonNull WebSocketSession session, @NonNull CloseStatus status)
+      throws Exception {
+    table.leave(session.getId());
+    super.afterConnectionClosed(session, status);
+  }
+
+  @Override
+  public void handleMessage(@NonNull WebSocketSession session, @NonNull WebSocketMessage<?> message)
+      throws Exception {
+    if (message instanceof BinaryMessage binary && binary.getPayloadLength() == LOCATION_LENGTH) {
+      ByteBuffer payload = binary.getPayload();
+      if (payload.get(payload.position()) == LOCATION) {
+        locate(session, payload);
+        return;
+      }
+    }
+
+    JsonNode request;
+    try {
+      request =
+          switch (message) {
+            case TextMessage text -> Json.mapper().readTree(text.getPayload());
+            case BinaryMessage binary -> Cbor.mapper().readTree(bytes(binary));
+            default -> null;
+          };
+    } catch (Exception e) {
+      control(session, error("Malformed message"));
+      return;
+    }
+    if (request == null || !request.isObject()) {
+      control(session, error("Malformed message"));
+      return;
+    }
+
+    if (request.has("subscribe")) {
+      JsonNode since = request.get(StateSocketConnectionHandler.SINCE);
+      subscribe(
+          session,
+          names(request.get("subscribe")),
+          since != null && since.canConvertToLong() ? since.asLong() : null);
+    } else if (request.has("unsubscribe")) {
+      unsubscribe(session, names(request.get("unsubscribe")));
+    } else {
+      control(session, error("Expected subscribe or unsubscribe"));
+    }
+  }
+
+  /** Takes in a position. This runs for every report, so it allocates nothing if it can help it. */
+  private void locate(WebSocketSession session, ByteBuffer payload) throws Exception {
+    UUID player = table.player(session.getId());
+    int at = payload.position();
+    float x = payload.getFloat(at + 1);
+    float y = payload.getFloat(at + 5);
+
+    if (!(x >= 0 && x <= LocationIndex.MAP_SIZE && y >= 0 && y <= LocationIndex.MAP_SIZE)) {
+      control(session, error("Location is off the map"));
+    } else if (!game.area().contains(x, y)) {
+      control(session, error("Location is outside the play area"));
+    } else if (player == null || !game.sockets().locations().report(player, x, y)) {
+      control(session, error("Only players can share their location"));
+    }
+  }
+
+  private static byte[] bytes(BinaryMessage message) {
+    ByteBuffer payload = message.getPayload().duplicate();
+    byte[] bytes = new byte[payload.remaining()];
+    payload.get(bytes);
+    return bytes;
+  }
+
+  private static List<String> names(JsonNode topics) {
+    List<String> names = new ArrayList<>();
+    if (topics == null) return names;
+    if (topics.isTextual()) names.add(topics.asText());
+    for (JsonNode topic : topics) {
+      if (topic.isTextual()) names.add(topic.asText());
+    }
+    return names;
+  }
+
+  private void subscribe(WebSocketSession session, List<String> names, Long since)
+      throws Exception {
+    String id = session.getId();
+    UUID player = table.player(id);
+    List<String> subscribed = new ArrayList<>();
+    List<String> rejected = new ArrayList<>();
+
+    for (String name : names) {
+      String topic = resolve(name.trim(), player);
+      if (topic == null) {
+        rejected.add(name);
+      } else if (!subscribed.contains(topic)) {
+        subscribed.add(topic);
+      }
+    }
+
+    // The reply goes first, so every frame of a topic follows the reply that subscribed to it
+    ObjectNode reply = Json.mapper().createObjectNode().put("type", "subscribed");
+    reply.set("topics", array(subscribed));
+    if (!rejected.isEmpty()) reply.set("rejected", array(rejected));
+    control(session, reply);
+
+    SessionOutbox outbox = table.outbox(id);
+    if (outbox == null) return;
+    Set<String> current = table.topics(id);
+    for (String topic : subscribed) {
+      if (current.contains(topic)) continue;
+
+      if (GameSockets.STATE.equals(topic)) {
+        game.sockets()
+            .state()
+            .resume(
+                since,
+                () -> table.subscribe(id, topic),
+                frame -> outbox.offer(Frame.wrap(GameSockets.STATE, frame)));
+      } else {
+        table.subscribe(id, topic);
+      }
+    }
+  }
+
+  private void unsubscribe(WebSocketSession session, List<String> names) throws Exception {
+    UUID player = table.player(session.getId());
+    List<String> unsubscribed = new ArrayList<>();
+    for (String name : names) {
+      String topic = resolve(name.trim(), player);
+      // A topic that can no longer be resolved may still be dropped by its full name
+      if (topic == null) topic = name.trim();
+      if (table.unsubscribe(session.getId(), topic)) unsubscribed.add(topic);
+    }
+
+    ObjectNode reply = Json.mapper().createObjectNode().put("type", "unsubscribed");
+    reply.set("topics", array(unsubscribed));
+    control(session, reply);
+  }
+
+  /** The topic {@code name} stands for, or {@code null} if the session may not subscribe to it. */
+  private String resolve(String name, UUID playerId) {
+    switch (name) {
+      case GameSockets.STATE, GameSockets.PLAYERS, GameSockets.ANNOUNCEMENTS -> {
+        return name;
+      }
+      default -> {
+        // Resolved below
+      }
+    }
+
+    // Chat and location topics, for players only
+    if (playerId == null || !game.isValidPlayer(playerId)) return null;
+    Player player = game.getPlayer(playerId);
+
+    if (GameSockets.GLOBAL.equals(name)) return name;
+    if (GameSockets.TEAM.equals(name)) return teamTopic(player.getTeam());
+    if (GameSockets.LOCATIONS.equals(name)) return locationTopic(player.getTeam());
+
+    String prefix;
+    if (name.startsWith(TEAM_PREFIX)) {
+      prefix = TEAM_PREFIX;
+    } else if (name.startsWith(LOCATION_PREFIX)) {
+      prefix = LOCATION_PREFIX;
+    } else {
+      return null;
+    }
+
+    UUID team;
+    try {
+      team = UUID.fromString(name.substring(prefix.length()));
+    } catch (IllegalArgumentException e) {
+      return null;
+    }
+    if (!game.isValidTeam(team) || !(player.isAuth() || player.isOnTeam(team))) return null;
+    return prefix + team;
+  }
+
+  /**
+   * Queues {@code frame} for every session subscribed to {@code topic}. The envelope is built once,
+   * around the frame's existing payload, and only if anyone is listening.
+   */
+  public void publish(String topic, Frame frame) {
+    Frame envelope = null;
+    long start = 0;
+    int reached = 0;
+    for (SessionOutbox outbox : table.subscribers(topic)) {
+      if (envelope == null) {
+        start = System.nanoTime();
+        envelope = Frame.wrap(topic, frame);
+      }
+      outbox.offer(envelope);
+      reached++;
+    }
+    if (reached > 0) onBroadcast(reached, System.nanoTime() - start);
+  }
+
+  /**
+   * Drops the chat and location topics of every session of {@code player}, or of every player when
+   * it is null, as when a player leaves or the game is hard reset.
+   */
+  public void revoke(UUID player) {
+    for (String session : table.sessionsOf(player)) {
+      List<String> revoked = new ArrayList<>();
+      for (String topic : table.topics(session)) {
+        if (isPlayerOnly(topic) && table.unsubscribe(session, topic)) revoked.add(topic);
+      }
+      if (revoked.isEmpty()) continue;
+
+      SessionOutbox outbox = table.outbox(session);
+      if (outbox == null) continue;
+      ObjectNode reply = Json.mapper().createObjectNode().put("type", "unsubscribed");
+      reply.set("topics", array(revoked));
+      try {
+        outbox.offer(Frame.of(reply, false));
+      } catch (Exception ignored) {
+      }
+    }
+  }
+
+  private static boolean isPlayerOnly(String topic) {
+    return GameSockets.GLOBAL.equals(topic)
+        || topic.startsWith(TEAM_PREFIX)
+        || topic.startsWith(LOCATION_PREFIX);
+  }
+
+  private void control(WebSocketSession session, ObjectNode reply) throws Exception {
+    SessionOutbox outbox = table.outbox(session.getId());
+    if (outbox != null) outbox.offer(Frame.of(reply, false));
+  }
+
+  private static ObjectNode error(String message) {
+    return Json.mapper().createObjectNode().put("type", "error").put("message", message);
+  }
+
+  private static ArrayNode array(List<String> values) {
+    ArrayNode array = Json.mapper().createArrayNode();
+    values.forEach(array::add);
+    return array;
+  }
+
+  static String param(URI uri, String name) {
+    if (uri == null || uri.getQuery() == null) return null;
+    for (String param : uri.getRawQuery().split("&")) {
+      String[] pair = param.split("=", 2);
+      if (pair.length == 2 && name.equals(pair[0]))
+        return URLDecoder.decode(pair[1], StandardCharsets.UTF_8);
+    }
+    return null;
+  }
+
+  /** Sessions subscribed to {@code topic}. */
+  public int getSubscriberCount(String topic) {
+    return table.subscribers(topic).size();
+  }
+}
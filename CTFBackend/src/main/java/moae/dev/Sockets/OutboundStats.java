@@ -0,0 +1,82 @@
+package moae.dev.Sockets;
+
+import moae.dev.Utils.LatencyRecorder;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Outbound socket traffic for one game. Send latency runs from when a frame is encoded until the
+ * session has taken it, so it includes time spent waiting behind earlier frames.
+ */
+public class OutboundStats {
+  private final AtomicInteger depth = new AtomicInteger();
+  private final LongAdder sent = new LongAdder();
+  private final LongAdder messages = new LongAdder();
+  private final LongAdder dropped = new LongAdder();
+  private final LongAdder failed = new LongAdder();
+  private final LongAdder disconnected = new LongAdder();
+  private final LatencyRecorder sendLatency = new LatencyRecorder();
+
+  void onQueued() {
+    depth.incrementAndGet();
+  }
+
+  void onDequeued(int frames) {
+    depth.addAndGet(-frames);
+  }
+
+  void onSent(long latencyNanos) {
+    sent.increment();
+    sendLatency.record(latencyNanos);
+  }
+
+  void onWritten() {
+    messages.increment();
+  }
+
+  void onDropped(int frames) {
+    dropped.add(frames);
+  }
+
+  void onFailed() {
+    failed.increment();
+  }
+
+  void onDisconnected() {
+    disconnected.increment();
+  }
+
+  /** Frames queued across every session that have not been sent yet. */
+  public int depth() {
+    return depth.get();
+  }
+
+  public long sent() {
+    return sent.sum();
+  }
+
+  /** Socket messages written; fewer than the frames sent when sessions are sent batches. */
+  public long messages() {
+    return messages.sum();
+  }
+
+  /** Frames that were never sent, because their session fell behind or went away. */
+  public long dropped() {
+    return dropped.sum();
+  }
+
+  /** Socket messages the container failed to send; their frames are counted as dropped too. */
+  public long failed() {
+    return failed.sum();
+  }
+
+  /** Sessions closed for overflowing their queue too often. */
+  public long disconnected() {
+    return disconnected.sum();
+  }
+
+  public LatencyRecorder.Snapshot sendLatency() {
+    return sendLatency.snapshot();
+  }
+}
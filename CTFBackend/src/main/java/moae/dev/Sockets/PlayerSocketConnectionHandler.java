@@ -1,21 +1,15 @@
 package moae.dev.Sockets;
 
-import java.io.IOException;
 import java.util.UUID;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import moae.dev.Game.Game;
 import org.springframework.lang.NonNull;
-import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketMessage;
 import org.springframework.web.socket.WebSocketSession;
 
 public class PlayerSocketConnectionHandler extends SocketConnectionHandler {
-  private static PlayerSocketConnectionHandler instance;
-
   public PlayerSocketConnectionHandler(Game game) {
-    super(game);
-    instance = this;
+    super(game, GameSockets.PLAYERS);
   }
 
   @Override
@@ -26,24 +20,20 @@ public class PlayerSocketConnectionHandler extends SocketConnectionHandler {
 
   private record ChatMessage(String name, String team, boolean auth, String id) {}
 
-  public static void broadcast(String name, String team, boolean auth,  String id, String type) {
-    if (instance != null) {
-      synchronized (instance.webSocketSessions) {
-        for (WebSocketSession session : instance.webSocketSessions) {
-          try {
-            if (session.isOpen()) {
-              ChatMessage chatMessage = new ChatMessage(name, team, auth, id);
-              ObjectMapper mapper = new ObjectMapper();
-              String jsonMessage = mapper.writeValueAsString(chatMessage);
-
-              session.sendMessage(new TextMessage(type + jsonMessage));
-            }
-          } catch (IOException e) {
-            instance.logger.error(
-                "Error sending broadcast message to session {}", session.getId(), e);
-          }
-        }
-      }
+  /** The same change as one JSON object, for multiplexed sessions. */
+  private record PlayerChange(String type, String name, String team, boolean auth, String id) {}
+
+  public void broadcast(String name, String team, boolean auth,  String id, String type) {
+    Frame frame;
+    Frame change;
+    try {
+      frame = Frame.of(type, new ChatMessage(name, team, auth, id), false);
+      change = Frame.of(new PlayerChange(type, name, team, auth, id), false);
+    } catch (Exception e) {
+      return;
     }
+
+    queue(frame);
+    forward(change);
   }
 }
@@ -0,0 +1,50 @@
+package moae.dev.Sockets;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The most recent frames of a sequenced stream, so a client that reconnects can be sent only what
+ * it missed. Not thread-safe; the owner serializes access.
+ */
+final class ReplayBuffer {
+  private final Frame[] ring;
+  private final long start;
+  private long last;
+
+  /** Sequence numbers continue from {@code start}; the first frame is {@code start + 1}. */
+  ReplayBuffer(int capacity, long start) {
+    if (capacity <= 0) throw new IllegalArgumentException("Capacity must be positive");
+    this.ring = new Frame[capacity];
+    this.start = start;
+    this.last = start;
+  }
+
+  /** The sequence number the next frame will get. */
+  long next() {
+    return last + 1;
+  }
+
+  long last() {
+    return last;
+  }
+
+  void add(Frame frame) {
+    last++;
+    ring[(int) (last % ring.length)] = frame;
+  }
+
+  /**
+   * Every frame after {@code seq}, oldest first, or {@code null} if some of them have already
+   * been overwritten or {@code seq} isn't from this stream.
+   */
+  List<Frame> since(long seq) {
+    if (seq > last || seq < start) return null;
+    long oldest = Math.max(start + 1, last - ring.length + 1);
+    if (seq + 1 < oldest) return null;
+
+    List<Frame> missed = new ArrayList<>((int) (last - seq));
+    for (long i = seq + 1; i <= last; i++) missed.add(ring[(int) (i % ring.length)]);
+    return missed;
+  }
+}
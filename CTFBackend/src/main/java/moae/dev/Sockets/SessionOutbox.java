@@ -0,0 +1,262 @@
+package moae.dev.Sockets;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Frames waiting to be sent to one session. Broadcasts only queue frames; a virtual thread started
+ * when the queue goes from empty to non-empty sends them in order and exits once it is drained, so
+ * a slow session only ever holds up itself and an idle one holds no thread.
+ *
+ * <p>The queue is bounded. When it is full, the oldest chat frame is dropped to make room. State
+ * frames are never dropped, since the client can't recover a missed stage change. A session is
+ * disconnected, and has to reconnect, once it has overflowed more than {@code maxOverflows} times
+ * (an overflow lasts until the queue next drains), or if it holds twice its capacity.
+ *
+ * <p>With a coalescing window, the sending thread waits out the window before it takes what has
+ * been queued, and sends the frames as one array. A burst, like the chat that follows a victory,
+ * then costs each session one message per window instead of one per frame. Frames that aren't
+ * JSON are sent on their own, in order. An idle session still holds no thread, but a frame may be
+ * held for up to one window.
+ *
+ * <p>Given a pool of platform threads instead, the queue is drained on a pool thread, which it
+ * holds for as long as a send blocks or a window lasts, so the pool bounds how many sessions are
+ * sent to at once.
+ */
+public class SessionOutbox {
+  private static final Logger logger = LoggerFactory.getLogger(SessionOutbox.class);
+  static final CloseStatus TOO_SLOW = CloseStatus.SESSION_NOT_RELIABLE.withReason("Too slow");
+
+  private final WebSocketSession session;
+  private final String protocol;
+  private final int capacity;
+  private final int maxOverflows;
+  private final long windowMillis;
+  private final OutboundStats stats;
+  private final Executor threads;
+
+  private final ReentrantLock lock = new ReentrantLock();
+  private final ArrayDeque<Frame> queue = new ArrayDeque<>();
+  private boolean draining;
+  private boolean closed;
+  private boolean overflowing;
+  private int overflows;
+
+  public SessionOutbox(
+      WebSocketSession session, int capacity, int maxOverflows, OutboundStats stats) {
+    this(session, capacity, maxOverflows, 0, stats);
+  }
+
+  /** An outbox that sends what each {@code windowMillis} collects together; 0 never waits. */
+  public SessionOutbox(
+      WebSocketSession session,
+      int capacity,
+      int maxOverflows,
+      long windowMillis,
+      OutboundStats stats) {
+    this(session, capacity, maxOverflows, windowMillis, stats, null);
+  }
+
+  /**
+   * An outbox that sends on {@code threads}, which it may share with other sessions, or on a
+   * virtual thread of its own while it has frames to send if {@code threads} is null.
+   */
+  public SessionOutbox(
+      WebSocketSession session,
+      int capacity,
+      int maxOverflows,
+      long windowMillis,
+      OutboundStats stats,
+      Executor threads) {
+    this.session = session;
+    this.protocol = session.getAcceptedProtocol();
+    this.capacity = capacity;
+    this.maxOverflows = maxOverflows;
+    this.windowMillis = windowMillis;
+    this.stats = stats;
+    this.threads = threads;
+  }
+
+  public WebSocketSession getSession() {
+    return session;
+  }
+
+  /**
+   * Queues a frame. Droppable frames (chat) may be discarded if the session falls behind. Returns
+   * false if the frame was not queued.
+   */
+  public boolean offer(Frame frame) {
+    boolean startDrain;
+    boolean disconnect = false;
+
+    lock.lock();
+    try {
+      if (closed) return false;
+
+      if (queue.size() >= capacity) {
+        if (!overflowing) {
+          overflowing = true;
+          overflows++;
+        }
+
+        if (overflows > maxOverflows || queue.size() >= 2 * capacity) {
+          disconnect = true;
+        } else if (!dropOldestChat() && frame.droppable()) {
+          // Only state frames are queued, so this chat frame is the oldest one left
+          stats.onDropped(1);
+          return false;
+        }
+        // A state frame is kept even if nothing could be dropped for it
+      }
+
+      if (disconnect) {
+        discard();
+        stats.onDropped(1);
+        startDrain = false;
+      } else {
+        queue.add(frame);
+        stats.onQueued();
+        startDrain = !draining;
+        draining = true;
+      }
+    } finally {
+      lock.unlock();
+    }
+
+    if (disconnect) {
+      stats.onDisconnected();
+      logger.warn("Disconnecting session {}, which keeps falling behind", session.getId());
+      start("socket-close-", () -> close(TOO_SLOW));
+      return false;
+    }
+
+    if (startDrain) start("socket-send-", this::drain);
+    return true;
+  }
+
+  private void start(String name, Runnable task) {
+    if (threads == null) {
+      Thread.ofVirtual().name(name + session.getId()).start(task);
+      return;
+    }
+    try {
+      threads.execute(task);
+    } catch (RejectedExecutionException e) {
+      logger.warn("Cannot send to session {}, the send threads have stopped", session.getId());
+    }
+  }
+
+  private boolean dropOldestChat() {
+    Iterator<Frame> frames = queue.iterator();
+    while (frames.hasNext()) {
+      if (frames.next().droppable()) {
+        frames.remove();
+        stats.onDequeued(1);
+        stats.onDropped(1);
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** Drops everything still queued and stops accepting frames. Must hold the lock. */
+  private void discard() {
+    closed = true;
+    stats.onDequeued(queue.size());
+    stats.onDropped(queue.size());
+    queue.clear();
+  }
+
+  private void drain() {
+    List<Frame> frames = new ArrayList<>();
+    while (true) {
+      if (windowMillis > 0) {
+        try {
+          Thread.sleep(windowMillis);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+
+      lock.lock();
+      try {
+        if (queue.isEmpty()) {
+          draining = false;
+          overflowing = false;
+          return;
+        }
+        // Without a window, frames are taken one at a time so chat can still be dropped behind
+        int taken = windowMillis > 0 ? queue.size() : 1;
+        for (int i = 0; i < taken; i++) frames.add(queue.poll());
+        stats.onDequeued(taken);
+      } finally {
+        lock.unlock();
+      }
+
+      int start = 0;
+      for (int i = 0; i < frames.size(); i++) {
+        if (frames.get(i).batchable()) continue;
+        if (i > start) write(frames.subList(start, i));
+        write(frames.subList(i, i + 1));
+        start = i + 1;
+      }
+      if (start < frames.size()) write(frames.subList(start, frames.size()));
+      frames.clear();
+    }
+  }
+
+  /** Sends {@code frames} as one message: the frame itself if there is one, a batch otherwise. */
+  private void write(List<Frame> frames) {
+    try {
+      if (session.isOpen()) {
+        Frame frame = frames.size() == 1 ? frames.getFirst() : Frame.batch(frames);
+        session.sendMessage(frame.message(protocol));
+        stats.onWritten();
+        long now = System.nanoTime();
+        for (Frame sent : frames) stats.onSent(now - sent.createdAt());
+      } else {
+        stats.onDropped(frames.size());
+      }
+    } catch (Exception e) {
+      stats.onFailed();
+      stats.onDropped(frames.size());
+      logger.error("Error sending message to session {}", session.getId(), e);
+    }
+  }
+
+  /** Stops sending to the session and drops anything still queued. */
+  public void shutdown() {
+    lock.lock();
+    try {
+      discard();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void close(CloseStatus status) {
+    try {
+      session.close(status);
+    } catch (Exception ignored) {
+    }
+  }
+
+  public int size() {
+    lock.lock();
+    try {
+      return queue.size();
+    } finally {
+      lock.unlock();
+    }
+  }
+}
@@ -1,6 +1,5 @@
 package moae.dev.Sockets;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.annotation.PreDestroy;
 import moae.dev.Utils.ChatMessage;
 import moae.dev.Game.Game;
@@ -8,65 +7,149 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.lang.NonNull;
 import org.springframework.web.socket.CloseStatus;
-import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketMessage;
 import org.springframework.web.socket.WebSocketSession;
 import org.springframework.web.socket.handler.TextWebSocketHandler;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
-import java.util.UUID;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
 
+/**
+ * A socket channel. Broadcasts never send on the calling thread: each message is encoded once
+ * into a {@link Frame}, and that frame is queued on every session's {@link SessionOutbox}.
+ *
+ * <p>A channel with a topic also forwards what it sends to the sessions subscribed to that topic on
+ * the game's {@link MultiplexSocketConnectionHandler}.
+ */
 public class SocketConnectionHandler extends TextWebSocketHandler {
-  private final AtomicLong messageIdCounter = new AtomicLong(0);
-
-  public final List<WebSocketSession> webSocketSessions =
-      Collections.synchronizedList(new ArrayList<>());
+  private final Map<String, SessionOutbox> outboxes = new ConcurrentHashMap<>();
   protected final Logger logger = LoggerFactory.getLogger(SocketConnectionHandler.class);
   protected final Game game;
+  private final String topic;
+  private final ChannelStats stats;
 
   public SocketConnectionHandler(Game game) {
+    this(game, null);
+  }
+
+  public SocketConnectionHandler(Game game, String topic) {
+    this(game, topic, new ChannelStats());
+  }
+
+  /** A channel whose broadcasts are counted in {@code stats}, which it may share with others. */
+  public SocketConnectionHandler(Game game, String topic, ChannelStats stats) {
     this.game = game;
+    this.topic = topic;
+    this.stats = stats;
   }
 
   @Override
   public void afterConnectionEstablished(@NonNull WebSocketSession session) throws Exception {
     super.afterConnectionEstablished(session);
-    // System.out.println(session.getId() + " Connected to " + session.getUri());
-    webSocketSessions.add(session);
+    outboxes.put(session.getId(), game.sockets().outbox(session));
   }
 
   @Override
   public void afterConnectionClosed(@NonNull WebSocketSession session, @NonNull CloseStatus status)
       throws Exception {
     super.afterConnectionClosed(session, status);
-    // System.out.println(session.getId() + " Disconnected from " + session.getUri());
-    webSocketSessions.remove(session);
+    SessionOutbox outbox = outboxes.remove(session.getId());
+    if (outbox != null) outbox.shutdown();
   }
 
   @Override
   public void handleMessage(@NonNull WebSocketSession session, @NonNull WebSocketMessage<?> message)
       throws Exception {}
 
+  /**
+   * Queues {@code frame} for every session. Chat frames are droppable: a session that falls behind
+   * loses old chat rather than holding up everyone else.
+   */
+  public void send(Frame frame) {
+    queue(frame);
+    forward(frame);
+  }
+
+  /** Queues {@code frame} only for the sessions {@code to} accepts, and forwards it. */
+  protected void send(Frame frame, Predicate<WebSocketSession> to) {
+    if (!outboxes.isEmpty()) {
+      long start = System.nanoTime();
+      int reached = 0;
+      for (SessionOutbox outbox : outboxes.values()) {
+        if (!to.test(outbox.getSession())) continue;
+        outbox.offer(frame);
+        reached++;
+      }
+      if (reached > 0) stats.onBroadcast(reached, System.nanoTime() - start);
+    }
+    forward(frame);
+  }
+
+  /** Queues {@code frame} for this channel's own sessions only. */
+  protected void queue(Frame frame) {
+    if (outboxes.isEmpty()) return;
+    long start = System.nanoTime();
+    int reached = 0;
+    for (SessionOutbox outbox : outboxes.values()) {
+      outbox.offer(frame);
+      reached++;
+    }
+    stats.onBroadcast(reached, System.nanoTime() - start);
+  }
+
+  /** Counts a broadcast made by a subclass that queues frames itself. */
+  protected void onBroadcast(int sessions, long nanos) {
+    stats.onBroadcast(sessions, nanos);
+  }
+
+  /** Hands {@code frame} to the multiplexed sessions subscribed to this channel's topic. */
+  protected void forward(Frame frame) {
+    if (topic == null || game.sockets() == null) return;
+    game.sockets().multiplex().publish(topic, frame);
+  }
+
+  public String getTopic() {
+    return topic;
+  }
+
+  /** The outbox of a connected session, or {@code null} once it has gone. */
+  protected SessionOutbox outbox(WebSocketSession session) {
+    return outboxes.get(session.getId());
+  }
+
+  public int getSessionCount() {
+    return outboxes.size();
+  }
+
+  public ChannelStats stats() {
+    return stats;
+  }
+
   public void broadcastMessage(ChatMessage message) {
-    ObjectMapper mapper = new ObjectMapper();
-    String json;
+    Frame frame;
     try {
-      json = mapper.writeValueAsString(message);
+      frame = Frame.of(message, true);
     } catch (Exception e) {
       return;
     }
 
-    synchronized (webSocketSessions) {
-      for (WebSocketSession session : webSocketSessions) {
-        if (session.isOpen()) {
-          try {
-            session.sendMessage(new TextMessage(json));
-          } catch (Exception ignored) {
-          }
-        }
+    stats.onChat();
+    send(frame);
+  }
+
+  /** Disconnects every session, used when the game behind this handler goes away. */
+  public void closeSessions(CloseStatus status) {
+    List<SessionOutbox> open = new ArrayList<>(outboxes.values());
+    outboxes.clear();
+
+    for (SessionOutbox outbox : open) {
+      outbox.shutdown();
+      try {
+        outbox.getSession().close(status);
+      } catch (Exception ignored) {
       }
     }
   }
@@ -1,21 +1,108 @@
 package moae.dev.Sockets;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import moae.dev.Game.Game;
+import moae.dev.Game.GameEvent;
+import moae.dev.Game.GameStatus;
+import moae.dev.Server.AppConfig;
+import moae.dev.Utils.Json;
 import moae.dev.Utils.StateMessage;
-import org.springframework.web.socket.TextMessage;
+import org.springframework.lang.NonNull;
+import org.springframework.web.socket.CloseStatus;
 import org.springframework.web.socket.WebSocketMessage;
 import org.springframework.web.socket.WebSocketSession;
-import org.springframework.lang.NonNull;
 
-import java.io.IOException;
+import java.net.URI;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
 
+/**
+ * The state channel. Every change to the game goes out as a delta carrying its sequence number,
+ * such as {@code {"seq":41,"type":"phase","state":"scout","duration":1800000,"paused":false}}.
+ *
+ * <p>Phase deltas keep the fields the old state frames had, and clients that connect without
+ * {@code ?since=} only get those. A client that connects with {@code ?since=<seq>} gets every kind
+ * of delta, starting with the ones after {@code seq} that it missed. If those are no longer all
+ * buffered, or are too many to queue, it gets one {@code snapshot} frame with the full status
+ * instead. Deltas can be applied more than once without harm, since a snapshot may already include
+ * the deltas that follow it.
+ *
+ * <p>Every delta is also published on the {@code state} topic of the multiplexed channel, whose
+ * sessions resume the same way through {@link #resume}.
+ */
 public class StateSocketConnectionHandler extends SocketConnectionHandler {
-  private static StateSocketConnectionHandler instance;
+  static final String SINCE = "since";
+
+  /** The full status, for a session too far behind to catch up on deltas. */
+  private record Snapshot(long seq, String type, GameStatus status) {}
+
+  private final ReentrantLock lock = new ReentrantLock();
+  private final ReplayBuffer replay;
+  private final int maxReplay;
+  private final Set<String> deltaSessions = ConcurrentHashMap.newKeySet();
 
   public StateSocketConnectionHandler(Game game) {
-    super(game);
-    instance = this;
+    this(game, new AppConfig.SocketConfig());
+  }
+
+  public StateSocketConnectionHandler(Game game, AppConfig.SocketConfig config) {
+    super(game, GameSockets.STATE);
+    // Numbered from the clock, so a number from before a restart is never mistaken for a new one
+    this.replay = new ReplayBuffer(config.getReplayBuffer(), System.currentTimeMillis() * 1000);
+    // Leaves room in the session's queue for live frames arriving during the replay
+    this.maxReplay = Math.max(1, config.getQueueCapacity() / 2);
+  }
+
+  @Override
+  public void afterConnectionEstablished(@NonNull WebSocketSession session) throws Exception {
+    Long since = since(session.getUri());
+
+    // Nothing can be published between the replay and the session joining the broadcast
+    lock.lock();
+    try {
+      super.afterConnectionEstablished(session);
+      if (since == null) return;
+
+      deltaSessions.add(session.getId());
+      replay(since, outbox(session)::offer);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Runs {@code subscribe}, then hands {@code to} the deltas after {@code since}, or a snapshot, as
+   * a new session would get them. No delta is published in between, so none is missed or repeated.
+   * With a null {@code since} only {@code subscribe} runs.
+   */
+  public void resume(Long since, Runnable subscribe, Consumer<Frame> to) throws Exception {
+    lock.lock();
+    try {
+      subscribe.run();
+      if (since != null) replay(since, to);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void replay(long since, Consumer<Frame> to) throws Exception {
+    List<Frame> missed = replay.since(since);
+    if (missed == null || missed.size() > maxReplay) {
+      to.accept(snapshot());
+    } else {
+      // Fresh copies, so send latency isn't measured from when the delta was first sent
+      for (Frame frame : missed) to.accept(frame.copy());
+    }
+  }
+
+  @Override
+  public void afterConnectionClosed(@NonNull WebSocketSession session, @NonNull CloseStatus status)
+      throws Exception {
+    deltaSessions.remove(session.getId());
+    super.afterConnectionClosed(session, status);
   }
 
   @Override
@@ -24,29 +111,91 @@ public class StateSocketConnectionHandler extends SocketConnectionHandler {
     // Do nothing
   }
 
-  public static void broadcast(StateMessage message) {
-    ObjectMapper mapper = new ObjectMapper();
-    String json;
+  /** The {@code since} query parameter, -1 if it isn't a number, or null if there is none. */
+  static Long since(URI uri) {
+    if (uri == null || uri.getQuery() == null) return null;
+    for (String param : uri.getQuery().split("&")) {
+      String[] pair = param.split("=", 2);
+      if (!SINCE.equals(pair[0])) continue;
+      try {
+        return pair.length == 2 ? Long.parseLong(pair[1]) : -1L;
+      } catch (NumberFormatException e) {
+        return -1L;
+      }
+    }
+    return null;
+  }
 
+  /** Numbers and sends the delta for {@code event}, if it has one. Called in commit order. */
+  public void publish(GameEvent event) {
+    lock.lock();
     try {
-      json = mapper.writeValueAsString(message);
-    } catch (Exception e) {
-      return;
+      ObjectNode delta = Json.mapper().createObjectNode().put("seq", replay.next());
+      if (!describe(event, delta)) return;
+
+      Frame frame;
+      try {
+        frame = Frame.of(delta, false);
+      } catch (Exception e) {
+        return;
+      }
+
+      replay.add(frame);
+      if (event instanceof GameEvent.PhaseChanged) {
+        send(frame);
+      } else {
+        send(frame, session -> deltaSessions.contains(session.getId()));
+      }
+    } finally {
+      lock.unlock();
     }
+  }
 
-    if (instance != null) {
-      synchronized (instance.webSocketSessions) {
-        for (WebSocketSession session : instance.webSocketSessions) {
-          try {
-            if (session.isOpen()) {
-              session.sendMessage(new TextMessage(json));
-            }
-          } catch (IOException e) {
-            instance.logger.error(
-                "Error sending broadcast message to session {}", session.getId(), e);
-          }
-        }
+  /** Fills in {@code delta} for {@code event}, or returns false if it isn't state. */
+  private static boolean describe(GameEvent event, ObjectNode delta) {
+    switch (event) {
+      case GameEvent.PhaseChanged phase -> {
+        delta.put("type", "phase");
+        StateMessage state = new StateMessage(phase.state(), phase.duration(), phase.paused());
+        delta.setAll((ObjectNode) Json.mapper().valueToTree(state));
+      }
+      case GameEvent.FlagsPending ignored -> delta.put("type", "frozen");
+      case GameEvent.FlagRegistered flag ->
+          delta.put("type", "flag").put("team", flag.team().toString());
+      case GameEvent.VictoryDeclared victory ->
+          delta.put("type", "victory").put("team", victory.team().toString());
+      case GameEvent.GameReset reset -> delta.put("type", "reset").put("hard", reset.hard());
+      case GameEvent.EmergencyDeclared ignored ->
+          delta.put("type", "emergency").put("active", true);
+      case GameEvent.EmergencyReleased ignored ->
+          delta.put("type", "emergency").put("active", false);
+      case GameEvent.PlayerJoined joined -> {
+        delta.put("type", "joined");
+        delta.set("player", Json.mapper().valueToTree(joined.player()));
+      }
+      case GameEvent.PlayerLeft left ->
+          delta
+              .put("type", "left")
+              .put("player", left.player().getID().toString())
+              .put("kicked", left.kicked());
+      default -> {
+        return false;
       }
     }
+    return true;
+  }
+
+  private Frame snapshot() throws Exception {
+    return Frame.of(new Snapshot(replay.last(), "snapshot", game.status()), false);
+  }
+
+  /** The sequence number of the latest delta. */
+  public long lastSequence() {
+    lock.lock();
+    try {
+      return replay.last();
+    } finally {
+      lock.unlock();
+    }
   }
 }
@@ -0,0 +1,108 @@
+package moae.dev.Sockets;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Which multiplexed sessions listen to which topics, indexed both ways: by topic, so an event is
+ * routed straight to its subscribers without looking at anyone else, and by session, so a session
+ * that goes away can be removed from its topics.
+ */
+final class SubscriptionTable {
+  private record Subscriber(SessionOutbox outbox, UUID player, Set<String> topics) {}
+
+  private final Map<String, Subscriber> sessions = new ConcurrentHashMap<>();
+  private final Map<String, Map<String, SessionOutbox>> topics = new ConcurrentHashMap<>();
+
+  /** Adds a session with no topics; {@code player} is null for a session without a token. */
+  void join(String session, SessionOutbox outbox, UUID player) {
+    sessions.put(session, new Subscriber(outbox, player, ConcurrentHashMap.newKeySet()));
+  }
+
+  /** Removes a session from the table and every topic it was subscribed to. */
+  void leave(String session) {
+    Subscriber subscriber = sessions.remove(session);
+    if (subscriber == null) return;
+    for (String topic : subscriber.topics()) remove(topic, session);
+  }
+
+  /** Returns false if the session has gone or was already subscribed. */
+  boolean subscribe(String session, String topic) {
+    Subscriber subscriber = sessions.get(session);
+    if (subscriber == null || !subscriber.topics().add(topic)) return false;
+
+    // Inserted under the topic's lock, so a concurrent remove() can't drop the map it goes into
+    topics.compute(
+        topic,
+        (t, subscribers) -> {
+          if (subscribers == null) subscribers = new ConcurrentHashMap<>();
+          subscribers.put(session, subscriber.outbox());
+          return subscribers;
+        });
+    // The session may have left while it was being added
+    if (!sessions.containsKey(session)) {
+      remove(topic, session);
+      return false;
+    }
+    return true;
+  }
+
+  /** Returns false if the session wasn't subscribed. */
+  boolean unsubscribe(String session, String topic) {
+    Subscriber subscriber = sessions.get(session);
+    if (subscriber == null || !subscriber.topics().remove(topic)) return false;
+    remove(topic, session);
+    return true;
+  }
+
+  private void remove(String topic, String session) {
+    topics.computeIfPresent(
+        topic,
+        (t, subscribers) -> {
+          subscribers.remove(session);
+          return subscribers.isEmpty() ? null : subscribers;
+        });
+  }
+
+  /** The outboxes of the sessions subscribed to {@code topic}. */
+  Collection<SessionOutbox> subscribers(String topic) {
+    Map<String, SessionOutbox> subscribers = topics.get(topic);
+    return subscribers == null ? List.of() : subscribers.values();
+  }
+
+  /** The player a session authenticated as, or null. */
+  UUID player(String session) {
+    Subscriber subscriber = sessions.get(session);
+    return subscriber == null ? null : subscriber.player();
+  }
+
+  Set<String> topics(String session) {
+    Subscriber subscriber = sessions.get(session);
+    return subscriber == null ? Set.of() : Set.copyOf(subscriber.topics());
+  }
+
+  /** The sessions authenticated as {@code player}, or as any player when it is null. */
+  List<String> sessionsOf(UUID player) {
+    List<String> found = new ArrayList<>();
+    sessions.forEach(
+        (session, subscriber) -> {
+          if (subscriber.player() != null && (player == null || player.equals(subscriber.player())))
+            found.add(session);
+        });
+    return found;
+  }
+
+  SessionOutbox outbox(String session) {
+    Subscriber subscriber = sessions.get(session);
+    return subscriber == null ? null : subscriber.outbox();
+  }
+
+  int size() {
+    return sessions.size();
+  }
+}
@@ -1,53 +1,71 @@
 package moae.dev.Sockets;
 
-import moae.dev.Game.Game;
+import moae.dev.Game.GameRegistry;
+import moae.dev.Server.AppConfig;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.server.ServerHttpRequest;
 import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.web.socket.WebSocketExtension;
 import org.springframework.web.socket.config.annotation.EnableWebSocket;
 import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
 import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
+import org.springframework.web.socket.server.support.DefaultHandshakeHandler;
+
+import java.util.List;
 
 @Configuration
 @EnableWebSocket
 public class WebSocketConfig implements WebSocketConfigurer {
-  private final Game game;
+  static final String PERMESSAGE_DEFLATE = "permessage-deflate";
+
+  private final GameRegistry games;
   private final JwtDecoder jwtDecoder;
+  private final boolean compression;
 
-  public WebSocketConfig(Game game, JwtDecoder jwtDecoder) {
-    this.game = game;
+  public WebSocketConfig(GameRegistry games, JwtDecoder jwtDecoder, AppConfig config) {
+    this.games = games;
     this.jwtDecoder = jwtDecoder;
+    this.compression = config.getSockets() == null || config.getSockets().isCompression();
   }
 
   @Override
   public void registerWebSocketHandlers(WebSocketHandlerRegistry webSocketHandlerRegistry) {
+    // Unscoped paths serve the default game
     webSocketHandlerRegistry
-        .addHandler(new StateSocketConnectionHandler(game), "/socket/state")
-        .setAllowedOrigins("*");
-
-    webSocketHandlerRegistry
-        .addHandler(new PlayerSocketConnectionHandler(game), "/socket/players")
+        .addHandler(
+            new GameSocketRouter(),
+            "/socket/*",
+            "/socket/team/*",
+            "/games/*/socket/*",
+            "/games/*/socket/team/*")
+        .addInterceptors(new JwtHandshakeInterceptor(jwtDecoder, games))
+        .setHandshakeHandler(new CompressionHandshakeHandler(compression))
         .setAllowedOrigins("*");
+  }
 
-    SocketConnectionHandler globalMessageHandler = new SocketConnectionHandler(game);
-    game.setWebSocketHandler(globalMessageHandler);
-    webSocketHandlerRegistry
-        .addHandler(globalMessageHandler, "/socket/global")
-        .addInterceptors(new JwtHandshakeInterceptor(jwtDecoder, null, game))
-        .setAllowedOrigins("*");
+  /**
+   * Accepts permessage-deflate, which the container supports, only if compression is enabled.
+   * Deflate keeps its window between messages by default, so the repeated keys and ids of a
+   * session's JSON compress well; batches from {@link SessionOutbox} give it more to work with.
+   */
+  static final class CompressionHandshakeHandler extends DefaultHandshakeHandler {
+    private final boolean compression;
 
-    webSocketHandlerRegistry
-        .addHandler(new AnnouncementSocketConnectionHandler(game), "/socket/announcements")
-        .setAllowedOrigins("*");
+    CompressionHandshakeHandler(boolean compression) {
+      this.compression = compression;
+    }
 
-    game.getTeams()
-        .forEach(
-            t -> {
-              SocketConnectionHandler handler = new SocketConnectionHandler(game);
-              t.setWebSocketHandler(handler);
-              webSocketHandlerRegistry
-                  .addHandler(handler, "socket/team/" + t.getID().toString())
-                  .addInterceptors(new JwtHandshakeInterceptor(jwtDecoder, t.getID(), game))
-                  .setAllowedOrigins("*");
-            });
+    @Override
+    protected List<WebSocketExtension> filterRequestedExtensions(
+        ServerHttpRequest request,
+        List<WebSocketExtension> requested,
+        List<WebSocketExtension> supported) {
+      List<WebSocketExtension> accepted =
+          super.filterRequestedExtensions(request, requested, supported);
+      if (compression) return accepted;
+      return accepted.stream()
+          .filter(extension -> !PERMESSAGE_DEFLATE.equalsIgnoreCase(extension.getName()))
+          .toList();
+    }
   }
 }
@@ -0,0 +1,22 @@
+package moae.dev.Utils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import moae.dev.Game.GameModule;
+
+/**
+ * The binary counterpart of {@link Json}, for socket sessions that negotiated CBOR. It maps the
+ * same types to the same structure, so a client only swaps its decoder; the savings come from
+ * binary numbers, timestamps and lengths instead of quoted text.
+ */
+public final class Cbor {
+  private static final ObjectMapper MAPPER =
+      CBORMapper.builder().addModule(new BlackbirdModule()).addModule(new GameModule()).build();
+
+  private Cbor() {}
+
+  public static ObjectMapper mapper() {
+    return MAPPER;
+  }
+}
@@ -0,0 +1,242 @@
+package moae.dev.Utils;
+
+import moae.dev.Game.Player;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Date;
+import java.util.UUID;
+
+/**
+ * Append-only, memory-mapped store of every message in one chat channel. Records go into a data
+ * file mapped in fixed-size segments, and a fixed-width offset index maps each message's position
+ * in the channel to its record, so messages can be found and decoded without being kept on the
+ * heap.
+ *
+ * <p>There is a single writer (the owning {@link ChatLog} appends under its lock); readers only use
+ * absolute reads below the published size and never lock.
+ */
+public class ChatJournal implements Closeable {
+  private static final int DATA_SEGMENT_BYTES = 32 << 20;
+  private static final int INDEX_ENTRY_BYTES = 16;
+  private static final int INDEX_SEGMENT_ENTRIES = 1 << 18;
+  private static final int INDEX_SEGMENT_BYTES = INDEX_SEGMENT_ENTRIES * INDEX_ENTRY_BYTES;
+
+  // id, time, flags, player id, player team, channel team, name length, content length
+  private static final int FIXED_RECORD_BYTES = 4 + 8 + 1 + 16 + 16 + 16 + 4 + 4;
+  private static final byte HAS_PLAYER = 1;
+  private static final byte AUTH = 2;
+  private static final byte HAS_TEAM = 4;
+
+  private final Path dataPath;
+  private final Path indexPath;
+  private final FileChannel data;
+  private final FileChannel index;
+
+  private volatile MappedByteBuffer[] dataSegments = new MappedByteBuffer[0];
+  private volatile MappedByteBuffer[] indexSegments = new MappedByteBuffer[0];
+  private volatile int size = 0;
+  private long writeOffset = 0;
+
+  private ChatJournal(Path dataPath, Path indexPath) throws IOException {
+    this.dataPath = dataPath;
+    this.indexPath = indexPath;
+    this.data = open(dataPath);
+    this.index = open(indexPath);
+  }
+
+  /**
+   * Creates a journal backed by new, uniquely named files in {@code directory}, which are deleted
+   * when it is closed.
+   */
+  public static ChatJournal create(Path directory, String channel) {
+    try {
+      Files.createDirectories(directory);
+      Path dataPath = Files.createTempFile(directory, channel + "-", ".log");
+      Path indexPath = dataPath.resolveSibling(dataPath.getFileName() + ".idx");
+      return new ChatJournal(dataPath, indexPath);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to create chat journal in " + directory, e);
+    }
+  }
+
+  private static FileChannel open(Path path) throws IOException {
+    return FileChannel.open(
+        path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+  }
+
+  public int size() {
+    return size;
+  }
+
+  // ----- Writing -----
+  public void append(ChatMessage message) {
+    byte[] name = message.player() == null ? new byte[0] : utf8(message.player().getName());
+    byte[] content = utf8(message.message());
+    int length = FIXED_RECORD_BYTES + name.length + content.length;
+    if (length > DATA_SEGMENT_BYTES)
+      throw new IllegalArgumentException("Message is too large to be stored");
+
+    // Records never straddle two segments
+    long offset = writeOffset;
+    if (segmentOffset(offset) + length > DATA_SEGMENT_BYTES) {
+      offset = (offset / DATA_SEGMENT_BYTES + 1) * DATA_SEGMENT_BYTES;
+    }
+
+    MappedByteBuffer segment = dataSegment(offset);
+    int pos = segmentOffset(offset);
+
+    Player player = message.player();
+    byte flags = 0;
+    if (player != null) flags |= HAS_PLAYER;
+    if (player != null && player.isAuth()) flags |= AUTH;
+    if (message.team() != null) flags |= HAS_TEAM;
+
+    segment.putInt(pos, message.messageId());
+    segment.putLong(pos + 4, message.time() == null ? 0 : message.time().getTime());
+    segment.put(pos + 12, flags);
+    pos = putUuid(segment, pos + 13, player == null ? null : player.getID());
+    pos = putUuid(segment, pos, player == null ? null : player.getTeam());
+    pos = putUuid(segment, pos, message.team());
+    segment.putInt(pos, name.length);
+    segment.put(pos + 4, name);
+    pos += 4 + name.length;
+    segment.putInt(pos, content.length);
+    segment.put(pos + 4, content);
+
+    int entry = size;
+    MappedByteBuffer indexSegment = indexSegment(entry);
+    int indexPos = (entry % INDEX_SEGMENT_ENTRIES) * INDEX_ENTRY_BYTES;
+    indexSegment.putLong(indexPos, offset);
+    indexSegment.putInt(indexPos + 8, message.messageId());
+    indexSegment.putInt(indexPos + 12, length);
+
+    writeOffset = offset + length;
+    size = entry + 1; // publishes the record to readers
+  }
+
+  private MappedByteBuffer dataSegment(long offset) {
+    int segment = (int) (offset / DATA_SEGMENT_BYTES);
+    MappedByteBuffer[] current = dataSegments;
+    if (segment < current.length) return current[segment];
+
+    dataSegments = grow(current, data, DATA_SEGMENT_BYTES);
+    return dataSegments[segment];
+  }
+
+  private MappedByteBuffer indexSegment(int entry) {
+    int segment = entry / INDEX_SEGMENT_ENTRIES;
+    MappedByteBuffer[] current = indexSegments;
+    if (segment < current.length) return current[segment];
+
+    indexSegments = grow(current, index, INDEX_SEGMENT_BYTES);
+    return indexSegments[segment];
+  }
+
+  private static MappedByteBuffer[] grow(
+      MappedByteBuffer[] current, FileChannel channel, int segmentBytes) {
+    MappedByteBuffer[] grown = new MappedByteBuffer[current.length + 1];
+    System.arraycopy(current, 0, grown, 0, current.length);
+    try {
+      grown[current.length] =
+          channel.map(FileChannel.MapMode.READ_WRITE, (long) current.length * segmentBytes, segmentBytes);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to extend chat journal", e);
+    }
+    return grown;
+  }
+
+  private static int segmentOffset(long offset) {
+    return (int) (offset % DATA_SEGMENT_BYTES);
+  }
+
+  private static int putUuid(MappedByteBuffer buffer, int pos, UUID uuid) {
+    buffer.putLong(pos, uuid == null ? 0 : uuid.getMostSignificantBits());
+    buffer.putLong(pos + 8, uuid == null ? 0 : uuid.getLeastSignificantBits());
+    return pos + 16;
+  }
+
+  private static byte[] utf8(String value) {
+    return value == null ? new byte[0] : value.getBytes(StandardCharsets.UTF_8);
+  }
+
+  // ----- Reading -----
+  public int messageId(int position) {
+    checkPosition(position);
+    return indexSegments[position / INDEX_SEGMENT_ENTRIES].getInt(indexPosition(position) + 8);
+  }
+
+  /** Decodes the message at {@code position}, counted from the first message in the channel. */
+  public ChatMessage read(int position) {
+    checkPosition(position);
+    long offset = indexSegments[position / INDEX_SEGMENT_ENTRIES].getLong(indexPosition(position));
+
+    MappedByteBuffer segment = dataSegments[(int) (offset / DATA_SEGMENT_BYTES)];
+    int pos = segmentOffset(offset);
+
+    int messageId = segment.getInt(pos);
+    long time = segment.getLong(pos + 4);
+    byte flags = segment.get(pos + 12);
+    UUID playerId = getUuid(segment, pos + 13);
+    UUID playerTeam = getUuid(segment, pos + 29);
+    UUID team = getUuid(segment, pos + 45);
+    pos += 61;
+
+    byte[] name = new byte[segment.getInt(pos)];
+    segment.get(pos + 4, name);
+    pos += 4 + name.length;
+    byte[] content = new byte[segment.getInt(pos)];
+    segment.get(pos + 4, content);
+
+    Player player =
+        (flags & HAS_PLAYER) == 0
+            ? null
+            : new Player(
+                playerId,
+                new String(name, StandardCharsets.UTF_8),
+                playerTeam,
+                (flags & AUTH) != 0);
+
+    return new ChatMessage(
+        new String(content, StandardCharsets.UTF_8),
+        player,
+        messageId,
+        new Date(time),
+        (flags & HAS_TEAM) == 0 ? null : team);
+  }
+
+  private void checkPosition(int position) {
+    if (position < 0 || position >= size) throw new IndexOutOfBoundsException(position);
+  }
+
+  private static int indexPosition(int position) {
+    return (position % INDEX_SEGMENT_ENTRIES) * INDEX_ENTRY_BYTES;
+  }
+
+  private static UUID getUuid(MappedByteBuffer buffer, int pos) {
+    return new UUID(buffer.getLong(pos), buffer.getLong(pos + 8));
+  }
+
+  /**
+   * Closes and deletes the backing files. Existing mappings stay readable until they are garbage
+   * collected, so views handed out before the close keep working.
+   */
+  @Override
+  public void close() {
+    try {
+      data.close();
+      index.close();
+      Files.deleteIfExists(dataPath);
+      Files.deleteIfExists(indexPath);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to delete chat journal " + dataPath, e);
+    }
+  }
+}
@@ -0,0 +1,237 @@
+package moae.dev.Utils;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.IntFunction;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Append-only chat history for one channel. Writers take a short lock to append into fixed-size
+ * chunks; readers never lock and see every message up to the last published size. Message ids are
+ * kept in ascending order so lookups by id are binary searches, and pages are returned as read-only
+ * views of the stored chunks rather than copies.
+ *
+ * <p>A log created with a {@link ChatJournal} also writes every message to the journal and keeps
+ * only the newest messages on the heap, dropping whole chunks once more than the retention limit is
+ * held. Older messages are decoded from the journal when a page that reaches them is read.
+ */
+public class ChatLog {
+  private static final int CHUNK_BITS = 10;
+  private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+  private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+  private final ReentrantLock appendLock = new ReentrantLock();
+  private final int retention;
+  private final Supplier<ChatJournal> journals;
+  private volatile Storage storage;
+
+  /** A log that keeps every message on the heap. */
+  public ChatLog() {
+    this.retention = -1;
+    this.journals = () -> null;
+    this.storage = new Storage(null);
+  }
+
+  /**
+   * A log that writes through to a journal from {@code journals} and keeps at least the newest
+   * {@code retention} messages on the heap. A fresh journal is opened whenever the log is cleared.
+   */
+  public ChatLog(int retention, Supplier<ChatJournal> journals) {
+    if (retention < 0) throw new IllegalArgumentException("Chat retention must not be negative");
+    this.retention = retention;
+    this.journals = journals;
+    this.storage = new Storage(journals.get());
+  }
+
+  private final class Storage {
+    private final ChatJournal journal;
+    // Evicted chunks are null; their messages are read back from the journal
+    private volatile ChatMessage[][] chunks = new ChatMessage[8][];
+    private volatile int size = 0;
+    private int heapStart = 0;
+
+    Storage(ChatJournal journal) {
+      this.journal = journal;
+    }
+
+    ChatMessage get(int index) {
+      return get(chunks, index);
+    }
+
+    ChatMessage get(ChatMessage[][] chunks, int index) {
+      ChatMessage[] chunk = chunks[index >>> CHUNK_BITS];
+      return chunk == null ? journal.read(index) : chunk[index & CHUNK_MASK];
+    }
+
+    int messageId(int index) {
+      ChatMessage[] chunk = chunks[index >>> CHUNK_BITS];
+      return chunk == null ? journal.messageId(index) : chunk[index & CHUNK_MASK].messageId();
+    }
+
+    void add(ChatMessage message) {
+      if (journal != null) journal.append(message);
+
+      int index = size;
+      int chunk = index >>> CHUNK_BITS;
+
+      ChatMessage[][] current = chunks;
+      if (chunk == current.length) {
+        ChatMessage[][] grown = new ChatMessage[current.length * 2][];
+        System.arraycopy(current, 0, grown, 0, current.length);
+        current = grown;
+      }
+      if (current[chunk] == null) current[chunk] = new ChatMessage[CHUNK_SIZE];
+
+      current[chunk][index & CHUNK_MASK] = message;
+      chunks = current;
+      size = index + 1; // publishes the message to readers
+
+      if (journal != null) evict();
+    }
+
+    /** Drops the oldest heap chunk while the rest still holds at least {@code retention}. */
+    private void evict() {
+      while (size - heapStart - CHUNK_SIZE >= retention) {
+        // Copied so windows opened earlier keep reading the chunk they captured
+        ChatMessage[][] current = chunks.clone();
+        current[heapStart >>> CHUNK_BITS] = null;
+        chunks = current;
+        heapStart += CHUNK_SIZE;
+      }
+    }
+  }
+
+  /**
+   * Appends a message whose id is drawn from {@code ids} while holding the append lock, so ids are
+   * always stored in ascending order even with many concurrent writers.
+   */
+  public ChatMessage append(IntFunction<ChatMessage> factory, IntSupplier ids) {
+    appendLock.lock();
+    try {
+      ChatMessage message = factory.apply(ids.getAsInt());
+      storage.add(message);
+      return message;
+    } finally {
+      appendLock.unlock();
+    }
+  }
+
+  public ChatMessage append(ChatMessage message) {
+    appendLock.lock();
+    try {
+      Storage current = storage;
+      if (current.size > 0 && current.messageId(current.size - 1) > message.messageId())
+        throw new IllegalArgumentException("Message ids must be appended in ascending order");
+
+      current.add(message);
+      return message;
+    } finally {
+      appendLock.unlock();
+    }
+  }
+
+  public void clear() {
+    appendLock.lock();
+    try {
+      ChatJournal previous = storage.journal;
+      storage = new Storage(journals.get());
+      if (previous != null) previous.close();
+    } finally {
+      appendLock.unlock();
+    }
+  }
+
+  /** Closes and deletes the journal, if there is one. The log must not be appended to afterwards. */
+  public void close() {
+    appendLock.lock();
+    try {
+      if (storage.journal != null) storage.journal.close();
+    } finally {
+      appendLock.unlock();
+    }
+  }
+
+  public int size() {
+    return storage.size;
+  }
+
+  public boolean isEmpty() {
+    return size() == 0;
+  }
+
+  /** A stable read-only view of every message currently in the log. */
+  public List<ChatMessage> snapshot() {
+    Storage current = storage;
+    return new Window(current, 0, current.size);
+  }
+
+  /**
+   * The newest {@code count} messages with an id of at most {@code maxId}, oldest first. {@code end}
+   * is set when there is nothing older left.
+   */
+  public MessagePage pageBefore(int maxId, int count) {
+    Storage current = storage;
+    int to = upperBound(current, maxId);
+    if (count <= 0 || to == 0) return new MessagePage(List.of(), true);
+
+    int from = Math.max(0, to - count);
+    return new MessagePage(new Window(current, from, to), from == 0);
+  }
+
+  /**
+   * The oldest {@code count} messages with an id greater than {@code minId}, oldest first. {@code
+   * end} is set when the page reaches the newest message.
+   */
+  public MessagePage pageAfter(int minId, int count) {
+    Storage current = storage;
+    int size = current.size;
+    int from = upperBound(current, minId);
+    if (count <= 0 || from == size) return new MessagePage(List.of(), true);
+
+    int to = (int) Math.min(size, (long) from + count);
+    return new MessagePage(new Window(current, from, to), to == size);
+  }
+
+  /** Index of the first message with an id greater than {@code id}. */
+  private static int upperBound(Storage storage, int id) {
+    int low = 0;
+    int high = storage.size;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (storage.messageId(mid) <= id) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  private static final class Window extends AbstractList<ChatMessage> implements RandomAccess {
+    private final Storage storage;
+    private final ChatMessage[][] chunks;
+    private final int from;
+    private final int to;
+
+    Window(Storage storage, int from, int to) {
+      this.storage = storage;
+      this.chunks = storage.chunks;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    public ChatMessage get(int index) {
+      if (index < 0 || index >= to - from) throw new IndexOutOfBoundsException(index);
+      return storage.get(chunks, from + index);
+    }
+
+    @Override
+    public int size() {
+      return to - from;
+    }
+  }
+}
@@ -0,0 +1,316 @@
+package moae.dev.Utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Runs timer tasks for any number of owners on one thread. Pending timers sit in a ring of
+ * buckets, one per tick; each tick the worker only looks at the bucket for that tick, so
+ * scheduling, cancelling, pausing and resuming are all O(1) however many timers are pending.
+ * Timers fire on the first tick at or after their deadline, so they can be up to one tick late.
+ *
+ * <p>Callers never touch the buckets. Every change to a timer is queued and applied by the worker
+ * at the start of its next tick, so the wheel needs no locks.
+ *
+ * <p>Tasks run on the worker thread and should only hand work off; a slow task delays every other
+ * timer. {@link #lag()} reports how late timers fire compared with their deadlines.
+ */
+public class HashedWheelTimer {
+  private static final Logger logger = LoggerFactory.getLogger(HashedWheelTimer.class);
+
+  private static final long DEFAULT_TICK_MILLIS = 100;
+  private static final int DEFAULT_WHEEL_SIZE = 512;
+
+  private static volatile HashedWheelTimer shared;
+
+  private final long tickNanos;
+  private final Bucket[] wheel;
+  private final int mask;
+  private final Queue<Timeout> changes = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger pending = new AtomicInteger();
+  private final Thread worker;
+  private final long startTime;
+  private volatile boolean running = true;
+  private long tick;
+
+  private final LatencyRecorder lag = new LatencyRecorder();
+
+  /**
+   * @param tick how often the worker wakes up, which is also the timer's resolution
+   * @param wheelSize buckets in the wheel, rounded up to a power of two. Timers further than one
+   *     rotation away wait in their bucket for extra rotations.
+   */
+  public HashedWheelTimer(String name, long tick, TimeUnit unit, int wheelSize) {
+    if (tick <= 0) throw new IllegalArgumentException("Tick must be positive");
+    if (wheelSize <= 0 || wheelSize > 1 << 20)
+      throw new IllegalArgumentException("Wheel size must be between 1 and 2^20");
+
+    this.tickNanos = unit.toNanos(tick);
+    int size = Integer.highestOneBit(wheelSize - 1) << 1;
+    if (wheelSize == 1) size = 1;
+
+    this.wheel = new Bucket[size];
+    for (int i = 0; i < size; i++) wheel[i] = new Bucket();
+    this.mask = size - 1;
+
+    this.startTime = System.nanoTime();
+    this.worker = Thread.ofPlatform().name(name).daemon(true).start(this::run);
+  }
+
+  public HashedWheelTimer(String name) {
+    this(name, DEFAULT_TICK_MILLIS, TimeUnit.MILLISECONDS, DEFAULT_WHEEL_SIZE);
+  }
+
+  /** A process-wide timer for owners that aren't given one, started the first time it is used. */
+  public static HashedWheelTimer shared() {
+    HashedWheelTimer timer = shared;
+    if (timer == null) {
+      synchronized (HashedWheelTimer.class) {
+        timer = shared;
+        if (timer == null) shared = timer = new HashedWheelTimer("shared-timer");
+      }
+    }
+    return timer;
+  }
+
+  // ----- Timers -----
+  public Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+    if (!running) throw new IllegalStateException("Timer has been stopped");
+
+    Timeout timeout = new Timeout(task);
+    timeout.deadline = System.nanoTime() - startTime + Math.max(0, unit.toNanos(delay));
+    pending.incrementAndGet();
+    changes.add(timeout);
+    return timeout;
+  }
+
+  /** Timers that have been scheduled or paused and have not yet fired or been cancelled. */
+  public int pending() {
+    return pending.get();
+  }
+
+  public long getTick(TimeUnit unit) {
+    return unit.convert(tickNanos, TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * A pending task. Any thread may cancel it, but pausing and resuming are meant to come from its
+   * owner, one call at a time.
+   */
+  public final class Timeout {
+    private static final int SCHEDULED = 0;
+    private static final int PAUSED = 1;
+    private static final int CANCELLED = 2;
+    private static final int EXPIRED = 3;
+
+    private static final VarHandle STATE;
+
+    static {
+      try {
+        STATE = MethodHandles.lookup().findVarHandle(Timeout.class, "state", int.class);
+      } catch (ReflectiveOperationException e) {
+        throw new ExceptionInInitializerError(e);
+      }
+    }
+
+    private final Runnable task;
+    private volatile int state = SCHEDULED;
+    // Nanoseconds after startTime; while paused, the time that was left instead
+    private volatile long deadline;
+
+    // Only touched by the worker
+    private Bucket bucket;
+    private Timeout prev;
+    private Timeout next;
+    private long rounds;
+
+    private Timeout(Runnable task) {
+      this.task = task;
+    }
+
+    /** Stops the timer for good. Returns false if it has already fired or been cancelled. */
+    public boolean cancel() {
+      int current;
+      do {
+        current = state;
+        if (current == CANCELLED || current == EXPIRED) return false;
+      } while (!transition(current, CANCELLED));
+
+      pending.decrementAndGet();
+      changes.add(this);
+      return true;
+    }
+
+    /**
+     * Stops the clock, keeping the time that was left for {@link #resume()}. Returns false if the
+     * timer isn't running.
+     */
+    public boolean pause() {
+      long left = Math.max(0, deadline - (System.nanoTime() - startTime));
+      if (!transition(SCHEDULED, PAUSED)) return false;
+
+      deadline = left;
+      changes.add(this);
+      return true;
+    }
+
+    /** Restarts a paused timer with the time it had left. Returns false if it isn't paused. */
+    public boolean resume() {
+      if (state != PAUSED) return false;
+
+      long left = deadline;
+      deadline = System.nanoTime() - startTime + left;
+      if (!transition(PAUSED, SCHEDULED)) return false;
+
+      changes.add(this);
+      return true;
+    }
+
+    public boolean isPaused() {
+      return state == PAUSED;
+    }
+
+    public boolean isCancelled() {
+      return state == CANCELLED;
+    }
+
+    public boolean isExpired() {
+      return state == EXPIRED;
+    }
+
+    private boolean transition(int from, int to) {
+      return STATE.compareAndSet(this, from, to);
+    }
+
+    /** Time until the timer fires, or the time it has left while paused. */
+    public long remaining(TimeUnit unit) {
+      long nanos =
+          state == PAUSED ? deadline : deadline - (System.nanoTime() - startTime);
+      return unit.convert(Math.max(0, nanos), TimeUnit.NANOSECONDS);
+    }
+  }
+
+  private static final class Bucket {
+    private Timeout head;
+    private Timeout tail;
+
+    void add(Timeout timeout) {
+      timeout.bucket = this;
+      timeout.prev = tail;
+      timeout.next = null;
+      if (tail == null) {
+        head = timeout;
+      } else {
+        tail.next = timeout;
+      }
+      tail = timeout;
+    }
+
+    void remove(Timeout timeout) {
+      if (timeout.prev == null) {
+        head = timeout.next;
+      } else {
+        timeout.prev.next = timeout.next;
+      }
+      if (timeout.next == null) {
+        tail = timeout.prev;
+      } else {
+        timeout.next.prev = timeout.prev;
+      }
+      timeout.bucket = null;
+      timeout.prev = null;
+      timeout.next = null;
+    }
+  }
+
+  // ----- Worker -----
+  private void run() {
+    while (running) {
+      long tickDeadline = waitForTick();
+      if (!running) break;
+
+      applyChanges();
+      expire(wheel[(int) (tick & mask)], tickDeadline);
+      tick++;
+    }
+
+    // Anything still queued will never fire
+    Timeout change;
+    while ((change = changes.poll()) != null) {
+      if (change.transition(Timeout.SCHEDULED, Timeout.CANCELLED)
+          || change.transition(Timeout.PAUSED, Timeout.CANCELLED))
+        pending.decrementAndGet();
+    }
+  }
+
+  private long waitForTick() {
+    long tickDeadline = tickNanos * (tick + 1);
+    while (running) {
+      long sleep = tickDeadline - (System.nanoTime() - startTime);
+      if (sleep <= 0) break;
+      LockSupport.parkNanos(this, sleep);
+    }
+    return tickDeadline;
+  }
+
+  /** Brings each changed timer's place in the wheel in line with its current state. */
+  private void applyChanges() {
+    Timeout timeout;
+    while ((timeout = changes.poll()) != null) {
+      if (timeout.bucket != null) timeout.bucket.remove(timeout);
+      if (timeout.state != Timeout.SCHEDULED) continue;
+
+      long deadlineTick = timeout.deadline / tickNanos;
+      // A deadline that fell inside a tick that has already passed fires on this one
+      long due = Math.max(deadlineTick, tick);
+      timeout.rounds = (due - tick) / wheel.length;
+      wheel[(int) (due & mask)].add(timeout);
+    }
+  }
+
+  private void expire(Bucket bucket, long tickDeadline) {
+    Timeout timeout = bucket.head;
+    while (timeout != null) {
+      Timeout next = timeout.next;
+      if (timeout.rounds > 0) {
+        timeout.rounds--;
+      } else if (timeout.deadline <= tickDeadline) {
+        bucket.remove(timeout);
+        if (timeout.transition(Timeout.SCHEDULED, Timeout.EXPIRED)) {
+          pending.decrementAndGet();
+          lag.record(System.nanoTime() - startTime - timeout.deadline);
+          try {
+            timeout.task.run();
+          } catch (Throwable t) {
+            logger.error("Timer task failed", t);
+          }
+        }
+      }
+      timeout = next;
+    }
+  }
+
+  /** How late timers have fired compared with their deadlines. */
+  public LatencyRecorder.Snapshot lag() {
+    return lag.snapshot();
+  }
+
+  /** Stops the worker. Timers that have not fired yet never will. */
+  public void stop() {
+    running = false;
+    LockSupport.unpark(worker);
+    try {
+      worker.join(TimeUnit.NANOSECONDS.toMillis(tickNanos) + 1000);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -0,0 +1,22 @@
+package moae.dev.Utils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import moae.dev.Game.GameModule;
+
+/**
+ * The mapper used for everything the game sends over sockets. Mappers are thread-safe and
+ * expensive to build, so there is one; Blackbird replaces reflective getter calls with generated
+ * lambdas once each type has been seen.
+ */
+public final class Json {
+  private static final ObjectMapper MAPPER =
+      JsonMapper.builder().addModule(new BlackbirdModule()).addModule(new GameModule()).build();
+
+  private Json() {}
+
+  public static ObjectMapper mapper() {
+    return MAPPER;
+  }
+}
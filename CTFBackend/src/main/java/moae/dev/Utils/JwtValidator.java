@@ -1,7 +1,8 @@
 package moae.dev.Utils;
 
 import moae.dev.Game.Game;
-import moae.dev.Game.Player;
+import moae.dev.Game.GameRegistry;
+import moae.dev.Server.GameArgumentResolver;
 import org.springframework.security.oauth2.core.*;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.stereotype.Component;
@@ -10,21 +11,30 @@ import java.util.UUID;
 
 @Component
 public class JwtValidator implements OAuth2TokenValidator<Jwt> {
-  private final Game game;
+  private final GameRegistry games;
 
-  public JwtValidator(Game game) {
-    this.game = game;
+  public JwtValidator(GameRegistry games) {
+    this.games = games;
   }
 
   @Override
   public OAuth2TokenValidatorResult validate(Jwt token) {
+    // Tokens issued before games were scoped carry no claim and belong to the default game
+    Game game = games.get(token.getClaimAsString(GameArgumentResolver.GAME_CLAIM));
+    if (game == null && !token.hasClaim(GameArgumentResolver.GAME_CLAIM))
+      game = games.getDefault();
+
+    if (game == null) {
+      OAuth2Error error = new OAuth2Error("invalid_token", "Game no longer exists", null);
+      return OAuth2TokenValidatorResult.failure(error);
+    }
+
     UUID playerId = UUID.fromString(token.getSubject());
     if (!game.isValidPlayer(playerId)) {
       OAuth2Error error = new OAuth2Error("invalid_token", "Missing role claim", null);
       return OAuth2TokenValidatorResult.failure(error);
     }
 
-    Player player = game.getPlayer(playerId);
     return OAuth2TokenValidatorResult.success();
   }
 }
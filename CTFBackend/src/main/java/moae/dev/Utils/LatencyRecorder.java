@@ -0,0 +1,56 @@
+package moae.dev.Utils;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Count, mean, max and an approximate p99 of recorded durations. Durations are bucketed by
+ * power-of-two milliseconds, so recording is a few striped adds that threads recording at once
+ * don't contend on, and the p99 is the upper bound of its bucket.
+ */
+public class LatencyRecorder {
+  // [0, 1ms), [1ms, 2ms), [2ms, 4ms), ... up to about 9 minutes
+  private static final int BUCKETS = 20;
+
+  private final LongAdder count = new LongAdder();
+  private final LongAdder totalNanos = new LongAdder();
+  private final LongAdder[] histogram = new LongAdder[BUCKETS];
+  private final AtomicLong maxNanos = new AtomicLong();
+
+  public record Snapshot(long count, double meanMillis, long p99Millis, double maxMillis) {}
+
+  public LatencyRecorder() {
+    for (int i = 0; i < BUCKETS; i++) histogram[i] = new LongAdder();
+  }
+
+  public void record(long nanos) {
+    nanos = Math.max(0, nanos);
+    count.increment();
+    totalNanos.add(nanos);
+    // Most durations aren't a new max, and reading first spares them a contended write
+    if (nanos > maxNanos.get()) maxNanos.accumulateAndGet(nanos, Math::max);
+
+    long millis = TimeUnit.NANOSECONDS.toMillis(nanos);
+    int bucket = millis == 0 ? 0 : 64 - Long.numberOfLeadingZeros(millis);
+    histogram[Math.min(bucket, BUCKETS - 1)].increment();
+  }
+
+  public Snapshot snapshot() {
+    long total = count.sum();
+    if (total == 0) return new Snapshot(0, 0, 0, 0);
+
+    long target = (long) Math.ceil(total * 0.99);
+    long seen = 0;
+    long p99 = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      seen += histogram[i].sum();
+      if (seen >= target) {
+        p99 = 1L << i;
+        break;
+      }
+    }
+
+    return new Snapshot(total, totalNanos.sum() / 1e6 / total, p99, maxNanos.get() / 1e6);
+  }
+}
@@ -0,0 +1,495 @@
+package moae.dev.Utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32C;
+
+/**
+ * Durable, append-only log of opaque records, numbered from 1 and stamped with the time they were
+ * appended. Appending only queues a record: a writer thread, started on demand, writes everything
+ * that has queued up since its last pass and then forces it to disk once, so records appended
+ * while a force is running share the next one (group commit).
+ *
+ * <p>A checkpoint is a complete image of whatever the records describe, as of the last record
+ * appended before it. Once a checkpoint is on disk the segments holding older records are deleted,
+ * and later records go into a new segment. {@link #open} restores the newest checkpoint and
+ * replays the records after it. A record torn by a crash ends its segment and is cut off.
+ *
+ * <p>Records are not durable when {@link #append} returns; callers that need to know wait on
+ * {@link #flush()}.
+ *
+ * <p>A failed write fails the log for good. Records after a gap could never be replayed, so rather
+ * than writing on past one the log rejects everything appended afterwards, and reopening it
+ * recovers the records that made it to disk.
+ */
+public class WriteAheadLog implements Closeable {
+  private static final Logger logger = LoggerFactory.getLogger(WriteAheadLog.class);
+
+  private static final String SEGMENT = ".wal";
+  private static final String CHECKPOINT = ".checkpoint";
+  private static final int CHECKPOINT_MAGIC = 0x43544643;
+  // length, sequence number, time, checksum
+  private static final int HEADER_BYTES = 4 + 8 + 8 + 4;
+  private static final int MAX_RECORD_BYTES = 16 << 20;
+
+  /** Receives the newest checkpoint, if there is one, and then every record after it in order. */
+  public interface Replay {
+    void restore(byte[] checkpoint);
+
+    void apply(long time, byte[] record);
+  }
+
+  private enum Kind {
+    RECORD,
+    CHECKPOINT,
+    FLUSH,
+    CLOSE
+  }
+
+  private record Entry(
+      Kind kind, long sequence, long time, byte[] payload, CompletableFuture<Void> done) {}
+
+  private final Path directory;
+  private final ReentrantLock lock = new ReentrantLock();
+  private final ArrayDeque<Entry> queue = new ArrayDeque<>();
+  private boolean draining = false;
+  private boolean closed = false;
+  private long sequence = 0;
+  // Set once by the writer when a write fails
+  private volatile Exception failure;
+
+  // Only touched by the writer
+  private FileChannel segment;
+  private ByteBuffer pending = ByteBuffer.allocate(64 << 10);
+  private long pendingFirst;
+
+  private final AtomicLong records = new AtomicLong();
+  private final AtomicLong commits = new AtomicLong();
+
+  private WriteAheadLog(Path directory) {
+    this.directory = directory;
+  }
+
+  /**
+   * Opens the log in {@code directory}, creating it if needed, and hands what it already holds to
+   * {@code replay} before returning.
+   */
+  public static WriteAheadLog open(Path directory, Replay replay) {
+    try {
+      Files.createDirectories(directory);
+      WriteAheadLog log = new WriteAheadLog(directory);
+      log.sequence = log.recover(replay);
+      return log;
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to open log in " + directory, e);
+    }
+  }
+
+  /** Deletes a closed log's files and its directory, along with any logs kept inside it. */
+  public static void delete(Path directory) {
+    if (!Files.isDirectory(directory)) return;
+    try {
+      for (Path file : list(directory, "")) {
+        if (Files.isDirectory(file)) delete(file);
+        else Files.deleteIfExists(file);
+      }
+      Files.deleteIfExists(directory);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to delete log in " + directory, e);
+    }
+  }
+
+  public Path getDirectory() {
+    return directory;
+  }
+
+  // ----- Writing -----
+
+  /** Queues {@code record} and returns its sequence number. */
+  public long append(byte[] record) {
+    if (record.length > MAX_RECORD_BYTES)
+      throw new IllegalArgumentException("Record is too large to be logged");
+    return offer(Kind.RECORD, record, null);
+  }
+
+  /** Queues a checkpoint covering every record appended so far. */
+  public void checkpoint(byte[] image) {
+    offer(Kind.CHECKPOINT, image, null);
+  }
+
+  /** Completes once everything appended before the call is on disk. */
+  public CompletableFuture<Void> flush() {
+    CompletableFuture<Void> done = new CompletableFuture<>();
+    try {
+      // Everything was written out when the log was closed
+      if (offer(Kind.FLUSH, null, done) < 0) done.complete(null);
+    } catch (IllegalStateException e) {
+      done.completeExceptionally(e);
+    }
+    return done;
+  }
+
+  /** Writes out everything queued, then stops taking records. */
+  @Override
+  public void close() {
+    CompletableFuture<Void> done = new CompletableFuture<>();
+    if (offer(Kind.CLOSE, null, done) < 0) return;
+    done.exceptionally(e -> null).join();
+  }
+
+  /** Queues an entry and returns the last sequence number, or -1 if a marker came after close. */
+  private long offer(Kind kind, byte[] payload, CompletableFuture<Void> done) {
+    boolean startDrain;
+    long assigned;
+    lock.lock();
+    try {
+      if (failure != null && kind != Kind.CLOSE)
+        throw new IllegalStateException("Log in " + directory + " has failed", failure);
+      if (closed) {
+        if (kind == Kind.FLUSH || kind == Kind.CLOSE) return -1;
+        throw new IllegalStateException("Log has been closed");
+      }
+      if (kind == Kind.RECORD) sequence++;
+      if (kind == Kind.CLOSE) closed = true;
+      assigned = sequence;
+      queue.add(new Entry(kind, assigned, System.currentTimeMillis(), payload, done));
+      startDrain = !draining;
+      draining = true;
+    } finally {
+      lock.unlock();
+    }
+
+    if (startDrain) Thread.ofVirtual().name("wal-" + directory.getFileName()).start(this::drain);
+    return assigned;
+  }
+
+  private void drain() {
+    while (true) {
+      List<Entry> batch;
+      lock.lock();
+      try {
+        if (queue.isEmpty()) {
+          draining = false;
+          return;
+        }
+        batch = new ArrayList<>(queue);
+        queue.clear();
+      } finally {
+        lock.unlock();
+      }
+
+      write(batch);
+    }
+  }
+
+  private void write(List<Entry> batch) {
+    if (failure != null) {
+      // Queued before the failure was noticed; none of it may follow the gap
+      fail(batch, failure);
+      return;
+    }
+
+    List<CompletableFuture<Void>> waiting = new ArrayList<>();
+    try {
+      for (Entry entry : batch) {
+        switch (entry.kind()) {
+          case RECORD -> buffer(entry);
+          case CHECKPOINT -> {
+            commit();
+            writeCheckpoint(entry);
+          }
+          case FLUSH -> waiting.add(entry.done());
+          case CLOSE -> {
+            commit();
+            closeSegment();
+            waiting.add(entry.done());
+          }
+        }
+      }
+      commit();
+      for (CompletableFuture<Void> done : waiting) done.complete(null);
+    } catch (IOException | RuntimeException e) {
+      logger.error("Failed to write log in {}, rejecting further records", directory, e);
+      // A torn tail is cut off on recovery, but nothing may be written after it
+      failure = e;
+      pending.clear();
+      closeSegment();
+      fail(batch, e);
+    }
+  }
+
+  private static void fail(List<Entry> batch, Exception e) {
+    for (Entry entry : batch) {
+      if (entry.done() != null) entry.done().completeExceptionally(e);
+    }
+  }
+
+  private void buffer(Entry entry) {
+    byte[] payload = entry.payload();
+    int length = HEADER_BYTES + payload.length;
+    if (pending.remaining() < length) {
+      int capacity = Math.max(pending.capacity() * 2, pending.position() + length);
+      ByteBuffer grown = ByteBuffer.allocate(capacity);
+      pending.flip();
+      pending = grown.put(pending);
+    }
+
+    if (pending.position() == 0) pendingFirst = entry.sequence();
+    pending
+        .putInt(payload.length)
+        .putLong(entry.sequence())
+        .putLong(entry.time())
+        .putInt(checksum(entry.sequence(), entry.time(), payload))
+        .put(payload);
+    records.incrementAndGet();
+  }
+
+  /** Writes the buffered records and forces them to disk. */
+  private void commit() throws IOException {
+    if (pending.position() == 0) return;
+
+    if (segment == null) {
+      segment =
+          FileChannel.open(
+              directory.resolve(name(pendingFirst, SEGMENT)),
+              StandardOpenOption.CREATE,
+              StandardOpenOption.WRITE,
+              StandardOpenOption.TRUNCATE_EXISTING);
+      syncDirectory();
+    }
+
+    pending.flip();
+    while (pending.hasRemaining()) segment.write(pending);
+    pending.clear();
+    segment.force(false);
+    commits.incrementAndGet();
+  }
+
+  private void writeCheckpoint(Entry entry) throws IOException {
+    byte[] image = entry.payload();
+    Path target = directory.resolve(name(entry.sequence(), CHECKPOINT));
+    Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+
+    try (FileChannel channel =
+        FileChannel.open(
+            temp,
+            StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING)) {
+      ByteBuffer header =
+          ByteBuffer.allocate(20)
+              .putInt(CHECKPOINT_MAGIC)
+              .putLong(entry.sequence())
+              .putInt(image.length)
+              .putInt(checksum(entry.sequence(), 0, image))
+              .flip();
+      ByteBuffer body = ByteBuffer.wrap(image);
+      while (header.hasRemaining() || body.hasRemaining())
+        channel.write(new ByteBuffer[] {header, body});
+      channel.force(false);
+    }
+    Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    syncDirectory();
+
+    // Everything on disk is now covered by the checkpoint
+    closeSegment();
+    for (Path file : list(directory, SEGMENT)) Files.deleteIfExists(file);
+    for (Path file : list(directory, CHECKPOINT)) {
+      if (!file.equals(target)) Files.deleteIfExists(file);
+    }
+  }
+
+  private void closeSegment() {
+    if (segment == null) return;
+    try {
+      segment.close();
+    } catch (IOException e) {
+      logger.warn("Failed to close log segment in {}", directory, e);
+    }
+    segment = null;
+  }
+
+  private void syncDirectory() {
+    // Makes new and renamed files durable; not every platform can open a directory
+    try (FileChannel dir = FileChannel.open(directory, StandardOpenOption.READ)) {
+      dir.force(true);
+    } catch (IOException ignored) {
+    }
+  }
+
+  // ----- Recovery -----
+  private long recover(Replay replay) throws IOException {
+    long last = 0;
+    // Checkpoints that were never renamed into place
+    for (Path file : list(directory, ".tmp")) Files.deleteIfExists(file);
+
+    List<Path> checkpoints = list(directory, CHECKPOINT);
+    for (Path file : checkpoints.reversed()) {
+      byte[] image = readCheckpoint(file);
+      if (image != null) {
+        replay.restore(image);
+        last = sequenceOf(file);
+        break;
+      }
+      logger.warn("Skipping damaged checkpoint {}", file);
+    }
+
+    boolean broken = false;
+    for (Path file : list(directory, SEGMENT)) {
+      // A segment that doesn't carry on from the last record can never be reached again
+      if (broken || sequenceOf(file) > last + 1) {
+        logger.warn("Dropping log segment {}, which does not follow record {}", file, last);
+        Files.deleteIfExists(file);
+        broken = true;
+        continue;
+      }
+      last = replaySegment(file, last, replay);
+    }
+    return last;
+  }
+
+  private byte[] readCheckpoint(Path file) throws IOException {
+    try (DataInputStream in =
+        new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+      if (in.readInt() != CHECKPOINT_MAGIC) return null;
+      long seq = in.readLong();
+      int length = in.readInt();
+      int checksum = in.readInt();
+      if (seq != sequenceOf(file) || length < 0) return null;
+
+      byte[] image = in.readNBytes(length);
+      if (image.length != length || checksum(seq, 0, image) != checksum) return null;
+      return image;
+    } catch (EOFException e) {
+      return null;
+    }
+  }
+
+  /** Replays the records in {@code file} after {@code last}, and returns the last one read. */
+  private long replaySegment(Path file, long last, Replay replay) throws IOException {
+    try (FileChannel channel =
+        FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      DataInputStream in =
+          new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel), 1 << 16));
+      long good = 0;
+      boolean torn = false;
+
+      while (true) {
+        int length;
+        try {
+          length = in.readInt();
+        } catch (EOFException end) {
+          break;
+        }
+
+        try {
+          if (length < 0 || length > MAX_RECORD_BYTES) throw new EOFException();
+          long seq = in.readLong();
+          long time = in.readLong();
+          int checksum = in.readInt();
+          byte[] payload = in.readNBytes(length);
+          if (payload.length != length || checksum(seq, time, payload) != checksum)
+            throw new EOFException();
+
+          if (seq > last + 1) throw new EOFException();
+          if (seq == last + 1) {
+            replay.apply(time, payload);
+            last = seq;
+          }
+          good += HEADER_BYTES + length;
+        } catch (EOFException damaged) {
+          torn = true;
+          break;
+        }
+      }
+
+      if (torn) {
+        logger.warn("Cutting off a torn record in {} after record {}", file, last);
+        channel.truncate(good);
+        channel.force(false);
+      }
+    }
+    return last;
+  }
+
+  // ----- Utilities -----
+  private static int checksum(long seq, long time, byte[] payload) {
+    CRC32C crc = new CRC32C();
+    crc.update(ByteBuffer.allocate(16).putLong(seq).putLong(time).flip());
+    crc.update(payload);
+    return (int) crc.getValue();
+  }
+
+  private static String name(long seq, String suffix) {
+    return String.format("%020d%s", seq, suffix);
+  }
+
+  private static long sequenceOf(Path file) {
+    String name = file.getFileName().toString();
+    return Long.parseLong(name.substring(0, name.indexOf('.')));
+  }
+
+  /** Files in {@code directory} ending with {@code suffix}, in sequence order. */
+  private static List<Path> list(Path directory, String suffix) throws IOException {
+    List<Path> files = new ArrayList<>();
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+      for (Path file : stream) {
+        if (file.getFileName().toString().endsWith(suffix)) files.add(file);
+      }
+    }
+    if (!suffix.isEmpty()) files.sort(Comparator.comparingLong(WriteAheadLog::sequenceOf));
+    return files;
+  }
+
+  /** The sequence number of the last record appended. */
+  public long lastSequence() {
+    lock.lock();
+    try {
+      return sequence;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /** Records queued but not yet handed to the writer. */
+  public int pending() {
+    lock.lock();
+    try {
+      return queue.size();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /** Records written so far by this process. */
+  public long getRecords() {
+    return records.get();
+  }
+
+  /** Forces to disk so far; with many writers this stays well below {@link #getRecords()}. */
+  public long getCommits() {
+    return commits.get();
+  }
+}
@@ -0,0 +1,35 @@
+package moae.dev;
+
+import moae.dev.Server.AppConfig;
+
+import java.util.List;
+
+/** Settings shared by the tests that build real games. Tests change only what they care about. */
+public final class Fixtures {
+  private Fixtures() {}
+
+  /** Two teams, Red and Blue, any number of players, and stages of 5, 10 and 30 minutes. */
+  public static AppConfig config() {
+    AppConfig.GameConfig gameConfig = new AppConfig.GameConfig();
+    gameConfig.setMaxPlayers(-1);
+    gameConfig.setMinPlayers(2);
+    gameConfig.setMinPlayersPerTeam(1);
+    gameConfig.setMaxPlayersPerTeam(-1);
+    gameConfig.setMaxTeams(2);
+    gameConfig.setGraceTime(300);
+    gameConfig.setScoutTime(600);
+    gameConfig.setFfaTime(1800);
+
+    AppConfig config = new AppConfig();
+    config.setGame(gameConfig);
+    config.setTeams(List.of(team("Red Team", "#FF0000"), team("Blue Team", "#0000FF")));
+    return config;
+  }
+
+  private static AppConfig.TeamConfig team(String name, String color) {
+    AppConfig.TeamConfig team = new AppConfig.TeamConfig();
+    team.setName(name);
+    team.setColor(color);
+    return team;
+  }
+}
@@ -0,0 +1,200 @@
+package moae.dev.Game;
+
+import moae.dev.Fixtures;
+import moae.dev.Server.AppConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CaptureEngineTest {
+  private Game game;
+  private CaptureEngine engine;
+  private final List<GameEvent> reached = new CopyOnWriteArrayList<>();
+  private UUID red;
+  private UUID blue;
+  private UUID green;
+
+  @BeforeEach
+  void setUp() {
+    AppConfig config = Fixtures.config();
+    config.getGame().setMaxTeams(3);
+    config.getLocations().setCaptureRadius(1);
+    config.getLocations().setProximityRadius(5);
+    game = new Game(config, null);
+    game.outbox()
+        .subscribe(
+            "test",
+            events ->
+                events.stream()
+                    .filter(
+                        e ->
+                            e instanceof GameEvent.FlagApproached
+                                || e instanceof GameEvent.FlagCaptured)
+                    .forEach(reached::add));
+    engine = game.captures();
+
+    red = game.getTeams().get(0).getID();
+    blue = game.getTeams().get(1).getID();
+    game.registerTeam("Green Team", "#00FF00");
+    green = game.getTeams().get(2).getID();
+    game.goTo(Game.State.GRACE_PERIOD, 60_000);
+    game.registerFlag(red, 20, 20);
+    game.registerFlag(blue, 80, 80);
+    game.registerFlag(green, 22, 80);
+    game.goTo(Game.State.SCOUT_PERIOD, 60_000);
+  }
+
+  @AfterEach
+  void tearDown() {
+    game.shutdown();
+  }
+
+  /** Waits for {@code count} events, and a little longer to catch any extra. */
+  private List<GameEvent> await(int count) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 2000;
+    while (reached.size() < count && System.currentTimeMillis() < deadline) Thread.sleep(5);
+    Thread.sleep(50);
+    assertEquals(count, reached.size(), reached.toString());
+    return List.copyOf(reached);
+  }
+
+  @Nested
+  @DisplayName("Detection Tests")
+  class DetectionTests {
+
+    @Test
+    @DisplayName("Walking up to an enemy flag should report it once when near and once on it")
+    void testApproachAndCapture() throws Exception {
+      UUID alice = UUID.randomUUID();
+      engine.check(0, alice, red, 70, 70);
+      engine.check(0, alice, red, 76, 77);
+      engine.check(0, alice, red, 77, 78);
+      engine.check(0, alice, red, 80.5f, 80);
+      engine.check(0, alice, red, 80, 80.2f);
+
+      List<GameEvent> events = await(2);
+      assertEquals(new GameEvent.FlagApproached(blue, alice, red), events.get(0));
+      assertEquals(new GameEvent.FlagCaptured(blue, alice, red), events.get(1));
+    }
+
+    @Test
+    @DisplayName("A player's own flag should never be reported")
+    void testOwnFlag() throws Exception {
+      UUID alice = UUID.randomUUID();
+      engine.check(0, alice, red, 20, 20);
+      engine.check(0, alice, red, 21, 20);
+
+      await(0);
+    }
+
+    @Test
+    @DisplayName("Hovering on the edge of a zone shouldn't report it again until the player leaves")
+    void testHysteresis() throws Exception {
+      UUID alice = UUID.randomUUID();
+      engine.check(0, alice, blue, 20, 25);
+      // Just outside the radius, but not past the margin
+      engine.check(0, alice, blue, 20, 25.3f);
+      engine.check(0, alice, blue, 20, 25);
+      assertEquals(1, await(1).size());
+
+      engine.check(0, alice, blue, 20, 26);
+      engine.check(0, alice, blue, 20, 25);
+      List<GameEvent> events = await(2);
+      assertEquals(new GameEvent.FlagApproached(red, alice, blue), events.get(1));
+    }
+
+    @Test
+    @DisplayName("A player should be checked against the flags of neighbouring cells")
+    void testNeighbouringCells() throws Exception {
+      UUID alice = UUID.randomUUID();
+      UUID bob = UUID.randomUUID();
+      // Cells are 100 / 18 wide, so both are a cell right of or below the flag they are near
+      engine.check(0, alice, blue, 23, 82);
+      engine.check(1, bob, blue, 20, 23);
+
+      List<GameEvent> events = await(2);
+      assertTrue(events.contains(new GameEvent.FlagApproached(green, alice, blue)));
+      assertTrue(events.contains(new GameEvent.FlagApproached(red, bob, blue)));
+    }
+
+    @Test
+    @DisplayName("A slot handed on to another player should start outside every zone")
+    void testSlotReused() throws Exception {
+      UUID alice = UUID.randomUUID();
+      UUID bob = UUID.randomUUID();
+      engine.check(0, alice, blue, 20, 22);
+      engine.check(0, bob, blue, 20, 22);
+
+      List<GameEvent> events = await(2);
+      assertEquals(new GameEvent.FlagApproached(red, bob, blue), events.get(1));
+    }
+
+    @Test
+    @DisplayName("Flags bucketed again without moving shouldn't be reported again")
+    void testRebuildKeepsZones() throws Exception {
+      UUID alice = UUID.randomUUID();
+      engine.check(0, alice, red, 77, 78);
+      // As if the outbox caught up with a flag change after the first check
+      engine.apply(List.of(new GameEvent.FlagRegistered(green, 22, 80)));
+      engine.check(0, alice, red, 77, 78);
+
+      assertEquals(List.of(new GameEvent.FlagApproached(blue, alice, red)), await(1));
+    }
+  }
+
+  @Nested
+  @DisplayName("Stage Tests")
+  class StageTests {
+
+    @Test
+    @DisplayName("Nothing should be reported while the game is paused")
+    void testPaused() throws Exception {
+      game.pauseAsync().join();
+      engine.check(0, UUID.randomUUID(), red, 80, 80);
+
+      await(0);
+    }
+
+    @Test
+    @DisplayName("Flags registered again after a reset should be the ones checked")
+    void testReset() throws Exception {
+      game.resetAsync(false).join();
+      game.goTo(Game.State.GRACE_PERIOD, 60_000);
+      game.registerFlag(blue, 50, 50);
+      game.goTo(Game.State.SCOUT_PERIOD, 60_000);
+      // Let the outbox tell the engine about the new flag
+      Thread.sleep(50);
+
+      UUID alice = UUID.randomUUID();
+      engine.check(0, alice, red, 80, 80);
+      engine.check(0, alice, red, 50, 50);
+
+      assertEquals(List.of(new GameEvent.FlagCaptured(blue, alice, red)), await(1));
+    }
+
+    @Test
+    @DisplayName("A flag registered in the same place after a reset should be reported again")
+    void testResetSamePlace() throws Exception {
+      UUID alice = UUID.randomUUID();
+      engine.check(0, alice, red, 80, 80);
+      await(1);
+
+      game.resetAsync(false).join();
+      game.goTo(Game.State.GRACE_PERIOD, 60_000);
+      game.registerFlag(blue, 80, 80);
+      game.goTo(Game.State.SCOUT_PERIOD, 60_000);
+      Thread.sleep(50);
+      engine.check(0, alice, red, 80, 80);
+
+      assertEquals(new GameEvent.FlagCaptured(blue, alice, red), await(2).get(1));
+    }
+  }
+}
@@ -0,0 +1,138 @@
+package moae.dev.Game;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CommandLoopTest {
+  private final AtomicInteger applied = new AtomicInteger();
+  private final AtomicInteger published = new AtomicInteger();
+  private CommandLoop loop;
+
+  @BeforeEach
+  void setUp() {
+    loop = CommandLoop.threaded("test-loop", () -> published.set(applied.get()));
+  }
+
+  @AfterEach
+  void tearDown() {
+    loop.shutdown();
+  }
+
+  @Nested
+  @DisplayName("Command Tests")
+  class CommandTests {
+
+    @Test
+    @DisplayName("Should publish a command's effects before completing it")
+    void testPublishesBeforeCompleting() {
+      CompletableFuture<Integer> seen =
+          loop.submit(applied::incrementAndGet).thenApply(value -> published.get());
+
+      assertEquals(1, CommandLoop.await(seen));
+    }
+
+    @Test
+    @DisplayName("Should apply commands from many threads in submission order per thread")
+    void testConcurrentSubmissions() throws InterruptedException {
+      int threads = 16;
+      int perThread = 2000;
+      List<Integer> order = new ArrayList<>();
+      CountDownLatch start = new CountDownLatch(1);
+
+      List<Thread> workers = new ArrayList<>();
+      for (int t = 0; t < threads; t++) {
+        int thread = t;
+        Thread worker =
+            new Thread(
+                () -> {
+                  try {
+                    start.await();
+                  } catch (InterruptedException e) {
+                    return;
+                  }
+                  CompletableFuture<?> last = null;
+                  for (int i = 0; i < perThread; i++) {
+                    int value = thread * perThread + i;
+                    last = loop.execute(() -> order.add(value));
+                  }
+                  last.join();
+                });
+        worker.start();
+        workers.add(worker);
+      }
+
+      start.countDown();
+      for (Thread worker : workers) worker.join();
+
+      assertEquals(threads * perThread, order.size());
+      int[] next = new int[threads];
+      for (int value : order) {
+        int thread = value / perThread;
+        assertEquals(thread * perThread + next[thread]++, value);
+      }
+    }
+
+    @Test
+    @DisplayName("Should run commands submitted from the loop immediately")
+    void testNestedCommandsRunInline() {
+      int result =
+          CommandLoop.await(
+              loop.submit(() -> CommandLoop.await(loop.submit(() -> loop.inLoop() ? 1 : 0))));
+
+      assertEquals(1, result);
+    }
+  }
+
+  @Nested
+  @DisplayName("Failure Tests")
+  class FailureTests {
+
+    @Test
+    @DisplayName("Should rethrow a command's exception unchanged")
+    void testAwaitUnwraps() {
+      CompletableFuture<Void> failed =
+          loop.execute(
+              () -> {
+                throw new IllegalStateException("Cannot pause");
+              });
+
+      IllegalStateException e =
+          assertThrows(IllegalStateException.class, () -> CommandLoop.await(failed));
+      assertEquals("Cannot pause", e.getMessage());
+    }
+
+    @Test
+    @DisplayName("A failed command should not affect the rest of its batch")
+    void testFailureIsolated() {
+      CompletableFuture<Void> failed =
+          loop.execute(
+              () -> {
+                throw new IllegalArgumentException();
+              });
+      CompletableFuture<Integer> ok = loop.submit(applied::incrementAndGet);
+
+      assertThrows(IllegalArgumentException.class, () -> CommandLoop.await(failed));
+      assertEquals(1, CommandLoop.await(ok));
+    }
+
+    @Test
+    @DisplayName("Should reject commands after shutdown")
+    void testRejectsAfterShutdown() {
+      loop.shutdown();
+
+      assertThrows(
+          IllegalStateException.class, () -> CommandLoop.await(loop.submit(() -> 1)));
+    }
+  }
+}
@@ -0,0 +1,226 @@
+package moae.dev.Game;
+
+import moae.dev.Fixtures;
+import moae.dev.Server.AppConfig;
+import moae.dev.Services.PushNotificationService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EventOutboxTest {
+  private EventOutbox outbox;
+
+  @BeforeEach
+  void setUp() {
+    outbox = new EventOutbox("test-events");
+  }
+
+  @AfterEach
+  void tearDown() {
+    outbox.shutdown();
+  }
+
+  private static void await(List<?> list, int size) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 2000;
+    while (list.size() < size && System.currentTimeMillis() < deadline) Thread.sleep(5);
+    assertEquals(size, list.size());
+  }
+
+  private static GameEvent flag(int i) {
+    return new GameEvent.FlagRegistered(new UUID(0, i), i, i);
+  }
+
+  @Nested
+  @DisplayName("Delivery Tests")
+  class DeliveryTests {
+
+    @Test
+    @DisplayName("Should deliver every event in the order it was published")
+    void testOrder() throws InterruptedException {
+      List<GameEvent> received = new CopyOnWriteArrayList<>();
+      outbox.subscribe("test", received::addAll);
+
+      List<GameEvent> sent = new ArrayList<>();
+      for (int i = 0; i < 1000; i++) {
+        sent.add(flag(i));
+        outbox.publish(List.of(flag(i)));
+      }
+
+      await(received, 1000);
+      assertEquals(sent, received);
+    }
+
+    @Test
+    @DisplayName("Should batch events that queue up behind a slow consumer")
+    void testBatches() throws InterruptedException {
+      CountDownLatch gate = new CountDownLatch(1);
+      List<Integer> batches = new CopyOnWriteArrayList<>();
+      List<GameEvent> received = new CopyOnWriteArrayList<>();
+      outbox.subscribe(
+          "test",
+          batch -> {
+            batches.add(batch.size());
+            received.addAll(batch);
+            try {
+              gate.await();
+            } catch (InterruptedException e) {
+              Thread.currentThread().interrupt();
+            }
+          });
+
+      outbox.publish(List.of(flag(0)));
+      await(batches, 1);
+      for (int i = 1; i <= 10; i++) outbox.publish(List.of(flag(i)));
+      assertEquals(10, outbox.depth());
+
+      gate.countDown();
+      await(received, 11);
+      assertEquals(List.of(1, 10), batches);
+    }
+
+    @Test
+    @DisplayName("A stalled consumer should not hold up the others")
+    void testIndependentConsumers() throws InterruptedException {
+      CountDownLatch gate = new CountDownLatch(1);
+      List<GameEvent> fast = new CopyOnWriteArrayList<>();
+      outbox.subscribe(
+          "stalled",
+          batch -> {
+            try {
+              gate.await();
+            } catch (InterruptedException e) {
+              Thread.currentThread().interrupt();
+            }
+          });
+      outbox.subscribe("fast", fast::addAll);
+
+      for (int i = 0; i < 5; i++) outbox.publish(List.of(flag(i)));
+
+      await(fast, 5);
+      gate.countDown();
+    }
+
+    @Test
+    @DisplayName("Should keep delivering after a consumer throws")
+    void testFailingConsumer() throws InterruptedException {
+      List<GameEvent> received = new CopyOnWriteArrayList<>();
+      AtomicInteger calls = new AtomicInteger();
+      outbox.subscribe(
+          "test",
+          batch -> {
+            if (calls.getAndIncrement() == 0) throw new IllegalStateException();
+            received.addAll(batch);
+          });
+
+      outbox.publish(List.of(flag(0)));
+      Thread.sleep(50);
+      outbox.publish(List.of(flag(1)));
+
+      await(received, 1);
+      assertEquals(List.of(flag(1)), received);
+    }
+  }
+
+  @Nested
+  @DisplayName("Game Tests")
+  class GameTests {
+    private StalledPush push;
+    private Game game;
+    private List<GameEvent> received;
+
+    /** A push service that never gets a notification out. */
+    private static class StalledPush extends PushNotificationService {
+      final CountDownLatch gate = new CountDownLatch(1);
+      final AtomicInteger calls = new AtomicInteger();
+
+      @Override
+      public CompletableFuture<Void> notifyAll(String title, String body) {
+        calls.incrementAndGet();
+        try {
+          gate.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        return CompletableFuture.completedFuture(null);
+      }
+    }
+
+    @BeforeEach
+    void setUp() {
+      AppConfig config = Fixtures.config();
+
+      push = new StalledPush();
+      game = new Game(config, push);
+      received = new CopyOnWriteArrayList<>();
+      game.outbox().subscribe("test", received::addAll);
+    }
+
+    @AfterEach
+    void tearDown() {
+      push.gate.countDown();
+      game.shutdown();
+    }
+
+    @Test
+    @DisplayName("advance() should not wait for a stalled push service")
+    void testAdvanceWithStalledPush() throws InterruptedException {
+      game.start();
+      for (Team team : game.getTeams()) game.registerFlag(team.getID(), 1, 2);
+      await(received, 3);
+      assertEquals(1, push.calls.get());
+
+      long start = System.nanoTime();
+      game.advance();
+      long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start);
+
+      assertEquals(Game.State.SCOUT_PERIOD, game.getState());
+      assertTrue(micros < 50_000, "advance took " + micros + "us");
+      // The other consumers have already moved on
+      await(received, 4);
+      assertEquals(
+          new GameEvent.PhaseChanged(Game.State.SCOUT_PERIOD, 600_000, false), received.get(3));
+      assertTrue(game.outbox().depth() >= 1);
+    }
+
+    @Test
+    @DisplayName("A failed command should publish no events")
+    void testFailedCommand() throws InterruptedException {
+      assertThrows(IllegalStateException.class, game::pause);
+      UUID team = game.getTeams().getFirst().getID();
+      assertThrows(IllegalStateException.class, () -> game.registerFlag(team, 1, 2));
+
+      game.start();
+      await(received, 1);
+      Thread.sleep(50);
+      assertEquals(
+          List.of(new GameEvent.PhaseChanged(Game.State.GRACE_PERIOD, 300_000, false)), received);
+    }
+
+    @Test
+    @DisplayName("Should publish a command's events in the order it recorded them")
+    void testVictoryEvents() throws InterruptedException {
+      game.start();
+      for (Team team : game.getTeams()) game.registerFlag(team.getID(), 1, 2);
+      game.advance();
+      Team red = game.getTeams().getFirst();
+      game.declareVictory(red.getID());
+
+      await(received, 6);
+      assertEquals(new GameEvent.VictoryDeclared(red.getID(), "Red Team"), received.get(4));
+      assertEquals(new GameEvent.PhaseChanged(Game.State.ENDED, 0, false), received.get(5));
+    }
+  }
+}
@@ -0,0 +1,129 @@
+package moae.dev.Game;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import moae.dev.Fixtures;
+import moae.dev.Server.AppConfig;
+import moae.dev.Utils.Cbor;
+import moae.dev.Utils.Json;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GameModuleTest {
+  private Game game;
+
+  @BeforeEach
+  void setUp() {
+    AppConfig config = Fixtures.config();
+    config.getGame().setGraceTime(120);
+    game = new Game(config, null);
+  }
+
+  @AfterEach
+  void tearDown() {
+    game.shutdown();
+  }
+
+  private Team red() {
+    return game.getTeams().getFirst();
+  }
+
+  private static JsonNode json(Object value) throws Exception {
+    return Json.mapper().readTree(Json.mapper().writeValueAsBytes(value));
+  }
+
+  @Nested
+  @DisplayName("Domain Tests")
+  class DomainTests {
+
+    @Test
+    @DisplayName("A player should be written with its id, name, team and auth")
+    void testPlayer() throws Exception {
+      Player player = new Player("Alice", red().getID(), true);
+      JsonNode written = json(player);
+
+      assertEquals(4, written.size());
+      assertEquals(player.getID().toString(), written.get("id").asText());
+      assertEquals("Alice", written.get("name").asText());
+      assertEquals(red().getID().toString(), written.get("team").asText());
+      assertTrue(written.get("auth").asBoolean());
+    }
+
+    @Test
+    @DisplayName("A team's flag should only be written once it is revealed")
+    void testTeamFlag() throws Exception {
+      red().registerFlag(12, 34);
+
+      JsonNode hidden = json(red().view(false));
+      assertTrue(hidden.get("flag").isNull());
+      assertTrue(hidden.get("registered").asBoolean());
+
+      JsonNode revealed = json(red().view(true));
+      assertEquals(12, revealed.get("flag").get("x").asInt());
+      assertEquals(34, revealed.get("flag").get("y").asInt());
+      assertEquals(2, revealed.get("flag").size());
+      assertTrue(revealed.get("registered").asBoolean());
+      assertEquals(red().getID().toString(), revealed.get("id").asText());
+      assertEquals("Red Team", revealed.get("name").asText());
+      assertEquals("#FF0000", revealed.get("color").asText());
+      assertEquals(5, revealed.size());
+    }
+  }
+
+  @Nested
+  @DisplayName("Status Tests")
+  class StatusTests {
+
+    @Test
+    @DisplayName("The status should hold the players, teams, stage and settings")
+    void testStatus() throws Exception {
+      UUID alice = game.addPlayer("Alice", red().getID(), false);
+      JsonNode status = json(game.status(42));
+
+      assertEquals(alice.toString(), status.get("players").get(0).get("id").asText());
+      assertEquals(2, status.get("teams").size());
+      String stage = status.get("state").get("state").asText();
+      assertEquals(Game.State.WAITING_TO_START.toString(), stage);
+      assertEquals(42, status.get("state").get("duration").asLong());
+      assertTrue(status.get("state").get("winner").isNull());
+      assertEquals(120, status.get("game").get("graceTime").asInt());
+      assertEquals(-1, status.get("game").get("maxPlayers").asInt());
+    }
+
+    @Test
+    @DisplayName("Flags should be hidden until the free for all")
+    void testFlagsHidden() throws Exception {
+      game.goTo(Game.State.GRACE_PERIOD, 60_000);
+      game.registerFlag(red().getID(), 12, 34);
+      assertTrue(json(game.status()).get("teams").get(0).get("flag").isNull());
+
+      game.goTo(Game.State.FFA_PERIOD, 60_000);
+      assertEquals(12, json(game.status()).get("teams").get(0).get("flag").get("x").asInt());
+    }
+
+    @Test
+    @DisplayName("The winner should only be written once the game has ended")
+    void testWinner() throws Exception {
+      game.goTo(Game.State.SCOUT_PERIOD, 60_000);
+      game.declareVictory(red().getID());
+
+      JsonNode state = json(game.status()).get("state");
+      assertEquals(red().getID().toString(), state.get("winner").asText());
+    }
+
+    @Test
+    @DisplayName("CBOR should carry the same document as JSON")
+    void testCbor() throws Exception {
+      game.addPlayer("Alice", red().getID(), false);
+      byte[] cbor = Cbor.mapper().writeValueAsBytes(game.status(42));
+
+      assertEquals(json(game.status(42)), Cbor.mapper().readTree(cbor));
+    }
+  }
+}
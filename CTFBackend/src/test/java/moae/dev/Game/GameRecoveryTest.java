@@ -0,0 +1,375 @@
+package moae.dev.Game;
+
+import moae.dev.Fixtures;
+import moae.dev.Requests.SettingsRequest;
+import moae.dev.Server.AppConfig;
+import moae.dev.Services.PushNotificationService;
+import moae.dev.Utils.ChatMessage;
+import moae.dev.Utils.WriteAheadLog;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GameRecoveryTest {
+  @TempDir Path dir;
+
+  private AppConfig config;
+  private Game game;
+
+  @BeforeEach
+  void setUp() {
+    config = Fixtures.config();
+
+    game = open();
+  }
+
+  @AfterEach
+  void tearDown() {
+    game.shutdown();
+  }
+
+  private Game open() {
+    return new Game(
+        Game.DEFAULT_ID,
+        config.copy(),
+        null,
+        null,
+        publish -> CommandLoop.virtual("game-loop", publish),
+        dir.resolve(Game.DEFAULT_ID));
+  }
+
+  /** Simulates a restart: the game stops and a new one is built from the same journal. */
+  private Game restart() {
+    game.shutdown();
+    game = open();
+    return game;
+  }
+
+  private Team red() {
+    return game.getTeams().getFirst();
+  }
+
+  @Nested
+  @DisplayName("Restart Tests")
+  class RestartTests {
+
+    @Test
+    @DisplayName("Players and teams should keep their ids across a restart")
+    void testPlayers() {
+      UUID redId = red().getID();
+      UUID alice = game.addPlayer("Alice", redId, false);
+      UUID bob = game.addPlayer("Bob", game.getTeams().getLast().getID(), true);
+      game.removePlayer(bob);
+      game.addPlayer("Carol", redId, false);
+
+      restart();
+
+      assertEquals(redId, red().getID());
+      assertEquals(2, game.getTeams().size());
+      assertTrue(game.isValidPlayer(alice));
+      assertFalse(game.isValidPlayer(bob));
+      assertEquals("Alice", game.getPlayer(alice).getName());
+      assertEquals(2, game.getPlayers().size());
+      assertTrue(game.getVersion() > 0);
+    }
+
+    @Test
+    @DisplayName("Chat should be restored and new messages should continue the numbering")
+    void testChat() {
+      UUID alice = game.addPlayer("Alice", red().getID(), false);
+      game.sendMessage(alice, "hello");
+      game.sendTeamMessage(red().getID(), alice, "team secret");
+
+      restart();
+
+      List<ChatMessage> global = game.getMessages(Integer.MAX_VALUE, 10).messages();
+      assertEquals(1, global.size());
+      assertEquals("hello", global.getFirst().message());
+      List<ChatMessage> team = red().getMessages(Integer.MAX_VALUE, 10).messages();
+      assertEquals("team secret", team.getFirst().message());
+      assertEquals(alice, team.getFirst().player().getID());
+
+      assertEquals(3, game.sendMessage(alice, "again"));
+    }
+
+    @Test
+    @DisplayName("Flags, settings and the emergency state should survive a restart")
+    void testState() {
+      SettingsRequest settings = new SettingsRequest();
+      settings.setGraceTime(120);
+      game.merge(settings);
+      game.addPlayer("Alice", red().getID(), false);
+      game.start();
+      game.registerFlag(red().getID(), 12, 34);
+      game.declareEmergency();
+
+      restart();
+
+      assertTrue(red().isRegistered());
+      assertEquals(12, red().getFlag().getX());
+      assertFalse(game.getTeams().getLast().isRegistered());
+      assertTrue(game.emergencyDeclared());
+      assertTrue(game.isPaused());
+      assertEquals(Game.State.GRACE_PERIOD, game.getState());
+      assertEquals(120, game.status().settings().getGraceTime());
+      assertTrue(game.getTimeRemaining() <= 120_000);
+    }
+
+    @Test
+    @DisplayName("A hard reset should stay reset after a restart")
+    void testHardReset() {
+      UUID alice = game.addPlayer("Alice", red().getID(), false);
+      game.sendMessage(alice, "hello");
+      game.reset(true);
+
+      restart();
+
+      assertTrue(game.getPlayers().isEmpty());
+      assertTrue(game.getMessages(Integer.MAX_VALUE, 10).messages().isEmpty());
+      assertEquals(Game.State.WAITING_TO_START, game.getState());
+    }
+
+    @Test
+    @DisplayName("A soft reset should clear team chat but keep the global chat after a restart")
+    void testSoftReset() {
+      UUID alice = game.addPlayer("Alice", red().getID(), false);
+      game.sendMessage(alice, "hello");
+      game.sendTeamMessage(red().getID(), alice, "team secret");
+      game.reset(false);
+      game.sendTeamMessage(red().getID(), alice, "after the reset");
+
+      restart();
+
+      assertEquals(1, game.getMessages(Integer.MAX_VALUE, 10).messages().size());
+      List<ChatMessage> team = red().getMessages(Integer.MAX_VALUE, 10).messages();
+      assertEquals(List.of("after the reset"), team.stream().map(ChatMessage::message).toList());
+    }
+
+    @Test
+    @DisplayName("Chat from before a hard reset should stay gone if the chat journal missed it")
+    void testHardResetMissedByChat() throws Exception {
+      UUID alice = game.addPlayer("Alice", red().getID(), false);
+      game.sendMessage(alice, "hello");
+      game.shutdown();
+      Path chat = dir.resolve(Game.DEFAULT_ID).resolve("chat");
+      Path saved = dir.resolve("saved-chat");
+      copy(chat, saved);
+
+      game = open();
+      game.reset(true);
+      game.shutdown();
+      // As if the process stopped before the chat journal took the reset
+      WriteAheadLog.delete(chat);
+      copy(saved, chat);
+
+      game = open();
+      assertTrue(game.getMessages(Integer.MAX_VALUE, 10).messages().isEmpty());
+    }
+
+    private static void copy(Path from, Path to) throws IOException {
+      Files.createDirectories(to);
+      try (Stream<Path> files = Files.list(from)) {
+        for (Path file : files.toList()) Files.copy(file, to.resolve(file.getFileName()));
+      }
+    }
+  }
+
+  @Nested
+  @DisplayName("Timer Tests")
+  class TimerTests {
+
+    @Test
+    @DisplayName("A running stage should carry on with the time it had left")
+    void testRemaining() throws InterruptedException {
+      game.start();
+      Thread.sleep(300);
+
+      restart();
+
+      assertEquals(Game.State.GRACE_PERIOD, game.getState());
+      assertFalse(game.isPaused());
+      long remaining = game.getTimeRemaining();
+      assertTrue(remaining <= 300_000 - 300, "remaining " + remaining);
+      assertTrue(remaining > 290_000, "remaining " + remaining);
+    }
+
+    @Test
+    @DisplayName("A paused stage should stay paused with the same time left")
+    void testPaused() {
+      game.start();
+      game.pause();
+      long remaining = game.getTimeRemaining();
+
+      restart();
+
+      assertTrue(game.isPaused());
+      assertEquals(remaining, game.getTimeRemaining());
+    }
+
+    @Test
+    @DisplayName("A stage that ran out while the process was down should end on restart")
+    void testExpired() throws InterruptedException {
+      config.getGame().setScoutTime(1);
+      game.shutdown();
+      game = open();
+      game.start();
+      for (Team team : game.getTeams()) game.registerFlag(team.getID(), 1, 2);
+      game.skip();
+      assertEquals(Game.State.SCOUT_PERIOD, game.getState());
+      game.shutdown();
+
+      Thread.sleep(1200);
+      game = open();
+
+      long deadline = System.currentTimeMillis() + 2000;
+      while (game.getState() == Game.State.SCOUT_PERIOD && System.currentTimeMillis() < deadline)
+        Thread.sleep(10);
+      assertEquals(Game.State.FFA_PERIOD, game.getState());
+    }
+  }
+
+  @Nested
+  @DisplayName("Checkpoint Tests")
+  class CheckpointTests {
+
+    @Test
+    @DisplayName("Should restore from a checkpoint plus the events after it")
+    void testCheckpoint() throws Exception {
+      AppConfig.PersistenceConfig persistence = new AppConfig.PersistenceConfig();
+      // Two teams and a player; chat is journaled on its own and doesn't count
+      persistence.setCheckpointEvery(3);
+      config.setPersistence(persistence);
+      game.shutdown();
+      game = open();
+
+      UUID alice = game.addPlayer("Alice", red().getID(), false);
+      for (int i = 0; i < 12; i++) game.sendMessage(alice, "message " + i);
+      game.start();
+
+      restart();
+
+      try (Stream<Path> files = Files.list(dir.resolve(Game.DEFAULT_ID))) {
+        assertTrue(files.anyMatch(f -> f.toString().endsWith(".checkpoint")));
+      }
+      assertTrue(game.isValidPlayer(alice));
+      assertEquals(12, game.getMessages(Integer.MAX_VALUE, 20).messages().size());
+      assertEquals(Game.State.GRACE_PERIOD, game.getState());
+    }
+
+    @Test
+    @DisplayName("A checkpoint should stay the same size however long the chat gets")
+    void testCheckpointLeavesOutChat() throws Exception {
+      AppConfig.PersistenceConfig persistence = new AppConfig.PersistenceConfig();
+      persistence.setCheckpointEvery(1);
+      config.setPersistence(persistence);
+      game.shutdown();
+      game = open();
+
+      UUID alice = game.addPlayer("Alice", red().getID(), false);
+      restart();
+      long quiet = checkpointSize();
+      for (int i = 0; i < 5000; i++) game.sendMessage(alice, "message " + i);
+      game.sendTeamMessage(red().getID(), alice, "team secret");
+      game.declareEmergency();
+
+      restart();
+
+      assertEquals(quiet, checkpointSize());
+      assertEquals(5000, game.getMessages(Integer.MAX_VALUE, 10).messages().getLast().messageId());
+      assertEquals(1, red().getMessages(Integer.MAX_VALUE, 10).messages().size());
+      assertEquals(5002, game.sendMessage(alice, "again"));
+    }
+
+    private long checkpointSize() throws IOException {
+      try (Stream<Path> files = Files.list(dir.resolve(Game.DEFAULT_ID))) {
+        Path newest =
+            files.filter(f -> f.toString().endsWith(".checkpoint")).sorted().toList().getLast();
+        return Files.size(newest);
+      }
+    }
+  }
+
+  @Nested
+  @DisplayName("Durability Tests")
+  class DurabilityTests {
+
+    @Test
+    @DisplayName("A command should only complete once its record is on disk")
+    void testWriteAhead() throws Exception {
+      List<CompletableFuture<Boolean>> durable = new ArrayList<>();
+      for (int i = 0; i < 20; i++) {
+        durable.add(
+            game.addPlayerAsync("Player " + i, red().getID(), false).thenApply(this::onDisk));
+      }
+
+      for (CompletableFuture<Boolean> onDisk : durable) assertTrue(onDisk.get(5, TimeUnit.SECONDS));
+    }
+
+    /** Whether the player's id has been written to one of the game's log segments. */
+    private boolean onDisk(UUID player) {
+      byte[] id =
+          ByteBuffer.allocate(16)
+              .putLong(player.getMostSignificantBits())
+              .putLong(player.getLeastSignificantBits())
+              .array();
+      try (Stream<Path> files = Files.list(dir.resolve(Game.DEFAULT_ID))) {
+        for (Path file : files.filter(f -> f.toString().endsWith(".wal")).toList()) {
+          byte[] bytes = Files.readAllBytes(file);
+          for (int i = 0; i + id.length <= bytes.length; i++) {
+            if (Arrays.equals(bytes, i, i + id.length, id, 0, id.length)) return true;
+          }
+        }
+        return false;
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+  }
+
+  @Nested
+  @DisplayName("Registry Tests")
+  class RegistryTests {
+
+    @Test
+    @DisplayName("Should bring back every game and forget evicted ones")
+    void testRegistry() {
+      AppConfig.PersistenceConfig persistence = new AppConfig.PersistenceConfig();
+      persistence.setDir(dir.resolve("data").toString());
+      config.setPersistence(persistence);
+
+      GameRegistry registry = new GameRegistry(config, new PushNotificationService());
+      Game kept = registry.create();
+      UUID player = kept.addPlayer("Alice", kept.getTeams().getFirst().getID(), false);
+      Game evicted = registry.create();
+      registry.evict(evicted.getId());
+      registry.shutdown();
+
+      GameRegistry restarted = new GameRegistry(config, new PushNotificationService());
+      try {
+        assertEquals(2, restarted.size());
+        assertTrue(restarted.resolve(kept.getId()).isValidPlayer(player));
+        assertNull(restarted.get(evicted.getId()));
+      } finally {
+        restarted.shutdown();
+      }
+    }
+  }
+}
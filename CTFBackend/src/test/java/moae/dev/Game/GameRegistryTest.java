@@ -0,0 +1,207 @@
+package moae.dev.Game;
+
+import moae.dev.Fixtures;
+import moae.dev.Server.AppConfig;
+import moae.dev.Services.PushNotificationService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GameRegistryTest {
+  private AppConfig config;
+  private GameRegistry registry;
+
+  @BeforeEach
+  void setUp() {
+    config = Fixtures.config();
+    config.getLeague().setMaxGames(3);
+    config.getLeague().setEvictAfter(0);
+
+    registry = new GameRegistry(config, new PushNotificationService());
+  }
+
+  @AfterEach
+  void tearDown() {
+    registry.shutdown();
+  }
+
+  @Nested
+  @DisplayName("Lookup Tests")
+  class LookupTests {
+
+    @Test
+    @DisplayName("Should always host a default game")
+    void testDefaultGame() {
+      Game game = registry.getDefault();
+
+      assertEquals(Game.DEFAULT_ID, game.getId());
+      assertSame(game, registry.resolve(null));
+      assertSame(game, registry.get(Game.DEFAULT_ID));
+      assertEquals(1, registry.size());
+    }
+
+    @Test
+    @DisplayName("Should resolve created games by id")
+    void testResolveCreated() {
+      Game game = registry.create();
+
+      assertSame(game, registry.resolve(game.getId()));
+      assertNotEquals(Game.DEFAULT_ID, game.getId());
+    }
+
+    @Test
+    @DisplayName("Should throw when resolving an unknown game")
+    void testResolveUnknown() {
+      assertThrows(NoSuchElementException.class, () -> registry.resolve("missing"));
+      assertNull(registry.get("missing"));
+    }
+  }
+
+  @Nested
+  @DisplayName("Creation Tests")
+  class CreationTests {
+
+    @Test
+    @DisplayName("Games should not share players or settings")
+    void testGamesIndependent() {
+      Game first = registry.create();
+      Game second = registry.create();
+
+      first.addPlayer("Alice", first.getTeams().get(0).getID(), false);
+      first.goTo(Game.State.GRACE_PERIOD, 0);
+
+      assertEquals(1, first.getPlayers().size());
+      assertTrue(second.getPlayers().isEmpty());
+      assertEquals(Game.State.WAITING_TO_START, second.getState());
+      assertNotSame(first.sockets(), second.sockets());
+    }
+
+    @Test
+    @DisplayName("Should refuse to create more than the configured number of games")
+    void testMaxGames() {
+      registry.create();
+      registry.create();
+
+      assertThrows(IllegalStateException.class, registry::create);
+      assertEquals(3, registry.size());
+    }
+
+    @Test
+    @DisplayName("Concurrent creates should never go over the configured number of games")
+    void testConcurrentMaxGames() throws Exception {
+      int threads = 16;
+      CountDownLatch start = new CountDownLatch(1);
+      AtomicInteger created = new AtomicInteger();
+      List<Thread> creators = new ArrayList<>();
+      for (int i = 0; i < threads; i++) {
+        creators.add(
+            Thread.ofPlatform()
+                .start(
+                    () -> {
+                      try {
+                        start.await();
+                        registry.create();
+                        created.incrementAndGet();
+                      } catch (IllegalStateException | InterruptedException refused) {
+                        // Every slot was taken
+                      }
+                    }));
+      }
+      start.countDown();
+      for (Thread creator : creators) creator.join();
+
+      assertEquals(2, created.get());
+      assertEquals(3, registry.size());
+    }
+
+    @Test
+    @DisplayName("Evicting a game should free its slot")
+    void testEvictFreesSlot() {
+      Game game = registry.create();
+      registry.create();
+      assertThrows(IllegalStateException.class, registry::create);
+
+      registry.evict(game.getId());
+      assertNotNull(registry.create());
+      assertEquals(3, registry.size());
+    }
+  }
+
+  @Nested
+  @DisplayName("Eviction Tests")
+  class EvictionTests {
+
+    @Test
+    @DisplayName("Should shut down evicted games and notify listeners")
+    void testEvict() {
+      List<Game> evicted = new ArrayList<>();
+      registry.onEvict(evicted::add);
+      Game game = registry.create();
+
+      assertTrue(registry.evict(game.getId()));
+
+      assertEquals(List.of(game), evicted);
+      assertNull(registry.get(game.getId()));
+      assertThrows(IllegalStateException.class, game::start);
+      assertFalse(registry.evict(game.getId()));
+    }
+
+    @Test
+    @DisplayName("Should delete an evicted game's chat journals")
+    void testEvictClosesChatJournals() throws IOException {
+      Path dir = Files.createTempDirectory("chat-journals");
+      config.getChat().setRetention(10);
+      config.getChat().setJournalDir(dir.toString());
+      Game game = registry.create();
+      assertEquals(6, files(dir), "a data file and an index for global chat and each team");
+
+      registry.evict(game.getId());
+
+      assertEquals(0, files(dir));
+      Files.delete(dir);
+    }
+
+    private static long files(Path dir) throws IOException {
+      try (var files = Files.list(dir)) {
+        return files.count();
+      }
+    }
+
+    @Test
+    @DisplayName("Should never evict the default game")
+    void testDefaultNotEvicted() {
+      registry.getDefault().goTo(Game.State.ENDED, 0);
+
+      assertThrows(IllegalArgumentException.class, () -> registry.evict(Game.DEFAULT_ID));
+      registry.evictEnded();
+
+      assertSame(registry.getDefault(), registry.resolve(null));
+    }
+
+    @Test
+    @DisplayName("Should only sweep games that have ended")
+    void testEvictEnded() {
+      Game ended = registry.create();
+      Game waiting = registry.create();
+      ended.goTo(Game.State.ENDED, 0);
+
+      registry.evictEnded();
+
+      assertNull(registry.get(ended.getId()));
+      assertSame(waiting, registry.get(waiting.getId()));
+    }
+  }
+}
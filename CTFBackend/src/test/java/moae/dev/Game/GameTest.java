@@ -1,9 +1,11 @@
 package moae.dev.Game;
 
+import com.fasterxml.jackson.core.type.TypeReference;
 import moae.dev.Requests.SettingsRequest;
 import moae.dev.Server.AppConfig;
 import moae.dev.Services.PushNotificationService;
 import moae.dev.Sockets.SocketConnectionHandler;
+import moae.dev.Utils.Json;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.DisplayName;
@@ -47,12 +49,16 @@ class GameTest {
                         createMockTeamConfig("Green Team", "#00FF00"),
                         createMockTeamConfig("Yellow Team", "#FFFF00"));
         when(mockConfig.getTeams()).thenReturn(teamConfigs);
-        when(mockConfig.getMap()).thenReturn(Map.of("width", 1000, "height", 1000));
         
         game = new Game(mockConfig, mockPushService);
         game.setWebSocketHandler(mockWebSocketHandler);
     }
 
+    /** The status as it is written out, read back as plain maps and lists. */
+    private Map<String, Object> status() {
+        return Json.mapper().convertValue(game.status(), new TypeReference<>() {});
+    }
+
     private AppConfig.TeamConfig createMockTeamConfig(String name, String color) {
         AppConfig.TeamConfig config = mock(AppConfig.TeamConfig.class);
         when(config.getName()).thenReturn(name);
@@ -619,7 +625,7 @@ class GameTest {
             UUID teamId = game.getTeams().getFirst().getID();
             game.addPlayer("Alice", teamId, false);
 
-            Map<String, Object> status = game.status();
+            Map<String, Object> status = status();
 
             assertNotNull(status);
             assertTrue(status.containsKey("players"));
@@ -636,7 +642,7 @@ class GameTest {
             game.addPlayer("Alice", teamId, false);
             game.addPlayer("Bob", teamId, false);
 
-            Map<String, Object> status = game.status();
+            Map<String, Object> status = status();
             List<Map<String, Object>> players = (List<Map<String, Object>>) status.get("players");
 
             assertEquals(2, players.size());
@@ -646,7 +652,7 @@ class GameTest {
         @DisplayName("Status should include all teams")
         @SuppressWarnings("unchecked")
         void testStatusIncludesTeams() {
-            Map<String, Object> status = game.status();
+            Map<String, Object> status = status();
             List<Map<String, Object>> teams = (List<Map<String, Object>>) status.get("teams");
 
             assertEquals(4, teams.size());
@@ -0,0 +1,197 @@
+package moae.dev.Game;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LocationIndexTest {
+  private static final UUID RED = UUID.randomUUID();
+  private static final UUID BLUE = UUID.randomUUID();
+
+  private LocationIndex index;
+
+  @BeforeEach
+  void setUp() {
+    index = new LocationIndex(10);
+  }
+
+  private Set<UUID> near(UUID team, float x, float y, float radius) {
+    UUID[] found = new UUID[64];
+    int count = index.near(team, x, y, radius, found);
+    return Arrays.stream(found, 0, count).collect(Collectors.toSet());
+  }
+
+  @Nested
+  @DisplayName("Query Tests")
+  class QueryTests {
+
+    @Test
+    @DisplayName("Should find the players of a team within the radius only")
+    void testNear() {
+      UUID alice = UUID.randomUUID();
+      UUID bob = UUID.randomUUID();
+      UUID carol = UUID.randomUUID();
+      index.update(alice, RED, 50, 50, 1);
+      index.update(bob, RED, 53, 54, 1);
+      index.update(carol, BLUE, 51, 51, 1);
+
+      assertEquals(Set.of(alice, bob), near(RED, 50, 50, 5));
+      assertEquals(Set.of(alice), near(RED, 50, 50, 4.9f));
+      assertEquals(Set.of(carol), near(BLUE, 50, 50, 5));
+      assertEquals(Set.of(alice, bob, carol), near(null, 50, 50, 5));
+    }
+
+    @Test
+    @DisplayName("A player who moves should only be found where they are now")
+    void testMove() {
+      UUID alice = UUID.randomUUID();
+      index.update(alice, RED, 5, 5, 1);
+      index.update(alice, RED, 95, 95, 2);
+
+      assertTrue(near(RED, 5, 5, 2).isEmpty());
+      assertEquals(Set.of(alice), near(RED, 95, 95, 2));
+      assertEquals(new LocationIndex.Position(alice, 95, 95, 2), index.get(alice));
+    }
+
+    @Test
+    @DisplayName("Searches across cells should match a scan of every player")
+    void testMatchesScan() {
+      Random random = new Random(42);
+      UUID[] players = new UUID[500];
+      float[][] positions = new float[players.length][];
+      for (int i = 0; i < players.length; i++) {
+        players[i] = UUID.randomUUID();
+        positions[i] = new float[] {random.nextFloat() * 100, random.nextFloat() * 100};
+        index.update(players[i], RED, positions[i][0], positions[i][1], 1);
+      }
+
+      for (int query = 0; query < 50; query++) {
+        float x = random.nextFloat() * 100;
+        float y = random.nextFloat() * 100;
+        float radius = random.nextFloat() * 30;
+        UUID[] found = new UUID[players.length];
+        int count = index.near(RED, x, y, radius, found);
+
+        long expected = 0;
+        for (float[] position : positions) {
+          float dx = position[0] - x;
+          float dy = position[1] - y;
+          if (dx * dx + dy * dy <= radius * radius) expected++;
+        }
+        assertEquals(expected, count);
+      }
+    }
+
+    @Test
+    @DisplayName("Positions off the map should be clamped to its edge")
+    void testClamped() {
+      UUID alice = UUID.randomUUID();
+      index.update(alice, RED, -10, 250, 1);
+
+      LocationIndex.Position position = index.get(alice);
+      assertEquals(0, position.x());
+      assertEquals(100, position.y());
+    }
+  }
+
+  @Nested
+  @DisplayName("Lifecycle Tests")
+  class LifecycleTests {
+
+    @Test
+    @DisplayName("A player who leaves should be forgotten, and their slot reused")
+    void testRemove() {
+      UUID alice = UUID.randomUUID();
+      UUID bob = UUID.randomUUID();
+      index.update(alice, RED, 50, 50, 1);
+      index.remove(alice);
+      index.update(bob, RED, 50, 50, 2);
+
+      assertNull(index.get(alice));
+      assertEquals(Set.of(bob), near(RED, 50, 50, 1));
+      assertEquals(1, index.size());
+      assertEquals(List.of(bob), index.drain().get(RED).stream().map(p -> p.player()).toList());
+    }
+
+    @Test
+    @DisplayName("The index should grow past its first arrays")
+    void testGrow() {
+      for (int i = 0; i < 1000; i++) index.update(UUID.randomUUID(), RED, i % 100, i / 10f, i);
+
+      assertEquals(1000, index.size());
+      assertEquals(1000, index.near(RED, 50, 50, 100, new UUID[0]));
+    }
+
+    @Test
+    @DisplayName("A hard reset should forget everyone")
+    void testHardReset() {
+      UUID alice = UUID.randomUUID();
+      index.update(alice, RED, 50, 50, 1);
+      index.apply(List.of(new GameEvent.GameReset(false)));
+      assertNotNull(index.get(alice));
+
+      index.apply(List.of(new GameEvent.GameReset(true)));
+      assertNull(index.get(alice));
+      assertEquals(0, index.size());
+      assertTrue(index.drain().isEmpty());
+    }
+
+    @Test
+    @DisplayName("A report that raced a player leaving should not bring them back")
+    void testLateReport() {
+      Set<UUID> members = new HashSet<>();
+      index = new LocationIndex(10, members::contains);
+      UUID alice = UUID.randomUUID();
+      UUID bob = UUID.randomUUID();
+      members.addAll(List.of(alice, bob));
+      assertTrue(index.update(alice, RED, 50, 50, 1) >= 0);
+
+      // Both looked up while still in the game, then the game dropped them
+      members.clear();
+      index.remove(alice);
+      index.clear();
+
+      assertEquals(-1, index.update(alice, RED, 60, 60, 2));
+      assertEquals(-1, index.update(bob, RED, 60, 60, 2));
+      assertNull(index.get(alice));
+      assertNull(index.get(bob));
+      assertEquals(0, index.size());
+      assertTrue(index.drain().isEmpty());
+    }
+  }
+
+  @Nested
+  @DisplayName("Change Tests")
+  class ChangeTests {
+
+    @Test
+    @DisplayName("Draining should give each team's latest positions once")
+    void testDrain() {
+      UUID alice = UUID.randomUUID();
+      UUID bob = UUID.randomUUID();
+      index.update(alice, RED, 10, 10, 1);
+      index.update(alice, RED, 20, 20, 2);
+      index.update(bob, BLUE, 30, 30, 3);
+
+      Map<UUID, List<LocationIndex.Position>> changes = index.drain();
+      assertEquals(List.of(new LocationIndex.Position(alice, 20, 20, 2)), changes.get(RED));
+      assertEquals(List.of(new LocationIndex.Position(bob, 30, 30, 3)), changes.get(BLUE));
+      assertTrue(index.drain().isEmpty());
+
+      index.update(bob, BLUE, 31, 31, 4);
+      assertEquals(Set.of(BLUE), index.drain().keySet());
+    }
+  }
+}
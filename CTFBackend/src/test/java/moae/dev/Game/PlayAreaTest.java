@@ -0,0 +1,137 @@
+package moae.dev.Game;
+
+import moae.dev.Server.AppConfig;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PlayAreaTest {
+
+  /** A ragged ring around (50, 50), like a park boundary traced on a map. */
+  private static float[][] ring(int vertices, long seed) {
+    Random random = new Random(seed);
+    float[] xs = new float[vertices];
+    float[] ys = new float[vertices];
+    for (int i = 0; i < vertices; i++) {
+      double angle = 2 * Math.PI * i / vertices;
+      double radius = 20 + random.nextDouble() * 25;
+      xs[i] = (float) (50 + radius * Math.cos(angle));
+      ys[i] = (float) (50 + radius * Math.sin(angle));
+    }
+    return new float[][] {xs, ys};
+  }
+
+  /** The textbook ray cast over every edge. */
+  private static boolean scan(float[] xs, float[] ys, float x, float y) {
+    boolean inside = false;
+    for (int a = 0, b = xs.length - 1; a < xs.length; b = a++) {
+      if ((ys[a] > y) == (ys[b] > y)) continue;
+      if (x < xs[a] + (y - ys[a]) * (xs[b] - xs[a]) / (ys[b] - ys[a])) inside = !inside;
+    }
+    return inside;
+  }
+
+  private static List<Float> point(float x, float y) {
+    return List.of(x, y);
+  }
+
+  @Nested
+  @DisplayName("Polygon Tests")
+  class PolygonTests {
+
+    @Test
+    @DisplayName("Should match a scan of every edge for polygons small and large")
+    void testMatchesScan() {
+      Random random = new Random(1);
+      for (int vertices : new int[] {3, 12, 500, 5000}) {
+        float[][] ring = ring(vertices, vertices);
+        Polygon polygon = new Polygon(ring[0], ring[1]);
+        for (int i = 0; i < 20_000; i++) {
+          float x = random.nextFloat() * 100;
+          float y = random.nextFloat() * 100;
+          assertEquals(
+              scan(ring[0], ring[1], x, y),
+              polygon.contains(x, y),
+              vertices + " vertices at (" + x + ", " + y + ")");
+        }
+      }
+    }
+
+    @Test
+    @DisplayName("Should handle concave shapes and points level with vertices")
+    void testConcave() {
+      // A U shape, open at the top
+      float[] xs = {10, 90, 90, 60, 60, 40, 40, 10};
+      float[] ys = {90, 90, 10, 10, 60, 60, 10, 10};
+      Polygon polygon = new Polygon(xs, ys);
+
+      assertTrue(polygon.contains(20, 50));
+      assertTrue(polygon.contains(80, 50));
+      assertFalse(polygon.contains(50, 50));
+      assertFalse(polygon.contains(50, 10));
+      assertTrue(polygon.contains(50, 75));
+      // Level with the inner corners
+      assertTrue(polygon.contains(20, 60));
+      assertFalse(polygon.contains(50, 30));
+      assertFalse(polygon.contains(5, 50));
+      assertFalse(polygon.contains(95, 50));
+    }
+
+    @Test
+    @DisplayName("Should reject polygons without an area")
+    void testInvalid() {
+      assertThrows(
+          IllegalArgumentException.class,
+          () -> new Polygon(new float[] {1, 2}, new float[] {1, 2}));
+      assertThrows(
+          IllegalArgumentException.class,
+          () -> new Polygon(new float[] {1, 2, 3}, new float[] {5, 5, 5}));
+      assertThrows(
+          IllegalArgumentException.class,
+          () -> new Polygon(new float[] {1, 2, Float.NaN}, new float[] {1, 5, 5}));
+    }
+  }
+
+  @Nested
+  @DisplayName("Area Tests")
+  class AreaTests {
+
+    @Test
+    @DisplayName("Without a boundary the whole map should be in bounds")
+    void testUnrestricted() {
+      PlayArea area = PlayArea.of(new AppConfig.AreaConfig());
+
+      assertTrue(area.contains(0, 0));
+      assertTrue(area.contains(100, 100));
+      assertTrue(PlayArea.of(null).contains(50, 50));
+    }
+
+    @Test
+    @DisplayName("Points outside the boundary or inside a no-go zone should be out of bounds")
+    void testBoundaryAndNoGo() {
+      AppConfig.AreaConfig config = new AppConfig.AreaConfig();
+      config.setBoundary(List.of(point(10, 10), point(90, 10), point(90, 90), point(10, 90)));
+      config.setNoGo(List.of(List.of(point(40, 40), point(60, 40), point(50, 60))));
+      PlayArea area = PlayArea.of(config);
+
+      assertTrue(area.contains(20, 20));
+      assertFalse(area.contains(5, 50));
+      assertFalse(area.contains(50, 45));
+      assertTrue(area.contains(45, 55));
+    }
+
+    @Test
+    @DisplayName("Points without both coordinates should be rejected")
+    void testBadPoint() {
+      AppConfig.AreaConfig config = new AppConfig.AreaConfig();
+      config.setBoundary(List.of(point(10, 10), List.of(90f), point(90, 90)));
+
+      assertThrows(IllegalArgumentException.class, () -> PlayArea.of(config));
+    }
+  }
+}
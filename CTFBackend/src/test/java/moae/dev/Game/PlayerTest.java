@@ -1,10 +1,11 @@
 package moae.dev.Game;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import moae.dev.Utils.Json;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
 import java.util.UUID;
-import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -124,60 +125,56 @@ class PlayerTest {
   }
 
   @Nested
-  @DisplayName("Player Map Serialization Tests")
+  @DisplayName("Player Serialization Tests")
   class SerializationTests {
 
+    private JsonNode json(Player player) throws Exception {
+      return Json.mapper().readTree(Json.mapper().writeValueAsBytes(player));
+    }
+
     @Test
-    @DisplayName("Should convert player to map with all fields")
-    void testPlayerToMap() {
+    @DisplayName("Should write player with all fields")
+    void testPlayerJson() throws Exception {
       UUID teamId = UUID.randomUUID();
       Player player = new Player("Charlie", teamId, false);
 
-      Map<String, Object> map = player.toMap();
+      JsonNode written = json(player);
 
-      assertEquals(4, map.size(), "Map should contain exactly 4 fields");
-      assertEquals("Charlie", map.get("name"));
-      assertEquals(teamId, map.get("team"));
-      assertEquals(false, map.get("auth"));
-      assertNotNull(map.get("id"));
-      assertTrue(map.get("id") instanceof UUID, "ID should be a UUID");
+      assertEquals(4, written.size(), "JSON should contain exactly 4 fields");
+      assertEquals("Charlie", written.get("name").asText());
+      assertEquals(teamId.toString(), written.get("team").asText());
+      assertFalse(written.get("auth").asBoolean());
+      assertTrue(written.get("id").isTextual(), "ID should be written as a string");
     }
 
     @Test
-    @DisplayName("Should preserve auth status in map for authenticated player")
-    void testAuthPlayerToMap() {
+    @DisplayName("Should write auth status for authenticated player")
+    void testAuthPlayerJson() throws Exception {
       UUID teamId = UUID.randomUUID();
       Player player = new Player("Admin", teamId, true);
 
-      Map<String, Object> map = player.toMap();
-
-      assertEquals(true, map.get("auth"), "Auth status should be true");
+      assertTrue(json(player).get("auth").asBoolean(), "Auth status should be true");
     }
 
     @Test
-    @DisplayName("Map should contain actual player ID")
-    void testMapContainsCorrectID() {
+    @DisplayName("JSON should contain actual player ID")
+    void testJsonContainsCorrectID() throws Exception {
       UUID teamId = UUID.randomUUID();
       Player player = new Player("Dave", teamId, false);
 
-      Map<String, Object> map = player.toMap();
-
-      assertEquals(player.getID(), map.get("id"), "Map ID should match player's actual ID");
+      assertEquals(
+          player.getID().toString(),
+          json(player).get("id").asText(),
+          "JSON ID should match player's actual ID");
     }
 
     @Test
-    @DisplayName("Multiple toMap calls should return consistent data")
-    void testToMapConsistency() {
+    @DisplayName("Writing a player twice should give the same JSON")
+    void testJsonConsistency() throws Exception {
       UUID teamId = UUID.randomUUID();
       Player player = new Player("Eve", teamId, true);
 
-      Map<String, Object> map1 = player.toMap();
-      Map<String, Object> map2 = player.toMap();
-
-      assertEquals(map1.get("id"), map2.get("id"), "ID should be consistent");
-      assertEquals(map1.get("name"), map2.get("name"), "Name should be consistent");
-      assertEquals(map1.get("team"), map2.get("team"), "Team should be consistent");
-      assertEquals(map1.get("auth"), map2.get("auth"), "Auth should be consistent");
+      assertEquals(json(player), json(player), "JSON should be consistent");
     }
   }
 
@@ -1,6 +1,8 @@
 package moae.dev.Game;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import moae.dev.Sockets.SocketConnectionHandler;
+import moae.dev.Utils.Json;
 import moae.dev.Utils.MessagePage;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -12,7 +14,6 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.mockito.junit.jupiter.MockitoSettings;
 import org.mockito.quality.Strictness;
 
-import java.util.Map;
 import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -166,92 +167,82 @@ class TeamTest {
   }
 
   @Nested
-  @DisplayName("Team Map Serialization Tests")
+  @DisplayName("Team Serialization Tests")
   class SerializationTests {
 
+    private JsonNode json(boolean revealed) throws Exception {
+      return Json.mapper().readTree(Json.mapper().writeValueAsBytes(team.view(revealed)));
+    }
+
     @Test
-    @DisplayName("Should convert team to map before flag registration")
-    void testToMapBeforeFlagRegistration() {
-      Map<String, Object> map = team.toMap(false);
+    @DisplayName("Should write team before flag registration")
+    void testJsonBeforeFlagRegistration() throws Exception {
+      JsonNode written = json(false);
 
-      assertEquals("Red Team", map.get("name"));
-      assertEquals("#FF0000", map.get("color"));
-      assertNull(map.get("flag"), "Flag should be null before registration");
-      assertEquals(false, map.get("registered"), "Should not be registered");
-      assertNotNull(map.get("id"));
+      assertEquals("Red Team", written.get("name").asText());
+      assertEquals("#FF0000", written.get("color").asText());
+      assertTrue(written.get("flag").isNull(), "Flag should be null before registration");
+      assertFalse(written.get("registered").asBoolean(), "Should not be registered");
+      assertTrue(written.hasNonNull("id"));
     }
 
     @Test
     @DisplayName("Should not reveal flag location when revealed is false")
-    void testToMapNotRevealed() {
+    void testJsonNotRevealed() throws Exception {
       team.registerFlag(100, 200);
 
-      Map<String, Object> map = team.toMap(false);
+      JsonNode written = json(false);
 
-      assertNull(map.get("flag"), "Flag should be null when not revealed");
-      assertEquals(true, map.get("registered"), "Should show as registered");
+      assertTrue(written.get("flag").isNull(), "Flag should be null when not revealed");
+      assertTrue(written.get("registered").asBoolean(), "Should show as registered");
     }
 
     @Test
     @DisplayName("Should reveal flag location when revealed is true")
-    void testToMapRevealed() {
+    void testJsonRevealed() throws Exception {
       team.registerFlag(100, 200);
 
-      Map<String, Object> map = team.toMap(true);
+      JsonNode written = json(true);
 
-      assertNotNull(map.get("flag"), "Flag should be present when revealed");
-      assertEquals(true, map.get("registered"), "Should show as registered");
-
-      @SuppressWarnings("unchecked")
-      Map<String, Object> flagMap = (Map<String, Object>) map.get("flag");
-      assertEquals(100, flagMap.get("x"));
-      assertEquals(200, flagMap.get("y"));
+      assertTrue(written.hasNonNull("flag"), "Flag should be present when revealed");
+      assertTrue(written.get("registered").asBoolean(), "Should show as registered");
+      assertEquals(100, written.get("flag").get("x").asInt());
+      assertEquals(200, written.get("flag").get("y").asInt());
     }
 
     @Test
     @DisplayName("Should not reveal flag if not registered, even when revealed is true")
-    void testToMapNotRegisteredButRevealed() {
-      Map<String, Object> map = team.toMap(true);
+    void testJsonNotRegisteredButRevealed() throws Exception {
+      JsonNode written = json(true);
 
-      assertNull(map.get("flag"), "Flag should be null if not registered");
-      assertEquals(false, map.get("registered"));
+      assertTrue(written.get("flag").isNull(), "Flag should be null if not registered");
+      assertFalse(written.get("registered").asBoolean());
     }
 
     @Test
-    @DisplayName("Map should contain team ID")
-    void testMapContainsTeamID() {
-      Map<String, Object> map = team.toMap(false);
-
-      assertEquals(team.getID(), map.get("id"), "Map should contain team's actual ID");
+    @DisplayName("JSON should contain team ID")
+    void testJsonContainsTeamID() throws Exception {
+      assertEquals(
+          team.getID().toString(),
+          json(false).get("id").asText(),
+          "JSON should contain team's actual ID");
     }
 
     @Test
-    @DisplayName("Multiple toMap calls should return consistent data")
-    void testToMapConsistency() {
+    @DisplayName("Writing a team twice should give the same JSON")
+    void testJsonConsistency() throws Exception {
       team.registerFlag(50, 75);
 
-      Map<String, Object> map1 = team.toMap(false);
-      Map<String, Object> map2 = team.toMap(false);
-
-      assertEquals(map1.get("id"), map2.get("id"), "ID should be consistent");
-      assertEquals(map1.get("name"), map2.get("name"), "Name should be consistent");
-      assertEquals(map1.get("color"), map2.get("color"), "Color should be consistent");
-      assertEquals(
-          map1.get("registered"),
-          map2.get("registered"),
-          "Registration status should be consistent");
+      assertEquals(json(false), json(false), "JSON should be consistent");
     }
 
     @Test
     @DisplayName("Should handle revelation state changes correctly")
-    void testRevelationStateChanges() {
+    void testRevelationStateChanges() throws Exception {
       team.registerFlag(150, 250);
 
-      Map<String, Object> hiddenMap = team.toMap(false);
-      Map<String, Object> revealedMap = team.toMap(true);
-
-      assertNull(hiddenMap.get("flag"), "Should be hidden when revealed=false");
-      assertNotNull(revealedMap.get("flag"), "Should be visible when revealed=true");
+      assertTrue(json(false).get("flag").isNull(), "Should be hidden when revealed=false");
+      assertTrue(json(true).hasNonNull("flag"), "Should be visible when revealed=true");
     }
   }
 
@@ -0,0 +1,224 @@
+package moae.dev.Server;
+
+import moae.dev.Fixtures;
+import moae.dev.Game.Game;
+import moae.dev.Game.GameRegistry;
+import moae.dev.Services.PushNotificationService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CachingJwtDecoderTest {
+  private static final long HOUR = 3_600_000;
+
+  /** A clock the test moves by hand. */
+  private static class ManualClock extends Clock {
+    long millis = 1_000_000_000_000L;
+
+    @Override
+    public ZoneId getZone() {
+      return ZoneOffset.UTC;
+    }
+
+    @Override
+    public Clock withZone(ZoneId zone) {
+      return this;
+    }
+
+    @Override
+    public Instant instant() {
+      return Instant.ofEpochMilli(millis);
+    }
+  }
+
+  private GameRegistry registry;
+  private ManualClock clock;
+  private CachingJwtDecoder decoder;
+
+  // Stands in for the signature check; tokens are issued by the test
+  private final Map<String, Jwt> issued = new HashMap<>();
+  private final AtomicInteger verified = new AtomicInteger();
+
+  @BeforeEach
+  void setUp() {
+    AppConfig config = Fixtures.config();
+
+    registry = new GameRegistry(config, new PushNotificationService());
+    clock = new ManualClock();
+    decoder = new CachingJwtDecoder(verifying(), registry, 4, clock);
+  }
+
+  @AfterEach
+  void tearDown() {
+    registry.shutdown();
+  }
+
+  private JwtDecoder verifying() {
+    return token -> {
+      verified.incrementAndGet();
+      Jwt jwt = issued.get(token);
+      if (jwt == null) throw new BadJwtException("Unknown token");
+
+      Game game = registry.get(jwt.getClaimAsString(GameArgumentResolver.GAME_CLAIM));
+      if (game == null) game = registry.getDefault();
+      if (!game.isValidPlayer(UUID.fromString(jwt.getSubject())))
+        throw new BadJwtException("Missing role claim");
+      return jwt;
+    };
+  }
+
+  private String issue(Game game, UUID player, long lifetime) {
+    String token = "token-" + issued.size();
+    issued.put(
+        token,
+        Jwt.withTokenValue(token)
+            .header("alg", "HS256")
+            .subject(player.toString())
+            .claim(GameArgumentResolver.GAME_CLAIM, game.getId())
+            .issuedAt(clock.instant())
+            .expiresAt(clock.instant().plusMillis(lifetime))
+            .build());
+    return token;
+  }
+
+  private UUID join(Game game, String name) {
+    return game.addPlayer(name, game.getTeams().getFirst().getID(), false);
+  }
+
+  private void awaitSize(int size) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 2000;
+    while (decoder.size() != size && System.currentTimeMillis() < deadline) Thread.sleep(5);
+    assertEquals(size, decoder.size());
+  }
+
+  @Nested
+  @DisplayName("Caching Tests")
+  class CachingTests {
+
+    @Test
+    @DisplayName("A token should be verified once and then served from the cache")
+    void testHit() {
+      Game game = registry.getDefault();
+      String token = issue(game, join(game, "Alice"), HOUR);
+
+      Jwt first = decoder.decode(token);
+      for (int i = 0; i < 10; i++) assertSame(first, decoder.decode(token));
+
+      assertEquals(1, verified.get());
+      assertEquals(10, decoder.hits());
+      assertEquals(1, decoder.misses());
+    }
+
+    @Test
+    @DisplayName("A token should be verified again once it expires")
+    void testExpiry() {
+      Game game = registry.getDefault();
+      String token = issue(game, join(game, "Alice"), HOUR);
+      decoder.decode(token);
+
+      clock.millis += HOUR;
+      decoder.decode(token);
+
+      assertEquals(2, verified.get());
+      assertEquals(0, decoder.hits());
+    }
+
+    @Test
+    @DisplayName("Rejected tokens should not be remembered")
+    void testRejected() {
+      assertThrows(BadJwtException.class, () -> decoder.decode("forged"));
+      assertThrows(BadJwtException.class, () -> decoder.decode("forged"));
+
+      assertEquals(2, verified.get());
+      assertEquals(0, decoder.size());
+    }
+
+    @Test
+    @DisplayName("Should never hold more than its limit")
+    void testBound() {
+      Game game = registry.getDefault();
+      for (int i = 0; i < 20; i++) decoder.decode(issue(game, join(game, "Player " + i), HOUR));
+
+      assertTrue(decoder.size() <= 4, "size " + decoder.size());
+    }
+  }
+
+  @Nested
+  @DisplayName("Invalidation Tests")
+  class InvalidationTests {
+
+    @Test
+    @DisplayName("A removed player's token should stop working at once")
+    void testRemovedPlayer() throws InterruptedException {
+      Game game = registry.getDefault();
+      UUID alice = join(game, "Alice");
+      join(game, "Bob");
+      String token = issue(game, alice, HOUR);
+      decoder.decode(token);
+
+      game.removePlayer(alice);
+
+      assertThrows(BadJwtException.class, () -> decoder.decode(token));
+      assertEquals(1, decoder.invalidations());
+      awaitSize(0);
+    }
+
+    @Test
+    @DisplayName("A hard reset should forget every token of the game")
+    void testHardReset() throws InterruptedException {
+      Game game = registry.getDefault();
+      decoder.decode(issue(game, join(game, "Alice"), HOUR));
+      decoder.decode(issue(game, join(game, "Bob"), HOUR));
+      Game other = registry.create();
+      decoder.decode(issue(other, join(other, "Carol"), HOUR));
+      assertEquals(3, decoder.size());
+
+      game.reset(true);
+
+      awaitSize(1);
+      assertEquals(2, decoder.invalidations());
+    }
+
+    @Test
+    @DisplayName("A soft reset should keep tokens")
+    void testSoftReset() throws InterruptedException {
+      Game game = registry.getDefault();
+      String token = issue(game, join(game, "Alice"), HOUR);
+      decoder.decode(token);
+
+      game.reset(false);
+      Thread.sleep(50);
+
+      decoder.decode(token);
+      assertEquals(1, decoder.hits());
+    }
+
+    @Test
+    @DisplayName("Evicting a game should forget its tokens")
+    void testEvict() {
+      Game game = registry.create();
+      decoder.decode(issue(game, join(game, "Alice"), HOUR));
+
+      registry.evict(game.getId());
+
+      assertEquals(0, decoder.size());
+      assertEquals(1, decoder.invalidations());
+    }
+  }
+}
@@ -0,0 +1,56 @@
+package moae.dev.Server;
+
+import moae.dev.Fixtures;
+import moae.dev.Game.Game;
+import moae.dev.Utils.Json;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StatusCacheTest {
+  private Game game;
+  private StatusCache cache;
+
+  @BeforeEach
+  void setUp() {
+    game = new Game(Fixtures.config(), null);
+    cache = new StatusCache(game, Json.mapper());
+  }
+
+  @AfterEach
+  void tearDown() {
+    game.shutdown();
+  }
+
+  @Nested
+  @DisplayName("ETag Tests")
+  class ETagTests {
+
+    @Test
+    @DisplayName("Should keep the ETag until the game changes")
+    void testSameVersion() {
+      String etag = cache.current().etag();
+      assertEquals(etag, cache.current().etag());
+
+      game.declareEmergency();
+      assertNotEquals(etag, cache.current().etag());
+    }
+
+    @Test
+    @DisplayName("Fresh games at the same version should never share an ETag")
+    void testFreshGames() {
+      Game other = new Game(Fixtures.config(), null);
+      try {
+        StatusCache otherCache = new StatusCache(other, Json.mapper());
+        assertEquals(game.getVersion(), other.getVersion());
+        assertNotEquals(cache.current().etag(), otherCache.current().etag());
+      } finally {
+        other.shutdown();
+      }
+    }
+  }
+}
@@ -0,0 +1,266 @@
+package moae.dev.Services;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import moae.dev.Server.AppConfig;
+import moae.dev.Utils.HashedWheelTimer;
+import nl.martijndwars.webpush.Subscription;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PushDispatcherTest {
+  private static final PushDispatcher.Encoder PLAIN =
+      (subscription, payload) ->
+          HttpRequest.newBuilder(URI.create(subscription.endpoint))
+              .POST(HttpRequest.BodyPublishers.ofString(payload));
+
+  private StubPushService service;
+  private HashedWheelTimer timer;
+  private AppConfig.PushConfig config;
+  private List<String> gone;
+  private PushDispatcher dispatcher;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    service = new StubPushService();
+    timer = new HashedWheelTimer("test-timer", 5, TimeUnit.MILLISECONDS, 64);
+    gone = new CopyOnWriteArrayList<>();
+
+    config = new AppConfig.PushConfig();
+    config.setMaxConcurrent(4);
+    config.setTimeoutMillis(2000);
+    config.setMaxAttempts(3);
+    config.setBackoffMillis(10);
+  }
+
+  @AfterEach
+  void tearDown() {
+    service.gate.countDown();
+    if (dispatcher != null) dispatcher.shutdown();
+    service.server.stop(0);
+    timer.stop();
+  }
+
+  /** A push service that answers with {@code status}, and can be held up like a slow one. */
+  private static class StubPushService {
+    final HttpServer server;
+    final List<String> requests = new CopyOnWriteArrayList<>();
+    final AtomicInteger inFlight = new AtomicInteger();
+    final AtomicInteger maxInFlight = new AtomicInteger();
+    volatile CountDownLatch gate = new CountDownLatch(0);
+    volatile int status = 201;
+    volatile int failFirst;
+    volatile long delayMillis;
+
+    StubPushService() throws IOException {
+      server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+      server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+      server.createContext("/", this::handle);
+      server.start();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+      maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+      try {
+        exchange.getRequestBody().readAllBytes();
+        requests.add(exchange.getRequestURI().getPath());
+        gate.await();
+        if (delayMillis > 0) Thread.sleep(delayMillis);
+
+        int code = requests.size() <= failFirst ? 503 : status;
+        exchange.sendResponseHeaders(code, -1);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } finally {
+        inFlight.decrementAndGet();
+        exchange.close();
+      }
+    }
+
+    String endpoint(int i) {
+      return "http://127.0.0.1:" + server.getAddress().getPort() + "/push/" + i;
+    }
+  }
+
+  private PushDispatcher dispatcher(PushDispatcher.Encoder encoder) {
+    dispatcher = new PushDispatcher(config, encoder, gone::add, timer);
+    return dispatcher;
+  }
+
+  private Map<String, Subscription> subscriptions(int count) {
+    Map<String, Subscription> subscriptions = new LinkedHashMap<>();
+    for (int i = 0; i < count; i++) {
+      String endpoint = service.endpoint(i);
+      Subscription.Keys keys = new Subscription.Keys("p256dh", "auth");
+      subscriptions.put(endpoint, new Subscription(endpoint, keys));
+    }
+    return subscriptions;
+  }
+
+  @Nested
+  @DisplayName("Dispatch Tests")
+  class DispatchTests {
+
+    @Test
+    @DisplayName("Should return straight away while the push service is stalled")
+    void testReturnsImmediately() throws Exception {
+      service.gate = new CountDownLatch(1);
+      PushDispatcher dispatcher = dispatcher(PLAIN);
+
+      long start = System.nanoTime();
+      var done = dispatcher.dispatch(subscriptions(300), "{}");
+      assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 500);
+      assertFalse(done.isDone());
+      assertEquals(300, dispatcher.pending());
+
+      service.gate.countDown();
+      done.get(10, TimeUnit.SECONDS);
+      assertEquals(300, dispatcher.delivered());
+      assertEquals(0, dispatcher.pending());
+      assertEquals(300, dispatcher.requestLatency().count());
+    }
+
+    @Test
+    @DisplayName("Should never have more than maxConcurrent requests in flight")
+    void testBoundedConcurrency() throws Exception {
+      service.delayMillis = 20;
+      PushDispatcher dispatcher = dispatcher(PLAIN);
+
+      dispatcher.dispatch(subscriptions(40), "{}").get(10, TimeUnit.SECONDS);
+
+      assertEquals(40, dispatcher.delivered());
+      assertTrue(service.maxInFlight.get() <= 4, "max in flight was " + service.maxInFlight);
+    }
+
+    @Test
+    @DisplayName("Should deliver on platform threads when virtual threads are off")
+    void testPlatformThreads() throws Exception {
+      service.delayMillis = 20;
+      AppConfig.ThreadConfig threads = new AppConfig.ThreadConfig();
+      threads.setVirtual(false);
+      dispatcher =
+          new PushDispatcher(config, PLAIN, gone::add, timer, new PushOrigins(), threads);
+
+      dispatcher.dispatch(subscriptions(40), "{}").get(10, TimeUnit.SECONDS);
+
+      assertEquals(40, dispatcher.delivered());
+      assertTrue(service.maxInFlight.get() <= 4, "max in flight was " + service.maxInFlight);
+    }
+
+    @Test
+    @DisplayName("Should complete at once when nobody is subscribed")
+    void testNoSubscriptions() {
+      assertTrue(dispatcher(PLAIN).dispatch(Map.of(), "{}").isDone());
+    }
+  }
+
+  @Nested
+  @DisplayName("Failure Tests")
+  class FailureTests {
+
+    @Test
+    @DisplayName("Should retry after a server error")
+    void testRetry() throws Exception {
+      service.failFirst = 1;
+      PushDispatcher dispatcher = dispatcher(PLAIN);
+
+      dispatcher.dispatch(subscriptions(1), "{}").get(5, TimeUnit.SECONDS);
+
+      assertEquals(2, service.requests.size());
+      assertEquals(1, dispatcher.retries());
+      assertEquals(1, dispatcher.delivered());
+    }
+
+    @Test
+    @DisplayName("Should give up after maxAttempts")
+    void testGivesUp() throws Exception {
+      service.status = 500;
+      PushDispatcher dispatcher = dispatcher(PLAIN);
+
+      dispatcher.dispatch(subscriptions(1), "{}").get(5, TimeUnit.SECONDS);
+
+      assertEquals(3, service.requests.size());
+      assertEquals(1, dispatcher.failed());
+      assertTrue(gone.isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should count requests and failures by push service")
+    void testOrigins() throws Exception {
+      service.status = 500;
+      PushOrigins origins = new PushOrigins();
+      Map<String, PushOrigins.Origin> seen = new ConcurrentHashMap<>();
+      origins.onOrigin(seen::put);
+      dispatcher = new PushDispatcher(config, PLAIN, gone::add, timer, origins);
+
+      dispatcher.dispatch(subscriptions(2), "{}").get(5, TimeUnit.SECONDS);
+
+      PushOrigins.Origin origin = seen.get("127.0.0.1");
+      assertEquals(Set.of("127.0.0.1"), seen.keySet());
+      assertEquals(6, origin.latency().count());
+      assertEquals(2, origin.failed());
+    }
+
+    @Test
+    @DisplayName("Should give up on a push service that doesn't answer in time")
+    void testTimeout() throws Exception {
+      service.gate = new CountDownLatch(1);
+      config.setTimeoutMillis(100);
+      config.setMaxAttempts(1);
+      PushDispatcher dispatcher = dispatcher(PLAIN);
+
+      dispatcher.dispatch(subscriptions(1), "{}").get(5, TimeUnit.SECONDS);
+
+      assertEquals(1, dispatcher.failed());
+    }
+
+    @Test
+    @DisplayName("Should report subscriptions the push service no longer knows")
+    void testGone() throws Exception {
+      service.status = 410;
+      PushDispatcher dispatcher = dispatcher(PLAIN);
+
+      dispatcher.dispatch(subscriptions(2), "{}").get(5, TimeUnit.SECONDS);
+
+      assertEquals(
+          List.of(service.endpoint(0), service.endpoint(1)), gone.stream().sorted().toList());
+      assertEquals(2, service.requests.size());
+      assertEquals(0, dispatcher.retries());
+    }
+
+    @Test
+    @DisplayName("Should report subscriptions that cannot be encoded")
+    void testBadSubscription() throws Exception {
+      PushDispatcher dispatcher =
+          dispatcher(
+              (subscription, payload) -> {
+                throw new IllegalArgumentException("Invalid key");
+              });
+
+      dispatcher.dispatch(subscriptions(1), "{}").get(5, TimeUnit.SECONDS);
+
+      assertEquals(List.of(service.endpoint(0)), gone);
+      assertTrue(service.requests.isEmpty());
+    }
+  }
+}
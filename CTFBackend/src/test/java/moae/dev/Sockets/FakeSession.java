@@ -0,0 +1,134 @@
+package moae.dev.Sockets;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketExtension;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.security.Principal;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+
+/** A session whose sends can be held up, like a phone on a bad connection. */
+class FakeSession implements WebSocketSession {
+  final List<String> sent = new CopyOnWriteArrayList<>();
+  final List<byte[]> sentBinary = new CopyOnWriteArrayList<>();
+  volatile String protocol;
+  volatile CountDownLatch gate = new CountDownLatch(0);
+  volatile CountDownLatch sending = new CountDownLatch(1);
+  volatile CloseStatus closed;
+  final Map<String, Object> attributes = new HashMap<>();
+  private final String id;
+  private final URI uri;
+
+  FakeSession() {
+    this("session", null);
+  }
+
+  FakeSession(String id, URI uri) {
+    this.id = id;
+    this.uri = uri;
+  }
+
+  @Override
+  public void sendMessage(WebSocketMessage<?> message) {
+    sending.countDown();
+    try {
+      gate.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    if (message instanceof BinaryMessage binary) {
+      ByteBuffer payload = binary.getPayload().duplicate();
+      byte[] bytes = new byte[payload.remaining()];
+      payload.get(bytes);
+      sentBinary.add(bytes);
+    } else {
+      sent.add((String) message.getPayload());
+    }
+  }
+
+  @Override
+  public boolean isOpen() {
+    return closed == null;
+  }
+
+  @Override
+  public void close(CloseStatus status) {
+    closed = status;
+  }
+
+  @Override
+  public void close() {
+    close(CloseStatus.NORMAL);
+  }
+
+  @Override
+  public String getId() {
+    return id;
+  }
+
+  @Override
+  public URI getUri() {
+    return uri;
+  }
+
+  @Override
+  public HttpHeaders getHandshakeHeaders() {
+    return null;
+  }
+
+  @Override
+  public Map<String, Object> getAttributes() {
+    return attributes;
+  }
+
+  @Override
+  public Principal getPrincipal() {
+    return null;
+  }
+
+  @Override
+  public InetSocketAddress getLocalAddress() {
+    return null;
+  }
+
+  @Override
+  public InetSocketAddress getRemoteAddress() {
+    return null;
+  }
+
+  @Override
+  public String getAcceptedProtocol() {
+    return protocol;
+  }
+
+  @Override
+  public void setTextMessageSizeLimit(int messageSizeLimit) {}
+
+  @Override
+  public int getTextMessageSizeLimit() {
+    return 0;
+  }
+
+  @Override
+  public void setBinaryMessageSizeLimit(int messageSizeLimit) {}
+
+  @Override
+  public int getBinaryMessageSizeLimit() {
+    return 0;
+  }
+
+  @Override
+  public List<WebSocketExtension> getExtensions() {
+    return List.of();
+  }
+}
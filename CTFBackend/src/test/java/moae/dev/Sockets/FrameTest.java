@@ -0,0 +1,163 @@
+package moae.dev.Sockets;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import moae.dev.Game.Game;
+import moae.dev.Utils.AnnouncementMessage;
+import moae.dev.Utils.Cbor;
+import moae.dev.Utils.Json;
+import moae.dev.Utils.StateMessage;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.TextMessage;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FrameTest {
+
+  private static JsonNode json(Frame frame) throws Exception {
+    return Json.mapper().readTree(frame.message().getPayload());
+  }
+
+  private static JsonNode cbor(Frame frame) throws Exception {
+    return Cbor.mapper().readTree(frame.binary());
+  }
+
+  private static int jsonSize(Frame frame) {
+    return frame.message().getPayload().getBytes(StandardCharsets.UTF_8).length;
+  }
+
+  @Nested
+  @DisplayName("Encoding Tests")
+  class EncodingTests {
+
+    @Test
+    @DisplayName("The CBOR encoding should decode to the same tree as the JSON")
+    void testSameTree() throws Exception {
+      Frame state =
+          Frame.of(
+              Json.mapper()
+                  .createObjectNode()
+                  .put("seq", 42)
+                  .put("type", "phase")
+                  .put("state", Game.State.SCOUT_PERIOD.name())
+                  .put("duration", 1_800_000L)
+                  .put("paused", false),
+              false);
+      Frame announcement = Frame.of(new AnnouncementMessage("info", "Ten minutes left"), false);
+      Frame text = Frame.text("{\"type\":\"heartbeat\",\"at\":1700000000000}", false);
+
+      for (Frame frame : new Frame[] {state, announcement, text}) {
+        assertEquals(json(frame), cbor(frame));
+      }
+    }
+
+    @Test
+    @DisplayName("CBOR should be smaller than JSON for numeric state")
+    void testSmaller() throws Exception {
+      StateMessage state = new StateMessage(Game.State.SCOUT_PERIOD, 1_800_000, false);
+      Frame phase = Frame.of(Map.of("seq", 1234, "phase", state), false);
+      assertTrue(phase.binary().length < jsonSize(phase));
+    }
+
+    @Test
+    @DisplayName("An envelope should carry the inner frame as its data in both encodings")
+    void testWrap() throws Exception {
+      Frame inner = Frame.of(Map.of("type", "left", "player", UUID.randomUUID().toString()), false);
+      Frame envelope = Frame.wrap(GameSockets.STATE, inner);
+
+      JsonNode text = json(envelope);
+      assertEquals(GameSockets.STATE, text.get("topic").asText());
+      assertEquals(json(inner), text.get("data"));
+      assertEquals(text, cbor(envelope));
+    }
+
+    @Test
+    @DisplayName("Frames that aren't JSON should have no binary encoding")
+    void testTextOnly() throws Exception {
+      assertNull(Frame.of("joined:", Map.of("name", "Alice"), false).binary());
+      assertNull(Frame.text("stuck", false).binary());
+    }
+
+    @Test
+    @DisplayName("A batch should decode to the same array in both encodings")
+    void testBatch() throws Exception {
+      for (int size : new int[] {2, 23, 24, 255, 256, 70_000}) {
+        List<Frame> frames = new ArrayList<>();
+        for (int i = 0; i < size; i++) frames.add(Frame.of(Map.of("seq", i), false));
+        Frame batch = Frame.batch(frames);
+
+        JsonNode text = json(batch);
+        assertEquals(size, text.size());
+        assertEquals(text, cbor(batch));
+      }
+    }
+
+    @Test
+    @DisplayName("The binary encoding should be made once and shared by copies")
+    void testShared() throws Exception {
+      Frame frame = Frame.of(Map.of("type", "frozen"), false);
+      byte[] binary = frame.binary();
+      assertSame(binary, frame.binary());
+      assertSame(binary, frame.copy().binary());
+    }
+
+    @Test
+    @DisplayName("A value changed after the frame was made should not reach either encoding")
+    void testChangedValue() throws Exception {
+      List<String> players = new ArrayList<>(List.of("Alice"));
+      Frame frame = Frame.of(Map.of("players", players), false);
+      Frame wrapped = Frame.wrap("roster", frame);
+      Frame batch = Frame.batch(List.of(Frame.of(Map.of("players", players), false)));
+      players.add("Bob");
+
+      for (Frame sent : new Frame[] {frame, wrapped, batch}) {
+        assertEquals(json(sent), cbor(sent));
+        assertFalse(json(sent).toString().contains("Bob"));
+      }
+    }
+  }
+
+  @Nested
+  @DisplayName("Negotiation Tests")
+  class NegotiationTests {
+
+    @Test
+    @DisplayName("Sessions should be sent the encoding they negotiated")
+    void testMessage() throws Exception {
+      Frame frame = Frame.of(Map.of("type", "frozen"), false);
+
+      assertTrue(frame.message(null) instanceof TextMessage);
+      assertTrue(frame.message(GameSocketRouter.JSON) instanceof TextMessage);
+      assertTrue(frame.message(GameSocketRouter.CBOR) instanceof BinaryMessage);
+      Frame prefixed = Frame.of("left:", Map.of(), false);
+      assertTrue(prefixed.message(GameSocketRouter.CBOR) instanceof TextMessage);
+    }
+
+    @Test
+    @DisplayName("An outbox should send binary frames to a CBOR session")
+    void testOutbox() throws Exception {
+      FakeSession session = new FakeSession();
+      session.protocol = GameSocketRouter.CBOR;
+      SessionOutbox outbox = new SessionOutbox(session, 4, 2, new OutboundStats());
+
+      Frame frame = Frame.of(Map.of("type", "emergency", "active", true), false);
+      outbox.offer(frame);
+      outbox.offer(Frame.of("joined:", Map.of("name", "Alice"), false));
+
+      long deadline = System.currentTimeMillis() + 2000;
+      while (session.sent.isEmpty() && System.currentTimeMillis() < deadline) Thread.sleep(5);
+      assertEquals(1, session.sentBinary.size());
+      assertEquals(json(frame), Cbor.mapper().readTree(session.sentBinary.getFirst()));
+      assertEquals(1, session.sent.size());
+      assertTrue(session.sent.getFirst().startsWith("joined:"));
+    }
+  }
+}
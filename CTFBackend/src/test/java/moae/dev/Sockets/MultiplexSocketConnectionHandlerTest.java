@@ -0,0 +1,302 @@
+package moae.dev.Sockets;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import moae.dev.Fixtures;
+import moae.dev.Game.Game;
+import moae.dev.Server.AppConfig;
+import moae.dev.Utils.Cbor;
+import moae.dev.Utils.Json;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MultiplexSocketConnectionHandlerTest {
+  private Game game;
+  private MultiplexSocketConnectionHandler handler;
+  private int sessions = 0;
+
+  @BeforeEach
+  void setUp() {
+    AppConfig config = Fixtures.config();
+    config.getLocations().setBroadcastMillis(20);
+    game = new Game(config, null);
+    handler = game.sockets().multiplex();
+  }
+
+  @AfterEach
+  void tearDown() {
+    game.shutdown();
+  }
+
+  private UUID red() {
+    return game.getTeams().getFirst().getID();
+  }
+
+  private UUID blue() {
+    return game.getTeams().getLast().getID();
+  }
+
+  private FakeSession connect(UUID player, String query) throws Exception {
+    URI uri = URI.create("ws://localhost/socket/v2" + (query == null ? "" : "?" + query));
+    FakeSession session = new FakeSession("session-" + sessions++, uri);
+    if (player != null)
+      session.attributes.put(MultiplexSocketConnectionHandler.PLAYER_ATTRIBUTE, player);
+    handler.afterConnectionEstablished(session);
+    return session;
+  }
+
+  private void send(FakeSession session, String message) throws Exception {
+    handler.handleMessage(session, new TextMessage(message));
+  }
+
+  private static List<JsonNode> await(FakeSession session, int size) throws Exception {
+    long deadline = System.currentTimeMillis() + 2000;
+    while (session.sent.size() < size && System.currentTimeMillis() < deadline) Thread.sleep(5);
+    Thread.sleep(50);
+    assertEquals(size, session.sent.size(), session.sent.toString());
+
+    List<JsonNode> frames = new ArrayList<>();
+    for (String payload : session.sent) frames.add(Json.mapper().readTree(payload));
+    return frames;
+  }
+
+  private static List<String> topics(JsonNode frame, String field) {
+    List<String> topics = new ArrayList<>();
+    frame.get(field).forEach(topic -> topics.add(topic.asText()));
+    return topics;
+  }
+
+  @Nested
+  @DisplayName("Subscription Tests")
+  class SubscriptionTests {
+
+    @Test
+    @DisplayName("Should only route events to sessions subscribed to their topic")
+    void testRouting() throws Exception {
+      FakeSession state = connect(null, null);
+      send(state, "{\"subscribe\":[\"state\"]}");
+      FakeSession players = connect(null, "topics=players");
+
+      game.addPlayer("Alice", red(), false);
+
+      List<JsonNode> stateFrames = await(state, 2);
+      assertEquals(List.of("state"), topics(stateFrames.get(0), "topics"));
+      assertEquals("state", stateFrames.get(1).get("topic").asText());
+      assertEquals("joined", stateFrames.get(1).get("data").get("type").asText());
+
+      List<JsonNode> playerFrames = await(players, 2);
+      assertEquals("players", playerFrames.get(1).get("topic").asText());
+      JsonNode change = playerFrames.get(1).get("data");
+      assertEquals("joined", change.get("type").asText());
+      assertEquals("Alice", change.get("name").asText());
+      assertEquals(1, handler.getSubscriberCount(GameSockets.STATE));
+      assertEquals(1, handler.getSubscriberCount(GameSockets.PLAYERS));
+    }
+
+    @Test
+    @DisplayName("Unsubscribing should stop a topic")
+    void testUnsubscribe() throws Exception {
+      FakeSession session = connect(null, "topics=announcements,state");
+      send(session, "{\"unsubscribe\":\"state\"}");
+
+      game.addPlayer("Alice", red(), false);
+
+      List<JsonNode> frames = await(session, 2);
+      assertEquals("unsubscribed", frames.get(1).get("type").asText());
+      assertEquals(List.of("state"), topics(frames.get(1), "topics"));
+      assertEquals(0, handler.getSubscriberCount(GameSockets.STATE));
+    }
+
+    @Test
+    @DisplayName("A session should stop receiving once it is closed")
+    void testClosed() throws Exception {
+      FakeSession session = connect(null, "topics=state");
+      handler.afterConnectionClosed(session, CloseStatus.NORMAL);
+
+      assertEquals(0, handler.getSubscriberCount(GameSockets.STATE));
+      assertEquals(0, handler.getSessionCount());
+    }
+
+    @Test
+    @DisplayName("Subscribing with since should replay the missed deltas")
+    void testSince() throws Exception {
+      long since = game.sockets().state().lastSequence();
+      game.addPlayer("Alice", red(), false);
+      game.addPlayer("Bob", blue(), false);
+
+      FakeSession session = connect(null, "topics=state&since=" + since);
+
+      List<JsonNode> frames = await(session, 3);
+      assertEquals("subscribed", frames.get(0).get("type").asText());
+      assertEquals(since + 1, frames.get(1).get("data").get("seq").asLong());
+      assertEquals(since + 2, frames.get(2).get("data").get("seq").asLong());
+    }
+
+    @Test
+    @DisplayName("A CBOR session should be able to subscribe in CBOR")
+    void testCbor() throws Exception {
+      FakeSession session = new FakeSession("session-" + sessions++, URI.create("ws://localhost"));
+      session.protocol = GameSocketRouter.CBOR;
+      handler.afterConnectionEstablished(session);
+      byte[] request = Cbor.mapper().writeValueAsBytes(Map.of("subscribe", List.of("state")));
+      handler.handleMessage(session, new BinaryMessage(request));
+
+      game.addPlayer("Alice", red(), false);
+
+      long deadline = System.currentTimeMillis() + 2000;
+      while (session.sentBinary.size() < 2 && System.currentTimeMillis() < deadline)
+        Thread.sleep(5);
+      assertEquals(2, session.sentBinary.size());
+      JsonNode reply = Cbor.mapper().readTree(session.sentBinary.get(0));
+      assertEquals(List.of("state"), topics(reply, "topics"));
+      JsonNode delta = Cbor.mapper().readTree(session.sentBinary.get(1));
+      assertEquals("state", delta.get("topic").asText());
+      assertEquals("joined", delta.get("data").get("type").asText());
+    }
+
+    @Test
+    @DisplayName("Malformed requests should get an error")
+    void testMalformed() throws Exception {
+      FakeSession session = connect(null, null);
+      send(session, "subscribe state");
+      send(session, "{\"listen\":[\"state\"]}");
+
+      List<JsonNode> frames = await(session, 2);
+      assertEquals("error", frames.get(0).get("type").asText());
+      assertEquals("error", frames.get(1).get("type").asText());
+    }
+  }
+
+  @Nested
+  @DisplayName("Chat Tests")
+  class ChatTests {
+
+    @Test
+    @DisplayName("Sessions without a player should not get chat")
+    void testAnonymous() throws Exception {
+      FakeSession session = connect(null, "topics=global,team,state");
+
+      JsonNode reply = await(session, 1).getFirst();
+      assertEquals(List.of("state"), topics(reply, "topics"));
+      assertEquals(List.of("global", "team"), topics(reply, "rejected"));
+    }
+
+    @Test
+    @DisplayName("A player should get global chat and their own team's chat only")
+    void testTeamChat() throws Exception {
+      UUID alice = game.addPlayer("Alice", red(), false);
+      UUID bob = game.addPlayer("Bob", blue(), false);
+      FakeSession session = connect(alice, "topics=global,team,team:" + blue());
+
+      game.sendMessage(bob, "hello everyone");
+      game.sendTeamMessage(blue(), bob, "blue only");
+      game.sendTeamMessage(red(), alice, "red only");
+
+      List<JsonNode> frames = await(session, 3);
+      String redTopic = MultiplexSocketConnectionHandler.teamTopic(red());
+      assertEquals(List.of("global", redTopic), topics(frames.get(0), "topics"));
+      assertEquals(List.of("team:" + blue()), topics(frames.get(0), "rejected"));
+      assertEquals("global", frames.get(1).get("topic").asText());
+      assertEquals("hello everyone", frames.get(1).get("data").get("message").asText());
+      assertEquals(redTopic, frames.get(2).get("topic").asText());
+      assertEquals("red only", frames.get(2).get("data").get("message").asText());
+    }
+
+    @Test
+    @DisplayName("Organisers may listen to any team")
+    void testOrganiser() throws Exception {
+      UUID admin = game.addPlayer("Admin", red(), true);
+      FakeSession session = connect(admin, "topics=team:" + blue());
+
+      JsonNode reply = await(session, 1).getFirst();
+      assertEquals(
+          List.of(MultiplexSocketConnectionHandler.teamTopic(blue())), topics(reply, "topics"));
+    }
+
+    @Test
+    @DisplayName("A player who leaves should lose their chat topics")
+    void testRevoked() throws Exception {
+      UUID alice = game.addPlayer("Alice", red(), false);
+      UUID bob = game.addPlayer("Bob", red(), false);
+      FakeSession session = connect(alice, "topics=global,team,announcements");
+
+      game.removePlayer(alice);
+      game.sendMessage(bob, "after");
+
+      List<JsonNode> frames = await(session, 2);
+      assertEquals("unsubscribed", frames.get(1).get("type").asText());
+      List<String> revoked = topics(frames.get(1), "topics");
+      assertEquals(2, revoked.size());
+      assertTrue(revoked.contains("global"));
+      assertTrue(revoked.contains(MultiplexSocketConnectionHandler.teamTopic(red())));
+      assertEquals(1, handler.getSubscriberCount(GameSockets.ANNOUNCEMENTS));
+    }
+  }
+
+  @Nested
+  @DisplayName("Location Tests")
+  class LocationTests {
+
+    private void locate(FakeSession session, float x, float y) throws Exception {
+      ByteBuffer message = ByteBuffer.allocate(9).put(MultiplexSocketConnectionHandler.LOCATION);
+      message.putFloat(x).putFloat(y).flip();
+      handler.handleMessage(session, new BinaryMessage(message));
+    }
+
+    @Test
+    @DisplayName("Teammates should get a player's position, and other teams shouldn't")
+    void testTeammates() throws Exception {
+      UUID alice = game.addPlayer("Alice", red(), false);
+      UUID bob = game.addPlayer("Bob", red(), false);
+      UUID carol = game.addPlayer("Carol", blue(), false);
+      FakeSession aliceSession = connect(alice, null);
+      FakeSession bobSession = connect(bob, "topics=locations");
+      FakeSession carolSession = connect(carol, "topics=locations");
+
+      locate(aliceSession, 12.5f, 40);
+      locate(aliceSession, 13, 41);
+
+      List<JsonNode> frames = await(bobSession, 2);
+      String topic = MultiplexSocketConnectionHandler.locationTopic(red());
+      assertEquals(topic, frames.get(1).get("topic").asText());
+      JsonNode positions = frames.get(1).get("data").get("positions");
+      assertEquals(1, positions.size());
+      assertEquals(alice.toString(), positions.get(0).get("player").asText());
+      assertEquals(13, positions.get(0).get("x").asDouble());
+      assertEquals(41, positions.get(0).get("y").asDouble());
+
+      await(carolSession, 1);
+      assertTrue(aliceSession.sent.isEmpty());
+      assertEquals(13, game.locations().get(alice).x());
+    }
+
+    @Test
+    @DisplayName("Sessions without a player, or positions off the map, should get an error")
+    void testRejected() throws Exception {
+      UUID alice = game.addPlayer("Alice", red(), false);
+      FakeSession anonymous = connect(null, null);
+      FakeSession player = connect(alice, null);
+
+      locate(anonymous, 10, 10);
+      locate(player, 10, 101);
+
+      assertEquals("error", await(anonymous, 1).getFirst().get("type").asText());
+      assertEquals("error", await(player, 1).getFirst().get("type").asText());
+      assertEquals(0, game.locations().size());
+    }
+  }
+}
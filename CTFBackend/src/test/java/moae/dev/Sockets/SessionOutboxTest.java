@@ -0,0 +1,250 @@
+package moae.dev.Sockets;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import moae.dev.Utils.Cbor;
+import moae.dev.Utils.Json;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SessionOutboxTest {
+  private static final int CAPACITY = 4;
+  private static final int MAX_OVERFLOWS = 2;
+
+  private FakeSession session;
+  private OutboundStats stats;
+  private SessionOutbox outbox;
+
+  @BeforeEach
+  void setUp() {
+    session = new FakeSession();
+    stats = new OutboundStats();
+    outbox = new SessionOutbox(session, CAPACITY, MAX_OVERFLOWS, stats);
+  }
+
+  /** Holds up sends, and waits until the first frame is stuck in the session. */
+  private void stall() throws InterruptedException {
+    session.gate = new CountDownLatch(1);
+    session.sending = new CountDownLatch(1);
+    outbox.offer(Frame.text("stuck", false));
+    assertTrue(session.sending.await(2, TimeUnit.SECONDS));
+  }
+
+  private void awaitSent(int frames) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 2000;
+    while (session.sent.size() < frames && System.currentTimeMillis() < deadline) Thread.sleep(5);
+    assertEquals(frames, session.sent.size());
+  }
+
+  @Nested
+  @DisplayName("Sending Tests")
+  class SendingTests {
+
+    @Test
+    @DisplayName("Should send frames in the order they were queued")
+    void testOrder() throws InterruptedException {
+      outbox = new SessionOutbox(session, 100, MAX_OVERFLOWS, stats);
+      for (int i = 0; i < 100; i++) outbox.offer(Frame.text("frame " + i, i % 2 == 0));
+
+      awaitSent(100);
+      for (int i = 0; i < 100; i++) assertEquals("frame " + i, session.sent.get(i));
+      assertEquals(0, stats.depth());
+      assertEquals(100, stats.sent());
+      assertEquals(100, stats.sendLatency().count());
+    }
+
+    @Test
+    @DisplayName("A slow session should not hold up the broadcaster")
+    void testSlowSessionDoesNotBlock() throws InterruptedException {
+      stall();
+
+      long start = System.nanoTime();
+      assertTrue(outbox.offer(Frame.text("queued", false)));
+      assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 500);
+      assertEquals(1, stats.depth());
+
+      session.gate.countDown();
+      awaitSent(2);
+    }
+
+    @Test
+    @DisplayName("Sessions sharing a pool should each get their frames in order")
+    void testSharedPool() throws InterruptedException {
+      ExecutorService pool = Executors.newSingleThreadExecutor();
+      try {
+        FakeSession other = new FakeSession();
+        outbox = new SessionOutbox(session, 100, MAX_OVERFLOWS, 0, stats, pool);
+        SessionOutbox otherOutbox = new SessionOutbox(other, 100, MAX_OVERFLOWS, 0, stats, pool);
+        for (int i = 0; i < 50; i++) {
+          outbox.offer(Frame.text("frame " + i, false));
+          otherOutbox.offer(Frame.text("frame " + i, false));
+        }
+
+        awaitSent(50);
+        long deadline = System.currentTimeMillis() + 2000;
+        while (other.sent.size() < 50 && System.currentTimeMillis() < deadline) Thread.sleep(5);
+        for (int i = 0; i < 50; i++) {
+          assertEquals("frame " + i, session.sent.get(i));
+          assertEquals("frame " + i, other.sent.get(i));
+        }
+        assertEquals(100, stats.sent());
+      } finally {
+        pool.shutdownNow();
+      }
+    }
+  }
+
+  @Nested
+  @DisplayName("Slow Consumer Tests")
+  class SlowConsumerTests {
+
+    @Test
+    @DisplayName("Should drop the oldest chat but keep state frames when full")
+    void testDropsOldestChat() throws InterruptedException {
+      stall();
+      outbox.offer(Frame.text("state 1", false));
+      outbox.offer(Frame.text("chat 1", true));
+      outbox.offer(Frame.text("chat 2", true));
+      outbox.offer(Frame.text("state 2", false));
+
+      assertTrue(outbox.offer(Frame.text("chat 3", true)));
+      assertTrue(outbox.offer(Frame.text("state 3", false)));
+
+      session.gate.countDown();
+      awaitSent(5);
+      assertEquals(List.of("stuck", "state 1", "state 2", "chat 3", "state 3"), session.sent);
+      assertEquals(2, stats.dropped());
+    }
+
+    @Test
+    @DisplayName("Should drop new chat when only state frames are queued")
+    void testDropsChatBehindState() throws InterruptedException {
+      stall();
+      for (int i = 0; i < CAPACITY; i++) outbox.offer(Frame.text("state " + i, false));
+
+      assertFalse(outbox.offer(Frame.text("chat", true)));
+
+      session.gate.countDown();
+      awaitSent(CAPACITY + 1);
+      assertFalse(session.sent.contains("chat"));
+      assertEquals(1, stats.dropped());
+    }
+
+    @Test
+    @DisplayName("Should disconnect a session that keeps overflowing")
+    void testDisconnectsAfterOverflows() throws InterruptedException {
+      for (int overflow = 0; overflow <= MAX_OVERFLOWS; overflow++) {
+        stall();
+        for (int i = 0; i <= CAPACITY; i++) outbox.offer(Frame.text("chat " + i, true));
+        if (overflow < MAX_OVERFLOWS) {
+          assertNull(session.closed);
+          session.gate.countDown();
+          // Let the queue drain so the next burst counts as a new overflow
+          long deadline = System.currentTimeMillis() + 2000;
+          while (stats.depth() > 0 && System.currentTimeMillis() < deadline) Thread.sleep(5);
+          Thread.sleep(20);
+        }
+      }
+
+      long deadline = System.currentTimeMillis() + 2000;
+      while (session.closed == null && System.currentTimeMillis() < deadline) Thread.sleep(5);
+      assertEquals(SessionOutbox.TOO_SLOW, session.closed);
+      assertFalse(outbox.offer(Frame.text("after", false)));
+      assertEquals(1, stats.disconnected());
+      assertEquals(0, stats.depth());
+      session.gate.countDown();
+    }
+
+    @Test
+    @DisplayName("A burst within one overflow should not disconnect the session")
+    void testBurstIsOneOverflow() throws InterruptedException {
+      stall();
+      for (int i = 0; i < CAPACITY * 10; i++) outbox.offer(Frame.text("chat " + i, true));
+
+      assertNull(session.closed);
+      session.gate.countDown();
+      awaitSent(CAPACITY + 1);
+      assertEquals("chat " + (CAPACITY * 10 - 1), session.sent.getLast());
+    }
+  }
+
+  @Nested
+  @DisplayName("Coalescing Tests")
+  class CoalescingTests {
+    private static final int WINDOW = 50;
+
+    @BeforeEach
+    void setUp() {
+      outbox = new SessionOutbox(session, 100, MAX_OVERFLOWS, WINDOW, stats);
+    }
+
+    @Test
+    @DisplayName("A burst within one window should be sent as one array")
+    void testBurst() throws Exception {
+      for (int i = 0; i < 20; i++) outbox.offer(Frame.of(Map.of("chat", i), true));
+
+      awaitSent(1);
+      Thread.sleep(2 * WINDOW);
+      assertEquals(1, session.sent.size());
+      JsonNode batch = Json.mapper().readTree(session.sent.getFirst());
+      assertEquals(20, batch.size());
+      for (int i = 0; i < 20; i++) assertEquals(i, batch.get(i).get("chat").asInt());
+      assertEquals(1, stats.messages());
+      assertEquals(20, stats.sent());
+      assertEquals(20, stats.sendLatency().count());
+    }
+
+    @Test
+    @DisplayName("A lone frame should be sent as itself, after the window")
+    void testLoneFrame() throws Exception {
+      long start = System.nanoTime();
+      outbox.offer(Frame.of(Map.of("type", "frozen"), false));
+
+      awaitSent(1);
+      assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= WINDOW);
+      assertEquals("frozen", Json.mapper().readTree(session.sent.getFirst()).get("type").asText());
+    }
+
+    @Test
+    @DisplayName("Frames that aren't JSON should be sent on their own, in order")
+    void testPrefixed() throws Exception {
+      outbox.offer(Frame.of(Map.of("n", 1), false));
+      outbox.offer(Frame.of(Map.of("n", 2), false));
+      outbox.offer(Frame.of("joined:", Map.of("name", "Alice"), false));
+      outbox.offer(Frame.of(Map.of("n", 3), false));
+
+      awaitSent(3);
+      assertEquals(2, Json.mapper().readTree(session.sent.get(0)).size());
+      assertTrue(session.sent.get(1).startsWith("joined:"));
+      assertEquals(3, Json.mapper().readTree(session.sent.get(2)).get("n").asInt());
+    }
+
+    @Test
+    @DisplayName("A CBOR session should get the batch as a CBOR array")
+    void testCbor() throws Exception {
+      session.protocol = GameSocketRouter.CBOR;
+      outbox = new SessionOutbox(session, 100, MAX_OVERFLOWS, WINDOW, stats);
+      List<Frame> frames = new ArrayList<>();
+      for (int i = 0; i < 30; i++) frames.add(Frame.of(Map.of("chat", i), true));
+      frames.forEach(outbox::offer);
+
+      long deadline = System.currentTimeMillis() + 2000;
+      while (session.sentBinary.isEmpty() && System.currentTimeMillis() < deadline)
+        Thread.sleep(5);
+      assertEquals(1, session.sentBinary.size());
+      JsonNode expected = Json.mapper().readTree(Frame.batch(frames).message().getPayload());
+      assertEquals(expected, Cbor.mapper().readTree(session.sentBinary.getFirst()));
+    }
+  }
+}
@@ -0,0 +1,221 @@
+package moae.dev.Sockets;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import moae.dev.Fixtures;
+import moae.dev.Game.Game;
+import moae.dev.Game.GameEvent;
+import moae.dev.Game.Player;
+import moae.dev.Server.AppConfig;
+import moae.dev.Utils.Json;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.socket.CloseStatus;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StateSocketConnectionHandlerTest {
+  private static final int REPLAY_BUFFER = 8;
+
+  private Game game;
+  private StateSocketConnectionHandler handler;
+  private int sessions = 0;
+
+  @BeforeEach
+  void setUp() {
+    AppConfig config = Fixtures.config();
+    game = new Game(config, null);
+
+    AppConfig.SocketConfig socketConfig = new AppConfig.SocketConfig();
+    socketConfig.setReplayBuffer(REPLAY_BUFFER);
+    handler = new StateSocketConnectionHandler(game, socketConfig);
+  }
+
+  @AfterEach
+  void tearDown() {
+    handler.closeSessions(CloseStatus.GOING_AWAY);
+    game.shutdown();
+  }
+
+  private FakeSession connect(String query) throws Exception {
+    URI uri = URI.create("ws://localhost/socket/state" + (query == null ? "" : "?" + query));
+    FakeSession session = new FakeSession("session-" + sessions++, uri);
+    handler.afterConnectionEstablished(session);
+    return session;
+  }
+
+  private static List<JsonNode> await(FakeSession session, int size) throws Exception {
+    long deadline = System.currentTimeMillis() + 2000;
+    while (session.sent.size() < size && System.currentTimeMillis() < deadline) Thread.sleep(5);
+    Thread.sleep(20);
+    assertEquals(size, session.sent.size());
+
+    List<JsonNode> frames = new ArrayList<>();
+    for (String payload : session.sent) frames.add(Json.mapper().readTree(payload));
+    return frames;
+  }
+
+  private void flags(int count) {
+    for (int i = 0; i < count; i++) {
+      handler.publish(new GameEvent.FlagRegistered(new UUID(0, i), i, i));
+    }
+  }
+
+  @Nested
+  @DisplayName("Delta Tests")
+  class DeltaTests {
+
+    @Test
+    @DisplayName("Should number deltas one after another")
+    void testSequence() throws Exception {
+      FakeSession session = connect("since=" + handler.lastSequence());
+      long first = handler.lastSequence() + 1;
+
+      flags(2);
+      handler.publish(new GameEvent.EmergencyDeclared());
+
+      List<JsonNode> frames = await(session, 3);
+      for (int i = 0; i < 3; i++) assertEquals(first + i, frames.get(i).get("seq").asLong());
+      assertEquals("flag", frames.get(0).get("type").asText());
+      assertEquals(new UUID(0, 1).toString(), frames.get(1).get("team").asText());
+      assertEquals("emergency", frames.get(2).get("type").asText());
+      assertTrue(frames.get(2).get("active").asBoolean());
+      assertEquals(first + 2, handler.lastSequence());
+    }
+
+    @Test
+    @DisplayName("Clients without since should only get phase frames")
+    void testLegacyClient() throws Exception {
+      FakeSession session = connect(null);
+
+      flags(2);
+      handler.publish(new GameEvent.PhaseChanged(Game.State.SCOUT_PERIOD, 600_000, false));
+
+      JsonNode phase = await(session, 1).getFirst();
+      assertEquals("phase", phase.get("type").asText());
+      assertEquals(handler.lastSequence(), phase.get("seq").asLong());
+      // The fields the frontend already reads
+      assertTrue(phase.has("state"));
+      assertEquals(600_000, phase.get("duration").asLong());
+      assertFalse(phase.get("paused").asBoolean());
+    }
+
+    @Test
+    @DisplayName("Should not number events that aren't state")
+    void testIgnoredEvents() throws Exception {
+      FakeSession session = connect("since=" + handler.lastSequence());
+      long last = handler.lastSequence();
+
+      handler.publish(new GameEvent.GamePaused());
+      handler.publish(new GameEvent.PlayerLeft(new Player("Alice", null, false), true));
+
+      JsonNode left = await(session, 1).getFirst();
+      assertEquals(last + 1, left.get("seq").asLong());
+      assertEquals("left", left.get("type").asText());
+      assertTrue(left.get("kicked").asBoolean());
+    }
+  }
+
+  @Nested
+  @DisplayName("Resume Tests")
+  class ResumeTests {
+
+    @Test
+    @DisplayName("Should replay only the deltas a client missed")
+    void testReplay() throws Exception {
+      flags(3);
+      long seen = handler.lastSequence();
+      flags(2);
+
+      FakeSession session = connect("since=" + seen);
+      List<JsonNode> frames = await(session, 2);
+      assertEquals(seen + 1, frames.get(0).get("seq").asLong());
+      assertEquals(seen + 2, frames.get(1).get("seq").asLong());
+
+      flags(1);
+      assertEquals(seen + 3, await(session, 3).get(2).get("seq").asLong());
+    }
+
+    @Test
+    @DisplayName("A client that is up to date should get nothing until the next delta")
+    void testUpToDate() throws Exception {
+      flags(2);
+      FakeSession session = connect("since=" + handler.lastSequence());
+      await(session, 0);
+    }
+
+    @Test
+    @DisplayName("Should send a snapshot once the missed deltas are no longer buffered")
+    void testOverrun() throws Exception {
+      long seen = handler.lastSequence();
+      flags(REPLAY_BUFFER + 1);
+
+      JsonNode snapshot = await(connect("since=" + seen), 1).getFirst();
+      assertEquals("snapshot", snapshot.get("type").asText());
+      assertEquals(handler.lastSequence(), snapshot.get("seq").asLong());
+      assertTrue(snapshot.get("status").has("teams"));
+    }
+
+    @Test
+    @DisplayName("Should send a snapshot for a sequence number from another stream")
+    void testUnknownSequence() throws Exception {
+      flags(1);
+
+      for (String since : List.of("since=0", "since=" + (handler.lastSequence() + 1), "since=x")) {
+        JsonNode snapshot = await(connect(since), 1).getFirst();
+        assertEquals("snapshot", snapshot.get("type").asText(), since);
+      }
+    }
+  }
+
+  @Nested
+  @DisplayName("Replay Buffer Tests")
+  class ReplayBufferTests {
+
+    @Test
+    @DisplayName("Should return the frames after a sequence number, oldest first")
+    void testSince() {
+      ReplayBuffer buffer = new ReplayBuffer(4, 100);
+      Frame[] frames = new Frame[6];
+      for (int i = 0; i < frames.length; i++) {
+        frames[i] = Frame.text(String.valueOf(i), false);
+        buffer.add(frames[i]);
+      }
+
+      assertEquals(106, buffer.last());
+      assertEquals(List.of(frames[4], frames[5]), buffer.since(104));
+      assertEquals(List.of(frames[2], frames[3], frames[4], frames[5]), buffer.since(102));
+      assertEquals(List.of(), buffer.since(106));
+      assertNull(buffer.since(101));
+      assertNull(buffer.since(107));
+      assertNull(buffer.since(99));
+    }
+
+    @Test
+    @DisplayName("Should replay from the start before it has wrapped")
+    void testFromStart() {
+      ReplayBuffer buffer = new ReplayBuffer(4, 0);
+      buffer.add(Frame.text("a", false));
+
+      assertEquals(1, buffer.since(0).size());
+      assertEquals(List.of(), new ReplayBuffer(4, 0).since(0));
+    }
+  }
+
+  @Test
+  @DisplayName("Should read since from the query string")
+  void testSinceParameter() {
+    assertNull(StateSocketConnectionHandler.since(URI.create("ws://host/socket/state")));
+    assertNull(StateSocketConnectionHandler.since(URI.create("ws://host/state?token=a")));
+    assertEquals(42L, StateSocketConnectionHandler.since(URI.create("ws://h/s?token=a&since=42")));
+    assertEquals(-1L, StateSocketConnectionHandler.since(URI.create("ws://h/s?since=")));
+    assertEquals(-1L, StateSocketConnectionHandler.since(URI.create("ws://h/s?since")));
+  }
+}
@@ -0,0 +1,103 @@
+package moae.dev.Sockets;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SubscriptionTableTest {
+  private static final String TOPIC = "chat";
+
+  private SubscriptionTable table;
+
+  @BeforeEach
+  void setUp() {
+    table = new SubscriptionTable();
+  }
+
+  private SessionOutbox join(String session) {
+    SessionOutbox outbox = new SessionOutbox(new FakeSession(), 4, 2, new OutboundStats());
+    table.join(session, outbox, null);
+    return outbox;
+  }
+
+  @Nested
+  @DisplayName("Subscription Tests")
+  class SubscriptionTests {
+
+    @Test
+    @DisplayName("Should route a topic only to its subscribers")
+    void testSubscribe() {
+      SessionOutbox alice = join("alice");
+      join("bob");
+
+      assertTrue(table.subscribe("alice", TOPIC));
+      assertFalse(table.subscribe("alice", TOPIC));
+
+      assertEquals(List.of(alice), List.copyOf(table.subscribers(TOPIC)));
+      assertTrue(table.subscribers("other").isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should drop a session from its topics when it leaves")
+    void testLeave() {
+      join("alice");
+      table.subscribe("alice", TOPIC);
+
+      table.leave("alice");
+
+      assertTrue(table.subscribers(TOPIC).isEmpty());
+      assertFalse(table.subscribe("alice", TOPIC));
+      assertFalse(table.unsubscribe("alice", TOPIC));
+    }
+  }
+
+  @Nested
+  @DisplayName("Concurrency Tests")
+  class ConcurrencyTests {
+
+    @Test
+    @DisplayName("A subscription should never be lost to another session unsubscribing")
+    void testConcurrentSubscribeAndUnsubscribe() throws Exception {
+      int sessions = 8;
+      int rounds = 20_000;
+      ExecutorService pool = Executors.newFixedThreadPool(sessions);
+      try {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> lost = new ArrayList<>();
+        for (int i = 0; i < sessions; i++) {
+          String session = "session " + i;
+          SessionOutbox outbox = join(session);
+          lost.add(
+              pool.submit(
+                  () -> {
+                    start.await();
+                    int missing = 0;
+                    for (int round = 0; round < rounds; round++) {
+                      table.subscribe(session, TOPIC);
+                      if (!table.subscribers(TOPIC).contains(outbox)) missing++;
+                      table.unsubscribe(session, TOPIC);
+                    }
+                    return missing;
+                  }));
+        }
+
+        start.countDown();
+        for (Future<Integer> missing : lost) assertEquals(0, missing.get(30, TimeUnit.SECONDS));
+        assertTrue(table.subscribers(TOPIC).isEmpty());
+      } finally {
+        pool.shutdownNow();
+      }
+    }
+  }
+}
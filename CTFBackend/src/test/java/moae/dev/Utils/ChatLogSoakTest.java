@@ -0,0 +1,83 @@
+package moae.dev.Utils;
+
+import moae.dev.Game.Player;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Run with {@code ./gradlew soakTest}; excluded from the regular test task. */
+@Tag("soak")
+class ChatLogSoakTest {
+  private static final int MESSAGES = 1_000_000;
+  private static final int RETENTION = 500;
+  private static final long MAX_HEAP_GROWTH = 16L << 20;
+
+  private Path dir;
+  private ChatJournal journal;
+  private ChatLog log;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    dir = Files.createTempDirectory("chat-soak");
+    log =
+        new ChatLog(
+            RETENTION,
+            () -> {
+              journal = ChatJournal.create(dir, "soak");
+              return journal;
+            });
+  }
+
+  @AfterEach
+  void tearDown() throws IOException {
+    journal.close();
+    try (var files = Files.walk(dir)) {
+      files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+    }
+  }
+
+  @Test
+  @DisplayName("Heap usage should stay flat while a million messages are appended")
+  void testHeapStaysFlat() {
+    UUID team = UUID.randomUUID();
+    Player sender = new Player("Soak", team, false);
+    AtomicInteger ids = new AtomicInteger();
+    String content = "x".repeat(120);
+
+    long baseline = 0;
+    for (int i = 1; i <= MESSAGES; i++) {
+      log.append(id -> new ChatMessage(content, sender, id, new Date(), team), ids::incrementAndGet);
+
+      if (i == 50_000) baseline = usedHeapAfterGc();
+    }
+    long growth = usedHeapAfterGc() - baseline;
+
+    assertEquals(MESSAGES, log.size());
+    assertTrue(growth < MAX_HEAP_GROWTH, "Heap grew by " + growth + " bytes");
+
+    List<ChatMessage> oldest = log.pageAfter(0, 3).messages();
+    assertEquals(List.of(1, 2, 3), oldest.stream().map(ChatMessage::messageId).toList());
+    assertEquals(content, oldest.getFirst().message());
+  }
+
+  private static long usedHeapAfterGc() {
+    MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+    for (int i = 0; i < 3; i++) System.gc();
+    return memory.getHeapMemoryUsage().getUsed();
+  }
+}
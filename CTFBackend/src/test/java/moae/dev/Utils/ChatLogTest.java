@@ -0,0 +1,250 @@
+package moae.dev.Utils;
+
+import moae.dev.Game.Player;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChatLogTest {
+  private ChatLog log;
+
+  @BeforeEach
+  void setUp() {
+    log = new ChatLog();
+  }
+
+  private static ChatMessage message(int id) {
+    return new ChatMessage("Message " + id, null, id, new Date(), UUID.randomUUID());
+  }
+
+  private static List<Integer> ids(MessagePage page) {
+    return page.messages().stream().map(ChatMessage::messageId).toList();
+  }
+
+  @Nested
+  @DisplayName("Paging Tests")
+  class PagingTests {
+
+    @BeforeEach
+    void fill() {
+      // Ids are sparse, as the counter is shared with the team channels
+      for (int id = 2; id <= 5000; id += 2) log.append(message(id));
+    }
+
+    @Test
+    @DisplayName("Should return the newest messages at or before the start id")
+    void testPageBefore() {
+      MessagePage page = log.pageBefore(21, 3);
+
+      assertEquals(List.of(16, 18, 20), ids(page));
+      assertFalse(page.end());
+    }
+
+    @Test
+    @DisplayName("Should mark the oldest page as the end")
+    void testPageBeforeReachesStart() {
+      MessagePage page = log.pageBefore(6, 10);
+
+      assertEquals(List.of(2, 4, 6), ids(page));
+      assertTrue(page.end());
+    }
+
+    @Test
+    @DisplayName("Should return messages after an id in ascending order")
+    void testPageAfter() {
+      MessagePage page = log.pageAfter(10, 3);
+
+      assertEquals(List.of(12, 14, 16), ids(page));
+      assertFalse(page.end());
+    }
+
+    @Test
+    @DisplayName("Should mark the newest page as the end")
+    void testPageAfterReachesNewest() {
+      MessagePage page = log.pageAfter(4995, 10);
+
+      assertEquals(List.of(4996, 4998, 5000), ids(page));
+      assertTrue(page.end());
+    }
+
+    @Test
+    @DisplayName("Should page across chunk boundaries")
+    void testPageAcrossChunks() {
+      MessagePage page = log.pageBefore(2100, 100);
+
+      assertEquals(100, page.messages().size());
+      assertEquals(1902, page.messages().getFirst().messageId());
+      assertEquals(2100, page.messages().getLast().messageId());
+    }
+
+    @Test
+    @DisplayName("Should return an empty final page when nothing matches")
+    void testEmptyPages() {
+      assertTrue(log.pageBefore(1, 10).messages().isEmpty());
+      assertTrue(log.pageBefore(1, 10).end());
+      assertTrue(log.pageAfter(5000, 10).messages().isEmpty());
+      assertTrue(log.pageBefore(5000, 0).messages().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Pages should be read-only views that survive a clear")
+    void testPagesAreStableViews() {
+      MessagePage page = log.pageBefore(10, 5);
+      log.clear();
+
+      assertEquals(List.of(2, 4, 6, 8, 10), ids(page));
+      assertThrows(UnsupportedOperationException.class, () -> page.messages().add(message(12)));
+      assertTrue(log.isEmpty());
+    }
+  }
+
+  @Nested
+  @DisplayName("Append Tests")
+  class AppendTests {
+
+    @Test
+    @DisplayName("Should reject ids that go backwards")
+    void testRejectsOutOfOrderIds() {
+      log.append(message(5));
+
+      assertThrows(IllegalArgumentException.class, () -> log.append(message(4)));
+    }
+
+    @Test
+    @DisplayName("Concurrent writers should keep ids in ascending order")
+    void testConcurrentAppends() throws InterruptedException {
+      AtomicInteger counter = new AtomicInteger();
+      int writers = 8;
+      int perWriter = 5000;
+      CountDownLatch start = new CountDownLatch(1);
+
+      List<Thread> threads = new ArrayList<>();
+      for (int i = 0; i < writers; i++) {
+        Thread thread =
+            new Thread(
+                () -> {
+                  try {
+                    start.await();
+                  } catch (InterruptedException e) {
+                    return;
+                  }
+                  for (int j = 0; j < perWriter; j++) {
+                    log.append(ChatLogTest::message, counter::incrementAndGet);
+                  }
+                });
+        thread.start();
+        threads.add(thread);
+      }
+
+      start.countDown();
+      for (Thread thread : threads) thread.join();
+
+      List<ChatMessage> all = log.snapshot();
+      assertEquals(writers * perWriter, all.size());
+      for (int i = 0; i < all.size(); i++) {
+        assertEquals(i + 1, all.get(i).messageId());
+      }
+    }
+  }
+
+  @Nested
+  @DisplayName("Journal Tests")
+  class JournalTests {
+    private Path dir;
+    private final List<ChatJournal> journals = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() throws IOException {
+      dir = Files.createTempDirectory("chat-log-test");
+      log =
+          new ChatLog(
+              100,
+              () -> {
+                ChatJournal journal = ChatJournal.create(dir, "test");
+                journals.add(journal);
+                return journal;
+              });
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+      journals.forEach(ChatJournal::close);
+      try (var files = Files.walk(dir)) {
+        files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+      }
+    }
+
+    @Test
+    @DisplayName("Should page through messages that were evicted from the heap")
+    void testPagesEvictedMessages() {
+      for (int id = 1; id <= 5000; id++) log.append(message(id));
+
+      assertEquals(5000, log.size());
+      assertEquals(List.of(1, 2, 3), ids(log.pageAfter(0, 3)));
+      assertEquals(List.of(1021, 1022, 1023, 1024, 1025, 1026), ids(log.pageBefore(1026, 6)));
+      assertEquals(List.of(4999, 5000), ids(log.pageBefore(Integer.MAX_VALUE, 2)));
+    }
+
+    @Test
+    @DisplayName("Should restore every field of a journaled message")
+    void testRoundTrip() {
+      UUID team = UUID.randomUUID();
+      Player sender = new Player("Zoë", team, true);
+      log.append(new ChatMessage("Héllo, wörld", sender, 7, new Date(1234L), team));
+      for (int id = 8; id < 3000; id++) log.append(message(id));
+
+      ChatMessage restored = log.pageBefore(7, 1).messages().getFirst();
+
+      assertEquals("Héllo, wörld", restored.message());
+      assertEquals(7, restored.messageId());
+      assertEquals(1234L, restored.time().getTime());
+      assertEquals(team, restored.team());
+      assertEquals(sender.getID(), restored.player().getID());
+      assertEquals("Zoë", restored.player().getName());
+      assertEquals(team, restored.player().getTeam());
+      assertTrue(restored.player().isAuth());
+    }
+
+    @Test
+    @DisplayName("Should keep serving old pages after the log is cleared")
+    void testClearOpensNewJournal() {
+      for (int id = 1; id <= 3000; id++) log.append(message(id));
+      MessagePage page = log.pageAfter(0, 5);
+
+      log.clear();
+      log.append(message(1));
+
+      assertEquals(List.of(1, 2, 3, 4, 5), ids(page));
+      assertEquals(1, log.size());
+      assertEquals(2, journals.size());
+    }
+
+    @Test
+    @DisplayName("Should delete a journal's files once the log moves off it")
+    void testClearDeletesOldJournal() throws IOException {
+      for (int id = 1; id <= 100; id++) log.append(message(id));
+
+      log.clear();
+
+      try (var files = Files.list(dir)) {
+        // The data file and the index of the new journal
+        assertEquals(2, files.count());
+      }
+    }
+  }
+}
@@ -0,0 +1,189 @@
+package moae.dev.Utils;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HashedWheelTimerTest {
+  private static final long TICK_MILLIS = 5;
+
+  private HashedWheelTimer timer;
+
+  @BeforeEach
+  void setUp() {
+    // A small wheel, so longer timers need several rotations
+    timer = new HashedWheelTimer("test-timer", TICK_MILLIS, TimeUnit.MILLISECONDS, 8);
+  }
+
+  @AfterEach
+  void tearDown() {
+    timer.stop();
+  }
+
+  @Nested
+  @DisplayName("Scheduling Tests")
+  class SchedulingTests {
+
+    @Test
+    @DisplayName("Should not fire before the deadline")
+    void testFiresAfterDelay() throws InterruptedException {
+      CountDownLatch fired = new CountDownLatch(1);
+      long start = System.nanoTime();
+
+      timer.schedule(fired::countDown, 120, TimeUnit.MILLISECONDS);
+
+      assertTrue(fired.await(2, TimeUnit.SECONDS));
+      assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 120);
+      assertEquals(0, timer.pending());
+    }
+
+    @Test
+    @DisplayName("Should fire every one of many pending timers exactly once")
+    void testManyTimers() throws InterruptedException {
+      int timers = 20_000;
+      AtomicInteger count = new AtomicInteger();
+      CountDownLatch fired = new CountDownLatch(timers);
+
+      for (int i = 0; i < timers; i++) {
+        timer.schedule(
+            () -> {
+              count.incrementAndGet();
+              fired.countDown();
+            },
+            i % 200,
+            TimeUnit.MILLISECONDS);
+      }
+
+      assertTrue(fired.await(5, TimeUnit.SECONDS));
+      Thread.sleep(50);
+      assertEquals(timers, count.get());
+      assertEquals(timers, timer.lag().count());
+    }
+
+    @Test
+    @DisplayName("Should keep running after a task throws")
+    void testFailingTask() throws InterruptedException {
+      CountDownLatch fired = new CountDownLatch(1);
+
+      timer.schedule(
+          () -> {
+            throw new IllegalStateException();
+          },
+          0,
+          TimeUnit.MILLISECONDS);
+      timer.schedule(fired::countDown, 20, TimeUnit.MILLISECONDS);
+
+      assertTrue(fired.await(2, TimeUnit.SECONDS));
+    }
+  }
+
+  @Nested
+  @DisplayName("Cancellation Tests")
+  class CancellationTests {
+
+    @Test
+    @DisplayName("Cancelled timers should never fire")
+    void testCancel() throws InterruptedException {
+      AtomicInteger count = new AtomicInteger();
+      List<HashedWheelTimer.Timeout> timeouts = new ArrayList<>();
+      for (int i = 0; i < 100; i++) {
+        timeouts.add(timer.schedule(count::incrementAndGet, 30, TimeUnit.MILLISECONDS));
+      }
+
+      timeouts.forEach(HashedWheelTimer.Timeout::cancel);
+      Thread.sleep(100);
+
+      assertEquals(0, count.get());
+      assertEquals(0, timer.pending());
+      assertTrue(timeouts.getFirst().isCancelled());
+      assertFalse(timeouts.getFirst().cancel());
+    }
+
+    @Test
+    @DisplayName("Should not cancel a timer that has already fired")
+    void testCancelAfterExpiry() throws InterruptedException {
+      CountDownLatch fired = new CountDownLatch(1);
+      HashedWheelTimer.Timeout timeout = timer.schedule(fired::countDown, 0, TimeUnit.MILLISECONDS);
+
+      assertTrue(fired.await(2, TimeUnit.SECONDS));
+      Thread.sleep(20);
+
+      assertTrue(timeout.isExpired());
+      assertFalse(timeout.cancel());
+    }
+  }
+
+  @Nested
+  @DisplayName("Pause Tests")
+  class PauseTests {
+
+    @Test
+    @DisplayName("Should keep the remaining time while paused")
+    void testPauseKeepsRemaining() throws InterruptedException {
+      CountDownLatch fired = new CountDownLatch(1);
+      HashedWheelTimer.Timeout timeout =
+          timer.schedule(fired::countDown, 200, TimeUnit.MILLISECONDS);
+
+      Thread.sleep(50);
+      assertTrue(timeout.pause());
+      long left = timeout.remaining(TimeUnit.MILLISECONDS);
+      assertTrue(left > 0 && left <= 150, "remaining was " + left);
+
+      // Well past the original deadline
+      assertFalse(fired.await(300, TimeUnit.MILLISECONDS));
+      assertEquals(left, timeout.remaining(TimeUnit.MILLISECONDS));
+      assertEquals(1, timer.pending());
+
+      long resumed = System.nanoTime();
+      assertTrue(timeout.resume());
+      assertTrue(fired.await(2, TimeUnit.SECONDS));
+      assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - resumed) >= left - TICK_MILLIS);
+    }
+
+    @Test
+    @DisplayName("Should only pause running timers and only resume paused ones")
+    void testPauseStates() {
+      HashedWheelTimer.Timeout timeout = timer.schedule(() -> {}, 1, TimeUnit.SECONDS);
+
+      assertFalse(timeout.resume());
+      assertTrue(timeout.pause());
+      assertFalse(timeout.pause());
+      assertTrue(timeout.isPaused());
+
+      assertTrue(timeout.cancel());
+      assertFalse(timeout.resume());
+      assertEquals(0, timer.pending());
+    }
+  }
+
+  @Nested
+  @DisplayName("Lag Tests")
+  class LagTests {
+
+    @Test
+    @DisplayName("Should report how late timers fired")
+    void testLag() throws InterruptedException {
+      assertEquals(0, timer.lag().count());
+
+      CountDownLatch fired = new CountDownLatch(10);
+      for (int i = 0; i < 10; i++) timer.schedule(fired::countDown, 10, TimeUnit.MILLISECONDS);
+      assertTrue(fired.await(2, TimeUnit.SECONDS));
+
+      LatencyRecorder.Snapshot lag = timer.lag();
+      assertEquals(10, lag.count());
+      assertTrue(lag.meanMillis() >= 0);
+      assertTrue(lag.maxMillis() >= lag.meanMillis());
+      assertTrue(lag.p99Millis() >= 1);
+    }
+  }
+}
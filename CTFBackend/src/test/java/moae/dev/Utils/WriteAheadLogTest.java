@@ -0,0 +1,260 @@
+package moae.dev.Utils;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WriteAheadLogTest {
+  @TempDir Path dir;
+
+  /** Collects what a log replays. */
+  private static class Replayed implements WriteAheadLog.Replay {
+    String checkpoint;
+    final List<String> records = new ArrayList<>();
+    final List<Long> times = new ArrayList<>();
+
+    @Override
+    public void restore(byte[] image) {
+      checkpoint = new String(image, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void apply(long time, byte[] record) {
+      records.add(new String(record, StandardCharsets.UTF_8));
+      times.add(time);
+    }
+  }
+
+  private static byte[] bytes(String value) {
+    return value.getBytes(StandardCharsets.UTF_8);
+  }
+
+  private Replayed reopen() {
+    Replayed replayed = new Replayed();
+    WriteAheadLog.open(dir, replayed).close();
+    return replayed;
+  }
+
+  private List<Path> files(String suffix) throws IOException {
+    try (Stream<Path> files = Files.list(dir)) {
+      return files.filter(f -> f.toString().endsWith(suffix)).sorted().toList();
+    }
+  }
+
+  @Nested
+  @DisplayName("Recovery Tests")
+  class RecoveryTests {
+
+    @Test
+    @DisplayName("Should replay every record in order after a restart")
+    void testReplay() {
+      long before = System.currentTimeMillis();
+      WriteAheadLog log = WriteAheadLog.open(dir, new Replayed());
+      for (int i = 1; i <= 100; i++) assertEquals(i, log.append(bytes("record-" + i)));
+      log.close();
+
+      Replayed replayed = new Replayed();
+      WriteAheadLog reopened = WriteAheadLog.open(dir, replayed);
+      assertEquals(100, replayed.records.size());
+      assertEquals("record-1", replayed.records.getFirst());
+      assertEquals("record-100", replayed.records.getLast());
+      assertTrue(replayed.times.getFirst() >= before);
+      assertNull(replayed.checkpoint);
+
+      // Numbering carries on
+      assertEquals(101, reopened.append(bytes("record-101")));
+      reopened.close();
+      assertEquals(101, reopen().records.size());
+    }
+
+    @Test
+    @DisplayName("Should restore the checkpoint and replay only the records after it")
+    void testCheckpoint() throws IOException {
+      WriteAheadLog log = WriteAheadLog.open(dir, new Replayed());
+      for (int i = 1; i <= 10; i++) log.append(bytes("record-" + i));
+      log.checkpoint(bytes("image-10"));
+      log.append(bytes("record-11"));
+      log.close();
+
+      Replayed replayed = reopen();
+      assertEquals("image-10", replayed.checkpoint);
+      assertEquals(List.of("record-11"), replayed.records);
+      // Older segments and checkpoints are gone
+      assertEquals(1, files(".checkpoint").size());
+      assertEquals(1, files(".wal").size());
+    }
+
+    @Test
+    @DisplayName("Should cut off a torn record and keep appending after the last good one")
+    void testTornTail() throws IOException {
+      WriteAheadLog log = WriteAheadLog.open(dir, new Replayed());
+      for (int i = 1; i <= 3; i++) log.append(bytes("record-" + i));
+      log.close();
+
+      Path segment = files(".wal").getFirst();
+      long size = Files.size(segment);
+      try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+        channel.truncate(size - 3);
+      }
+
+      Replayed replayed = new Replayed();
+      WriteAheadLog reopened = WriteAheadLog.open(dir, replayed);
+      assertEquals(List.of("record-1", "record-2"), replayed.records);
+      assertEquals(3, reopened.append(bytes("record-3b")));
+      reopened.close();
+
+      assertEquals(List.of("record-1", "record-2", "record-3b"), reopen().records);
+    }
+
+    @Test
+    @DisplayName("Should stop at a corrupted record")
+    void testCorruption() throws IOException {
+      WriteAheadLog log = WriteAheadLog.open(dir, new Replayed());
+      for (int i = 1; i <= 3; i++) log.append(bytes("record-" + i));
+      log.close();
+
+      Path segment = files(".wal").getFirst();
+      byte[] content = Files.readAllBytes(segment);
+      content[content.length - 1] ^= 1;
+      Files.write(segment, content);
+
+      assertEquals(List.of("record-1", "record-2"), reopen().records);
+    }
+
+    @Test
+    @DisplayName("Should ignore a checkpoint that was never renamed into place")
+    void testUnfinishedCheckpoint() throws IOException {
+      WriteAheadLog log = WriteAheadLog.open(dir, new Replayed());
+      log.append(bytes("record-1"));
+      log.close();
+      Files.write(dir.resolve("00000000000000000001.checkpoint.tmp"), bytes("partial"));
+
+      Replayed replayed = reopen();
+      assertNull(replayed.checkpoint);
+      assertEquals(List.of("record-1"), replayed.records);
+      assertTrue(files(".tmp").isEmpty());
+    }
+
+    @Test
+    @DisplayName("Deleting a log should remove its directory")
+    void testDelete() {
+      WriteAheadLog log = WriteAheadLog.open(dir.resolve("game"), new Replayed());
+      log.append(bytes("record-1"));
+      log.checkpoint(bytes("image"));
+      log.close();
+
+      WriteAheadLog.delete(dir.resolve("game"));
+      assertFalse(Files.exists(dir.resolve("game")));
+    }
+  }
+
+  @Nested
+  @DisplayName("Writing Tests")
+  class WritingTests {
+
+    @Test
+    @DisplayName("A flush should complete once earlier records are on disk")
+    void testFlush() throws Exception {
+      WriteAheadLog log = WriteAheadLog.open(dir, new Replayed());
+      log.append(bytes("record-1"));
+      log.flush().get(5, TimeUnit.SECONDS);
+
+      assertEquals(1, log.getRecords());
+      assertTrue(Files.size(files(".wal").getFirst()) > 0);
+      log.close();
+    }
+
+    @Test
+    @DisplayName("Concurrent appends should share forces")
+    void testGroupCommit() throws Exception {
+      WriteAheadLog log = WriteAheadLog.open(dir, new Replayed());
+      int writers = 8;
+      int each = 500;
+      CountDownLatch start = new CountDownLatch(1);
+      List<Thread> threads = new ArrayList<>();
+      for (int w = 0; w < writers; w++) {
+        int writer = w;
+        threads.add(
+            Thread.ofVirtual()
+                .start(
+                    () -> {
+                      try {
+                        start.await();
+                      } catch (InterruptedException e) {
+                        return;
+                      }
+                      for (int i = 0; i < each; i++) log.append(bytes(writer + "-" + i));
+                    }));
+      }
+      start.countDown();
+      for (Thread thread : threads) thread.join();
+      log.flush().get(30, TimeUnit.SECONDS);
+
+      assertEquals(writers * each, log.getRecords());
+      assertTrue(
+          log.getCommits() < log.getRecords(),
+          log.getCommits() + " forces for " + log.getRecords() + " records");
+      log.close();
+
+      assertEquals(writers * each, reopen().records.size());
+    }
+
+    @Test
+    @DisplayName("Should refuse records once closed")
+    void testClosed() {
+      WriteAheadLog log = WriteAheadLog.open(dir, new Replayed());
+      log.close();
+
+      assertThrows(IllegalStateException.class, () -> log.append(bytes("late")));
+      assertTrue(log.flush().isDone());
+      log.close();
+    }
+
+    @Test
+    @DisplayName("Should fail closed after a write error and recover what reached the disk")
+    void testWriteFailure() throws Exception {
+      WriteAheadLog log = WriteAheadLog.open(dir, new Replayed());
+      log.append(bytes("record-1"));
+      log.checkpoint(bytes("image-1"));
+      log.flush().get(5, TimeUnit.SECONDS);
+
+      // The next segment can't be created while a directory sits where it goes
+      Path blocked = Files.createDirectory(dir.resolve("00000000000000000002.wal"));
+      log.append(bytes("record-2"));
+      assertThrows(ExecutionException.class, () -> log.flush().get(5, TimeUnit.SECONDS));
+
+      // Even once the disk recovers, nothing is written past the lost record
+      Files.delete(blocked);
+      assertThrows(IllegalStateException.class, () -> log.append(bytes("record-3")));
+      assertThrows(IllegalStateException.class, () -> log.checkpoint(bytes("image-3")));
+      assertThrows(ExecutionException.class, () -> log.flush().get(5, TimeUnit.SECONDS));
+      log.close();
+      assertTrue(files(".wal").isEmpty());
+
+      Replayed replayed = new Replayed();
+      WriteAheadLog reopened = WriteAheadLog.open(dir, replayed);
+      assertEquals("image-1", replayed.checkpoint);
+      assertTrue(replayed.records.isEmpty());
+      assertEquals(2, reopened.append(bytes("record-2b")));
+      reopened.close();
+
+      assertEquals(List.of("record-2b"), reopen().records);
+    }
+  }
+}
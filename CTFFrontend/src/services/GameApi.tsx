@@ -2,7 +2,15 @@ import type { MessageChunk, GameStatus, MessageResponse, StandardStatus, Announc
 import apiCall from "./api";
 
 export const gameStatus = async () => {
-    return await apiCall<GameStatus>("game/status", "GET");
+    // The body may be a revalidated cached copy, the header always carries the live timer
+    let duration: number | null = null;
+    const status = await apiCall<GameStatus>("game/status", "GET", undefined, undefined, (headers) => {
+        const header = headers.get("X-Game-Duration");
+        if (header !== null) duration = Number(header);
+    });
+
+    if (duration !== null) status.state.duration = duration;
+    return status;
 }
 
 export const globalMessage = async (content: string, jwt: string) => {
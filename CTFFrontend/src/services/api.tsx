@@ -6,6 +6,7 @@ async function apiCall<T>(
     method: 'GET' | 'POST' | 'PUT' | 'PATCH' | 'DELETE' = 'GET',
     data?: unknown,
     jwt?: string,
+    onHeaders?: (headers: Headers) => void,
 ): Promise<T> {
     const options: RequestInit = {
         method,
@@ -27,6 +28,7 @@ async function apiCall<T>(
         throw new Error(msg);
     }
 
+    onHeaders?.(res.headers);
     return await res.json() as T;
 }
 
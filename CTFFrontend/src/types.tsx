@@ -85,7 +85,7 @@ export type GameState = {
     winner: string | null,
 }
 
-export const ANNOUNCEMENT_TYPES = ["emergency", "custom", "reset", "release", "register", "victory", "frozen"] as const;
+export const ANNOUNCEMENT_TYPES = ["emergency", "custom", "reset", "release", "register", "victory", "frozen", "proximity", "capture"] as const;
 export type AnnouncementType = (typeof ANNOUNCEMENT_TYPES)[number];
 
 export type Announcement = {